@@ -1,261 +1,572 @@
 package com.lsl.lslcodesandbox;
 
-import cn.hutool.core.io.FileUtil;
-import com.github.dockerjava.api.DockerClient;
-import com.github.dockerjava.api.command.*;
-import com.github.dockerjava.api.model.*;
-import com.github.dockerjava.core.command.ExecStartResultCallback;
-import com.github.javaparser.JavaParser;
-import com.github.javaparser.ParseResult;
-import com.github.javaparser.ast.CompilationUnit;
-import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
 import com.lsl.lslcodesandbox.Utils.ContainerPool;
-import com.lsl.lslcodesandbox.Utils.ProcessUtils;
+import com.lsl.lslcodesandbox.capture.OutputTap;
+import com.lsl.lslcodesandbox.cds.CdsArchiveManager;
+import com.lsl.lslcodesandbox.compare.ExpectedOutputs;
+import com.lsl.lslcodesandbox.compare.OutputComparator;
+import com.lsl.lslcodesandbox.compiler.CompileDaemonPool;
+import com.lsl.lslcodesandbox.compiler.CompileResult;
+import com.lsl.lslcodesandbox.compiler.CompiledClassCache;
+import com.lsl.lslcodesandbox.config.CodeSandboxProperties;
+import com.lsl.lslcodesandbox.jfr.CaseExecEvent;
+import com.lsl.lslcodesandbox.jfr.SandboxEvents;
+import com.lsl.lslcodesandbox.jfr.ContainerAcquireEvent;
+import com.lsl.lslcodesandbox.jfr.StageEvent;
+import com.lsl.lslcodesandbox.jfr.SubmissionEvent;
+import com.lsl.lslcodesandbox.jfr.SubmissionTrace;
+import com.lsl.lslcodesandbox.language.CommandCompiledLanguage;
+import com.lsl.lslcodesandbox.language.LanguageRegistry;
+import com.lsl.lslcodesandbox.language.LanguageStrategy;
+import com.lsl.lslcodesandbox.meter.CgroupResourceMeter;
+import com.lsl.lslcodesandbox.meter.ResourceMeter;
+import com.lsl.lslcodesandbox.meter.ResourceUsage;
+import com.lsl.lslcodesandbox.metrics.SandboxMetrics;
+import com.lsl.lslcodesandbox.model.CaseVerdict;
 import com.lsl.lslcodesandbox.model.ExecuteCodeRequest;
 import com.lsl.lslcodesandbox.model.ExecuteCodeResponse;
+import com.lsl.lslcodesandbox.model.ExecuteMessage;
 import com.lsl.lslcodesandbox.model.JudgeInfo;
+import com.lsl.lslcodesandbox.model.JudgeInfoMessageEnum;
+import com.lsl.lslcodesandbox.runner.ExecuteListener;
+import com.lsl.lslcodesandbox.runner.ExecutionLimits;
+import com.lsl.lslcodesandbox.runner.MultiCaseRunnerSupport;
+import com.lsl.lslcodesandbox.runner.ParallelCaseRunner;
+import com.lsl.lslcodesandbox.runner.RunMode;
+import com.lsl.lslcodesandbox.testdata.TestDataStore;
+import com.lsl.lslcodesandbox.testdata.TestInput;
+import com.lsl.lslcodesandbox.workspace.Workspace;
+import com.lsl.lslcodesandbox.workspace.WorkspaceManager;
 import lombok.SneakyThrows;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.Resource;
-import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
-import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.concurrent.TimeUnit;
 
 
+/**
+ * Docker 代码沙箱实现：按请求的 language 选择语言策略，在该语言自己的容器池里运行
+ * Java 在编译容器里编译；C++ 等命令行编译的语言在自己的运行容器里编译，产物写回工作区后分给各个容器运行
+ */
 @Component
 public class JavaDockerCodeSandbox {
 
     @Resource
     private ContainerPool containerPool;
 
-    private static final String DOCKER_IMAGE = "oj-sandbox-java:1.0";
-    private static final long TIME_OUT = 5000L;
+    @Resource
+    private CompileDaemonPool compileDaemonPool;
 
-    @SneakyThrows
-    public ExecuteCodeResponse execute(ExecuteCodeRequest executeCodeRequest) {
-        String code = executeCodeRequest.getCode();
+    @Resource
+    private CompiledClassCache compiledClassCache;
 
-        // 1. 使用 JavaParser 解析代码，动态获取类名
-        // 这一步是为了防止用户乱写类名导致编译运行失败
-        JavaParser javaParser = new JavaParser();
-        ParseResult<CompilationUnit> parseResult = javaParser.parse(code);
-        CompilationUnit cu = parseResult.getResult().orElseThrow(() -> new RuntimeException("解析代码失败"));
+    @Resource
+    private CodeSandboxProperties codeSandboxProperties;
 
-        // 查找第一个 Public 的类作为主类
-        String className = cu.findAll(ClassOrInterfaceDeclaration.class).stream()
-                .filter(ClassOrInterfaceDeclaration::isPublic)
-                .filter(c -> !c.isInterface()) // 排除接口
-                .findFirst()
-                .map(ClassOrInterfaceDeclaration::getNameAsString)
-                .orElseThrow(() -> new RuntimeException("未找到Public类"));
+    @Resource
+    private CdsArchiveManager cdsArchiveManager;
 
-        // 调用核心执行逻辑
-        return executeCode(executeCodeRequest, className);
-    }
+    @Resource
+    private ParallelCaseRunner parallelCaseRunner;
+
+    @Resource
+    private CgroupResourceMeter cgroupResourceMeter;
+
+    @Resource
+    private TestDataStore testDataStore;
+
+    @Resource
+    private WorkspaceManager workspaceManager;
+
+    @Resource
+    private LanguageRegistry languageRegistry;
 
+    @Resource
+    private SandboxMetrics sandboxMetrics;
 
-    private ExecuteCodeResponse executeCode(ExecuteCodeRequest executeCodeRequest, String className) throws IOException, InterruptedException {
+    public ExecuteCodeResponse execute(ExecuteCodeRequest executeCodeRequest) {
+        return execute(executeCodeRequest, ExecuteListener.NONE);
+    }
 
-        List<String> inputList = executeCodeRequest.getInputList();
+    /**
+     * 执行代码，并把编译、每个用例的结果通过监听器实时汇报
+     */
+    public ExecuteCodeResponse execute(ExecuteCodeRequest executeCodeRequest, ExecuteListener listener) {
+        long startTime = System.nanoTime();
+        String verdict = null;
+        // 由原生沙箱转交时沿用它的提交编号
+        try (SubmissionTrace trace = SubmissionTrace.enter()) {
+            SubmissionEvent submissionEvent = SandboxEvents.startSubmission(trace.getId(), SandboxMetrics.BACKEND_DOCKER, executeCodeRequest);
+            try {
+                ExecuteCodeResponse executeCodeResponse = doExecute(executeCodeRequest, listener);
+                verdict = SandboxMetrics.verdictOf(executeCodeResponse, 2);
+                return executeCodeResponse;
+            } catch (Exception e) {
+                verdict = SandboxMetrics.verdictOf(e);
+                throw e;
+            } finally {
+                sandboxMetrics.recordVerdict(SandboxMetrics.BACKEND_DOCKER, verdict);
+                sandboxMetrics.recordStage(SandboxMetrics.BACKEND_DOCKER, SandboxMetrics.STAGE_TOTAL, System.nanoTime() - startTime);
+                submissionEvent.finish(verdict);
+            }
+        }
+    }
+
+    @SneakyThrows
+    private ExecuteCodeResponse doExecute(ExecuteCodeRequest executeCodeRequest, ExecuteListener listener) {
         String code = executeCodeRequest.getCode();
+        String submissionId = SubmissionTrace.currentId();
+        LanguageStrategy language = languageRegistry.get(executeCodeRequest.getLanguage());
+        if (language instanceof CommandCompiledLanguage) {
+            // 源码和编译产物都放在独占的工作区里，用例跑完再归还
+            try (Workspace workspace = workspaceManager.acquire()) {
+                long compileStart = System.nanoTime();
+                CompileResult compileResult = compileInContainer((CommandCompiledLanguage) language, code, workspace, submissionId);
+                sandboxMetrics.recordStage(SandboxMetrics.BACKEND_DOCKER, SandboxMetrics.STAGE_COMPILE, System.nanoTime() - compileStart);
+                listener.onCompiled(compileResult);
+                return executeCode(executeCodeRequest, language, compileResult, workspace, listener);
+            }
+        }
 
-        // 用于收集每个测试用例的执行结果
-        List<String> outputList = new ArrayList<>();
+        // 1. 查询编译缓存，命中则跳过解析和编译，直接进入运行阶段
+        String cacheKey = compiledClassCache.keyOf(code);
+        CompileResult compileResult = compiledClassCache.get(cacheKey);
+        if (compileResult == null) {
+            // 2. 解析代码，取第一个 Public 的类作为主类
+            long parseStart = System.nanoTime();
+            StageEvent parseEvent = StageEvent.start(submissionId, SandboxMetrics.BACKEND_DOCKER, SandboxMetrics.STAGE_PARSE);
+            String className = language.mainName(code);
+            sandboxMetrics.recordStage(SandboxMetrics.BACKEND_DOCKER, SandboxMetrics.STAGE_PARSE, System.nanoTime() - parseStart);
+            parseEvent.finish(code.length());
+
+            // 3. 编译代码：交给编译容器里常驻的编译服务，用户代码不在宿主机上编译；
+            // 编译服务一直是 JIT 热的，也省去每次启动 javac 进程的开销
+            long compileStart = System.nanoTime();
+            StageEvent compileEvent = StageEvent.start(submissionId, SandboxMetrics.BACKEND_DOCKER, SandboxMetrics.STAGE_COMPILE);
+            compileResult = compileDaemonPool.compile(className, code);
+            sandboxMetrics.recordStage(SandboxMetrics.BACKEND_DOCKER, SandboxMetrics.STAGE_COMPILE, System.nanoTime() - compileStart);
+            compileEvent.finish(code.length());
+            compiledClassCache.put(cacheKey, compileResult);
+        }
 
-        ExecuteCodeResponse executeCodeResponse = new ExecuteCodeResponse();
-        executeCodeResponse.setStatus(1);
+        listener.onCompiled(compileResult);
 
-        // 1. 代码文件保存
+        // 调用核心执行逻辑
+        return executeCode(executeCodeRequest, language, compileResult, null, listener);
+    }
 
-//        String userDir = System.getProperty("user.dir");
-//         存放用户代码的根目录：src/main/resources/userCode
-//        String userDirPath = userDir + File.separator + "src" + File.separator + "main" + File.separator + "resources" + File.separator + "userCode";
-        String userDirPath = System.getProperty("java.io.tmpdir") + File.separator + "oj-sandbox-files";
-        if (!FileUtil.exist(userDirPath)) {
-            FileUtil.mkdir(userDirPath);
+    /**
+     * 在该语言的一个运行容器里编译：源码只读挂载在工作区，产物先写到容器内的临时目录，再经标准输出取回写进工作区，
+     * 编译器的报错走标准错误
+     */
+    private CompileResult compileInContainer(CommandCompiledLanguage language, String code, Workspace workspace,
+                                             String submissionId) throws Exception {
+        String mainName = language.mainName(code);
+        String sourceFile = language.sourceFileName(mainName);
+        workspace.writeFile(sourceFile, code.getBytes(StandardCharsets.UTF_8));
+
+        String outputFile = ContainerPool.SCRATCH_DIR + "/" + mainName;
+        List<String> cmd = new ArrayList<>(Arrays.asList("sh", "-c",
+                "cd \"$0\" && \"$@\" >&2 && cat " + outputFile, workspace.getContainerPath()));
+        cmd.addAll(language.compileCommand(sourceFile, outputFile));
+
+        long startTime = System.currentTimeMillis();
+        MultiCaseRunnerSupport.HarnessOutput output;
+        String containerId = acquireContainer(language, submissionId);
+        try {
+            // 产物大小以工作区配额为上限
+            StageEvent compileEvent = StageEvent.start(submissionId, SandboxMetrics.BACKEND_DOCKER, SandboxMetrics.STAGE_COMPILE);
+            sandboxMetrics.processStarted(SandboxMetrics.BACKEND_DOCKER, "compile");
+            output = containerPool.execInContainer(containerId, cmd.toArray(new String[0]), new byte[0],
+                    codeSandboxProperties.getCompile().getTimeout(), codeSandboxProperties.getWorkspace().getQuota());
+            compileEvent.finish(containerId, code.length());
+        } finally {
+            releaseContainer(containerId, submissionId);
         }
-        // 为每次请求创建一个独立的UUID目录，防止文件名冲突
-        String uuid = UUID.randomUUID().toString();
-        String userPathFile = userDirPath + File.separator + uuid;
-        String userPathFileName = userPathFile + File.separator + className + ".java";
-        File file = FileUtil.writeUtf8String(code, userPathFileName);
 
+        CompileResult compileResult = new CompileResult();
+        compileResult.setClassName(mainName);
+        compileResult.setCompileTime(System.currentTimeMillis() - startTime);
+        // 只返回源文件自己的诊断，再截断到上限
+        String compilerOutput = language.filterCompilerOutput(output.getStderr().trim(), sourceFile);
+        int messageLimit = codeSandboxProperties.getCompile().getMessageLimit();
+        if (compilerOutput.length() > messageLimit) {
+            compilerOutput = compilerOutput.substring(0, messageLimit) + "\n...（编译输出过长，已截断）";
+        }
+        compileResult.setDiagnostics(language.parseDiagnostics(compilerOutput));
+        if (output.isTimedOut()) {
+            compileResult.setMessage("编译超时");
+        } else if (output.isOutputLimitExceeded()) {
+            compileResult.setMessage("编译产物超过工作区配额");
+        } else {
+            compileResult.setSuccess(output.getExitValue() != null && output.getExitValue() == 0);
+            compileResult.setMessage(compilerOutput);
+        }
+        if (compileResult.isSuccess()) {
+            workspace.writeFile(mainName, output.getStdout()).setExecutable(true, false);
+        }
+        return compileResult;
+    }
 
-        // 2. 编译代码 (Javac)
+    /**
+     * @param preparedWorkspace 已经放好编译产物的工作区（命令行编译的语言），Java 为 null，按需申请并写入字节码
+     */
+    private ExecuteCodeResponse executeCode(ExecuteCodeRequest executeCodeRequest, LanguageStrategy language,
+                                            CompileResult compileResult, Workspace preparedWorkspace,
+                                            ExecuteListener listener) throws IOException, InterruptedException {
 
-        // 在宿主机进行编译（简单快捷），也可以选择在 Docker 内编译
-        // -encoding utf-8 防止中文乱码
-        String javac = String.format("javac -encoding utf-8 %s", file.getAbsolutePath());
-        Process compile = Runtime.getRuntime().exec(javac);
-        int waitFor = compile.waitFor();
+        ExecuteCodeResponse executeCodeResponse = new ExecuteCodeResponse();
 
         // 如果编译失败，直接返回错误信息，不再运行 Docker
-        if (waitFor != 0) {
-            StringBuilder stringBuilder = new StringBuilder();
-            // 注意：Windows 默认可能是 GBK，如果乱码请调整编码
-            BufferedReader compileErrorMessage = new BufferedReader(new InputStreamReader(compile.getErrorStream(), "GBK"));
-            String line;
-            while ((line = compileErrorMessage.readLine()) != null) {
-                stringBuilder.append(line).append("\n");
-            }
-            executeCodeResponse.setMessage(stringBuilder.toString());
+        if (!compileResult.isSuccess()) {
+            executeCodeResponse.setMessage(compileResult.getMessage());
+            executeCodeResponse.setCompileDiagnostics(compileResult.getDiagnostics());
             executeCodeResponse.setStatus(3); // 状态 3 表示编译/运行失败
-            // 清理临时文件
-            FileUtil.del(userPathFile);
             return executeCodeResponse;
         }
 
 
-        // 3. Docker 环境准备
-
-        String containerId = null;
-        long totalRunTime = 0L;
-        long maxMemoryUsed = 0L;
-
+        // 用例输入：请求里直接给出的，或按 id 引用测试数据仓库里的文件
+        List<TestInput> inputs = null;
+        ExpectedOutputs expectedOutputs;
         try {
-            // 从容器池中获取容器
-            containerId = containerPool.acquire();
-            DockerClient dockerClient = containerPool.getDockerClient();
-
+            inputs = testDataStore.resolve(executeCodeRequest);
+            // 带了期望输出时在沙箱内比对，不再返回完整输出；在申请工作区之前校验，数量对不上直接返回
+            expectedOutputs = ExpectedOutputs.of(executeCodeRequest, inputs.size());
+        } catch (IllegalArgumentException e) {
+            if (inputs != null) {
+                testDataStore.release(inputs);
+            }
+            executeCodeResponse.setMessage(e.getMessage());
+            executeCodeResponse.setStatus(3);
+            executeCodeResponse.setOutputList(new ArrayList<>());
+            executeCodeResponse.setJudgeInfo(new JudgeInfo());
+            return executeCodeResponse;
+        }
+        try {
+            return runCases(executeCodeRequest, language, compileResult, inputs, expectedOutputs, preparedWorkspace, listener);
+        } finally {
+            // 用例全部跑完才放开引用的测试数据，期间不会被淘汰
+            testDataStore.release(inputs);
+        }
+    }
 
-            // 4. 循环执行测试用例
+    /**
+     * 在容器里执行全部用例并汇总结果
+     *
+     * @param preparedWorkspace 同 executeCode
+     */
+    private ExecuteCodeResponse runCases(ExecuteCodeRequest executeCodeRequest, LanguageStrategy language,
+                                         CompileResult compileResult, List<TestInput> inputs, ExpectedOutputs expectedOutputs,
+                                         Workspace preparedWorkspace, ExecuteListener listener) throws IOException, InterruptedException {
 
-            for (String inputArgs : inputList) {
-                // 构造运行命令：java -cp /app Main
-                // 注意：这里不再通过 args 传参，而是通过 Stdin 输入流传入
-                String containerClassPath = "/app/" + uuid;
-                String[] cmdArray = new String[] {"/usr/bin/time", "-v", "java", "-cp", containerClassPath, className};
-
-                // 创建执行命令 (Exec)
-                ExecCreateCmdResponse execCreateCmdResponse = dockerClient.execCreateCmd(containerId)
-                        .withCmd(cmdArray)
-                        .withAttachStderr(true)
-                        .withAttachStdin(true)  // 必须开启，否则无法输入
-                        .withAttachStdout(true)
-                        .exec();
-
-                String execId = execCreateCmdResponse.getId();
-
-                // 拼接分帧传输的输出结果
-                StringBuilder errorMessage = new StringBuilder();
-                StringBuilder message = new StringBuilder();
-
-                // 启动输出流监听 (异步)
-                ExecStartResultCallback execStartResultCallback = new ExecStartResultCallback() {
-                    @Override
-                    public void onNext(Frame frame) {
-                        StreamType streamType = frame.getStreamType();
-                        // 区分标准错误和标准输出
-                        if (StreamType.STDERR.equals(streamType)) {
-                            errorMessage.append(new String(frame.getPayload()));
-                        } else {
-                            message.append(new String(frame.getPayload()));
-                        }
-                        super.onNext(frame);
-                    }
+        String className = compileResult.getClassName();
+        // 用例在并行执行的线程上跑，提交编号先在这里取出
+        String submissionId = SubmissionTrace.currentId();
 
-                    // 重写 onError，屏蔽 Windows npipe 噪音
-                    @Override
-                    public void onError(Throwable throwable) {
-                        // 如果是 "管道已结束" 这种无意义的异常，直接忽略，不打印日志
-                        if (throwable instanceof IOException &&
-                                (throwable.getMessage() != null &&
-                                        (throwable.getMessage().contains("管道已结束") || throwable.getMessage().contains("The pipe has been ended")))) {
-                            return;
-                        }
-
-                        // 其他真正的异常（比如网络断开、Docker 崩溃），依然交给父类打印出来
-                        super.onError(throwable);
-                    }
-                };
-
-
-                String inputContent = inputArgs + "\n";
-                InputStream inputStream = new ByteArrayInputStream(inputContent.getBytes(StandardCharsets.UTF_8));
-
-                try {
-                    // 执行命令并注入输入流
-                    dockerClient.execStartCmd(execId)
-                            .withStdIn(inputStream)
-                            .exec(execStartResultCallback)
-                            .awaitCompletion(TIME_OUT, TimeUnit.MILLISECONDS);
-                } catch (RuntimeException e) {
-                    // Windows Docker Desktop 使用 npipe 连接时，
-                    // 当程序运行结束关闭流，客户端可能会误报 "管道已结束" 异常。
-                    // 只要程序实际跑完了，这个异常可以安全忽略。
-                    if (e.getMessage() != null && (e.getMessage().contains("管道已结束") || e.getMessage().contains("The pipe has been ended"))) {
-                        // ignore
-                    } else {
-                        throw e; // 其他真正的异常仍需抛出
-                    }
-                }
+        // 用于收集每个测试用例的执行结果
+        List<String> outputList = new ArrayList<>();
 
-                // 关闭流和监控
-                inputStream.close();
+        ExecuteCodeResponse executeCodeResponse = new ExecuteCodeResponse();
+        executeCodeResponse.setStatus(1);
 
+        // 2. 字节码保存
 
-                String stderr = errorMessage.toString();
-                String stdout = message.toString();
+        // 每次请求独占一个工作区（tmpfs 上，容器内只读挂载在 /workspace 下），用完归还由后台清空复用
+        Workspace workspace = preparedWorkspace != null ? preparedWorkspace : workspaceManager.acquire();
+        String userPathFile = workspace.getPath();
+        try {
+            if (preparedWorkspace == null) {
+                long writeStart = System.nanoTime();
+                StageEvent writeEvent = StageEvent.start(submissionId, SandboxMetrics.BACKEND_DOCKER, SandboxMetrics.STAGE_WRITE);
+                workspace.writeClassFiles(compileResult.getClassBytes());
+                sandboxMetrics.recordStage(SandboxMetrics.BACKEND_DOCKER, SandboxMetrics.STAGE_WRITE, System.nanoTime() - writeStart);
+                writeEvent.finish(workspace.getUsedBytes());
+            }
+        } catch (IOException e) {
+            workspace.close();
+            throw e;
+        }
 
-                long timeCost = ProcessUtils.extractTime(stderr);
-                long memoryCost = ProcessUtils.extractMemory(stderr);
 
-                totalRunTime += timeCost;
-                maxMemoryUsed = Math.max(maxMemoryUsed, memoryCost);
-                boolean isTimeOutputOnly = stderr.contains("Command being timed") && !stderr.contains("Exception") && !stderr.contains("Error");
+        // 3. 执行测试用例
+        // 开启并行时用例切成多段，每段从容器池单独取一个容器同时执行，结果仍按用例顺序返回
 
-                if (!stderr.isEmpty() && !isTimeOutputOnly) {
-                    executeCodeResponse.setMessage(stderr);
+        long totalRunTime = 0L;
+        long maxWallTime = 0L;
+        long maxCpuTime = 0L;
+        long maxMemory = 0L;
+        long maxPageFaults = 0L;
+        // 时间限制：CPU 时间判题，墙钟时间兜底
+        ExecutionLimits limits = ExecutionLimits.resolve(executeCodeRequest, codeSandboxProperties.getLimit());
+        List<CaseVerdict> caseVerdicts = new ArrayList<>();
+
+        long runStart = System.nanoTime();
+        try {
+            // 容器内的共享类归档（首次使用时在后台生成，未就绪时为空）
+            List<String> cdsJvmOptions = cdsArchiveManager.dockerJvmOptions();
+            // 单 JVM 只适用于 Java
+            boolean singleJvm = !(language instanceof CommandCompiledLanguage) && codeSandboxProperties.getRun().getMode() == RunMode.SINGLE_JVM;
+            if (singleJvm) {
+                MultiCaseRunnerSupport.installRunner(userPathFile);
+            }
+            List<ExecuteMessage> runMessages = parallelCaseRunner.run(inputs.size(), (fromIndex, toIndex, stopSignal) ->
+                    runInContainer(inputs.subList(fromIndex, toIndex), language, workspace.getContainerPath(), className,
+                            cdsJvmOptions, singleJvm, limits, expectedOutputs, fromIndex, listener, submissionId, stopSignal),
+                    expectedOutputs::stopsAfter);
+
+            // 4. 汇总结果
+            for (ExecuteMessage runMessage : runMessages) {
+                caseVerdicts.add(ExpectedOutputs.verdictOf(caseVerdicts.size(), runMessage));
+                totalRunTime += runMessage.getTime();
+                maxWallTime = Math.max(maxWallTime, runMessage.getTime());
+                maxCpuTime = Math.max(maxCpuTime, runMessage.getCpuTime() == null ? 0 : runMessage.getCpuTime());
+                maxMemory = Math.max(maxMemory, runMessage.getMemory() == null ? 0 : runMessage.getMemory());
+                maxPageFaults = Math.max(maxPageFaults, runMessage.getPageFaults() == null ? 0 : runMessage.getPageFaults());
+                if (runMessage.getVerdict() == JudgeInfoMessageEnum.TIME_LIMIT_EXCEEDED) {
+                    executeCodeResponse.setMessage("执行超时");
+                    executeCodeResponse.setStatus(3);
+                    break;
+                }
+                if (runMessage.getVerdict() == JudgeInfoMessageEnum.CPU_TIME_LIMIT_EXCEEDED) {
+                    executeCodeResponse.setMessage("CPU 时间超限");
+                    executeCodeResponse.setStatus(3);
+                    break;
+                }
+                if (runMessage.getVerdict() == JudgeInfoMessageEnum.OUTPUT_LIMIT_EXCEEDED) {
+                    executeCodeResponse.setMessage("输出超限");
+                    executeCodeResponse.setStatus(3);
+                    break;
+                }
+                if (runMessage.getVerdict() == JudgeInfoMessageEnum.WRONG_ANSWER) {
+                    // 没开 failFast 时答案错误之后的用例照常执行，各自的判定都要返回
+                    executeCodeResponse.setMessage("答案错误：第 " + caseVerdicts.size() + " 个用例，" + runMessage.getDiff());
+                    executeCodeResponse.setStatus(3);
+                    continue;
+                }
+                if (runMessage.getExitValue() != 0 || !runMessage.getErrorMessage().isEmpty()) {
+                    executeCodeResponse.setMessage(runMessage.getErrorMessage());
                     executeCodeResponse.setStatus(3);
                     break; // 遇到错误直接中断后续测试
-                } else {
-                    String output = stdout.trim();
-                    System.out.println("输出结果=================" + output);
-                    outputList.add(output);
                 }
+                System.out.println("输出结果=================" + runMessage.getMessage());
+                outputList.add(runMessage.getMessage());
             }
         } catch (Exception e) {
             executeCodeResponse.setMessage("执行错误: " + e.getMessage());
             executeCodeResponse.setStatus(3);
             e.printStackTrace();
         } finally {
-            if (containerId != null) {
-                try {
-                    containerPool.release(containerId);
-                } catch (Exception e) {
-                    // 忽略清理过程中的报错 (比如容器已经停止了)
-                }
-            }
-
-            // 删除生成的代码文件目录
-            if (file.exists()) {
-                FileUtil.del(userPathFile);
-            }
+            sandboxMetrics.recordStage(SandboxMetrics.BACKEND_DOCKER, SandboxMetrics.STAGE_RUN, System.nanoTime() - runStart);
+            // 5. 归还工作区，清空在后台批量进行
+            long cleanupStart = System.nanoTime();
+            StageEvent cleanupEvent = StageEvent.start(submissionId, SandboxMetrics.BACKEND_DOCKER, SandboxMetrics.STAGE_CLEANUP);
+            long usedBytes = workspace.getUsedBytes();
+            workspace.close();
+            sandboxMetrics.recordStage(SandboxMetrics.BACKEND_DOCKER, SandboxMetrics.STAGE_CLEANUP, System.nanoTime() - cleanupStart);
+            cleanupEvent.finish(usedBytes);
         }
 
 
         // 6. 结果封装返回
 
-        executeCodeResponse.setOutputList(outputList);
-
         JudgeInfo judgeInfo = new JudgeInfo();
+        if (expectedOutputs.isEnabled()) {
+            // 已经在沙箱内比对过，只返回判定
+            executeCodeResponse.setOutputList(new ArrayList<>());
+            executeCodeResponse.setCaseVerdicts(caseVerdicts);
+            judgeInfo.setMessage(caseVerdicts.stream().map(CaseVerdict::getVerdict)
+                    .filter(verdict -> verdict != JudgeInfoMessageEnum.ACCEPTED)
+                    .findFirst().orElse(JudgeInfoMessageEnum.ACCEPTED).getValue());
+        } else {
+            executeCodeResponse.setOutputList(outputList);
+        }
         judgeInfo.setTime(totalRunTime);
-        judgeInfo.setMemory(maxMemoryUsed); // 单位 byte
+        judgeInfo.setMemory(maxMemory); // 单位 byte
+        judgeInfo.setWallTime(maxWallTime);
+        judgeInfo.setCpuTime(maxCpuTime);
+        judgeInfo.setPageFaults(maxPageFaults);
         executeCodeResponse.setJudgeInfo(judgeInfo);
 
         // 如果所有用例都跑通且没有报错，标记为成功
-        if (outputList.size() == inputList.size() && executeCodeResponse.getStatus() == 1) {
+        if (outputList.size() == inputs.size() && executeCodeResponse.getStatus() == 1) {
             executeCodeResponse.setStatus(2); // 2 表示执行成功
             executeCodeResponse.setMessage("执行成功");
         }
 
         return executeCodeResponse;
     }
-}
\ No newline at end of file
+
+    /**
+     * 从该语言的容器池取一个容器，执行一段用例，遇到失败即停止
+     *
+     * @param containerClassPath 编译产物在容器内的路径
+     * 测试数据仓库的数据文件只读挂载在容器里，直接重定向为标准输入，不经 exec 的连接转发
+     *
+     * @param startIndex         第一个用例在整个 inputList 中的下标，用于汇报进度
+     * @param submissionId       提交编号，记在取容器、执行用例的事件里
+     * @param stopSignal         其他段已经失败时提前返回
+     */
+    private List<ExecuteMessage> runInContainer(List<TestInput> inputs, LanguageStrategy language, String containerClassPath, String className,
+                                                List<String> cdsJvmOptions, boolean singleJvm, ExecutionLimits limits,
+                                                ExpectedOutputs expectedOutputs, int startIndex, ExecuteListener listener,
+                                                String submissionId, ParallelCaseRunner.StopSignal stopSignal) throws Exception {
+        String containerId = acquireContainer(language, submissionId);
+        try {
+            if (singleJvm) {
+                // 单 JVM 模式：一次 exec 跑完这一段用例，输出上限按剩余用例数放大，单个用例是否超限拿到结果后再检查
+                CodeSandboxProperties.Output outputConfig = codeSandboxProperties.getOutput();
+                CaseExecEvent execEvent = SandboxEvents.startExec(submissionId, SandboxMetrics.BACKEND_DOCKER, containerId, startIndex, inputs);
+                List<ExecuteMessage> runMessages = expectedOutputs.judgeAll(startIndex, MultiCaseRunnerSupport.checkLimits(MultiCaseRunnerSupport.runAll(inputs.size(), fromIndex -> {
+                    List<String> cmd = new ArrayList<>();
+                    cmd.add("java");
+                    cmd.addAll(cdsJvmOptions);
+                    cmd.addAll(MultiCaseRunnerSupport.runnerArgs(containerClassPath, "/", className, limits.getWallTime(),
+                            outputConfig.getLimit(), outputConfig.getErrorLimit()));
+                    InputStream stdin = MultiCaseRunnerSupport.openInputs(inputs.subList(fromIndex, inputs.size()));
+                    int remaining = inputs.size() - fromIndex;
+                    ResourceMeter.Probe probe = cgroupResourceMeter.start(null);
+                    sandboxMetrics.processStarted(SandboxMetrics.BACKEND_DOCKER, "run");
+                    MultiCaseRunnerSupport.HarnessOutput output = containerPool.execInContainer(containerId,
+                            cgroupResourceMeter.wrap(cmd).toArray(new String[0]), stdin, limits.getWallTime() * (remaining + 1),
+                            (outputConfig.getLimit() + outputConfig.getErrorLimit()) * remaining, OutputTap.NONE);
+                    output.setUsage(probe.finish(output.getStderr()));
+                    output.setStderr(probe.userStderr(output.getStderr()));
+                    return output;
+                }), outputConfig.getLimit(), limits.getCpuTime()));
+                SandboxEvents.finishExec(execEvent, runMessages);
+                for (int i = 0; i < runMessages.size(); i++) {
+                    listener.onCaseFinished(startIndex + i, runMessages.get(i));
+                }
+                return runMessages;
+            }
+            List<ExecuteMessage> runMessages = new ArrayList<>();
+            for (TestInput input : inputs) {
+                if (stopSignal.isStopped(startIndex + runMessages.size())) {
+                    break;
+                }
+                // 构造运行命令：java -cp /workspace/... Main（其他语言按语言策略），带上 RLIMIT_CPU，外面包一层资源计量；
+                // 内存由容器按语言限制
+                // 注意：这里不再通过 args 传参，而是通过 Stdin 输入流传入
+                List<String> cmd = new ArrayList<>();
+                if (language instanceof CommandCompiledLanguage) {
+                    cmd.addAll(language.runCommand(containerClassPath, "/", className));
+                } else {
+                    cmd.add("java");
+                    cmd.addAll(cdsJvmOptions);
+                    cmd.addAll(Arrays.asList("-cp", containerClassPath, className));
+                }
+                String dataPath = input.getFile() == null ? null : testDataStore.containerPath(input.getFile());
+                if (dataPath != null) {
+                    cmd = redirectInput(cmd, dataPath);
+                }
+                String[] cmdArray = cgroupResourceMeter.wrap(limits.wrapWithRlimit(cmd)).toArray(new String[0]);
+
+                int caseIndex = startIndex + runMessages.size();
+                CaseExecEvent execEvent = SandboxEvents.startExec(submissionId, SandboxMetrics.BACKEND_DOCKER, containerId,
+                        caseIndex, Collections.singletonList(input));
+                long startTime = System.currentTimeMillis();
+                ResourceMeter.Probe probe = cgroupResourceMeter.start(null);
+                // 需要比对时边收边比，发现不同立即杀掉容器里的进程
+                OutputComparator comparator = expectedOutputs.comparator(caseIndex);
+                sandboxMetrics.processStarted(SandboxMetrics.BACKEND_DOCKER, "run");
+                MultiCaseRunnerSupport.HarnessOutput output = containerPool.execInContainer(containerId, cmdArray,
+                        dataPath != null ? new ByteArrayInputStream(new byte[0]) : input.openStream(), limits.getWallTime(),
+                        codeSandboxProperties.getOutput().getLimit(), comparator == null ? OutputTap.NONE : comparator);
+                ResourceUsage usage = probe.finish(output.getStderr());
+                if (usage.getWallTime() == null) {
+                    // 进程被强制结束时没有计量结果，用宿主机侧的耗时代替
+                    usage.setWallTime(System.currentTimeMillis() - startTime);
+                }
+
+                JudgeInfoMessageEnum verdict = output.isOutputLimitExceeded() ? JudgeInfoMessageEnum.OUTPUT_LIMIT_EXCEEDED
+                        : limits.verdict(usage, output.getExitValue(), output.isTimedOut());
+                if (verdict != null) {
+                    // 超时或输出超限：容器内的进程已经结束或被强制结束
+                    ExecuteMessage verdictMessage = MultiCaseRunnerSupport.timeoutMessage();
+                    verdictMessage.setVerdict(verdict);
+                    fillUsage(verdictMessage, usage);
+                    if (output.isTimedOut()) {
+                        verdictMessage.setTime(limits.getWallTime());
+                    }
+                    runMessages.add(verdictMessage);
+                    SandboxEvents.finishExec(execEvent, Collections.singletonList(verdictMessage));
+                    listener.onCaseFinished(caseIndex, verdictMessage);
+                    break;
+                }
+
+                String stderr = probe.userStderr(output.getStderr());
+                String stdout = new String(output.getStdout(), StandardCharsets.UTF_8);
+
+                ExecuteMessage runMessage = new ExecuteMessage();
+                fillUsage(runMessage, usage);
+                runMessage.setMessage(stdout.trim());
+                int exitValue = output.getExitValue() == null ? -1 : output.getExitValue();
+                // 有标准错误输出也算出错
+                boolean failed = !stderr.isEmpty() || exitValue != 0;
+                runMessage.setExitValue(failed && exitValue == 0 ? 1 : exitValue);
+                runMessage.setErrorMessage(failed ? stderr : "");
+                expectedOutputs.judge(runMessage, comparator);
+                runMessages.add(runMessage);
+                SandboxEvents.finishExec(execEvent, Collections.singletonList(runMessage));
+                listener.onCaseFinished(caseIndex, runMessage);
+                if (expectedOutputs.stopsAfter(runMessage)) {
+                    break; // 遇到错误直接中断后续测试
+                }
+            }
+            return runMessages;
+        } finally {
+            try {
+                releaseContainer(containerId, submissionId);
+            } catch (Exception e) {
+                // 忽略清理过程中的报错 (比如容器已经停止了)
+            }
+        }
+    }
+
+    /**
+     * 从该语言的容器池取一个容器，等待超时也记一个事件（容器 ID 为空）
+     */
+    private String acquireContainer(LanguageStrategy language, String submissionId) throws InterruptedException {
+        ContainerAcquireEvent acquireEvent = ContainerAcquireEvent.start(submissionId, language.getName());
+        String containerId = null;
+        try {
+            containerId = containerPool.acquire(language.getName());
+            return containerId;
+        } finally {
+            acquireEvent.finish(containerId);
+        }
+    }
+
+    /**
+     * 归还容器，检查和清理在容器池的后台进行
+     */
+    private void releaseContainer(String containerId, String submissionId) {
+        StageEvent cleanupEvent = StageEvent.start(submissionId, SandboxMetrics.BACKEND_DOCKER, SandboxMetrics.STAGE_CLEANUP);
+        containerPool.release(containerId);
+        cleanupEvent.finish(containerId, 0);
+    }
+
+    /**
+     * 让命令在容器里从数据文件读标准输入：sh -c 'exec "$@" < "$0"' 文件 命令...
+     */
+    private static List<String> redirectInput(List<String> cmd, String path) {
+        List<String> wrapped = new ArrayList<>(Arrays.asList("sh", "-c", "exec \"$@\" < \"$0\"", path));
+        wrapped.addAll(cmd);
+        return wrapped;
+    }
+
+    /**
+     * 把容器内一次执行的资源用量填进结果
+     */
+    private static void fillUsage(ExecuteMessage executeMessage, ResourceUsage usage) {
+        executeMessage.setTime(usage.getWallTime());
+        executeMessage.setCpuTime(usage.getCpuTime());
+        executeMessage.setMemory(usage.getPeakMemory());
+        executeMessage.setPageFaults(usage.getPageFaults());
+    }
+}
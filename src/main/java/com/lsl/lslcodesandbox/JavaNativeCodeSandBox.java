@@ -1,185 +1,425 @@
 package com.lsl.lslcodesandbox;
 
-import cn.hutool.core.io.FileUtil;
-import com.github.javaparser.JavaParser;
-import com.github.javaparser.ParseResult;
-import com.github.javaparser.ast.CompilationUnit;
-import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
-import com.github.javaparser.ast.expr.MethodCallExpr;
+import com.lsl.lslcodesandbox.capture.OutputTap;
+import com.lsl.lslcodesandbox.capture.ProcessOutputCapture;
+import com.lsl.lslcodesandbox.cds.CdsArchiveManager;
+import com.lsl.lslcodesandbox.compare.ExpectedOutputs;
+import com.lsl.lslcodesandbox.compare.OutputComparator;
+import com.lsl.lslcodesandbox.compiler.CompileResult;
+import com.lsl.lslcodesandbox.compiler.CompiledClassCache;
+import com.lsl.lslcodesandbox.compiler.InMemoryJavaCompiler;
+import com.lsl.lslcodesandbox.config.CodeSandboxProperties;
+import com.lsl.lslcodesandbox.jfr.CaseExecEvent;
+import com.lsl.lslcodesandbox.jfr.SandboxEvents;
+import com.lsl.lslcodesandbox.jfr.StageEvent;
+import com.lsl.lslcodesandbox.jfr.SubmissionEvent;
+import com.lsl.lslcodesandbox.jfr.SubmissionTrace;
+import com.lsl.lslcodesandbox.language.CommandCompiledLanguage;
+import com.lsl.lslcodesandbox.language.LanguageRegistry;
+import com.lsl.lslcodesandbox.language.LanguageStrategy;
+import com.lsl.lslcodesandbox.meter.ProcfsResourceMeter;
+import com.lsl.lslcodesandbox.meter.ResourceMeter;
+import com.lsl.lslcodesandbox.meter.ResourceUsage;
+import com.lsl.lslcodesandbox.metrics.SandboxMetrics;
+import com.lsl.lslcodesandbox.model.CaseVerdict;
 import com.lsl.lslcodesandbox.model.ExecuteCodeRequest;
 import com.lsl.lslcodesandbox.model.ExecuteCodeResponse;
 import com.lsl.lslcodesandbox.model.ExecuteMessage;
 import com.lsl.lslcodesandbox.model.JudgeInfo;
+import com.lsl.lslcodesandbox.model.JudgeInfoMessageEnum;
+import com.lsl.lslcodesandbox.runner.ExecuteListener;
+import com.lsl.lslcodesandbox.runner.ExecutionLimits;
+import com.lsl.lslcodesandbox.runner.MultiCaseRunnerSupport;
+import com.lsl.lslcodesandbox.runner.ParallelCaseRunner;
+import com.lsl.lslcodesandbox.runner.RunMode;
+import com.lsl.lslcodesandbox.runner.SandboxBackend;
+import com.lsl.lslcodesandbox.runner.WorkerPool;
+import com.lsl.lslcodesandbox.security.BytecodeScanner;
+import com.lsl.lslcodesandbox.security.CheckResult;
+import com.lsl.lslcodesandbox.security.ScanResult;
+import com.lsl.lslcodesandbox.security.ScanVerdict;
+import com.lsl.lslcodesandbox.security.StaticChecker;
+import com.lsl.lslcodesandbox.testdata.TestDataStore;
+import com.lsl.lslcodesandbox.testdata.TestInput;
+import com.lsl.lslcodesandbox.workspace.Workspace;
+import com.lsl.lslcodesandbox.workspace.WorkspaceManager;
 import lombok.SneakyThrows;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.Resource;
 import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.UUID;
-import java.util.concurrent.TimeUnit;
+import java.util.Map;
 
 /**
- * Java 原生代码沙箱实现
+ * 原生代码沙箱实现：在本机运行，按请求的 language 选择语言策略
+ * Java 走进程内编译和专门的运行方式；C++ 等命令行编译的语言在本机没有隔离，转交 Docker 沙箱
  */
 @Component
 public class JavaNativeCodeSandBox {
 
-    private static final String GLOBAL_CODE_DIR_NAME = "tmpCode";
-    private static final String GLOBAL_JAVA_CLASS_NAME = "Main.java";
-    private static final long TIME_OUT = 5000L; // 超时时间 5秒
+    @Resource
+    private InMemoryJavaCompiler inMemoryJavaCompiler;
 
-    @SneakyThrows
-    public static ExecuteCodeResponse execute(ExecuteCodeRequest executeCodeRequest) {
-        String code = executeCodeRequest.getCode();
+    @Resource
+    private CompiledClassCache compiledClassCache;
+
+    @Resource
+    private CodeSandboxProperties codeSandboxProperties;
+
+    @Resource
+    private WorkerPool workerPool;
+
+    @Resource
+    private CdsArchiveManager cdsArchiveManager;
+
+    @Resource
+    private ParallelCaseRunner parallelCaseRunner;
+
+    @Resource
+    private ProcessOutputCapture processOutputCapture;
+
+    @Resource
+    private ProcfsResourceMeter procfsResourceMeter;
 
-        // 1. 安全检查（黑名单机制）
-        checkCodeSecurity(code);
+    @Resource
+    private TestDataStore testDataStore;
 
-        // 2. 解析类名
-        JavaParser javaParser = new JavaParser();
-        ParseResult<CompilationUnit> parseResult = javaParser.parse(code);
-        CompilationUnit cu = parseResult.getResult().orElseThrow(() -> new RuntimeException("解析代码失败"));
+    @Resource
+    private WorkspaceManager workspaceManager;
 
-        String className = cu.findAll(ClassOrInterfaceDeclaration.class).stream()
-                .filter(ClassOrInterfaceDeclaration::isPublic)
-                .filter(c -> !c.isInterface()) // 排除接口
-                .findFirst()
-                .map(ClassOrInterfaceDeclaration::getNameAsString)
-                .orElseThrow(() -> new RuntimeException("未找到可执行的Public类"));
+    @Resource
+    private LanguageRegistry languageRegistry;
 
-        // 3. 调用执行逻辑
-        return executeCode(executeCodeRequest, className);
+    @Resource
+    private StaticChecker staticChecker;
+
+    @Resource
+    private BytecodeScanner bytecodeScanner;
+
+    @Resource
+    private JavaDockerCodeSandbox javaDockerCodeSandbox;
+
+    @Resource
+    private SandboxMetrics sandboxMetrics;
+
+    public ExecuteCodeResponse execute(ExecuteCodeRequest executeCodeRequest) {
+        return execute(executeCodeRequest, ExecuteListener.NONE);
     }
 
     /**
-     * 核心执行方法
+     * 执行代码，并把编译、每个用例的结果通过监听器实时汇报
      */
-    private static ExecuteCodeResponse executeCode(ExecuteCodeRequest executeCodeRequest, String className) {
-        List<String> inputList = executeCodeRequest.getInputList();
+    public ExecuteCodeResponse execute(ExecuteCodeRequest executeCodeRequest, ExecuteListener listener) {
+        long startTime = System.nanoTime();
+        String verdict = null;
+        try (SubmissionTrace trace = SubmissionTrace.enter()) {
+            SubmissionEvent submissionEvent = SandboxEvents.startSubmission(trace.getId(), SandboxMetrics.BACKEND_NATIVE, executeCodeRequest);
+            try {
+                ExecuteCodeResponse executeCodeResponse = doExecute(executeCodeRequest, listener);
+                verdict = SandboxMetrics.verdictOf(executeCodeResponse, 1);
+                return executeCodeResponse;
+            } catch (Exception e) {
+                verdict = SandboxMetrics.verdictOf(e);
+                throw e;
+            } finally {
+                sandboxMetrics.recordVerdict(SandboxMetrics.BACKEND_NATIVE, verdict);
+                sandboxMetrics.recordStage(SandboxMetrics.BACKEND_NATIVE, SandboxMetrics.STAGE_TOTAL, System.nanoTime() - startTime);
+                submissionEvent.finish(verdict);
+            }
+        }
+    }
+
+    @SneakyThrows
+    private ExecuteCodeResponse doExecute(ExecuteCodeRequest executeCodeRequest, ExecuteListener listener) {
         String code = executeCodeRequest.getCode();
-        
-        // 使用局部变量收集输出
-        List<String> outputList = new ArrayList<>();
-        
-        ExecuteCodeResponse executeCodeResponse = new ExecuteCodeResponse();
+        String submissionId = SubmissionTrace.currentId();
 
-        // --- 1. 代码保存 ---
-        String userDir = System.getProperty("user.dir");
-        String globalCodePathName = userDir + File.separator + GLOBAL_CODE_DIR_NAME;
-        // 即使目录不存在，FileUtil.touch 也会自动创建
-        if (!FileUtil.exist(globalCodePathName)) {
-            FileUtil.mkdir(globalCodePathName);
-        }
-        
-        // 隔离存放：tmpCode/UUID/ClassName.java
-        String userCodeParentPath = globalCodePathName + File.separator + UUID.randomUUID();
-        String userCodePath = userCodeParentPath + File.separator + className + ".java";
-        File userCodeFile = FileUtil.writeString(code, userCodePath, StandardCharsets.UTF_8);
-
-        // --- 2. 编译代码 ---
-        // 注意：Windows下路径如果包含空格可能会出问题，这里简单处理
-        // 命令：javac -encoding utf-8 /path/to/Main.java
-        String compileCmd = String.format("javac -encoding utf-8 %s", userCodeFile.getAbsolutePath());
-        
+        LanguageStrategy language;
         try {
-            Process compileProcess = Runtime.getRuntime().exec(compileCmd);
-            // 等待编译完成
-            ExecuteMessage compileMessage = getProcessMessage(compileProcess, "编译");
-            System.out.println("编译信息：" + compileMessage);
-            
-            if (compileMessage.getExitValue() != 0) {
-                // 编译失败
+            language = languageRegistry.get(executeCodeRequest.getLanguage());
+        } catch (IllegalArgumentException e) {
+            return getErrorResponse(e);
+        }
+        if (language instanceof CommandCompiledLanguage) {
+            // 本机编译运行的程序只有 rlimit，没有命名空间隔离，网络和文件系统都碰得到；
+            // 命令行编译的语言一律在各自的容器里编译、运行
+            return runInDocker(executeCodeRequest, listener);
+        }
+
+        // 1. 静态检查：只解析一次，一遍遍历跑完所有规则，同时取出主类名；结论按源码摘要缓存
+        long checkStart = System.nanoTime();
+        StageEvent checkEvent = StageEvent.start(submissionId, SandboxMetrics.BACKEND_NATIVE, SandboxMetrics.STAGE_CHECK);
+        CheckResult checkResult = staticChecker.check(code);
+        sandboxMetrics.recordStage(SandboxMetrics.BACKEND_NATIVE, SandboxMetrics.STAGE_CHECK, System.nanoTime() - checkStart);
+        checkEvent.finish(code.length());
+        if (!checkResult.isPassed()) {
+            throw new RuntimeException("检测到违规代码操作，已拦截：" + checkResult.getViolation());
+        }
+
+        // 2. 查询编译缓存，命中则跳过解析和编译
+        String cacheKey = compiledClassCache.keyOf(code);
+        CompileResult compileResult = compiledClassCache.get(cacheKey);
+        if (compileResult == null) {
+            // 3. 主类名沿用静态检查的解析结果
+            String className = checkResult.getMainClassName();
+            if (className == null) {
+                throw new RuntimeException("未找到可执行的Public类");
+            }
+
+            // 4. 编译代码（进程内、纯内存）
+            long compileStart = System.nanoTime();
+            StageEvent compileEvent = StageEvent.start(submissionId, SandboxMetrics.BACKEND_NATIVE, SandboxMetrics.STAGE_COMPILE);
+            try {
+                compileResult = inMemoryJavaCompiler.compile(className, code);
+                System.out.println("编译信息：耗时 " + compileResult.getCompileTime() + "ms，" + compileResult.getMessage());
+            } catch (Exception e) {
+                return getErrorResponse(e);
+            } finally {
+                sandboxMetrics.recordStage(SandboxMetrics.BACKEND_NATIVE, SandboxMetrics.STAGE_COMPILE, System.nanoTime() - compileStart);
+                compileEvent.finish(code.length());
+            }
+            compiledClassCache.put(cacheKey, compileResult);
+        }
+
+        // 5. 扫描字节码里引用的类和成员：命中禁止清单直接拦截，引用了清单外的类按配置交给 Docker 沙箱
+        CodeSandboxProperties.Security security = codeSandboxProperties.getSecurity();
+        if (compileResult.isSuccess() && security.isBytecodeScan()) {
+            ScanResult scanResult;
+            StageEvent scanEvent = StageEvent.start(submissionId, SandboxMetrics.BACKEND_NATIVE, SandboxMetrics.STAGE_SCAN);
+            try {
+                scanResult = bytecodeScanner.scan(compileResult.getClassBytes());
+            } catch (IllegalArgumentException e) {
+                return getErrorResponse(e);
+            } finally {
+                scanEvent.finish(sizeOf(compileResult.getClassBytes()));
+            }
+            sandboxMetrics.recordStage(SandboxMetrics.BACKEND_NATIVE, SandboxMetrics.STAGE_SCAN, scanResult.getScanNanos());
+            if (scanResult.getVerdict() == ScanVerdict.DENIED) {
+                ExecuteCodeResponse executeCodeResponse = new ExecuteCodeResponse();
+                executeCodeResponse.setOutputList(new ArrayList<>());
                 executeCodeResponse.setStatus(3);
-                executeCodeResponse.setMessage("编译失败：\n" + compileMessage.getErrorMessage());
+                executeCodeResponse.setMessage("检测到违规代码操作，已拦截：" + scanResult.getReference());
+                executeCodeResponse.setJudgeInfo(new JudgeInfo());
                 return executeCodeResponse;
             }
+            if (scanResult.getVerdict() == ScanVerdict.UNTRUSTED && security.getUntrustedBackend() == SandboxBackend.DOCKER) {
+                System.out.println("引用了清单外的 " + scanResult.getReference() + "，转交 Docker 沙箱运行");
+                return runInDocker(executeCodeRequest, listener);
+            }
+        }
+
+        listener.onCompiled(compileResult);
+
+        // 6. 调用执行逻辑
+        return executeCode(executeCodeRequest, language, compileResult, listener);
+    }
+
+    /**
+     * 转交 Docker 沙箱执行，Docker 沙箱以 2 表示成功，统一成本沙箱的 1
+     */
+    private ExecuteCodeResponse runInDocker(ExecuteCodeRequest executeCodeRequest, ExecuteListener listener) {
+        ExecuteCodeResponse executeCodeResponse;
+        try {
+            executeCodeResponse = javaDockerCodeSandbox.execute(executeCodeRequest, listener);
         } catch (Exception e) {
             return getErrorResponse(e);
         }
+        if (executeCodeResponse.getStatus() != null && executeCodeResponse.getStatus() == 2) {
+            executeCodeResponse.setStatus(1);
+        }
+        return executeCodeResponse;
+    }
 
-        // --- 3. 执行代码 ---
-        long maxTime = 0;
-        long maxMemory = 0; // 原生获取内存较难，这里暂存 0 或后续通过 Runtime 估算
+    /**
+     * 核心执行方法
+     */
+    private ExecuteCodeResponse executeCode(ExecuteCodeRequest executeCodeRequest, LanguageStrategy language,
+                                            CompileResult compileResult, ExecuteListener listener) {
+        ExecuteCodeResponse executeCodeResponse = new ExecuteCodeResponse();
 
+        // --- 1. 编译结果检查 ---
+        if (!compileResult.isSuccess()) {
+            // 编译失败
+            executeCodeResponse.setStatus(3);
+            executeCodeResponse.setMessage("编译失败：\n" + compileResult.getMessage());
+            executeCodeResponse.setCompileDiagnostics(compileResult.getDiagnostics());
+            return executeCodeResponse;
+        }
+
+        // --- 2. 执行代码 ---
+        // 用例输入：请求里直接给出的，或按 id 引用测试数据仓库里的文件
+        List<TestInput> inputs = null;
+        ExpectedOutputs expectedOutputs;
         try {
-            for (String inputArgs : inputList) {
-                // 构造运行命令：java -Xmx256m -Dfile.encoding=UTF-8 -cp /path/to/dir ClassName
-                // 注意：这里不再通过 args 传参，而是通过 Process 的 OutputStream 写入
-                List<String> runCmd = new ArrayList<>();
-                runCmd.add("java");
-                runCmd.add("-Xmx256m"); // 限制最大堆内存
-                runCmd.add("-Dfile.encoding=UTF-8");
-                runCmd.add("-cp");
-                runCmd.add(userCodeParentPath);
-                runCmd.add(className);
-
-                ProcessBuilder processBuilder = new ProcessBuilder(runCmd);
-                // 必须重定向错误流，否则如果不读取错误流，进程可能会卡死
-                // processBuilder.redirectErrorStream(true); 
-                
-                long startTime = System.currentTimeMillis();
-                Process runProcess = processBuilder.start();
-
-                // 重点：通过标准输入流（Stdin）写入测试用例
-                // 类似于在控制台手动输入数据
-                try (OutputStream outputStream = runProcess.getOutputStream()) {
-                    outputStream.write((inputArgs + "\n").getBytes(StandardCharsets.UTF_8));
-                    outputStream.flush();
-                }
+            inputs = testDataStore.resolve(executeCodeRequest);
+            // 带了期望输出时在沙箱内比对，不再返回完整输出；在申请工作区之前校验，数量对不上直接返回
+            expectedOutputs = ExpectedOutputs.of(executeCodeRequest, inputs.size());
+        } catch (IllegalArgumentException e) {
+            if (inputs != null) {
+                testDataStore.release(inputs);
+            }
+            return getErrorResponse(e);
+        }
+        try {
+            return runCases(executeCodeRequest, language, compileResult, inputs, expectedOutputs, listener);
+        } finally {
+            // 用例全部跑完才放开引用的测试数据，期间不会被淘汰
+            testDataStore.release(inputs);
+        }
+    }
 
-                // 开启超时控制线程
-                // 这里使用 Process.waitFor(time, unit) Java 8+ 支持，更优雅
-                boolean completed = runProcess.waitFor(TIME_OUT, TimeUnit.MILLISECONDS);
-                
-                if (!completed) {
-                    runProcess.destroy(); // 超时销毁
-                    executeCodeResponse.setStatus(3);
-                    executeCodeResponse.setMessage("执行超时");
-                    break;
-                }
+    /**
+     * 执行全部用例并汇总结果
+     */
+    private ExecuteCodeResponse runCases(ExecuteCodeRequest executeCodeRequest, LanguageStrategy language,
+                                         CompileResult compileResult, List<TestInput> inputs, ExpectedOutputs expectedOutputs,
+                                         ExecuteListener listener) {
+        String className = compileResult.getClassName();
+        // 用例在并行执行的线程上跑，提交编号先在这里取出
+        String submissionId = SubmissionTrace.currentId();
+
+        // 使用局部变量收集输出
+        List<String> outputList = new ArrayList<>();
 
-                // 获取运行结果
-                ExecuteMessage runMessage = getProcessMessage(runProcess, "运行");
-                // System.out.println(runMessage); // 调试用
-                
-                long timeCost = System.currentTimeMillis() - startTime;
-                maxTime = Math.max(maxTime, timeCost);
-
-                if (runMessage.getExitValue() != 0) {
-                    executeCodeResponse.setStatus(3);
-                    executeCodeResponse.setMessage("运行错误：\n" + runMessage.getErrorMessage());
-                    // 只要有一个用例失败，判题就算失败（或者你可以选择继续跑完）
-                    break; 
+        ExecuteCodeResponse executeCodeResponse = new ExecuteCodeResponse();
+        long maxTime = 0;
+        long maxCpuTime = 0;
+        long maxMemory = 0;
+        long maxPageFaults = 0;
+
+        // 时间限制：CPU 时间判题，墙钟时间兜底
+        ExecutionLimits limits = ExecutionLimits.resolve(executeCodeRequest, codeSandboxProperties.getLimit());
+        long outputLimit = codeSandboxProperties.getOutput().getLimit();
+
+        List<ExecuteMessage> runMessages;
+        RunMode runMode = codeSandboxProperties.getRun().getMode();
+        long runStart = System.nanoTime();
+        if (runMode == RunMode.WORKER_POOL) {
+            // 字节码直接经管道交给常驻 worker，不需要落盘
+            try {
+                runMessages = parallelCaseRunner.run(inputs.size(), (fromIndex, toIndex, stopSignal) -> {
+                    List<TestInput> segment = inputs.subList(fromIndex, toIndex);
+                    CaseExecEvent execEvent = SandboxEvents.startExec(submissionId, SandboxMetrics.BACKEND_NATIVE, null, fromIndex, segment);
+                    List<ExecuteMessage> segmentMessages = expectedOutputs.judgeAll(fromIndex, MultiCaseRunnerSupport.checkLimits(
+                            workerPool.execute(className, compileResult.getClassBytes(), segment, limits.getWallTime()),
+                            outputLimit, limits.getCpuTime()));
+                    SandboxEvents.finishExec(execEvent, segmentMessages);
+                    return report(listener, fromIndex, segmentMessages);
+                }, expectedOutputs::stopsAfter);
+            } catch (Exception e) {
+                return getErrorResponse(e);
+            }
+        } else {
+            // 保存字节码，隔离存放在独占的工作区里（tmpfs 上，用完归还由后台清空复用）
+            Workspace workspace = workspaceManager.acquire();
+            String userCodeParentPath = workspace.getPath();
+            try {
+                long writeStart = System.nanoTime();
+                StageEvent writeEvent = StageEvent.start(submissionId, SandboxMetrics.BACKEND_NATIVE, SandboxMetrics.STAGE_WRITE);
+                workspace.writeClassFiles(compileResult.getClassBytes());
+                sandboxMetrics.recordStage(SandboxMetrics.BACKEND_NATIVE, SandboxMetrics.STAGE_WRITE, System.nanoTime() - writeStart);
+                writeEvent.finish(workspace.getUsedBytes());
+                runStart = System.nanoTime();
+                // 开启并行时用例会切成多段同时执行，结果仍按用例顺序返回
+                if (runMode == RunMode.SINGLE_JVM) {
+                    MultiCaseRunnerSupport.installRunner(userCodeParentPath);
+                    runMessages = parallelCaseRunner.run(inputs.size(), (fromIndex, toIndex, stopSignal) -> {
+                        List<TestInput> segment = inputs.subList(fromIndex, toIndex);
+                        CaseExecEvent execEvent = SandboxEvents.startExec(submissionId, SandboxMetrics.BACKEND_NATIVE, null, fromIndex, segment);
+                        List<ExecuteMessage> segmentMessages = expectedOutputs.judgeAll(fromIndex, MultiCaseRunnerSupport.checkLimits(
+                                runInSingleJvm(segment, userCodeParentPath, className, limits),
+                                outputLimit, limits.getCpuTime()));
+                        SandboxEvents.finishExec(execEvent, segmentMessages);
+                        return report(listener, fromIndex, segmentMessages);
+                    }, expectedOutputs::stopsAfter);
                 } else {
-                    // 成功，收集输出
-                    outputList.add(runMessage.getMessage());
+                    List<String> runCmd = runCommand(language, userCodeParentPath, className);
+                    runMessages = parallelCaseRunner.run(inputs.size(), (fromIndex, toIndex, stopSignal) ->
+                            runInProcesses(inputs.subList(fromIndex, toIndex), runCmd, limits,
+                                    expectedOutputs, fromIndex, listener, submissionId, stopSignal), expectedOutputs::stopsAfter);
                 }
+            } catch (Exception e) {
+                return getErrorResponse(e);
+            } finally {
+                // --- 3. 资源清理 ---
+                // 无论成功失败都归还工作区，清空在后台批量进行，不占用请求线程
+                long cleanupStart = System.nanoTime();
+                StageEvent cleanupEvent = StageEvent.start(submissionId, SandboxMetrics.BACKEND_NATIVE, SandboxMetrics.STAGE_CLEANUP);
+                long usedBytes = workspace.getUsedBytes();
+                workspace.close();
+                sandboxMetrics.recordStage(SandboxMetrics.BACKEND_NATIVE, SandboxMetrics.STAGE_CLEANUP, System.nanoTime() - cleanupStart);
+                cleanupEvent.finish(usedBytes);
             }
-        } catch (Exception e) {
-            return getErrorResponse(e);
-        } finally {
-            // --- 4. 资源清理 (非常重要！) ---
-            // 无论成功失败，都要删除生成的临时目录
-            if (userCodeFile.getParentFile() != null) {
-                boolean del = FileUtil.del(userCodeParentPath);
-                System.out.println("删除临时目录" + (del ? "成功" : "失败"));
+        }
+        sandboxMetrics.recordStage(SandboxMetrics.BACKEND_NATIVE, SandboxMetrics.STAGE_RUN, System.nanoTime() - runStart);
+
+        List<CaseVerdict> caseVerdicts = new ArrayList<>();
+        for (ExecuteMessage runMessage : runMessages) {
+            caseVerdicts.add(ExpectedOutputs.verdictOf(caseVerdicts.size(), runMessage));
+            if (runMessage.getVerdict() == JudgeInfoMessageEnum.TIME_LIMIT_EXCEEDED) {
+                executeCodeResponse.setStatus(3);
+                executeCodeResponse.setMessage("执行超时");
+                break;
+            }
+            if (runMessage.getVerdict() == JudgeInfoMessageEnum.CPU_TIME_LIMIT_EXCEEDED) {
+                executeCodeResponse.setStatus(3);
+                executeCodeResponse.setMessage("CPU 时间超限");
+                break;
+            }
+            if (runMessage.getVerdict() == JudgeInfoMessageEnum.OUTPUT_LIMIT_EXCEEDED) {
+                executeCodeResponse.setStatus(3);
+                executeCodeResponse.setMessage("输出超限");
+                break;
+            }
+            maxTime = Math.max(maxTime, runMessage.getTime());
+            maxCpuTime = Math.max(maxCpuTime, runMessage.getCpuTime() == null ? 0 : runMessage.getCpuTime());
+            maxMemory = Math.max(maxMemory, runMessage.getMemory() == null ? 0 : runMessage.getMemory());
+            maxPageFaults = Math.max(maxPageFaults, runMessage.getPageFaults() == null ? 0 : runMessage.getPageFaults());
+
+            if (runMessage.getVerdict() == JudgeInfoMessageEnum.WRONG_ANSWER) {
+                // 没开 failFast 时答案错误之后的用例照常执行，各自的判定都要返回
+                executeCodeResponse.setStatus(3);
+                executeCodeResponse.setMessage("答案错误：第 " + caseVerdicts.size() + " 个用例，" + runMessage.getDiff());
+                continue;
+            }
+            if (runMessage.getExitValue() != 0) {
+                executeCodeResponse.setStatus(3);
+                executeCodeResponse.setMessage("运行错误：\n" + runMessage.getErrorMessage());
+                // 只要有一个用例失败，判题就算失败（或者你可以选择继续跑完）
+                break;
+            } else {
+                // 成功，收集输出
+                outputList.add(runMessage.getMessage());
             }
         }
 
-        // --- 5. 结果封装 ---
-        if (outputList.size() == inputList.size()) {
+        // --- 4. 结果封装 ---
+        if (outputList.size() == inputs.size()) {
             executeCodeResponse.setStatus(1); // 成功
             executeCodeResponse.setMessage("执行成功");
         }
         
-        executeCodeResponse.setOutputList(outputList);
-        
         JudgeInfo judgeInfo = new JudgeInfo();
+        if (expectedOutputs.isEnabled()) {
+            // 已经在沙箱内比对过，只返回判定
+            executeCodeResponse.setOutputList(new ArrayList<>());
+            executeCodeResponse.setCaseVerdicts(caseVerdicts);
+            judgeInfo.setMessage(caseVerdicts.stream().map(CaseVerdict::getVerdict)
+                    .filter(verdict -> verdict != JudgeInfoMessageEnum.ACCEPTED)
+                    .findFirst().orElse(JudgeInfoMessageEnum.ACCEPTED).getValue());
+        } else {
+            executeCodeResponse.setOutputList(outputList);
+        }
         judgeInfo.setTime(maxTime);
-        // 原生实现难以精确监控内存，这里暂给 0 或一个估算值
-        judgeInfo.setMemory(0L); 
+        judgeInfo.setWallTime(maxTime);
+        judgeInfo.setCpuTime(maxCpuTime);
+        // 常驻 worker 模式下多次提交共用进程，拿不到单次的内存，为 0
+        judgeInfo.setMemory(maxMemory);
+        judgeInfo.setPageFaults(maxPageFaults);
         
         executeCodeResponse.setJudgeInfo(judgeInfo);
 
@@ -187,35 +427,141 @@ public class JavaNativeCodeSandBox {
     }
 
     /**
-     * 获取进程的输出信息（Stdout + Stderr）
+     * 单个用例的运行命令：在 java 之后插入共享类归档参数
      */
-    private static ExecuteMessage getProcessMessage(Process process, String opName) {
-        ExecuteMessage executeMessage = new ExecuteMessage();
+    private List<String> runCommand(LanguageStrategy language, String userCodeParentPath, String mainName) {
+        List<String> runCmd = new ArrayList<>(language.runCommand(userCodeParentPath, File.separator, mainName));
+        runCmd.addAll(1, cdsArchiveManager.nativeJvmOptions()); // 共享类归档，缩短 JVM 启动时间
+        return runCmd;
+    }
 
-        try {
-            // 读取标准输出
-            BufferedReader stdoutReader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
-            StringBuilder stdoutBuilder = new StringBuilder();
-            String line;
-            while ((line = stdoutReader.readLine()) != null) {
-                stdoutBuilder.append(line).append("\n"); // 还原换行符
+    /**
+     * 每个用例启动一个进程执行（Java 为一个 JVM），遇到第一个失败的用例即停止
+     * 进程带 RLIMIT_CPU 启动，计量探针同时按 CPU 时间和空等时间盯着它
+     *
+     * 数据文件直接重定向为进程的标准输入，不经过沙箱转手
+     *
+     * @param fromIndex 第一个用例在整个 inputList 中的下标，用于汇报进度
+     * @param submissionId 提交编号，记在每个用例的执行事件里
+     * @param stopSignal 其他段已经失败时提前返回
+     */
+    private List<ExecuteMessage> runInProcesses(List<TestInput> inputs, List<String> runCmd,
+                                                ExecutionLimits limits, ExpectedOutputs expectedOutputs,
+                                                int fromIndex, ExecuteListener listener, String submissionId,
+                                                ParallelCaseRunner.StopSignal stopSignal) throws Exception {
+        List<ExecuteMessage> runMessages = new ArrayList<>();
+        for (TestInput input : inputs) {
+            int caseIndex = fromIndex + runMessages.size();
+            if (stopSignal.isStopped(caseIndex)) {
+                break;
             }
-            // 这里的 trim 视情况而定，有些题目答案需要保留尾部空格
-            executeMessage.setMessage(stdoutBuilder.toString().trim());
-
-            // 读取错误输出
-            BufferedReader stderrReader = new BufferedReader(new InputStreamReader(process.getErrorStream(), StandardCharsets.UTF_8));
-            StringBuilder stderrBuilder = new StringBuilder();
-            while ((line = stderrReader.readLine()) != null) {
-                stderrBuilder.append(line).append("\n");
+            CaseExecEvent execEvent = SandboxEvents.startExec(submissionId, SandboxMetrics.BACKEND_NATIVE, null,
+                    caseIndex, Collections.singletonList(input));
+            // 运行命令如 java -Xmx256m -Dfile.encoding=UTF-8 -cp /path/to/dir ClassName
+            // 注意：这里不再通过 args 传参，而是通过 Process 的 OutputStream 写入
+            ProcessBuilder processBuilder = new ProcessBuilder(limits.wrapWithRlimit(runCmd));
+            if (input.getFile() != null) {
+                processBuilder.redirectInput(input.getFile());
             }
-            executeMessage.setErrorMessage(stderrBuilder.toString().trim());
+            Process runProcess = processBuilder.start();
+            sandboxMetrics.processStarted(SandboxMetrics.BACKEND_NATIVE, "run");
+            ResourceMeter.Probe probe = procfsResourceMeter.start(runProcess, limits);
 
-            executeMessage.setExitValue(process.exitValue());
-        } catch (Exception e) {
-            executeMessage.setErrorMessage(opName + "时发生异常: " + e.getMessage());
+            // 通过标准输入写入测试用例，与读取输出同时进行，输入输出再大也不会互相等待卡死；
+            // 需要比对时边读边比，发现不同立即结束进程
+            OutputComparator comparator = expectedOutputs.comparator(caseIndex);
+            MultiCaseRunnerSupport.HarnessOutput output = processOutputCapture.run(runProcess,
+                    input.getFile() != null ? null : input.openStream(), limits.getWallTime(),
+                    codeSandboxProperties.getOutput().getLimit(), comparator == null ? OutputTap.NONE : comparator);
+            ResourceUsage usage = probe.finish(output.getStderr());
+
+            JudgeInfoMessageEnum verdict = output.isOutputLimitExceeded() ? JudgeInfoMessageEnum.OUTPUT_LIMIT_EXCEEDED
+                    : limits.verdict(usage, output.getExitValue(), output.isTimedOut());
+            if (verdict != null) {
+                // 超时或输出超限：进程已经结束，或连同它 fork 出的子进程被强制结束
+                ExecuteMessage verdictMessage = MultiCaseRunnerSupport.timeoutMessage();
+                verdictMessage.setVerdict(verdict);
+                fillUsage(verdictMessage, usage);
+                runMessages.add(verdictMessage);
+                SandboxEvents.finishExec(execEvent, Collections.singletonList(verdictMessage));
+                listener.onCaseFinished(caseIndex, verdictMessage);
+                break;
+            }
+
+            // 获取运行结果，这里的 trim 视情况而定，有些题目答案需要保留尾部空格
+            ExecuteMessage runMessage = new ExecuteMessage();
+            runMessage.setMessage(new String(output.getStdout(), StandardCharsets.UTF_8).trim());
+            runMessage.setErrorMessage(output.getStderr().trim());
+            runMessage.setExitValue(output.getExitValue());
+            fillUsage(runMessage, usage);
+            expectedOutputs.judge(runMessage, comparator);
+            runMessages.add(runMessage);
+            SandboxEvents.finishExec(execEvent, Collections.singletonList(runMessage));
+            listener.onCaseFinished(caseIndex, runMessage);
+            if (expectedOutputs.stopsAfter(runMessage)) {
+                break;
+            }
+        }
+        return runMessages;
+    }
+
+    /**
+     * 单 JVM 模式：一次提交只启动一个运行器 JVM，所有用例在其中依次执行（运行器需已安装到用户目录）
+     */
+    private List<ExecuteMessage> runInSingleJvm(List<TestInput> inputs, String userCodeParentPath, String className,
+                                                ExecutionLimits limits) throws Exception {
+        return MultiCaseRunnerSupport.runAll(inputs.size(), fromIndex -> {
+            List<String> runCmd = new ArrayList<>();
+            runCmd.add("java");
+            runCmd.add("-Xmx256m"); // 限制最大堆内存
+            runCmd.add("-Dfile.encoding=UTF-8");
+            runCmd.addAll(cdsArchiveManager.nativeJvmOptions());
+            runCmd.addAll(MultiCaseRunnerSupport.runnerArgs(userCodeParentPath, File.separator, className, limits.getWallTime(),
+                    codeSandboxProperties.getOutput().getLimit(), codeSandboxProperties.getOutput().getErrorLimit()));
+            Process runProcess = new ProcessBuilder(runCmd).start();
+            sandboxMetrics.processStarted(SandboxMetrics.BACKEND_NATIVE, "run");
+            ResourceMeter.Probe probe = procfsResourceMeter.start(runProcess);
+            // 运行器自己会按用例的墙钟时限结束用例，这里的总时限只是兜底；CPU 时间拿到结果后再逐个检查；
+            // 输出是所有剩余用例的结果帧，上限按用例数放大，单个用例是否超限拿到结果后再逐个检查
+            int remaining = inputs.size() - fromIndex;
+            long deadline = limits.getWallTime() * (remaining + 1);
+            long stdoutLimit = (codeSandboxProperties.getOutput().getLimit() + codeSandboxProperties.getOutput().getErrorLimit()) * remaining;
+            MultiCaseRunnerSupport.HarnessOutput output = processOutputCapture.run(runProcess,
+                    MultiCaseRunnerSupport.openInputs(inputs.subList(fromIndex, inputs.size())), deadline, stdoutLimit, OutputTap.NONE);
+            output.setUsage(probe.finish(output.getStderr()));
+            return output;
+        });
+    }
+
+    /**
+     * 把单个用例进程的资源用量填进结果
+     */
+    private static void fillUsage(ExecuteMessage executeMessage, ResourceUsage usage) {
+        executeMessage.setTime(usage.getWallTime());
+        executeMessage.setCpuTime(usage.getCpuTime());
+        executeMessage.setMemory(usage.getPeakMemory());
+        executeMessage.setPageFaults(usage.getPageFaults());
+    }
+
+    /**
+     * 编译产物的总字节数
+     */
+    private static long sizeOf(Map<String, byte[]> classBytes) {
+        long size = 0;
+        for (byte[] bytes : classBytes.values()) {
+            size += bytes.length;
+        }
+        return size;
+    }
+
+    /**
+     * 逐个汇报一段用例的结果
+     */
+    private static List<ExecuteMessage> report(ExecuteListener listener, int fromIndex, List<ExecuteMessage> runMessages) {
+        for (int i = 0; i < runMessages.size(); i++) {
+            listener.onCaseFinished(fromIndex + i, runMessages.get(i));
         }
-        return executeMessage;
+        return runMessages;
     }
 
     /**
@@ -230,37 +576,4 @@ public class JavaNativeCodeSandBox {
         executeCodeResponse.setJudgeInfo(new JudgeInfo());
         return executeCodeResponse;
     }
-    
-    /**
-     * 简单的安全检查
-     */
-    private static void checkCodeSecurity(String code) throws Exception {
-        JavaParser javaParser = new JavaParser();
-        ParseResult<CompilationUnit> parseResult = javaParser.parse(code);
-        CompilationUnit cu = parseResult.getResult().orElse(null);
-        if (cu == null) return;
-        
-        // 检查文件操作
-        boolean hasFileOperations = cu.findAll(MethodCallExpr.class).stream()
-                .anyMatch(method -> method.getNameAsString().contains("File") ||
-                        method.getNameAsString().contains("delete") ||
-                        method.getNameAsString().contains("write"));
-
-        // 检查网络操作
-        boolean hasNetworkOperations = cu.findAll(MethodCallExpr.class).stream()
-                .anyMatch(method -> method.getNameAsString().contains("connect") ||
-                        method.getNameAsString().contains("socket") ||
-                        method.getNameAsString().contains("http"));
-
-        // 检查系统调用
-        boolean hasSystemCalls = cu.findAll(MethodCallExpr.class).stream()
-                .anyMatch(method -> method.getNameAsString().contains("exec") ||
-                        method.getNameAsString().contains("Runtime"));
-
-        if (hasFileOperations || hasNetworkOperations || hasSystemCalls) {
-            throw new RuntimeException("检测到违规代码操作，已拦截");
-        }
-    }
-
-
-}
\ No newline at end of file
+}
@@ -2,42 +2,110 @@ package com.lsl.lslcodesandbox.Utils;
 
 import com.github.dockerjava.api.DockerClient;
 import com.github.dockerjava.api.command.CreateContainerResponse;
+import com.github.dockerjava.api.command.ExecCreateCmdResponse;
+import com.github.dockerjava.api.model.AccessMode;
 import com.github.dockerjava.api.model.Bind;
+import com.github.dockerjava.api.model.Frame;
 import com.github.dockerjava.api.model.HostConfig;
+import com.github.dockerjava.api.model.StreamType;
 import com.github.dockerjava.api.model.Volume;
 import com.github.dockerjava.core.DefaultDockerClientConfig;
 import com.github.dockerjava.core.DockerClientBuilder;
+import com.github.dockerjava.core.command.ExecStartResultCallback;
 import com.github.dockerjava.httpclient5.ApacheDockerHttpClient;
+import com.lsl.lslcodesandbox.capture.BoundedBuffer;
+import com.lsl.lslcodesandbox.capture.OutputTap;
+import com.lsl.lslcodesandbox.capture.ProcessOutputCapture;
+import com.lsl.lslcodesandbox.config.CodeSandboxProperties;
+import com.lsl.lslcodesandbox.language.CommandCompiledLanguage;
+import com.lsl.lslcodesandbox.language.JavaLanguage;
+import com.lsl.lslcodesandbox.language.LanguageRegistry;
+import com.lsl.lslcodesandbox.language.LanguageStrategy;
+import com.lsl.lslcodesandbox.metrics.SandboxMetrics;
+import com.lsl.lslcodesandbox.model.ContainerPoolStats;
+import com.lsl.lslcodesandbox.runner.MultiCaseRunnerSupport;
+import com.lsl.lslcodesandbox.testdata.TestDataStore;
+import com.lsl.lslcodesandbox.workspace.WorkspaceManager;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
+import java.util.Map;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * 简单的 Docker 容器池
- * 作用：预先启动一堆容器，让它们待命，避免每次请求都创建销毁
+ * 弹性 Docker 容器池
+ * 作用：预先启动一批容器待命，避免每次请求都创建销毁；
+ * 每种语言一组容器（镜像、资源各自独立），容器数在 [minSize, maxSize] 之间伸缩：排队超过阈值立即扩容，空闲超时回收，
+ * 并由反馈控制器按各自的排队时间和宿主机 CPU 周期性调整期望规模，一种语言的流量高峰不会挤占另一种语言的容器
  */
 @Component
 public class ContainerPool {
 
-    // 容器池大小
-    private static final int POOL_SIZE = 10;
-    
-    // 镜像名称
-    private static final String IMAGE = "oj-sandbox-java:1.0";
-    
-    // 根工作目录（所有容器共享这个挂载点）
-    private static final String ROOT_WORK_DIR = System.getProperty("java.io.tmpdir") + File.separator + "oj-sandbox-files";
-
-    // 存放容器 ID 的阻塞队列（线程安全）
-    private final BlockingQueue<String> availableContainers = new ArrayBlockingQueue<>(POOL_SIZE);
-    
+    // 等待 kill 命令执行完成的最长时间，超过则直接替换容器
+    private static final long KILL_TIMEOUT = 2000L;
+
+    // 命令行编译的语言在容器内编译时写产物的可写目录（tmpfs），归还时清空
+    public static final String SCRATCH_DIR = "/tmp";
+
+    private static final String SCRATCH_OPTIONS = "rw,exec,nosuid,size=64m";
+
+    // 容器内 CDS 归档的挂载点：运行容器只读，只有生成归档的一次性容器可写
+    public static final String CDS_DIR = "/cds";
+
+    @Resource
+    private CodeSandboxProperties codeSandboxProperties;
+
+    @Resource
+    private ProcessOutputCapture processOutputCapture;
+
+    // 注入即保证工作区根目录先于容器创建就绪
+    @Resource
+    private WorkspaceManager workspaceManager;
+
+    // 注入即保证测试数据目录先于容器创建就绪
+    @Resource
+    private TestDataStore testDataStore;
+
+    @Resource
+    private LanguageRegistry languageRegistry;
+
+    @Resource
+    private SandboxMetrics sandboxMetrics;
+
+    // 每种语言一组容器，键为语言名
+    private final Map<String, Fleet> fleets = new LinkedHashMap<>();
+
+    // 池中所有容器（含正在使用的）及其状态，关闭时统一清理
+    private final Map<String, ContainerState> allContainers = new ConcurrentHashMap<>();
+
+    private volatile double lastCpuLoad = -1;
+
+    // 创建 / 销毁容器都比较慢，放到后台线程
+    private ExecutorService lifecycleExecutor;
+
+    private ScheduledExecutorService controller;
+
     private DockerClient dockerClient;
 
     public DockerClient getDockerClient() {
@@ -57,31 +125,64 @@ public class ContainerPool {
                 .build();
         dockerClient = DockerClientBuilder.getInstance(config).withDockerHttpClient(httpClient).build();
 
-        // 2. 确保挂载总目录存在
-        new File(ROOT_WORK_DIR).mkdirs();
+        // 2. 确保 CDS 归档目录存在（挂载的是目录本身，之后不能整个删掉重建）
+        new File(codeSandboxProperties.getCds().getDockerDir()).mkdirs();
+
+        CodeSandboxProperties.Container container = codeSandboxProperties.getContainer();
+        for (LanguageStrategy language : languageRegistry.getAll()) {
+            fleets.put(language.getName(), new Fleet(language,
+                    container.getLanguages().getOrDefault(language.getName(), new CodeSandboxProperties.LanguagePool()), container));
+        }
+        lifecycleExecutor = Executors.newFixedThreadPool(2, r -> {
+            Thread thread = new Thread(r, "container-pool-lifecycle");
+            thread.setDaemon(true);
+            return thread;
+        });
+        controller = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "container-pool-controller");
+            thread.setDaemon(true);
+            return thread;
+        });
 
-        // 3. 预热容器
-        System.out.println("正在初始化 " + POOL_SIZE + " 个容器...");
-        for (int i = 0; i < POOL_SIZE; i++) {
-            String containerId = createAndStartContainer();
-            availableContainers.offer(containerId);
+        // 3. 每种语言预热最少数量的容器，其余按需创建
+        for (Fleet fleet : fleets.values()) {
+            System.out.println("正在初始化 " + fleet.minSize + " 个 " + fleet.language.getName() + " 容器...");
+            for (int i = 0; i < fleet.minSize; i++) {
+                fleet.size.incrementAndGet();
+                addContainer(fleet);
+            }
+            System.out.println("初始化完成，" + fleet.availableContainers.size() + " 个 " + fleet.language.getName() + " 容器已待命！");
         }
-        System.out.println("初始化完成，" + POOL_SIZE + " 个容器已待命！");
+
+        controller.scheduleWithFixedDelay(this::adjust, container.getControlInterval(),
+                container.getControlInterval(), TimeUnit.MILLISECONDS);
+        controller.scheduleWithFixedDelay(this::sweep, container.getHealthCheckInterval(),
+                container.getHealthCheckInterval(), TimeUnit.MILLISECONDS);
     }
 
     /**
      * 创建并启动一个“空转”的容器
+     *
+     * @param cdsAccess CDS 归档目录的挂载方式，运行容器一律只读
      */
-    private String createAndStartContainer() {
+    private String createAndStartContainer(Fleet fleet, AccessMode cdsAccess) {
         HostConfig hostConfig = new HostConfig();
-        hostConfig.withMemory(100 * 1024 * 1024L); // 限制内存 100MB，防止 OOM
+        hostConfig.withMemory(fleet.memory);       // 按语言限制内存，防止 OOM
         hostConfig.withMemorySwap(0L);             // 禁止使用 Swap 交换分区
-        hostConfig.withCpuCount(1L);               // 限制使用 1 核 CPU
-        hostConfig.withPidsLimit(100L);            // 限制进程数，防止 Fork 炸弹攻击
-        // 关键点：挂载总目录
-        hostConfig.setBinds(new Bind(ROOT_WORK_DIR, new Volume("/app")));
+        // 限制 CPU 配额（cgroup cpu.max），CpuCount 只在 Windows 上生效
+        hostConfig.withNanoCPUs((long) (codeSandboxProperties.getContainer().getCpus() * 1_000_000_000L));
+        hostConfig.withPidsLimit(fleet.language.getPidsLimit()); // 限制进程数，防止 Fork 炸弹攻击
+        // 关键点：所有挂载都只读（生成 CDS 归档的一次性容器除外），容器里没有任何一处用户程序写得进去、又会被之后的提交读到：
+        // 提交工作区（tmpfs）的写入量全部由宿主机侧计量，测试数据、CDS 归档改不了
+        hostConfig.setBinds(new Bind(workspaceManager.getRoot().getAbsolutePath(), new Volume(WorkspaceManager.CONTAINER_ROOT), AccessMode.ro),
+                new Bind(testDataStore.getDir().getAbsolutePath(), new Volume(TestDataStore.CONTAINER_DIR), AccessMode.ro),
+                new Bind(codeSandboxProperties.getCds().getDockerDir(), new Volume(CDS_DIR), cdsAccess));
+        if (fleet.language instanceof CommandCompiledLanguage) {
+            // 在容器里编译时产物先写到这里；大小计入容器内存，归还时清空
+            hostConfig.withTmpFs(Collections.singletonMap(SCRATCH_DIR, SCRATCH_OPTIONS));
+        }
 
-        CreateContainerResponse response = dockerClient.createContainerCmd(IMAGE)
+        CreateContainerResponse response = dockerClient.createContainerCmd(fleet.image)
                 .withHostConfig(hostConfig)
                 .withNetworkDisabled(true)
                 .withReadonlyRootfs(true)
@@ -99,40 +200,600 @@ public class ContainerPool {
     }
 
     /**
-     * 获取一个容器
+     * 创建一个不进池的 Java 容器，限制与运行容器相同，只是 CDS 归档目录可写，用来在容器里生成归档；
+     * 用户代码从不在这种容器里运行，用完调用 removeCdsBuildContainer
+     */
+    public String startCdsBuildContainer() {
+        return createAndStartContainer(fleetOf(JavaLanguage.NAME), AccessMode.rw);
+    }
+
+    public void removeCdsBuildContainer(String containerId) {
+        destroyContainer(containerId);
+    }
+
+    /**
+     * 获取一个 Java 容器
      */
     public String acquire() throws InterruptedException {
-        // 如果池子空了，这就阻塞等待
-        return availableContainers.take();
+        return acquire(JavaLanguage.NAME);
+    }
+
+    /**
+     * 获取一个指定语言的容器
+     * 先等一小会儿，还拿不到说明这种语言的容器不够用了，立即扩容一个再继续等
+     *
+     * @throws IllegalArgumentException 不支持的语言
+     */
+    public String acquire(String language) throws InterruptedException {
+        Fleet fleet = fleetOf(language);
+        CodeSandboxProperties.Container config = codeSandboxProperties.getContainer();
+        long startTime = System.nanoTime();
+        boolean acquired = false;
+        fleet.waiting.incrementAndGet();
+        try {
+            IdleContainer idle = fleet.availableContainers.pollFirst(config.getGrowWaitThreshold(), TimeUnit.MILLISECONDS);
+            if (idle == null) {
+                growAsync(fleet);
+                long remaining = config.getAcquireTimeout() - config.getGrowWaitThreshold();
+                idle = fleet.availableContainers.pollFirst(Math.max(0, remaining), TimeUnit.MILLISECONDS);
+            }
+            if (idle == null) {
+                throw new IllegalStateException("等待空闲容器超时");
+            }
+            fleet.inUse.incrementAndGet();
+            acquired = true;
+            return idle.id;
+        } finally {
+            long waitNanos = System.nanoTime() - startTime;
+            fleet.waiting.decrementAndGet();
+            fleet.windowWaitNanos.addAndGet(waitNanos);
+            fleet.windowAcquires.incrementAndGet();
+            sandboxMetrics.recordAcquire(fleet.language.getName(), waitNanos, acquired);
+        }
     }
 
     /**
      * 归还一个容器
+     * 检查放到后台：干净的放回所属语言的空闲队列，不干净或用满次数的销毁并补一个新的，
+     * 避免残留进程、内存泄漏拖慢后面的请求
      */
     public void release(String containerId) {
-        // 这里可以加一些清理逻辑（比如清理容器内临时文件，但因为我们是只读文件系统+挂载，其实不用清）
-        availableContainers.offer(containerId);
+        ContainerState state = allContainers.get(containerId);
+        if (state == null) {
+            return;
+        }
+        Fleet fleet = state.fleet;
+        fleet.inUse.decrementAndGet();
+        lifecycleExecutor.execute(() -> {
+            if (!state.poisoned && ++state.uses < codeSandboxProperties.getContainer().getMaxUses()
+                    && clearScratch(containerId, fleet) && isHealthy(containerId, state)) {
+                fleet.availableContainers.offerFirst(new IdleContainer(containerId));
+            } else {
+                replace(fleet, containerId);
+            }
+            if (state.timedOutAt != 0) {
+                recordReclaim(fleet, System.nanoTime() - state.timedOutAt);
+                state.timedOutAt = 0;
+            }
+        });
+    }
+
+    /**
+     * 各语言容器池的状态
+     */
+    public List<ContainerPoolStats> getStats() {
+        List<ContainerPoolStats> statsList = new ArrayList<>();
+        for (Fleet fleet : fleets.values()) {
+            statsList.add(statsOf(fleet));
+        }
+        return statsList;
+    }
+
+    /**
+     * 一种语言的容器池状态
+     */
+    public ContainerPoolStats getStats(String language) {
+        return statsOf(fleetOf(language));
+    }
+
+    private ContainerPoolStats statsOf(Fleet fleet) {
+        ContainerPoolStats stats = new ContainerPoolStats();
+        stats.setLanguage(fleet.language.getName());
+        stats.setImage(fleet.image);
+        stats.setSize(fleet.size.get());
+        stats.setInUse(fleet.inUse.get());
+        stats.setIdle(fleet.availableContainers.size());
+        stats.setWaiting(fleet.waiting.get());
+        stats.setDesiredSize(fleet.desiredSize);
+        stats.setCreations(fleet.creations.get());
+        stats.setEvictions(fleet.evictions.get());
+        stats.setRecycles(fleet.recycles.get());
+        long reclaimCount = fleet.reclaims.get();
+        stats.setReclaims(reclaimCount);
+        stats.setAvgReclaimTime(reclaimCount == 0 ? 0 : fleet.reclaimNanos.get() / 1000_000.0 / reclaimCount);
+        stats.setMaxReclaimTime(fleet.maxReclaimNanos.get() / 1000_000.0);
+        stats.setAvgWait(fleet.lastAvgWait);
+        stats.setCpuLoad(lastCpuLoad);
+        return stats;
+    }
+
+    private Fleet fleetOf(String language) {
+        Fleet fleet = fleets.get(languageRegistry.get(language).getName());
+        if (fleet == null) {
+            throw new IllegalArgumentException("没有这种语言的容器: " + language);
+        }
+        return fleet;
+    }
+
+    /**
+     * 记录一次超时后容器回到可用状态（放回空闲队列或替换完成）的耗时
+     */
+    private static void recordReclaim(Fleet fleet, long nanos) {
+        fleet.reclaims.incrementAndGet();
+        fleet.reclaimNanos.addAndGet(nanos);
+        fleet.maxReclaimNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * 在上限内异步扩容一个容器
+     */
+    private void growAsync(Fleet fleet) {
+        if (!fleet.sizer.canGrow(fleet.size.get(), lastCpuLoad)) {
+            return;
+        }
+        int current = fleet.size.get();
+        // 先占位，抢不到说明别的线程已经在扩容
+        if (current < fleet.maxSize && fleet.size.compareAndSet(current, current + 1)) {
+            lifecycleExecutor.execute(() -> addContainer(fleet));
+        }
+    }
+
+    /**
+     * 创建一个容器放入空闲队列（调用前已占好 size 的位置）
+     */
+    private void addContainer(Fleet fleet) {
+        try {
+            String id = createAndStartContainer(fleet, AccessMode.ro);
+            allContainers.put(id, new ContainerState(fleet, memoryUsage(id)));
+            fleet.creations.incrementAndGet();
+            fleet.availableContainers.offerFirst(new IdleContainer(id));
+        } catch (Exception e) {
+            fleet.size.decrementAndGet();
+            System.err.println("创建 " + fleet.language.getName() + " 容器失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 反馈控制：CPU 使用率全局采样一次，各语言按自己上一个周期的排队时间分别计算期望规模
+     */
+    private void adjust() {
+        lastCpuLoad = cpuLoad();
+        for (Fleet fleet : fleets.values()) {
+            try {
+                adjust(fleet);
+            } catch (Exception e) {
+                System.err.println("容器池调整失败: " + fleet.language.getName() + ", " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 不足就补，空闲超时的多余容器回收
+     */
+    private void adjust(Fleet fleet) {
+        long acquires = fleet.windowAcquires.getAndSet(0);
+        long waitNanos = fleet.windowWaitNanos.getAndSet(0);
+        fleet.lastAvgWait = acquires == 0 ? 0 : waitNanos / 1000_000.0 / acquires;
+        fleet.desiredSize = fleet.sizer.desiredSize(fleet.size.get(), fleet.inUse.get(), fleet.waiting.get(),
+                fleet.lastAvgWait, lastCpuLoad);
+
+        while (fleet.size.get() < fleet.desiredSize) {
+            int current = fleet.size.get();
+            if (fleet.size.compareAndSet(current, current + 1)) {
+                lifecycleExecutor.execute(() -> addContainer(fleet));
+            }
+        }
+
+        // 从空闲最久的一端开始回收，只回收超过 TTL 的
+        long expireBefore = System.currentTimeMillis() - codeSandboxProperties.getContainer().getIdleTtl();
+        Iterator<IdleContainer> iterator = fleet.availableContainers.descendingIterator();
+        while (fleet.size.get() > fleet.desiredSize && iterator.hasNext()) {
+            IdleContainer idle = iterator.next();
+            if (idle.idleSince > expireBefore) {
+                break;
+            }
+            // 删除成功才算拿到所有权，避免和 acquire 抢到同一个容器
+            if (fleet.availableContainers.removeLastOccurrence(idle)) {
+                fleet.size.decrementAndGet();
+                fleet.evictions.incrementAndGet();
+                lifecycleExecutor.execute(() -> destroyContainer(idle.id));
+            }
+        }
+    }
+
+    private void destroyContainer(String id) {
+        allContainers.remove(id);
+        try {
+            dockerClient.removeContainerCmd(id).withForce(true).exec();
+        } catch (Exception e) {
+            System.err.println("删除容器失败: " + id + ", " + e.getMessage());
+        }
+    }
+
+    /**
+     * 销毁一个容器并补一个同语言的新容器，池大小不变（在后台线程调用）
+     */
+    private void replace(Fleet fleet, String id) {
+        fleet.recycles.incrementAndGet();
+        destroyContainer(id);
+        addContainer(fleet);
+    }
+
+    /**
+     * 清空编译用的临时目录，上一次提交（含用户程序）写进去的东西不留给下一次提交；没有该目录的语言直接返回
+     */
+    private boolean clearScratch(String id, Fleet fleet) {
+        if (!(fleet.language instanceof CommandCompiledLanguage)) {
+            return true;
+        }
+        try {
+            Integer exitValue = execInContainer(id, new String[] {"find", SCRATCH_DIR, "-mindepth", "1", "-delete"},
+                    new byte[0], 5000L).getExitValue();
+            return exitValue != null && exitValue == 0;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * 健康检查：容器还在运行、除了空转的主进程外没有残留进程、内存回到新建时的水平
+     */
+    private boolean isHealthy(String id, ContainerState state) {
+        try {
+            if (!Boolean.TRUE.equals(dockerClient.inspectContainerCmd(id).exec().getState().getRunning())) {
+                return false;
+            }
+            String[][] processes = dockerClient.topContainerCmd(id).exec().getProcesses();
+            if (processes != null && processes.length > 1) {
+                return false;
+            }
+            long memory = memoryUsage(id);
+            return memory < 0 || state.baselineMemory < 0
+                    || memory - state.baselineMemory <= codeSandboxProperties.getContainer().getMemoryTolerance();
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * 定期巡检空闲容器，把已经挂掉的（被 OOM kill、被手动停止等）换掉
+     */
+    private void sweep() {
+        for (Fleet fleet : fleets.values()) {
+            for (IdleContainer idle : fleet.availableContainers) {
+                ContainerState state = allContainers.get(idle.id);
+                if (state != null && isHealthy(idle.id, state)) {
+                    continue;
+                }
+                // 删除成功才算拿到所有权
+                if (fleet.availableContainers.removeFirstOccurrence(idle)) {
+                    lifecycleExecutor.execute(() -> replace(fleet, idle.id));
+                }
+            }
+        }
+    }
+
+    /**
+     * 容器当前的内存占用（读容器内 cgroup 文件，兼容 v1 / v2），取不到返回 -1
+     */
+    private long memoryUsage(String id) {
+        try {
+            MultiCaseRunnerSupport.HarnessOutput output = execInContainer(id, new String[] {"sh", "-c",
+                    "cat /sys/fs/cgroup/memory.current 2>/dev/null || cat /sys/fs/cgroup/memory/memory.usage_in_bytes"},
+                    new byte[0], 5000L);
+            return Long.parseLong(new String(output.getStdout(), StandardCharsets.UTF_8).trim());
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    /**
+     * 宿主机 CPU 使用率，取不到时返回 -1
+     */
+    @SuppressWarnings("deprecation")
+    private static double cpuLoad() {
+        java.lang.management.OperatingSystemMXBean bean = ManagementFactory.getOperatingSystemMXBean();
+        if (bean instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) bean).getSystemCpuLoad();
+        }
+        return -1;
+    }
+
+    /**
+     * 在容器中执行一条命令，写入标准输入并收集输出，标准输出上限为 output.limit
+     */
+    public MultiCaseRunnerSupport.HarnessOutput execInContainer(String containerId, String[] cmdArray,
+                                                                byte[] stdin, long timeout) throws InterruptedException, IOException {
+        return execInContainer(containerId, cmdArray, stdin, timeout, codeSandboxProperties.getOutput().getLimit());
+    }
+
+    /**
+     * 在容器中执行一条命令，写入标准输入并收集输出
+     * 输出超过上限时不再等待，容器里的进程被强制结束
+     */
+    public MultiCaseRunnerSupport.HarnessOutput execInContainer(String containerId, String[] cmdArray, byte[] stdin,
+                                                                long timeout, long stdoutLimit) throws InterruptedException, IOException {
+        return execInContainer(containerId, cmdArray, stdin, timeout, stdoutLimit, OutputTap.NONE);
+    }
+
+    /**
+     * 在容器中执行一条命令，标准输出边收边交给 stdoutTap，它喊停时同输出超限一样杀掉容器里的进程
+     */
+    public MultiCaseRunnerSupport.HarnessOutput execInContainer(String containerId, String[] cmdArray, byte[] stdin,
+                                                                long timeout, long stdoutLimit, OutputTap stdoutTap)
+            throws InterruptedException, IOException {
+        return execInContainer(containerId, cmdArray, new ByteArrayInputStream(stdin), timeout, stdoutLimit, stdoutTap);
+    }
+
+    /**
+     * 在容器中执行一条命令，标准输入从输入流边读边发，大输入不必整份读进内存
+     */
+    public MultiCaseRunnerSupport.HarnessOutput execInContainer(String containerId, String[] cmdArray, InputStream stdin,
+                                                                long timeout, long stdoutLimit, OutputTap stdoutTap)
+            throws InterruptedException, IOException {
+        // 创建执行命令 (Exec)
+        ExecCreateCmdResponse execCreateCmdResponse = dockerClient.execCreateCmd(containerId)
+                .withCmd(cmdArray)
+                .withAttachStderr(true)
+                .withAttachStdin(true)  // 必须开启，否则无法输入
+                .withAttachStdout(true)
+                .exec();
+
+        String execId = execCreateCmdResponse.getId();
+
+        // 拼接分帧传输的输出结果，按字节写进有上限的池化缓冲（运行器输出的是二进制帧，
+        // 多字节字符也可能被拆在两帧里，只能全部收完再解码）
+        BoundedBuffer message = processOutputCapture.newStdoutBuffer(stdoutLimit);
+        message.setTap(stdoutTap);
+        BoundedBuffer errorMessage = processOutputCapture.newStderrBuffer();
+
+        // 启动输出流监听 (异步)
+        ExecStartResultCallback execStartResultCallback = new ExecStartResultCallback() {
+            @Override
+            public void onNext(Frame frame) {
+                StreamType streamType = frame.getStreamType();
+                byte[] payload = frame.getPayload();
+                // 区分标准错误和标准输出
+                BoundedBuffer buffer = StreamType.STDERR.equals(streamType) ? errorMessage : message;
+                if (!buffer.write(payload, 0, payload.length)) {
+                    // 输出超限或观察者喊停：不再接收，结束等待，由调用线程杀掉容器里的进程
+                    try {
+                        close();
+                    } catch (IOException e) {
+                        // ignore
+                    }
+                }
+            }
+
+            // 重写 onError，屏蔽 Windows npipe 噪音
+            @Override
+            public void onError(Throwable throwable) {
+                // 如果是 "管道已结束" 这种无意义的异常，直接忽略，不打印日志
+                if (throwable instanceof IOException &&
+                        (throwable.getMessage() != null &&
+                                (throwable.getMessage().contains("管道已结束") || throwable.getMessage().contains("The pipe has been ended")))) {
+                    return;
+                }
+
+                // 其他真正的异常（比如网络断开、Docker 崩溃），依然交给父类打印出来
+                super.onError(throwable);
+            }
+        };
+
+        try {
+            return collectExecOutput(containerId, execId, stdin, execStartResultCallback, message, errorMessage, timeout);
+        } finally {
+            message.release();
+            errorMessage.release();
+        }
+    }
+
+    /**
+     * 启动 exec 并等待结束，整理输出和退出码
+     */
+    private MultiCaseRunnerSupport.HarnessOutput collectExecOutput(String containerId, String execId, InputStream inputStream,
+                                                                   ExecStartResultCallback execStartResultCallback,
+                                                                   BoundedBuffer message, BoundedBuffer errorMessage,
+                                                                   long timeout) throws InterruptedException, IOException {
+        boolean completed = true;
+        try {
+            // 执行命令并注入输入流
+            completed = dockerClient.execStartCmd(execId)
+                    .withStdIn(inputStream)
+                    .exec(execStartResultCallback)
+                    .awaitCompletion(timeout, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            // 任务被取消：停止等待的同时把容器里的进程杀掉，容器才能干净地归还
+            execStartResultCallback.close();
+            killRunaway(containerId);
+            throw e;
+        } catch (RuntimeException e) {
+            // Windows Docker Desktop 使用 npipe 连接时，
+            // 当程序运行结束关闭流，客户端可能会误报 "管道已结束" 异常。
+            // 只要程序实际跑完了，这个异常可以安全忽略。
+            if (e.getMessage() != null && (e.getMessage().contains("管道已结束") || e.getMessage().contains("The pipe has been ended"))) {
+                // ignore
+            } else {
+                throw e; // 其他真正的异常仍需抛出
+            }
+        }
+
+        // 关闭流和监控
+        inputStream.close();
+
+        MultiCaseRunnerSupport.HarnessOutput output = new MultiCaseRunnerSupport.HarnessOutput();
+        boolean outputLimitExceeded = message.isOverflowed() || errorMessage.isOverflowed();
+        if (!completed || outputLimitExceeded || message.isRejected()) {
+            // 超时、输出超限或已经不需要再跑：光是不再等待的话，exec 会在容器里接着跑，必须把进程真正杀掉
+            output.setTimedOut(!outputLimitExceeded && !message.isRejected());
+            output.setOutputLimitExceeded(outputLimitExceeded);
+            execStartResultCallback.close();
+            killRunaway(containerId);
+        }
+        output.setStdout(message.toByteArray());
+        output.setStderr(errorMessage.toString(StandardCharsets.UTF_8));
+        Long exitCode = dockerClient.inspectExecCmd(execId).exec().getExitCodeLong();
+        output.setExitValue(exitCode == null ? null : exitCode.intValue());
+        return output;
+    }
+
+    /**
+     * 杀掉容器内除主进程（PID 1）外的所有进程
+     * kill -9 -1 会发给调用者有权限的所有进程，唯独跳过 init 和自己，正好把超时的 java 以及它 fork 出来的进程一起带走
+     */
+    private void killRunaway(String containerId) {
+        ContainerState state = allContainers.get(containerId);
+        if (state != null) {
+            state.timedOutAt = System.nanoTime();
+        }
+        try {
+            String killExecId = dockerClient.execCreateCmd(containerId)
+                    .withCmd("kill", "-9", "-1")
+                    .exec()
+                    .getId();
+            boolean killed = dockerClient.execStartCmd(killExecId)
+                    .exec(new ExecStartResultCallback())
+                    .awaitCompletion(KILL_TIMEOUT, TimeUnit.MILLISECONDS);
+            if (!killed && state != null) {
+                state.poisoned = true;
+            }
+        } catch (Exception e) {
+            System.err.println("终止超时进程失败: " + containerId + ", " + e.getMessage());
+            if (state != null) {
+                state.poisoned = true;
+            }
+        }
     }
 
     // 关闭所有容器（可选，用于应用关闭时优雅退出）
     @PreDestroy
     public void shutdown() throws InterruptedException {
         System.out.println("正在关闭所有容器...");
-        List<String> remaining = new ArrayList<>();
-        availableContainers.drainTo(remaining);
+        controller.shutdownNow();
+        lifecycleExecutor.shutdown();
+        lifecycleExecutor.awaitTermination(30, TimeUnit.SECONDS);
+        for (Fleet fleet : fleets.values()) {
+            fleet.availableContainers.clear();
+        }
 
-        for (String id : remaining) {
+        for (String id : allContainers.keySet()) {
             try {
-                dockerClient.stopContainerCmd(id).exec();
-                dockerClient.removeContainerCmd(id).exec();
+                dockerClient.removeContainerCmd(id).withForce(true).exec();
             } catch (Exception e) {
                 System.err.println("关闭容器失败: " + id + ", " + e.getMessage());
             }
         }
+        allContainers.clear();
         try {
             dockerClient.close();
         } catch (IOException e) {
 
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * 容器的健康检查状态
+     */
+    private static class ContainerState {
+
+        // 所属的语言车队
+        private final Fleet fleet;
+
+        // 刚创建时的内存占用
+        private final long baselineMemory;
+
+        // 已执行的请求数（只在后台线程的归还检查里修改）
+        private int uses;
+
+        // 最近一次执行超时的时间点（System.nanoTime），0 表示没有待回收的超时
+        private volatile long timedOutAt;
+
+        // 超时进程没能杀掉，归还时直接替换
+        private volatile boolean poisoned;
+
+        ContainerState(Fleet fleet, long baselineMemory) {
+            this.fleet = fleet;
+            this.baselineMemory = baselineMemory;
+        }
+    }
+
+    /**
+     * 一种语言的一组容器：镜像、资源、规模上下限和统计各自独立
+     */
+    private static class Fleet {
+
+        private final LanguageStrategy language;
+
+        private final String image;
+
+        private final long memory;
+
+        private final int minSize;
+
+        private final int maxSize;
+
+        private final ContainerPoolSizer sizer;
+
+        // 空闲容器（双端队列：归还放队头、取也从队头取，最近用过的先复用，队尾自然就是空闲最久的，方便回收）
+        private final BlockingDeque<IdleContainer> availableContainers = new LinkedBlockingDeque<>();
+
+        // 当前容器数，包含正在创建中的（先占位再创建，防止并发扩容超过上限）
+        private final AtomicInteger size = new AtomicInteger();
+        private final AtomicInteger inUse = new AtomicInteger();
+        private final AtomicInteger waiting = new AtomicInteger();
+        private final AtomicLong creations = new AtomicLong();
+        private final AtomicLong evictions = new AtomicLong();
+        private final AtomicLong recycles = new AtomicLong();
+
+        // 超时后回收容器的耗时统计
+        private final AtomicLong reclaims = new AtomicLong();
+        private final AtomicLong reclaimNanos = new AtomicLong();
+        private final AtomicLong maxReclaimNanos = new AtomicLong();
+
+        // 当前统计周期内的排队耗时，控制器每个周期取走并清零
+        private final AtomicLong windowWaitNanos = new AtomicLong();
+        private final AtomicLong windowAcquires = new AtomicLong();
+
+        private volatile int desiredSize;
+        private volatile double lastAvgWait;
+
+        /**
+         * @param pool      这种语言的单独配置，没有设置的项取全局配置和语言默认值
+         * @param container 全局容器池配置
+         */
+        Fleet(LanguageStrategy language, CodeSandboxProperties.LanguagePool pool, CodeSandboxProperties.Container container) {
+            this.language = language;
+            this.image = pool.getImage() != null ? pool.getImage() : language.getImage();
+            this.memory = pool.getMemory() != null ? pool.getMemory() : language.getMemoryLimit();
+            this.minSize = pool.getMinSize() != null ? pool.getMinSize() : container.getMinSize();
+            this.maxSize = Math.max(minSize, pool.getMaxSize() != null ? pool.getMaxSize() : container.getMaxSize());
+            this.sizer = new ContainerPoolSizer(minSize, maxSize, container.getTargetWait(), container.getCpuHighWatermark());
+            this.desiredSize = minSize;
+        }
+    }
+
+    /**
+     * 一个空闲的容器及其开始空闲的时间
+     */
+    private static class IdleContainer {
+
+        private final String id;
+
+        private final long idleSince;
+
+        IdleContainer(String id) {
+            this.id = id;
+            this.idleSince = System.currentTimeMillis();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.lsl.lslcodesandbox.Utils;
+
+/**
+ * 容器池规模的反馈控制器
+ * 每个周期根据观测到的平均排队时间和宿主机 CPU 使用率给出期望的容器数：
+ * 排队久且 CPU 有余量就扩容，CPU 吃满就不再扩容，长期不排队就收缩到实际需求附近
+ */
+public class ContainerPoolSizer {
+
+    private final int minSize;
+
+    private final int maxSize;
+
+    private final long targetWait;
+
+    private final double cpuHighWatermark;
+
+    public ContainerPoolSizer(int minSize, int maxSize, long targetWait, double cpuHighWatermark) {
+        this.minSize = minSize;
+        this.maxSize = Math.max(minSize, maxSize);
+        this.targetWait = targetWait;
+        this.cpuHighWatermark = cpuHighWatermark;
+    }
+
+    /**
+     * 计算期望的容器数
+     *
+     * @param currentSize 当前容器数（含正在创建的）
+     * @param inUse       正在使用的容器数
+     * @param waiting     正在排队的请求数
+     * @param avgWait     本周期内的平均排队时间（毫秒）
+     * @param cpuLoad     宿主机 CPU 使用率（0~1，未知时传负数）
+     */
+    public int desiredSize(int currentSize, int inUse, int waiting, double avgWait, double cpuLoad) {
+        int demand = inUse + waiting;
+        boolean cpuSaturated = cpuLoad >= cpuHighWatermark;
+        int desired;
+        if (cpuSaturated) {
+            // CPU 已经跑满：不扩容，并把目标压到实际需求
+            desired = Math.min(currentSize, demand);
+        } else if (avgWait > targetWait || waiting > 0) {
+            // 排队时间超标：按排队人数成比例扩容，至少加一个
+            desired = currentSize + Math.max(1, waiting);
+        } else if (avgWait <= targetWait / 2.0) {
+            // 基本不排队：保留实际需求再多一个的余量
+            desired = demand + 1;
+        } else {
+            desired = currentSize;
+        }
+        return clamp(desired);
+    }
+
+    public boolean canGrow(int currentSize, double cpuLoad) {
+        return currentSize < maxSize && cpuLoad < cpuHighWatermark;
+    }
+
+    private int clamp(int size) {
+        return Math.max(minSize, Math.min(maxSize, size));
+    }
+}
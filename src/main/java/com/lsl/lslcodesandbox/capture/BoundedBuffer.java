@@ -0,0 +1,170 @@
+package com.lsl.lslcodesandbox.capture;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 有上限的输出缓冲，由对象池中的字节块拼成
+ * 超过上限的部分直接丢弃并标记溢出，由调用方决定是否结束进程；用完必须 release 归还字节块
+ * 可以挂一个旁路观察者边收边看（如比对答案），观察者喊停后同样不再接收
+ */
+public class BoundedBuffer {
+
+    private final BufferPool pool;
+
+    private final long limit;
+
+    private final List<byte[]> chunks = new ArrayList<>();
+
+    /**
+     * 最后一块已用的字节数
+     */
+    private int position;
+
+    private long size;
+
+    private boolean overflowed;
+
+    private OutputTap tap = OutputTap.NONE;
+
+    /**
+     * 旁路观察者是否已经喊停
+     */
+    private boolean rejected;
+
+    public BoundedBuffer(BufferPool pool, long limit) {
+        this.pool = pool;
+        this.limit = limit;
+    }
+
+    /**
+     * 追加数据，超过上限时只保留上限以内的部分
+     *
+     * @return 是否仍在上限以内
+     */
+    public synchronized boolean write(byte[] bytes, int offset, int length) {
+        if (overflowed || rejected) {
+            return false;
+        }
+        int start = offset;
+        long accepted = Math.min(length, limit - size);
+        int remaining = (int) accepted;
+        while (remaining > 0) {
+            byte[] chunk = writableChunk();
+            int count = Math.min(remaining, chunk.length - position);
+            System.arraycopy(bytes, offset, chunk, position, count);
+            position += count;
+            offset += count;
+            remaining -= count;
+        }
+        size += accepted;
+        if (accepted < length) {
+            overflowed = true;
+        }
+        if (!tap.accept(bytes, start, (int) accepted)) {
+            rejected = true;
+        }
+        return !overflowed && !rejected;
+    }
+
+    /**
+     * 从输入流读到结束或超过上限为止，直接读进字节块，不经过中间数组
+     *
+     * @return 是否仍在上限以内（读到流结束）
+     */
+    public boolean readFrom(InputStream in) throws IOException {
+        while (true) {
+            byte[] chunk;
+            int from;
+            int length;
+            synchronized (this) {
+                if (overflowed || rejected) {
+                    return false;
+                }
+                chunk = writableChunk();
+                from = position;
+                // 多读一个字节，才能区分“正好到上限”和“超过上限”
+                length = (int) Math.min(chunk.length - position, limit - size + 1);
+            }
+            int read = in.read(chunk, from, length);
+            if (read < 0) {
+                return true;
+            }
+            synchronized (this) {
+                if (size + read > limit) {
+                    read = (int) (limit - size);
+                    overflowed = true;
+                }
+                position += read;
+                size += read;
+            }
+            // 观察者在读线程里回调，不占着锁
+            if (!tap.accept(chunk, from, read)) {
+                synchronized (this) {
+                    rejected = true;
+                }
+                return false;
+            }
+            synchronized (this) {
+                if (overflowed) {
+                    return false;
+                }
+            }
+        }
+    }
+
+    private byte[] writableChunk() {
+        if (chunks.isEmpty() || position == pool.getChunkSize()) {
+            chunks.add(pool.acquire());
+            position = 0;
+        }
+        return chunks.get(chunks.size() - 1);
+    }
+
+    public synchronized boolean isOverflowed() {
+        return overflowed;
+    }
+
+    /**
+     * 设置旁路观察者，必须在开始写入之前
+     */
+    public synchronized void setTap(OutputTap tap) {
+        this.tap = tap;
+    }
+
+    public synchronized boolean isRejected() {
+        return rejected;
+    }
+
+    public synchronized long size() {
+        return size;
+    }
+
+    public synchronized byte[] toByteArray() {
+        byte[] bytes = new byte[(int) size];
+        int offset = 0;
+        for (int i = 0; i < chunks.size(); i++) {
+            int count = i == chunks.size() - 1 ? position : chunks.get(i).length;
+            System.arraycopy(chunks.get(i), 0, bytes, offset, count);
+            offset += count;
+        }
+        return bytes;
+    }
+
+    public String toString(Charset charset) {
+        return new String(toByteArray(), charset);
+    }
+
+    /**
+     * 归还字节块，之后不能再使用
+     */
+    public synchronized void release() {
+        chunks.forEach(pool::release);
+        chunks.clear();
+        position = 0;
+        size = 0;
+    }
+}
@@ -0,0 +1,56 @@
+package com.lsl.lslcodesandbox.capture;
+
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 固定大小字节块的对象池
+ * 输出缓冲按块申请，用完归还，避免每个用例都重新分配、反复扩容大数组；
+ * 池里最多留 maxPooled 块，多出来的交给 GC
+ */
+public class BufferPool {
+
+    private final int chunkSize;
+
+    private final int maxPooled;
+
+    private final ConcurrentLinkedDeque<byte[]> chunks = new ConcurrentLinkedDeque<>();
+
+    private final AtomicInteger pooled = new AtomicInteger();
+
+    public BufferPool(int chunkSize, int maxPooled) {
+        this.chunkSize = chunkSize;
+        this.maxPooled = maxPooled;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public byte[] acquire() {
+        byte[] chunk = chunks.pollFirst();
+        if (chunk == null) {
+            return new byte[chunkSize];
+        }
+        pooled.decrementAndGet();
+        return chunk;
+    }
+
+    public void release(byte[] chunk) {
+        if (chunk.length != chunkSize) {
+            return;
+        }
+        if (pooled.incrementAndGet() <= maxPooled) {
+            chunks.offerFirst(chunk);
+        } else {
+            pooled.decrementAndGet();
+        }
+    }
+
+    /**
+     * 当前池中空闲的块数
+     */
+    public int pooledCount() {
+        return pooled.get();
+    }
+}
@@ -0,0 +1,15 @@
+package com.lsl.lslcodesandbox.capture;
+
+/**
+ * 旁路观察进程输出，每收到一段数据回调一次（与写入缓冲在同一线程，按到达顺序）
+ */
+@FunctionalInterface
+public interface OutputTap {
+
+    OutputTap NONE = (bytes, offset, length) -> true;
+
+    /**
+     * @return false 表示不需要再往下跑了（如已经发现答案错误），采集方随即结束进程
+     */
+    boolean accept(byte[] bytes, int offset, int length);
+}
@@ -0,0 +1,223 @@
+package com.lsl.lslcodesandbox.capture;
+
+import cn.hutool.core.io.IoUtil;
+import com.lsl.lslcodesandbox.config.CodeSandboxProperties;
+import com.lsl.lslcodesandbox.runner.MultiCaseRunnerSupport;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 子进程输入输出采集
+ * 标准输入、标准输出、标准错误由三个线程同时读写，任何一方都不会因为另一方的管道写满而卡死；
+ * 输出写进有上限的池化缓冲，超过上限立即结束进程并标记输出超限
+ */
+@Component
+public class ProcessOutputCapture {
+
+    /**
+     * 进程结束后等待输出读完的时间（毫秒），用户代码留下的子进程可能一直占着管道
+     */
+    private static final long DRAIN_TIMEOUT = 1000L;
+
+    @Resource
+    private CodeSandboxProperties codeSandboxProperties;
+
+    private BufferPool bufferPool;
+
+    private ExecutorService ioExecutor;
+
+    public ProcessOutputCapture() {
+    }
+
+    /**
+     * 不依赖 Spring 容器时使用
+     */
+    public ProcessOutputCapture(CodeSandboxProperties codeSandboxProperties) {
+        this.codeSandboxProperties = codeSandboxProperties;
+    }
+
+    @PostConstruct
+    public void init() {
+        CodeSandboxProperties.Output config = codeSandboxProperties.getOutput();
+        bufferPool = new BufferPool(config.getChunkSize(), config.getMaxPooledChunks());
+        AtomicInteger threadIndex = new AtomicInteger();
+        ioExecutor = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "process-io-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ioExecutor.shutdownNow();
+    }
+
+    /**
+     * 标准输出缓冲，上限为 output.limit
+     */
+    public BoundedBuffer newStdoutBuffer() {
+        return new BoundedBuffer(bufferPool, codeSandboxProperties.getOutput().getLimit());
+    }
+
+    /**
+     * 标准输出缓冲，指定上限（如单 JVM 运行器一次输出多个用例的结果）
+     */
+    public BoundedBuffer newStdoutBuffer(long limit) {
+        return new BoundedBuffer(bufferPool, limit);
+    }
+
+    /**
+     * 标准错误缓冲，上限为 output.errorLimit
+     */
+    public BoundedBuffer newStderrBuffer() {
+        return new BoundedBuffer(bufferPool, codeSandboxProperties.getOutput().getErrorLimit());
+    }
+
+    public BufferPool getBufferPool() {
+        return bufferPool;
+    }
+
+    /**
+     * 写入标准输入并等待进程结束，标准输出上限为 output.limit
+     */
+    public MultiCaseRunnerSupport.HarnessOutput run(Process process, byte[] stdin, long timeout) throws Exception {
+        return run(process, stdin, timeout, codeSandboxProperties.getOutput().getLimit());
+    }
+
+    /**
+     * 写入标准输入并等待进程结束
+     * 超时或输出超限时连同子进程一起强制结束；等待期间被中断同样结束进程后抛出
+     */
+    public MultiCaseRunnerSupport.HarnessOutput run(Process process, byte[] stdin, long timeout, long stdoutLimit) throws Exception {
+        return run(process, stdin, timeout, stdoutLimit, OutputTap.NONE);
+    }
+
+    /**
+     * 写入标准输入并等待进程结束，标准输出边读边交给 stdoutTap，它喊停时立即结束进程（不算超时也不算输出超限）
+     */
+    public MultiCaseRunnerSupport.HarnessOutput run(Process process, byte[] stdin, long timeout, long stdoutLimit,
+                                                    OutputTap stdoutTap) throws Exception {
+        return run(process, new ByteArrayInputStream(stdin), timeout, stdoutLimit, stdoutTap);
+    }
+
+    /**
+     * 从输入流边读边写入标准输入（大输入不必整份读进内存），并等待进程结束
+     *
+     * @param stdin 为 null 时不写标准输入（已经用 ProcessBuilder.redirectInput 直接重定向为文件）
+     */
+    public MultiCaseRunnerSupport.HarnessOutput run(Process process, InputStream stdin, long timeout, long stdoutLimit,
+                                                    OutputTap stdoutTap) throws Exception {
+        BoundedBuffer stdout = newStdoutBuffer(stdoutLimit);
+        stdout.setTap(stdoutTap);
+        BoundedBuffer stderr = newStderrBuffer();
+        Future<?> input = ioExecutor.submit(() -> {
+            try (OutputStream outputStream = process.getOutputStream()) {
+                if (stdin != null) {
+                    stdin.transferTo(outputStream);
+                }
+            } catch (IOException e) {
+                // 进程没读完输入就退出了，忽略
+            } finally {
+                IoUtil.close(stdin);
+            }
+        });
+        Future<Boolean> stdoutPump = ioExecutor.submit(() -> pump(process, process.getInputStream(), stdout));
+        Future<Boolean> stderrPump = ioExecutor.submit(() -> pump(process, process.getErrorStream(), stderr));
+        try {
+            boolean completed;
+            try {
+                completed = process.waitFor(timeout, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                // 任务被取消：进程不能留着
+                destroyProcessTree(process);
+                throw e;
+            }
+            if (!completed) {
+                destroyProcessTree(process);
+                process.waitFor();
+            }
+            awaitDrain(process, stdoutPump);
+            awaitDrain(process, stderrPump);
+            boolean withinLimit = !stdout.isOverflowed() && !stderr.isOverflowed();
+
+            MultiCaseRunnerSupport.HarnessOutput output = new MultiCaseRunnerSupport.HarnessOutput();
+            output.setOutputLimitExceeded(!withinLimit);
+            // 输出超限导致的结束不算超时
+            output.setTimedOut(!completed && withinLimit);
+            output.setStdout(stdout.toByteArray());
+            output.setStderr(stderr.toString(StandardCharsets.UTF_8));
+            output.setExitValue(process.exitValue());
+            return output;
+        } finally {
+            // 还在读的缓冲不能归还，否则字节块可能被别人拿去用的同时还在被写入，留给 GC 即可
+            if (stdoutPump.isDone()) {
+                stdout.release();
+            }
+            if (stderrPump.isDone()) {
+                stderr.release();
+            }
+            input.cancel(true);
+            stdoutPump.cancel(true);
+            stderrPump.cancel(true);
+        }
+    }
+
+    /**
+     * 把一路输出读进缓冲，超过上限或观察者喊停时立即结束进程
+     *
+     * @return 是否在上限以内
+     */
+    private static boolean pump(Process process, InputStream in, BoundedBuffer buffer) {
+        try (InputStream inputStream = in) {
+            if (buffer.readFrom(inputStream)) {
+                return true;
+            }
+        } catch (IOException e) {
+            // 进程被强制结束时管道会被关闭
+            return !buffer.isOverflowed();
+        }
+        // 超过上限或观察者喊停：不再读，直接结束进程，管道随之关闭
+        destroyProcessTree(process);
+        return false;
+    }
+
+    /**
+     * 等待一路输出读完
+     * 主进程已经结束，但它留下的子进程还占着管道时，先尝试结束它们；仍读不完就不再等，已读到的输出照常返回
+     */
+    private static void awaitDrain(Process process, Future<Boolean> pump) throws Exception {
+        try {
+            pump.get(DRAIN_TIMEOUT, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            destroyProcessTree(process);
+            try {
+                pump.get(DRAIN_TIMEOUT, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException ignored) {
+                System.err.println("进程输出管道未关闭，放弃等待: " + process.pid());
+            }
+        }
+    }
+
+    /**
+     * 强制结束进程及其所有子孙进程
+     */
+    public static void destroyProcessTree(Process process) {
+        process.descendants().forEach(ProcessHandle::destroyForcibly);
+        process.destroyForcibly();
+    }
+}
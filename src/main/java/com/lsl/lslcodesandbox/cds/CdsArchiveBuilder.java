@@ -0,0 +1,219 @@
+package com.lsl.lslcodesandbox.cds;
+
+import cn.hutool.core.io.FileUtil;
+import com.lsl.lslcodesandbox.compiler.CompileResult;
+import com.lsl.lslcodesandbox.compiler.InMemoryJavaCompiler;
+import com.lsl.lslcodesandbox.runner.MultiCaseRunnerSupport;
+import lombok.Data;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * AppCDS 归档生成器
+ * 1. 用 -XX:DumpLoadedClassList 跑一遍训练程序，记录加载过的类
+ * 2. 合并类列表，只保留 JDK 自带的类（用户类每次都不一样，放进归档也用不上）
+ * 3. 用 -Xshare:dump 生成共享归档，之后每次启动 JVM 直接映射归档，省掉这些类的解析和校验
+ *
+ * 归档必须由实际运行用户代码的那个 JVM 生成，所以命令的执行方式是可替换的（本机进程 / 容器内 exec）
+ */
+public class CdsArchiveBuilder {
+
+    public static final String ARCHIVE_NAME = "jdk.jsa";
+
+    /**
+     * 只把这些包前缀的类放进归档
+     */
+    private static final List<String> JDK_PACKAGE_PREFIXES = Arrays.asList("java/", "javax/", "jdk/", "sun/", "com/sun/");
+
+    /**
+     * 内置的训练程序：覆盖 ACM 模式提交最常用的 JDK 类
+     */
+    private static final String TYPICAL_SUBMISSION = "import java.io.*;\n" +
+            "import java.util.*;\n" +
+            "import java.util.stream.*;\n" +
+            "public class TypicalSubmission {\n" +
+            "    public static void main(String[] args) throws IOException {\n" +
+            "        Scanner sc = new Scanner(System.in);\n" +
+            "        int a = sc.nextInt(), b = sc.nextInt();\n" +
+            "        BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(\"3 1 2\\n\".getBytes())));\n" +
+            "        StringTokenizer st = new StringTokenizer(reader.readLine());\n" +
+            "        List<Integer> list = new ArrayList<>();\n" +
+            "        while (st.hasMoreTokens()) list.add(Integer.parseInt(st.nextToken()));\n" +
+            "        Collections.sort(list);\n" +
+            "        Map<Integer, Long> count = list.stream().collect(Collectors.groupingBy(x -> x % 2, TreeMap::new, Collectors.counting()));\n" +
+            "        Deque<Integer> deque = new ArrayDeque<>(list);\n" +
+            "        PriorityQueue<Integer> heap = new PriorityQueue<>(Comparator.reverseOrder());\n" +
+            "        heap.addAll(new HashSet<>(list));\n" +
+            "        int[] arr = list.stream().mapToInt(Integer::intValue).toArray();\n" +
+            "        Arrays.sort(arr);\n" +
+            "        StringBuilder sb = new StringBuilder();\n" +
+            "        sb.append(String.format(\"%d %.3f %s%n\", a + b, Math.sqrt(a * b), count));\n" +
+            "        sb.append(deque.peekFirst()).append(' ').append(heap.poll()).append(' ').append(Arrays.toString(arr));\n" +
+            "        sb.append(new java.math.BigInteger(\"12345678901234567890\").multiply(java.math.BigInteger.TEN));\n" +
+            "        PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out)));\n" +
+            "        out.println(sb);\n" +
+            "        out.flush();\n" +
+            "    }\n" +
+            "}";
+
+    /**
+     * 执行一条命令
+     */
+    public interface CommandRunner {
+        /**
+         * @return 进程退出码
+         */
+        int run(List<String> cmd, byte[] stdin) throws Exception;
+    }
+
+    /**
+     * 生成结果
+     */
+    @Data
+    public static class BuildResult {
+
+        /**
+         * 归档路径（命令执行环境中的路径）
+         */
+        private String archivePath;
+
+        /**
+         * 归档包含的类数量
+         */
+        private int classCount;
+
+        private long buildTime;
+    }
+
+    private final InMemoryJavaCompiler inMemoryJavaCompiler;
+
+    private final CommandRunner commandRunner;
+
+    /**
+     * 宿主机上的工作目录
+     */
+    private final String hostWorkDir;
+
+    /**
+     * 命令执行环境中看到的同一个目录（本机运行时与 hostWorkDir 相同，容器内为挂载路径）
+     */
+    private final String targetWorkDir;
+
+    private final String targetSeparator;
+
+    public CdsArchiveBuilder(InMemoryJavaCompiler inMemoryJavaCompiler, CommandRunner commandRunner,
+                             String hostWorkDir, String targetWorkDir, String targetSeparator) {
+        this.inMemoryJavaCompiler = inMemoryJavaCompiler;
+        this.commandRunner = commandRunner;
+        this.hostWorkDir = hostWorkDir;
+        this.targetWorkDir = targetWorkDir;
+        this.targetSeparator = targetSeparator;
+    }
+
+    /**
+     * 运行用户代码时追加的 JVM 参数
+     * -Xshare:auto 在归档与当前 JVM 不匹配时自动退回不共享，不会导致启动失败
+     */
+    public static List<String> jvmOptions(String archivePath) {
+        return Arrays.asList("-XX:SharedArchiveFile=" + archivePath, "-Xshare:auto");
+    }
+
+    /**
+     * 用训练程序生成归档
+     *
+     * @param trainingSources 主类名 -> 源码
+     */
+    public BuildResult build(Map<String, String> trainingSources) throws Exception {
+        long startTime = System.currentTimeMillis();
+        FileUtil.del(hostWorkDir);
+        FileUtil.mkdir(hostWorkDir);
+        Map<String, String> sources = new LinkedHashMap<>(trainingSources);
+        sources.put("TypicalSubmission", TYPICAL_SUBMISSION);
+
+        byte[] stdin = "1 2\n".getBytes(StandardCharsets.UTF_8);
+        List<String> classLists = new ArrayList<>();
+        for (Map.Entry<String, String> entry : sources.entrySet()) {
+            String className = entry.getKey();
+            CompileResult compileResult = inMemoryJavaCompiler.compile(className, entry.getValue());
+            if (!compileResult.isSuccess()) {
+                System.err.println("CDS 训练程序编译失败，已跳过: " + className);
+                continue;
+            }
+            String classDir = "training" + File.separator + className;
+            InMemoryJavaCompiler.writeClassFiles(compileResult.getClassBytes(), hostWorkDir + File.separator + classDir);
+            String targetClassDir = target("training", className);
+
+            // 直接运行（逐个用例启动 JVM 的方式）
+            String listName = className + ".lst";
+            List<String> cmd = new ArrayList<>(Arrays.asList("java", "-Xshare:off", "-XX:DumpLoadedClassList=" + target(listName),
+                    "-cp", targetClassDir, className, "1", "2"));
+            commandRunner.run(cmd, stdin);
+            classLists.add(listName);
+
+            // 经由多用例运行器运行（单 JVM / worker 方式），覆盖运行器用到的类加载、重定向相关的类
+            MultiCaseRunnerSupport.installRunner(hostWorkDir + File.separator + classDir);
+            String runnerListName = className + "-runner.lst";
+            List<String> runnerCmd = new ArrayList<>(Arrays.asList("java", "-Xshare:off", "-XX:DumpLoadedClassList=" + target(runnerListName)));
+            runnerCmd.addAll(MultiCaseRunnerSupport.runnerArgs(targetClassDir, targetSeparator, className, 5000L,
+                    1024 * 1024L, 1024 * 1024L));
+            commandRunner.run(runnerCmd, MultiCaseRunnerSupport.encodeInputs(Collections.singletonList("1 2")));
+            classLists.add(runnerListName);
+        }
+
+        // 合并类列表
+        Set<String> classNames = new LinkedHashSet<>();
+        for (String listName : classLists) {
+            File listFile = new File(hostWorkDir, listName);
+            if (!listFile.exists()) {
+                continue;
+            }
+            for (String line : FileUtil.readUtf8Lines(listFile)) {
+                String name = line.trim().split("\\s+")[0];
+                if (isJdkClass(name)) {
+                    classNames.add(name);
+                }
+            }
+        }
+        if (classNames.isEmpty()) {
+            throw new IllegalStateException("没有收集到任何类，无法生成 CDS 归档");
+        }
+        FileUtil.writeUtf8Lines(classNames, new File(hostWorkDir, "classes.lst"));
+
+        // 显式使用 G1 生成：只有 G1 下生成的归档才会带上预先构造好的堆对象（模块图、常量等），
+        // 单核机器上 JVM 默认选 SerialGC，不加这个参数会丢掉这部分收益
+        String archivePath = target(ARCHIVE_NAME);
+        int exitValue = commandRunner.run(Arrays.asList("java", "-XX:+UseG1GC", "-Xshare:dump", "-XX:SharedClassListFile=" + target("classes.lst"),
+                "-XX:SharedArchiveFile=" + archivePath), new byte[0]);
+        if (exitValue != 0 || !new File(hostWorkDir, ARCHIVE_NAME).exists()) {
+            throw new IllegalStateException("生成 CDS 归档失败，退出码 " + exitValue);
+        }
+        // 训练产物用完即删，只保留归档和类列表
+        FileUtil.del(hostWorkDir + File.separator + "training");
+
+        BuildResult buildResult = new BuildResult();
+        buildResult.setArchivePath(archivePath);
+        buildResult.setClassCount(classNames.size());
+        buildResult.setBuildTime(System.currentTimeMillis() - startTime);
+        return buildResult;
+    }
+
+    private static boolean isJdkClass(String name) {
+        if (name.isEmpty() || name.startsWith("#") || name.startsWith("@")) {
+            return false;
+        }
+        return JDK_PACKAGE_PREFIXES.stream().anyMatch(name::startsWith);
+    }
+
+    private String target(String... parts) {
+        return targetWorkDir + targetSeparator + String.join(targetSeparator, parts);
+    }
+}
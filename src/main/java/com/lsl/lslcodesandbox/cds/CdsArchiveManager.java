@@ -0,0 +1,188 @@
+package com.lsl.lslcodesandbox.cds;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.io.IoUtil;
+import com.lsl.lslcodesandbox.Utils.ContainerPool;
+import com.lsl.lslcodesandbox.compiler.InMemoryJavaCompiler;
+import com.lsl.lslcodesandbox.config.CodeSandboxProperties;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 维护运行用户代码用的 AppCDS 归档
+ * 本机归档在启动时后台生成，并以 java -version 的输出校验，JDK 没变就直接复用；
+ * 容器内的 JVM 与宿主机不同，第一次使用 Docker 沙箱时在一个一次性容器里单独生成一份，运行容器只读挂载
+ * 归档还没生成好之前照常不带归档启动，不影响判题
+ */
+@Component
+public class CdsArchiveManager {
+
+    private static final String VERSION_FILE = "jvm.version";
+
+    /**
+     * 容器内归档的生成目录：挂载的 cds.dockerDir 下的子目录，生成时整个删掉重建不影响挂载本身
+     */
+    private static final String DOCKER_ARCHIVE_DIR = "archive";
+
+    @Resource
+    private CodeSandboxProperties codeSandboxProperties;
+
+    @Resource
+    private InMemoryJavaCompiler inMemoryJavaCompiler;
+
+    @Resource
+    private ContainerPool containerPool;
+
+    private volatile List<String> nativeOptions = Collections.emptyList();
+
+    private volatile List<String> dockerOptions = Collections.emptyList();
+
+    private final AtomicBoolean dockerBuildStarted = new AtomicBoolean();
+
+    private final ExecutorService buildExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "cds-archive-build");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PostConstruct
+    public void init() {
+        if (codeSandboxProperties.getCds().isEnabled()) {
+            buildExecutor.execute(this::buildNativeArchive);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        buildExecutor.shutdownNow();
+    }
+
+    /**
+     * 原生沙箱启动 JVM 时追加的参数，归档未就绪时为空
+     */
+    public List<String> nativeJvmOptions() {
+        return nativeOptions;
+    }
+
+    /**
+     * Docker 沙箱在容器内启动 JVM 时追加的参数，第一次调用时触发容器内归档的生成
+     */
+    public List<String> dockerJvmOptions() {
+        if (codeSandboxProperties.getCds().isEnabled() && dockerBuildStarted.compareAndSet(false, true)) {
+            buildExecutor.execute(this::buildDockerArchive);
+        }
+        return dockerOptions;
+    }
+
+    private void buildNativeArchive() {
+        String dir = codeSandboxProperties.getCds().getDir();
+        try {
+            String jvmVersion = javaVersion();
+            File archive = new File(dir, CdsArchiveBuilder.ARCHIVE_NAME);
+            File versionFile = new File(dir, VERSION_FILE);
+            if (archive.exists() && versionFile.exists() && jvmVersion.equals(FileUtil.readUtf8String(versionFile))) {
+                nativeOptions = CdsArchiveBuilder.jvmOptions(archive.getAbsolutePath());
+                System.out.println("复用已有的 CDS 归档: " + archive.getAbsolutePath());
+                return;
+            }
+            CdsArchiveBuilder builder = new CdsArchiveBuilder(inMemoryJavaCompiler, CdsArchiveManager::runLocal,
+                    dir, dir, File.separator);
+            CdsArchiveBuilder.BuildResult result = builder.build(loadTrainingSources());
+            FileUtil.writeUtf8String(jvmVersion, versionFile);
+            nativeOptions = CdsArchiveBuilder.jvmOptions(result.getArchivePath());
+            System.out.println("CDS 归档生成完成，共 " + result.getClassCount() + " 个类，耗时 " + result.getBuildTime() + "ms");
+        } catch (Exception e) {
+            System.err.println("生成 CDS 归档失败，将不使用共享归档: " + e.getMessage());
+        }
+    }
+
+    private void buildDockerArchive() {
+        String containerId = null;
+        try {
+            // 池里的运行容器对归档目录只读，在单独的容器里生成，生成期间不运行任何用户代码
+            containerId = containerPool.startCdsBuildContainer();
+            String id = containerId;
+            CdsArchiveBuilder builder = new CdsArchiveBuilder(inMemoryJavaCompiler,
+                    (cmd, stdin) -> {
+                        Integer exitValue = containerPool.execInContainer(id, cmd.toArray(new String[0]), stdin, 60000L).getExitValue();
+                        return exitValue == null ? -1 : exitValue;
+                    },
+                    codeSandboxProperties.getCds().getDockerDir() + File.separator + DOCKER_ARCHIVE_DIR,
+                    ContainerPool.CDS_DIR + "/" + DOCKER_ARCHIVE_DIR, "/");
+            CdsArchiveBuilder.BuildResult result = builder.build(loadTrainingSources());
+            dockerOptions = CdsArchiveBuilder.jvmOptions(result.getArchivePath());
+            System.out.println("容器内 CDS 归档生成完成，共 " + result.getClassCount() + " 个类，耗时 " + result.getBuildTime() + "ms");
+        } catch (Exception e) {
+            System.err.println("生成容器内 CDS 归档失败，将不使用共享归档: " + e.getMessage());
+        } finally {
+            if (containerId != null) {
+                containerPool.removeCdsBuildContainer(containerId);
+            }
+        }
+    }
+
+    /**
+     * 从 classpath 读取训练程序，文件名即主类名
+     */
+    private Map<String, String> loadTrainingSources() {
+        Map<String, String> sources = new LinkedHashMap<>();
+        for (String fileName : codeSandboxProperties.getCds().getTrainingPrograms()) {
+            try (InputStream in = CdsArchiveManager.class.getClassLoader().getResourceAsStream(fileName)) {
+                if (in == null) {
+                    System.err.println("找不到 CDS 训练程序: " + fileName);
+                    continue;
+                }
+                sources.put(FileUtil.mainName(fileName), IoUtil.read(in, StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                System.err.println("读取 CDS 训练程序失败: " + fileName + ", " + e.getMessage());
+            }
+        }
+        return sources;
+    }
+
+    /**
+     * 当前 JDK 的版本信息，JDK 升级后旧归档会失效
+     */
+    private static String javaVersion() throws Exception {
+        Process process = new ProcessBuilder("java", "-version").redirectErrorStream(true).start();
+        String version = IoUtil.read(process.getInputStream(), StandardCharsets.UTF_8);
+        process.waitFor();
+        return version.trim();
+    }
+
+    /**
+     * 在本机执行命令，输出直接丢弃；训练语料里可能有死循环的程序，10 秒没结束就强制结束
+     */
+    static int runLocal(List<String> cmd, byte[] stdin) throws Exception {
+        Process process = new ProcessBuilder(cmd)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        try (OutputStream outputStream = process.getOutputStream()) {
+            outputStream.write(stdin);
+        } catch (IOException e) {
+            // 进程不读标准输入就退出了，忽略
+        }
+        if (!process.waitFor(10, TimeUnit.SECONDS)) {
+            process.destroyForcibly();
+            return -1;
+        }
+        return process.exitValue();
+    }
+}
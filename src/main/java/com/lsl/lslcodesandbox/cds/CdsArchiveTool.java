@@ -0,0 +1,103 @@
+package com.lsl.lslcodesandbox.cds;
+
+import cn.hutool.core.io.FileUtil;
+import com.lsl.lslcodesandbox.compiler.CompileResult;
+import com.lsl.lslcodesandbox.compiler.InMemoryJavaCompiler;
+import com.lsl.lslcodesandbox.config.CodeSandboxProperties;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 命令行工具：用训练语料重新生成 CDS 归档，并对比有无归档时的 JVM 启动耗时
+ * 用法：CdsArchiveTool <训练程序目录，如 src/main/resources> <归档输出目录> [每组启动次数，默认 20]
+ */
+public class CdsArchiveTool {
+
+    private static final String BENCH_CODE = "import java.util.*;\n" +
+            "public class Main {\n" +
+            "    public static void main(String[] args) {\n" +
+            "        Scanner sc = new Scanner(System.in);\n" +
+            "        List<Integer> list = new ArrayList<>();\n" +
+            "        while (sc.hasNextInt()) list.add(sc.nextInt());\n" +
+            "        System.out.println(String.format(\"%d\", list.stream().mapToInt(i -> i).sum()));\n" +
+            "    }\n" +
+            "}";
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.out.println("用法: CdsArchiveTool <训练程序目录> <归档输出目录> [每组启动次数]");
+            return;
+        }
+        String corpusDir = args[0];
+        String outputDir = new File(args[1]).getAbsolutePath();
+        int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+
+        CodeSandboxProperties properties = new CodeSandboxProperties();
+        properties.getCompile().setWarmUp(false);
+        InMemoryJavaCompiler inMemoryJavaCompiler = new InMemoryJavaCompiler(properties);
+        inMemoryJavaCompiler.init();
+
+        // 训练语料：目录下所有能编译通过的 .java 文件
+        Map<String, String> sources = new LinkedHashMap<>();
+        for (File file : FileUtil.loopFiles(new File(corpusDir), file -> file.getName().endsWith(".java"))) {
+            sources.put(FileUtil.mainName(file), FileUtil.readUtf8String(file));
+        }
+        System.out.println("训练程序 " + sources.size() + " 个");
+
+        CdsArchiveBuilder builder = new CdsArchiveBuilder(inMemoryJavaCompiler, CdsArchiveManager::runLocal,
+                outputDir, outputDir, File.separator);
+        CdsArchiveBuilder.BuildResult result = builder.build(sources);
+        System.out.println("归档: " + result.getArchivePath() + "，共 " + result.getClassCount() + " 个类，耗时 " + result.getBuildTime() + "ms");
+
+        // 启动耗时对比：同一个典型提交分别不带归档 / 带归档各启动若干次
+        CompileResult compileResult = inMemoryJavaCompiler.compile("Main", BENCH_CODE);
+        String benchDir = outputDir + File.separator + "bench";
+        InMemoryJavaCompiler.writeClassFiles(compileResult.getClassBytes(), benchDir);
+        List<String> baseCmd = Arrays.asList("java", "-Xmx256m", "-Dfile.encoding=UTF-8", "-cp", benchDir, "Main");
+        List<String> cdsCmd = new ArrayList<>(baseCmd);
+        cdsCmd.addAll(1, CdsArchiveBuilder.jvmOptions(result.getArchivePath()));
+        List<String> noShareCmd = new ArrayList<>(baseCmd);
+        noShareCmd.add(1, "-Xshare:off");
+        byte[] stdin = "1 2 3\n".getBytes(StandardCharsets.UTF_8);
+
+        // 先各跑一次，排除文件系统缓存的影响
+        CdsArchiveManager.runLocal(baseCmd, stdin);
+        CdsArchiveManager.runLocal(cdsCmd, stdin);
+        long[] noShare = measure(noShareCmd, stdin, iterations);
+        long[] without = measure(baseCmd, stdin, iterations);
+        long[] with = measure(cdsCmd, stdin, iterations);
+        FileUtil.del(benchDir);
+
+        System.out.printf("启动次数: %d%n", iterations);
+        System.out.printf("不共享  : 平均 %.1fms，中位数 %.1fms%n", mean(noShare), median(noShare));
+        System.out.printf("默认归档: 平均 %.1fms，中位数 %.1fms%n", mean(without), median(without));
+        System.out.printf("AppCDS  : 平均 %.1fms，中位数 %.1fms%n", mean(with), median(with));
+        System.out.printf("中位数节省（相对默认归档）%.1f%%，（相对不共享）%.1f%%%n",
+                (1 - median(with) / median(without)) * 100, (1 - median(with) / median(noShare)) * 100);
+    }
+
+    private static long[] measure(List<String> cmd, byte[] stdin, int iterations) throws Exception {
+        long[] costs = new long[iterations];
+        for (int i = 0; i < iterations; i++) {
+            long startTime = System.nanoTime();
+            CdsArchiveManager.runLocal(cmd, stdin);
+            costs[i] = System.nanoTime() - startTime;
+        }
+        Arrays.sort(costs);
+        return costs;
+    }
+
+    private static double mean(long[] sortedNanos) {
+        return Arrays.stream(sortedNanos).average().orElse(0) / 1000_000.0;
+    }
+
+    private static double median(long[] sortedNanos) {
+        return sortedNanos[sortedNanos.length / 2] / 1000_000.0;
+    }
+}
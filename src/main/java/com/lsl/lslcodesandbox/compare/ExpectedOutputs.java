@@ -0,0 +1,156 @@
+package com.lsl.lslcodesandbox.compare;
+
+import com.lsl.lslcodesandbox.model.CaseVerdict;
+import com.lsl.lslcodesandbox.model.CompareModeEnum;
+import com.lsl.lslcodesandbox.model.ExecuteCodeRequest;
+import com.lsl.lslcodesandbox.model.ExecuteMessage;
+import com.lsl.lslcodesandbox.model.JudgeInfoMessageEnum;
+import com.lsl.lslcodesandbox.runner.ParallelCaseRunner;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 一次提交的期望输出，请求里带了期望输出（或摘要）时在沙箱内比对，响应只返回每个用例的判定和第一处不同
+ * 逐个进程运行的用例边输出边比对，发现不同立即结束进程；多个用例共用一个进程时拿到结果后再比对
+ */
+public class ExpectedOutputs {
+
+    /**
+     * 不比对：照旧返回完整输出
+     */
+    public static final ExpectedOutputs NONE = new ExpectedOutputs(null, null, CompareModeEnum.EXACT, 0, false);
+
+    private static final double DEFAULT_FLOAT_TOLERANCE = 1e-6;
+
+    private final List<String> expectedOutputList;
+
+    private final List<String> expectedOutputHashList;
+
+    private final CompareModeEnum mode;
+
+    private final double tolerance;
+
+    private final boolean failFast;
+
+    private ExpectedOutputs(List<String> expectedOutputList, List<String> expectedOutputHashList,
+                            CompareModeEnum mode, double tolerance, boolean failFast) {
+        this.expectedOutputList = expectedOutputList;
+        this.expectedOutputHashList = expectedOutputHashList;
+        this.mode = mode;
+        this.tolerance = tolerance;
+        this.failFast = failFast;
+    }
+
+    /**
+     * @param caseCount 用例数（输入可能按 id 引用测试数据仓库，不一定在 inputList 里）
+     */
+    public static ExpectedOutputs of(ExecuteCodeRequest executeCodeRequest, int caseCount) {
+        List<String> expectedOutputList = executeCodeRequest.getExpectedOutputList();
+        List<String> expectedOutputHashList = executeCodeRequest.getExpectedOutputHashList();
+        if (expectedOutputList == null && expectedOutputHashList == null) {
+            return NONE;
+        }
+        List<String> expectations = expectedOutputList != null ? expectedOutputList : expectedOutputHashList;
+        if (expectations.size() != caseCount) {
+            throw new IllegalArgumentException("期望输出数量与输入用例数量不一致");
+        }
+        CompareModeEnum mode = executeCodeRequest.getCompareMode() == null ? CompareModeEnum.EXACT : executeCodeRequest.getCompareMode();
+        if (expectedOutputList == null && mode == CompareModeEnum.FLOAT) {
+            throw new IllegalArgumentException("按误差比对时必须给出期望输出原文");
+        }
+        double tolerance = executeCodeRequest.getFloatTolerance() == null ? DEFAULT_FLOAT_TOLERANCE : executeCodeRequest.getFloatTolerance();
+        return new ExpectedOutputs(expectedOutputList, expectedOutputList == null ? expectedOutputHashList : null,
+                mode, tolerance, Boolean.TRUE.equals(executeCodeRequest.getFailFast()));
+    }
+
+    public boolean isEnabled() {
+        return expectedOutputList != null || expectedOutputHashList != null;
+    }
+
+    public boolean isFailFast() {
+        return failFast;
+    }
+
+    /**
+     * 第 index 个用例的比对器，不比对时为 null
+     */
+    public OutputComparator comparator(int index) {
+        if (expectedOutputList != null) {
+            return OutputComparator.ofExpected(expectedOutputList.get(index), mode, tolerance);
+        }
+        if (expectedOutputHashList != null) {
+            return OutputComparator.ofHash(expectedOutputHashList.get(index), mode);
+        }
+        return null;
+    }
+
+    /**
+     * 根据流式比对的结果给单个用例下结论：程序自己出错（运行错误、超时等）优先，其次是答案错误
+     * 比对器喊停导致进程被结束时，退出码不算运行错误
+     */
+    public ExecuteMessage judge(ExecuteMessage executeMessage, OutputComparator comparator) {
+        if (comparator == null || executeMessage.getVerdict() != null) {
+            return executeMessage;
+        }
+        // 输出途中就发现不同的，进程是被比对器喊停结束的
+        boolean stoppedEarly = comparator.isMismatched();
+        String diff = comparator.finish();
+        if (diff != null && (stoppedEarly || executeMessage.getExitValue() == 0)) {
+            executeMessage.setExitValue(0);
+            executeMessage.setErrorMessage("");
+            executeMessage.setVerdict(JudgeInfoMessageEnum.WRONG_ANSWER);
+            executeMessage.setDiff(diff);
+        }
+        executeMessage.setMessage(null);
+        return executeMessage;
+    }
+
+    /**
+     * 比对一批已经拿到的结果（多个用例共用一个进程时），开启 failFast 时第一个答案错误之后的结果丢弃
+     *
+     * @param fromIndex 第一个结果对应的用例下标
+     */
+    public List<ExecuteMessage> judgeAll(int fromIndex, List<ExecuteMessage> results) {
+        if (!isEnabled()) {
+            return results;
+        }
+        List<ExecuteMessage> judged = new ArrayList<>();
+        for (int i = 0; i < results.size(); i++) {
+            ExecuteMessage executeMessage = results.get(i);
+            OutputComparator comparator = comparator(fromIndex + i);
+            if (executeMessage.getVerdict() == null && executeMessage.getMessage() != null) {
+                byte[] bytes = executeMessage.getMessage().getBytes(StandardCharsets.UTF_8);
+                comparator.accept(bytes, 0, bytes.length);
+            }
+            judged.add(judge(executeMessage, comparator));
+            if (failFast && executeMessage.getVerdict() == JudgeInfoMessageEnum.WRONG_ANSWER) {
+                break;
+            }
+        }
+        return judged;
+    }
+
+    /**
+     * 这个用例之后是否不用再跑
+     */
+    public boolean stopsAfter(ExecuteMessage executeMessage) {
+        if (executeMessage.getVerdict() == JudgeInfoMessageEnum.WRONG_ANSWER) {
+            return failFast;
+        }
+        return ParallelCaseRunner.isFailed(executeMessage);
+    }
+
+    /**
+     * 汇总每个用例的判定
+     */
+    public static CaseVerdict verdictOf(int index, ExecuteMessage executeMessage) {
+        JudgeInfoMessageEnum verdict = executeMessage.getVerdict();
+        if (verdict == null) {
+            verdict = executeMessage.getExitValue() != null && executeMessage.getExitValue() != 0
+                    ? JudgeInfoMessageEnum.RUNTIME_ERROR : JudgeInfoMessageEnum.ACCEPTED;
+        }
+        return new CaseVerdict(index, verdict, executeMessage.getDiff());
+    }
+}
@@ -0,0 +1,302 @@
+package com.lsl.lslcodesandbox.compare;
+
+import com.lsl.lslcodesandbox.capture.OutputTap;
+import com.lsl.lslcodesandbox.model.CompareModeEnum;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * 单个用例的流式输出比对
+ * 程序输出到一半就能发现第一处不同，不必等它跑完、也不必把完整输出留下来；
+ * 按字节比对，空白只认 ASCII 空白（与 String.trim 一致），多字节字符不会被误切
+ * 期望输出可以给原文，也可以给规范化后输出的 SHA-256（此时只能跑完再判，且不支持 FLOAT）
+ */
+public class OutputComparator implements OutputTap {
+
+    /**
+     * 差异说明里最多截取的字节数
+     */
+    private static final int SNIPPET = 64;
+
+    private final CompareModeEnum mode;
+
+    private final double tolerance;
+
+    /**
+     * 期望输出（已去掉首尾空白），按摘要比对时为空
+     */
+    private final byte[] expected;
+
+    private final String expectedHash;
+
+    private final MessageDigest digest;
+
+    private boolean started;
+
+    /**
+     * EXACT：已确认一致的期望输出长度；逐词比对：期望输出的读取位置
+     */
+    private int expectedPos;
+
+    /**
+     * EXACT：一段空白先按期望输出试着对下去，后面跟着非空白才算数，结尾的空白不计
+     */
+    private int pendingPos;
+
+    private boolean pendingMismatch;
+
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+
+    private final ByteArrayOutputStream token = new ByteArrayOutputStream();
+
+    private int tokenCount;
+
+    /**
+     * 当前这一行实际输出的开头部分，用于差异说明
+     */
+    private final ByteArrayOutputStream actualLine = new ByteArrayOutputStream();
+
+    private int actualLineNumber = 1;
+
+    private boolean mismatched;
+
+    private String diff;
+
+    private OutputComparator(CompareModeEnum mode, double tolerance, byte[] expected, String expectedHash) {
+        this.mode = mode;
+        this.tolerance = tolerance;
+        this.expected = expected;
+        this.expectedHash = expectedHash;
+        this.digest = expectedHash == null ? null : sha256();
+    }
+
+    /**
+     * 与期望输出原文比对
+     */
+    public static OutputComparator ofExpected(String expectedOutput, CompareModeEnum mode, double tolerance) {
+        return new OutputComparator(mode, tolerance, expectedOutput.trim().getBytes(StandardCharsets.UTF_8), null);
+    }
+
+    /**
+     * 与期望输出的摘要比对
+     */
+    public static OutputComparator ofHash(String expectedHash, CompareModeEnum mode) {
+        if (mode == CompareModeEnum.FLOAT) {
+            throw new IllegalArgumentException("按误差比对时必须给出期望输出原文");
+        }
+        return new OutputComparator(mode, 0, null, expectedHash.trim().toLowerCase());
+    }
+
+    /**
+     * 规范化后输出的 SHA-256（十六进制），客户端按同样的规则计算期望输出的摘要：
+     * EXACT 为去掉首尾空白后的 UTF-8 字节，IGNORE_WHITESPACE 为按空白切分后以单个空格连接
+     */
+    public static String hash(String output, CompareModeEnum mode) {
+        OutputComparator comparator = ofHash("", mode);
+        byte[] bytes = output.getBytes(StandardCharsets.UTF_8);
+        comparator.accept(bytes, 0, bytes.length);
+        comparator.flushToken();
+        return hex(comparator.digest.digest());
+    }
+
+    @Override
+    public boolean accept(byte[] bytes, int offset, int length) {
+        for (int i = offset; i < offset + length && !mismatched; i++) {
+            byte b = bytes[i];
+            if (b != '\n' && actualLine.size() < SNIPPET) {
+                actualLine.write(b);
+            }
+            if (mode == CompareModeEnum.EXACT) {
+                acceptExact(b);
+            } else {
+                acceptToken(b);
+            }
+            if (b == '\n') {
+                actualLine.reset();
+                actualLineNumber++;
+            }
+        }
+        return !mismatched;
+    }
+
+    /**
+     * 输出结束，给出比对结果
+     *
+     * @return 一致返回 null，否则返回第一处不同的说明
+     */
+    public String finish() {
+        if (mismatched) {
+            return diff;
+        }
+        if (mode != CompareModeEnum.EXACT) {
+            flushToken();
+        }
+        if (mismatched) {
+            return diff;
+        }
+        if (digest != null) {
+            if (!hex(digest.digest()).equals(expectedHash)) {
+                mismatched = true;
+                diff = "输出与期望输出的摘要不一致";
+            }
+        } else if (mode == CompareModeEnum.EXACT ? expectedPos < expected.length : nextExpectedToken() != null) {
+            mismatched = true;
+            diff = "输出比期望的少，期望接下来是 \"" + snippet(expected, expectedPos) + "\"";
+        }
+        return diff;
+    }
+
+    /**
+     * 是否已经发现不同（输出还没结束也可能已经确定）
+     */
+    public boolean isMismatched() {
+        return mismatched;
+    }
+
+    private void acceptExact(byte b) {
+        if (isSpace(b)) {
+            if (!started) {
+                return;
+            }
+            if (digest != null) {
+                pending.write(b);
+            } else if (!pendingMismatch && pendingPos < expected.length && expected[pendingPos] == b) {
+                pendingPos++;
+            } else {
+                pendingMismatch = true;
+            }
+            return;
+        }
+        started = true;
+        if (digest != null) {
+            digest.update(pending.toByteArray());
+            pending.reset();
+            digest.update(b);
+            return;
+        }
+        if (pendingMismatch) {
+            exactMismatch(pendingPos);
+            return;
+        }
+        expectedPos = pendingPos;
+        if (expectedPos < expected.length && expected[expectedPos] == b) {
+            expectedPos++;
+            pendingPos = expectedPos;
+        } else {
+            exactMismatch(expectedPos);
+        }
+    }
+
+    private void exactMismatch(int position) {
+        mismatched = true;
+        int line = 1;
+        int lineStart = 0;
+        for (int i = 0; i < position && i < expected.length; i++) {
+            if (expected[i] == '\n') {
+                line++;
+                lineStart = i + 1;
+            }
+        }
+        diff = "第 " + actualLineNumber + " 行不同，期望第 " + line + " 行 \"" + snippet(expected, lineStart)
+                + "\"，实际 \"" + new String(actualLine.toByteArray(), StandardCharsets.UTF_8) + "\"";
+    }
+
+    private void acceptToken(byte b) {
+        if (isSpace(b)) {
+            flushToken();
+        } else {
+            token.write(b);
+        }
+    }
+
+    private void flushToken() {
+        if (token.size() == 0 || mismatched) {
+            return;
+        }
+        byte[] actual = token.toByteArray();
+        token.reset();
+        tokenCount++;
+        if (digest != null) {
+            if (tokenCount > 1) {
+                digest.update((byte) ' ');
+            }
+            digest.update(actual);
+            return;
+        }
+        int[] range = nextExpectedToken();
+        if (range == null) {
+            mismatched = true;
+            diff = "输出比期望的多，第 " + tokenCount + " 个词 \"" + snippet(actual, 0) + "\" 是多余的";
+            return;
+        }
+        byte[] expectedToken = Arrays.copyOfRange(expected, range[0], range[1]);
+        if (!Arrays.equals(actual, expectedToken) && !(mode == CompareModeEnum.FLOAT && closeEnough(actual, expectedToken))) {
+            mismatched = true;
+            diff = "第 " + tokenCount + " 个词不同（第 " + actualLineNumber + " 行），期望 \"" + snippet(expectedToken, 0)
+                    + "\"，实际 \"" + snippet(actual, 0) + "\"";
+        }
+    }
+
+    /**
+     * 期望输出的下一个词 [start, end)，没有了返回 null
+     */
+    private int[] nextExpectedToken() {
+        while (expectedPos < expected.length && isSpace(expected[expectedPos])) {
+            expectedPos++;
+        }
+        if (expectedPos == expected.length) {
+            return null;
+        }
+        int start = expectedPos;
+        while (expectedPos < expected.length && !isSpace(expected[expectedPos])) {
+            expectedPos++;
+        }
+        return new int[] {start, expectedPos};
+    }
+
+    private boolean closeEnough(byte[] actual, byte[] expectedToken) {
+        try {
+            double a = Double.parseDouble(new String(actual, StandardCharsets.US_ASCII));
+            double e = Double.parseDouble(new String(expectedToken, StandardCharsets.US_ASCII));
+            double error = Math.abs(a - e);
+            return error <= tolerance || error <= tolerance * Math.abs(e);
+        } catch (NumberFormatException ex) {
+            return false;
+        }
+    }
+
+    private static boolean isSpace(byte b) {
+        return b >= 0 && b <= ' ';
+    }
+
+    /**
+     * 从 from 开始截取一行内至多 SNIPPET 个字节
+     */
+    private static String snippet(byte[] bytes, int from) {
+        int end = from;
+        while (end < bytes.length && end - from < SNIPPET && bytes[end] != '\n' && bytes[end] != '\r') {
+            end++;
+        }
+        return new String(bytes, from, end - from, StandardCharsets.UTF_8);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder builder = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            builder.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return builder.toString();
+    }
+}
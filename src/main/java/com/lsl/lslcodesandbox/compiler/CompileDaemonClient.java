@@ -0,0 +1,67 @@
+package com.lsl.lslcodesandbox.compiler;
+
+import com.lsl.lslcodesandbox.model.CompileDiagnostic;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 与一个常驻编译服务（CompileServer）通信，一次只处理一个编译任务
+ */
+public class CompileDaemonClient {
+
+    private final DataOutputStream requests;
+
+    private final DataInputStream responses;
+
+    /**
+     * @param responses 编译服务的标准输出
+     * @param requests  编译服务的标准输入
+     */
+    public CompileDaemonClient(InputStream responses, OutputStream requests) {
+        this.responses = new DataInputStream(new BufferedInputStream(responses));
+        this.requests = new DataOutputStream(new BufferedOutputStream(requests));
+    }
+
+    /**
+     * 编译一段源码，连接断开（编译服务崩溃、被超时销毁）时抛出 IOException
+     */
+    public CompileResult compile(String className, String code) throws IOException {
+        byte[] source = code.getBytes(StandardCharsets.UTF_8);
+        requests.writeInt(CompileServer.REQUEST_MAGIC);
+        requests.writeUTF(className);
+        requests.writeInt(source.length);
+        requests.write(source);
+        requests.flush();
+
+        if (responses.readInt() != CompileServer.RESPONSE_MAGIC) {
+            throw new IOException("编译服务响应格式错误");
+        }
+        CompileResult compileResult = new CompileResult();
+        compileResult.setClassName(className);
+        compileResult.setSuccess(responses.readBoolean());
+        compileResult.setCompileTime(responses.readLong());
+        int diagnosticCount = responses.readInt();
+        for (int i = 0; i < diagnosticCount; i++) {
+            String kind = responses.readUTF();
+            long line = responses.readLong();
+            long column = responses.readLong();
+            compileResult.getDiagnostics().add(new CompileDiagnostic(kind, line, column, CompileServer.readString(responses)));
+        }
+        compileResult.setMessage(CompileServer.readString(responses));
+        int classCount = responses.readInt();
+        for (int i = 0; i < classCount; i++) {
+            String name = responses.readUTF();
+            byte[] bytes = new byte[responses.readInt()];
+            responses.readFully(bytes);
+            compileResult.getClassBytes().put(name, bytes);
+        }
+        return compileResult;
+    }
+}
@@ -0,0 +1,390 @@
+package com.lsl.lslcodesandbox.compiler;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.io.IoUtil;
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.async.ResultCallback;
+import com.github.dockerjava.api.model.AccessMode;
+import com.github.dockerjava.api.model.Bind;
+import com.github.dockerjava.api.model.Frame;
+import com.github.dockerjava.api.model.HostConfig;
+import com.github.dockerjava.api.model.StreamType;
+import com.github.dockerjava.api.model.Volume;
+import com.lsl.lslcodesandbox.Utils.ContainerPool;
+import com.lsl.lslcodesandbox.config.CodeSandboxProperties;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.Pipe;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Docker 沙箱的编译容器池
+ * 每个编译容器以 CompileServer 为主进程常驻，经 attach 的标准输入输出收发编译任务；
+ * 容器断网、只读、限内存，只挂载编译服务自己的 class 文件，用户代码不在宿主机上编译，也看不到别人的提交
+ * 容器数即同时编译数，与运行容器的容量互不影响；编译容器都不可用时可退回宿主机进程内编译
+ */
+@Component
+public class CompileDaemonPool {
+
+    private static final String IMAGE = "oj-sandbox-java:1.0";
+
+    /**
+     * 编译服务的 class 文件在宿主机上的目录，只在编译容器里只读挂载到 /compiler，运行容器看不到
+     */
+    private static final String SERVER_DIR = System.getProperty("java.io.tmpdir") + File.separator + "oj-sandbox-compile-server";
+
+    private static final String CONTAINER_SERVER_DIR = "/compiler";
+
+    /**
+     * 容器起来后第一次编译（含预热）的时限
+     */
+    private static final long READY_TIMEOUT = 60000L;
+
+    /**
+     * 检查并补足编译容器的周期（毫秒）
+     */
+    private static final long TOP_UP_INTERVAL = 5000L;
+
+    @Resource
+    private CodeSandboxProperties codeSandboxProperties;
+
+    @Resource
+    private ContainerPool containerPool;
+
+    @Resource
+    private InMemoryJavaCompiler inMemoryJavaCompiler;
+
+    private final BlockingQueue<Daemon> idleDaemons = new LinkedBlockingQueue<>();
+
+    private final Map<String, Daemon> allDaemons = new ConcurrentHashMap<>();
+
+    /**
+     * 正在创建中的编译容器数，与已就绪的合计不超过 poolSize
+     */
+    private final AtomicInteger starting = new AtomicInteger();
+
+    /**
+     * 上一次启动是否失败，连续失败（如 Docker 不可用）时只打印一次
+     */
+    private volatile boolean lastStartFailed;
+
+    /**
+     * 编译服务的字节码（相对路径 -> 内容），启动编译容器前按它校验挂载目录
+     */
+    private Map<String, byte[]> serverClasses;
+
+    private ExecutorService lifecycleExecutor;
+
+    private ScheduledExecutorService watchdog;
+
+    /**
+     * 一个编译容器及与它的连接
+     */
+    private static class Daemon {
+
+        private final String containerId;
+
+        private final OutputStream requestSink;
+
+        private final CompileDaemonClient client;
+
+        private final AtomicBoolean destroyed = new AtomicBoolean();
+
+        private int jobs;
+
+        private Daemon(String containerId, OutputStream requestSink, CompileDaemonClient client) {
+            this.containerId = containerId;
+            this.requestSink = requestSink;
+            this.client = client;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!codeSandboxProperties.getCompileDaemon().isEnabled()) {
+            return;
+        }
+        serverClasses = serverClasses();
+        ensureInstalled(new File(SERVER_DIR), serverClasses);
+        lifecycleExecutor = Executors.newFixedThreadPool(2, r -> {
+            Thread thread = new Thread(r, "compile-daemon-lifecycle");
+            thread.setDaemon(true);
+            return thread;
+        });
+        watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "compile-daemon-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        watchdog.scheduleWithFixedDelay(this::topUp, 0, TOP_UP_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (lifecycleExecutor == null) {
+            return;
+        }
+        watchdog.shutdownNow();
+        lifecycleExecutor.shutdownNow();
+        lifecycleExecutor.awaitTermination(10, TimeUnit.SECONDS);
+        idleDaemons.clear();
+        for (Daemon daemon : allDaemons.values()) {
+            IoUtil.close(daemon.requestSink);
+            removeContainer(daemon.containerId);
+        }
+        allDaemons.clear();
+    }
+
+    /**
+     * 是否有可用的编译容器
+     */
+    public boolean isAvailable() {
+        return !allDaemons.isEmpty();
+    }
+
+    /**
+     * 编译一段源码：在编译容器里编译，编译容器都不可用时按配置退回宿主机进程内编译
+     */
+    public CompileResult compile(String className, String code) {
+        CodeSandboxProperties.CompileDaemon config = codeSandboxProperties.getCompileDaemon();
+        if (!config.isEnabled() || !isAvailable()) {
+            if (config.isEnabled() && !config.isFallbackToLocal()) {
+                throw new IllegalStateException("编译服务未就绪");
+            }
+            return inMemoryJavaCompiler.compile(className, code);
+        }
+        Daemon daemon;
+        try {
+            daemon = idleDaemons.poll(config.getAcquireTimeout(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("等待编译被中断", e);
+        }
+        if (daemon == null) {
+            throw new RuntimeException("编译繁忙，请稍后重试");
+        }
+        try {
+            CompileResult compileResult = compileOn(daemon, className, code, config.getTimeout());
+            if (++daemon.jobs >= config.getMaxJobs()) {
+                destroy(daemon);
+            } else {
+                idleDaemons.offer(daemon);
+            }
+            return compileResult;
+        } catch (IOException e) {
+            // 超时的容器已经被看门狗销毁
+            boolean timedOut = daemon.destroyed.get();
+            destroy(daemon);
+            throw new RuntimeException(timedOut ? "编译超时" : "编译服务异常: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 在指定的编译容器上编译，超时直接销毁容器，连接断开后读取方收到 IOException
+     */
+    private CompileResult compileOn(Daemon daemon, String className, String code, long timeout) throws IOException {
+        ScheduledFuture<?> timeoutTask = watchdog.schedule(() -> destroy(daemon), timeout, TimeUnit.MILLISECONDS);
+        try {
+            return daemon.client.compile(className, code);
+        } finally {
+            timeoutTask.cancel(false);
+        }
+    }
+
+    /**
+     * 补足编译容器（定时执行，容器销毁后也会立即触发）
+     */
+    private synchronized void topUp() {
+        int poolSize = codeSandboxProperties.getCompileDaemon().getPoolSize();
+        while (allDaemons.size() + starting.get() < poolSize) {
+            starting.incrementAndGet();
+            lifecycleExecutor.execute(() -> {
+                try {
+                    startDaemon();
+                    lastStartFailed = false;
+                } catch (Exception e) {
+                    if (!lastStartFailed) {
+                        System.err.println("启动编译容器失败: " + e.getMessage());
+                    }
+                    lastStartFailed = true;
+                } finally {
+                    starting.decrementAndGet();
+                }
+            });
+        }
+    }
+
+    /**
+     * 创建编译容器并连上编译服务，做一次编译确认可用（同时完成预热）后放进空闲队列
+     */
+    private void startDaemon() throws IOException {
+        if (ensureInstalled(new File(SERVER_DIR), serverClasses)) {
+            System.err.println("编译服务目录与预期不一致，已重新写入: " + SERVER_DIR);
+        }
+        CodeSandboxProperties.CompileDaemon config = codeSandboxProperties.getCompileDaemon();
+        DockerClient dockerClient = containerPool.getDockerClient();
+        HostConfig hostConfig = new HostConfig()
+                .withMemory(config.getMemory())
+                .withMemorySwap(config.getMemory())
+                .withNanoCPUs((long) (config.getCpus() * 1_000_000_000L))
+                .withPidsLimit(64L)
+                .withBinds(new Bind(SERVER_DIR, new Volume(CONTAINER_SERVER_DIR), AccessMode.ro));
+        String containerId = dockerClient.createContainerCmd(IMAGE)
+                .withHostConfig(hostConfig)
+                .withNetworkDisabled(true)
+                .withReadonlyRootfs(true)
+                .withAttachStdin(true)
+                .withAttachStdout(true)
+                .withAttachStderr(true)
+                .withStdinOpen(true)
+                .withStdInOnce(false)
+                .withTty(false)
+                .withCmd("java", "-Xmx" + config.getMaxHeap(), "-XX:+UseSerialGC", "-Dfile.encoding=UTF-8",
+                        "-cp", CONTAINER_SERVER_DIR, CompileServer.class.getName())
+                .exec()
+                .getId();
+        Daemon daemon = null;
+        try {
+            Pipe requestPipe = Pipe.open();
+            Pipe responsePipe = Pipe.open();
+            OutputStream responseSink = Channels.newOutputStream(responsePipe.sink());
+            dockerClient.attachContainerCmd(containerId)
+                    .withStdIn(Channels.newInputStream(requestPipe.source()))
+                    .withStdOut(true)
+                    .withStdErr(true)
+                    .withFollowStream(true)
+                    .exec(new ResultCallback.Adapter<Frame>() {
+                        @Override
+                        public void onNext(Frame frame) {
+                            if (frame.getStreamType() == StreamType.STDERR) {
+                                System.err.print("[编译容器] " + new String(frame.getPayload(), StandardCharsets.UTF_8));
+                                return;
+                            }
+                            try {
+                                responseSink.write(frame.getPayload());
+                            } catch (IOException e) {
+                                // 读取方已经放弃这个容器
+                            }
+                        }
+
+                        @Override
+                        public void onComplete() {
+                            IoUtil.close(responseSink);
+                        }
+
+                        @Override
+                        public void onError(Throwable throwable) {
+                            IoUtil.close(responseSink);
+                        }
+                    });
+            dockerClient.startContainerCmd(containerId).exec();
+            OutputStream requestSink = Channels.newOutputStream(requestPipe.sink());
+            InputStream responses = Channels.newInputStream(responsePipe.source());
+            daemon = new Daemon(containerId, requestSink, new CompileDaemonClient(responses, requestSink));
+            CompileResult warmUp = compileOn(daemon, "Main", CompileServer.WARM_UP_CODE, READY_TIMEOUT);
+            if (!warmUp.isSuccess()) {
+                throw new IOException("编译服务自检失败: " + warmUp.getMessage());
+            }
+        } catch (IOException | RuntimeException e) {
+            if (daemon != null) {
+                IoUtil.close(daemon.requestSink);
+            }
+            removeContainer(containerId);
+            throw e;
+        }
+        allDaemons.put(containerId, daemon);
+        idleDaemons.offer(daemon);
+    }
+
+    /**
+     * 销毁一个编译容器，由定时任务补一个新的；重复调用无副作用
+     */
+    private void destroy(Daemon daemon) {
+        if (!daemon.destroyed.compareAndSet(false, true)) {
+            return;
+        }
+        allDaemons.remove(daemon.containerId);
+        idleDaemons.remove(daemon);
+        IoUtil.close(daemon.requestSink);
+        lifecycleExecutor.execute(() -> {
+            removeContainer(daemon.containerId);
+            topUp();
+        });
+    }
+
+    private void removeContainer(String containerId) {
+        try {
+            containerPool.getDockerClient().removeContainerCmd(containerId).withForce(true).exec();
+        } catch (Exception e) {
+            System.err.println("删除编译容器失败: " + containerId + ", " + e.getMessage());
+        }
+    }
+
+    /**
+     * 从 classpath 读出编译服务及其依赖的 class 文件
+     */
+    static Map<String, byte[]> serverClasses() {
+        List<Class<?>> classes = new ArrayList<>(Arrays.asList(CompileServer.class, MemoryJavaFileManager.class));
+        classes.addAll(Arrays.asList(MemoryJavaFileManager.class.getDeclaredClasses()));
+        Map<String, byte[]> serverClasses = new LinkedHashMap<>();
+        for (Class<?> clazz : classes) {
+            String path = clazz.getName().replace('.', '/') + ".class";
+            try (InputStream in = CompileServer.class.getClassLoader().getResourceAsStream(path)) {
+                if (in == null) {
+                    throw new IllegalStateException("找不到编译服务字节码: " + path);
+                }
+                serverClasses.put(path.replace('/', File.separatorChar), IoUtil.readBytes(in));
+            } catch (IOException e) {
+                throw new IllegalStateException("读取编译服务字节码失败: " + path, e);
+            }
+        }
+        return serverClasses;
+    }
+
+    /**
+     * 让挂载目录里恰好是编译服务的 class 文件：逐个比对内容，缺失或被改动的重新写入，多出来的文件删除
+     *
+     * @return 是否做了修正（首次安装也算）
+     */
+    static synchronized boolean ensureInstalled(File dir, Map<String, byte[]> serverClasses) {
+        boolean repaired = false;
+        for (Map.Entry<String, byte[]> entry : serverClasses.entrySet()) {
+            File file = new File(dir, entry.getKey());
+            if (!file.isFile() || !Arrays.equals(FileUtil.readBytes(file), entry.getValue())) {
+                FileUtil.writeBytes(entry.getValue(), file);
+                repaired = true;
+            }
+        }
+        for (File file : FileUtil.loopFiles(dir)) {
+            String path = dir.toPath().relativize(file.toPath()).toString();
+            if (!serverClasses.containsKey(path)) {
+                FileUtil.del(file);
+                repaired = true;
+            }
+        }
+        return repaired;
+    }
+}
@@ -0,0 +1,46 @@
+package com.lsl.lslcodesandbox.compiler;
+
+import com.lsl.lslcodesandbox.model.CompileDiagnostic;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 内存编译结果
+ */
+@Data
+public class CompileResult {
+
+    /**
+     * 是否编译成功
+     */
+    private boolean success;
+
+    /**
+     * 主类名
+     */
+    private String className;
+
+    /**
+     * 编译产物：类的二进制名（如 Main、Main$Node） -> 字节码
+     */
+    private Map<String, byte[]> classBytes = new LinkedHashMap<>();
+
+    /**
+     * 编译诊断信息
+     */
+    private List<CompileDiagnostic> diagnostics = new ArrayList<>();
+
+    /**
+     * 拼接好的错误信息，格式与 javac 命令行输出一致
+     */
+    private String message;
+
+    /**
+     * 编译耗时（毫秒）
+     */
+    private long compileTime;
+}
@@ -0,0 +1,149 @@
+package com.lsl.lslcodesandbox.compiler;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 常驻编译服务，在专用的编译容器里作为主进程运行，只依赖 JDK
+ * 容器启动时完成编译器的类加载和预热，之后循环从标准输入读取编译任务，编译器一直保持 JIT 热状态；
+ * 用户代码（含编译器自身的缺陷）只在断网、只读、限内存的容器里被处理，不再在宿主机上编译
+ * <p>
+ * 请求：REQUEST_MAGIC、主类名、int 长度 + UTF-8 源码
+ * 响应：RESPONSE_MAGIC、是否成功、编译耗时、int 诊断数 + (级别, 行, 列, 内容)、错误信息、int 类数量 + (类名, int 长度 + 字节码)
+ */
+public class CompileServer {
+
+    public static final int REQUEST_MAGIC = 0x4C435251;
+
+    public static final int RESPONSE_MAGIC = 0x4C435250;
+
+    /**
+     * 编译参数：关闭注解处理器，宿主机上的进程内编译也用这一组
+     */
+    static final List<String> COMPILE_OPTIONS = Arrays.asList("-proc:none", "-encoding", "UTF-8", "-Xlint:none");
+
+    static final String WARM_UP_CODE = "import java.util.*;\n" +
+            "public class Main {\n" +
+            "    public static void main(String[] args) {\n" +
+            "        Scanner sc = new Scanner(System.in);\n" +
+            "        List<Integer> list = new ArrayList<>();\n" +
+            "        while (sc.hasNextInt()) list.add(sc.nextInt());\n" +
+            "        System.out.println(String.format(\"%d\", list.stream().mapToInt(i -> i).sum()));\n" +
+            "    }\n" +
+            "}";
+
+    /**
+     * 预热编译的次数，让 javac 的热点代码在接第一个任务前完成 JIT
+     */
+    private static final int WARM_UP_ROUNDS = 5;
+
+    private CompileServer() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        JavaCompiler javaCompiler = ToolProvider.getSystemJavaCompiler();
+        if (javaCompiler == null) {
+            System.err.println("未找到系统 Java 编译器，编译容器的镜像需要 JDK");
+            System.exit(1);
+        }
+        StandardJavaFileManager standardFileManager = javaCompiler.getStandardFileManager(null, Locale.getDefault(), StandardCharsets.UTF_8);
+        for (int i = 0; i < WARM_UP_ROUNDS; i++) {
+            compile(javaCompiler, standardFileManager, "Main", WARM_UP_CODE, new DataOutputStream(OutputStream.nullOutputStream()));
+        }
+
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(FileDescriptor.in)));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out)));
+        while (true) {
+            int magic;
+            try {
+                magic = in.readInt();
+            } catch (EOFException e) {
+                // 宿主机关闭了连接
+                break;
+            }
+            if (magic != REQUEST_MAGIC) {
+                break;
+            }
+            String className = in.readUTF();
+            byte[] source = new byte[in.readInt()];
+            in.readFully(source);
+            compile(javaCompiler, standardFileManager, className, new String(source, StandardCharsets.UTF_8), out);
+            out.flush();
+        }
+    }
+
+    private static void compile(JavaCompiler javaCompiler, StandardJavaFileManager standardFileManager,
+                                String className, String code, DataOutputStream out) throws IOException {
+        long startTime = System.currentTimeMillis();
+        DiagnosticCollector<JavaFileObject> diagnosticCollector = new DiagnosticCollector<>();
+        MemoryJavaFileManager fileManager = new MemoryJavaFileManager(standardFileManager);
+        boolean success;
+        try {
+            success = Boolean.TRUE.equals(javaCompiler.getTask(null, fileManager, diagnosticCollector,
+                    COMPILE_OPTIONS, null, Collections.singletonList(MemoryJavaFileManager.sourceOf(className, code))).call());
+        } catch (RuntimeException e) {
+            // 编译器自身崩溃，按编译失败处理，服务继续
+            success = false;
+        }
+
+        StringBuilder message = new StringBuilder();
+        List<Diagnostic<? extends JavaFileObject>> diagnostics = diagnosticCollector.getDiagnostics();
+        out.writeInt(RESPONSE_MAGIC);
+        out.writeBoolean(success);
+        out.writeLong(System.currentTimeMillis() - startTime);
+        out.writeInt(diagnostics.size());
+        for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics) {
+            String text = diagnostic.getMessage(Locale.getDefault());
+            out.writeUTF(diagnostic.getKind().name());
+            out.writeLong(diagnostic.getLineNumber());
+            out.writeLong(diagnostic.getColumnNumber());
+            writeString(out, text);
+            if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+                message.append(String.format("%s.java:%d: %s%n", className, diagnostic.getLineNumber(), text));
+            }
+        }
+        writeString(out, message.toString().trim());
+        Map<String, byte[]> classBytes = success ? fileManager.getClassBytes() : Collections.emptyMap();
+        out.writeInt(classBytes.size());
+        for (Map.Entry<String, byte[]> entry : classBytes.entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeInt(entry.getValue().length);
+            out.write(entry.getValue());
+        }
+    }
+
+    /**
+     * 长度不受 writeUTF 的 64KB 限制
+     */
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,279 @@
+package com.lsl.lslcodesandbox.compiler;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.crypto.digest.DigestUtil;
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.printer.DefaultPrettyPrinter;
+import com.github.javaparser.printer.configuration.DefaultConfigurationOption;
+import com.github.javaparser.printer.configuration.DefaultPrinterConfiguration;
+import com.lsl.lslcodesandbox.config.CodeSandboxProperties;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 编译产物缓存
+ * 以源码的 SHA-256 为 key 缓存字节码，重复提交 / 重判时直接跳过解析和编译
+ * 按字节数做 LRU 淘汰，并持久化到磁盘，重启后依然有效
+ */
+@Component
+public class CompiledClassCache {
+
+    /**
+     * 持久化文件的魔数，用于识别格式
+     */
+    private static final int FILE_MAGIC = 0x4C534C43;
+
+    private static final String FILE_SUFFIX = ".cls";
+
+    @Resource
+    private CodeSandboxProperties codeSandboxProperties;
+
+    /**
+     * accessOrder = true，迭代顺序即最近最少使用顺序
+     */
+    private final LinkedHashMap<String, CacheEntry> entries = new LinkedHashMap<>(64, 0.75f, true);
+
+    private long currentBytes = 0;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    /**
+     * 磁盘读写放到单独的线程，不占用请求线程
+     */
+    private final ExecutorService persistExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "compiled-class-cache-persist");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private DefaultPrettyPrinter normalizePrinter;
+
+    @PostConstruct
+    public void init() {
+        normalizePrinter = new DefaultPrettyPrinter(new DefaultPrinterConfiguration()
+                .removeOption(new DefaultConfigurationOption(DefaultPrinterConfiguration.ConfigOption.PRINT_COMMENTS))
+                .removeOption(new DefaultConfigurationOption(DefaultPrinterConfiguration.ConfigOption.PRINT_JAVADOC)));
+        CodeSandboxProperties.Cache cache = codeSandboxProperties.getCache();
+        if (cache.isEnabled() && cache.isPersist()) {
+            loadFromDisk();
+        }
+    }
+
+    /**
+     * 关闭前等待尚未写完的缓存文件落盘
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        persistExecutor.shutdown();
+        persistExecutor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 计算缓存 key
+     * 开启 normalize 时先用 JavaParser 去掉注释并统一格式，只改了注释/空白的代码会命中同一份缓存；
+     * 代价是命中时运行期异常栈里的行号来自最早那份提交
+     */
+    public String keyOf(String code) {
+        String source = code;
+        if (codeSandboxProperties.getCache().isNormalize()) {
+            ParseResult<CompilationUnit> parseResult = new JavaParser().parse(code);
+            if (parseResult.isSuccessful() && parseResult.getResult().isPresent()) {
+                source = normalizePrinter.print(parseResult.getResult().get());
+            }
+        }
+        return DigestUtil.sha256Hex(source);
+    }
+
+    /**
+     * 查询缓存，未命中返回 null
+     */
+    public CompileResult get(String key) {
+        if (!codeSandboxProperties.getCache().isEnabled()) {
+            return null;
+        }
+        CacheEntry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+        }
+        if (entry == null) {
+            missCount.incrementAndGet();
+            return null;
+        }
+        hitCount.incrementAndGet();
+        CompileResult compileResult = new CompileResult();
+        compileResult.setSuccess(true);
+        compileResult.setClassName(entry.className);
+        compileResult.setClassBytes(entry.classBytes);
+        compileResult.setMessage("");
+        return compileResult;
+    }
+
+    /**
+     * 放入缓存，只缓存编译成功的结果
+     */
+    public void put(String key, CompileResult compileResult) {
+        CodeSandboxProperties.Cache cache = codeSandboxProperties.getCache();
+        if (!cache.isEnabled() || !compileResult.isSuccess()) {
+            return;
+        }
+        CacheEntry entry = new CacheEntry(compileResult.getClassName(), compileResult.getClassBytes());
+        if (entry.size > cache.getMaxBytes()) {
+            return;
+        }
+        synchronized (this) {
+            CacheEntry old = entries.put(key, entry);
+            if (old != null) {
+                currentBytes -= old.size;
+            }
+            currentBytes += entry.size;
+            evictIfNecessary();
+        }
+        if (cache.isPersist()) {
+            persistExecutor.execute(() -> writeToDisk(key, entry));
+        }
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getCurrentBytes() {
+        return currentBytes;
+    }
+
+    /**
+     * 超出容量时从最久未使用的一端淘汰，调用方需持有锁
+     */
+    private void evictIfNecessary() {
+        long maxBytes = codeSandboxProperties.getCache().getMaxBytes();
+        Iterator<Map.Entry<String, CacheEntry>> iterator = entries.entrySet().iterator();
+        while (currentBytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<String, CacheEntry> eldest = iterator.next();
+            iterator.remove();
+            currentBytes -= eldest.getValue().size;
+            evictionCount.incrementAndGet();
+            if (codeSandboxProperties.getCache().isPersist()) {
+                String evictedKey = eldest.getKey();
+                persistExecutor.execute(() -> FileUtil.del(cacheFile(evictedKey)));
+            }
+        }
+    }
+
+    private File cacheFile(String key) {
+        return new File(codeSandboxProperties.getCache().getDir(), key + FILE_SUFFIX);
+    }
+
+    private void writeToDisk(String key, CacheEntry entry) {
+        File file = cacheFile(key);
+        File tmpFile = new File(file.getPath() + ".tmp");
+        FileUtil.mkParentDirs(file);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+            out.writeInt(FILE_MAGIC);
+            out.writeUTF(entry.className);
+            out.writeInt(entry.classBytes.size());
+            for (Map.Entry<String, byte[]> classFile : entry.classBytes.entrySet()) {
+                out.writeUTF(classFile.getKey());
+                out.writeInt(classFile.getValue().length);
+                out.write(classFile.getValue());
+            }
+        } catch (IOException e) {
+            System.err.println("写入编译缓存失败: " + key + ", " + e.getMessage());
+            FileUtil.del(tmpFile);
+            return;
+        }
+        // 先写临时文件再改名，避免进程中途退出留下半个文件
+        FileUtil.rename(tmpFile, file.getName(), true);
+    }
+
+    /**
+     * 启动时从磁盘恢复缓存，按修改时间从旧到新加载以还原 LRU 顺序
+     */
+    private void loadFromDisk() {
+        File[] files = new File(codeSandboxProperties.getCache().getDir()).listFiles((dir, name) -> name.endsWith(FILE_SUFFIX));
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        int loaded = 0;
+        for (File file : files) {
+            String key = file.getName().substring(0, file.getName().length() - FILE_SUFFIX.length());
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                if (in.readInt() != FILE_MAGIC) {
+                    FileUtil.del(file);
+                    continue;
+                }
+                String className = in.readUTF();
+                int count = in.readInt();
+                Map<String, byte[]> classBytes = new LinkedHashMap<>();
+                for (int i = 0; i < count; i++) {
+                    String name = in.readUTF();
+                    byte[] bytes = new byte[in.readInt()];
+                    in.readFully(bytes);
+                    classBytes.put(name, bytes);
+                }
+                CacheEntry entry = new CacheEntry(className, classBytes);
+                synchronized (this) {
+                    entries.put(key, entry);
+                    currentBytes += entry.size;
+                    evictIfNecessary();
+                }
+                loaded++;
+            } catch (IOException e) {
+                // 损坏的缓存文件直接丢弃，下次重新编译即可
+                FileUtil.del(file);
+            }
+        }
+        System.out.println("编译缓存加载完成，共 " + loaded + " 条");
+    }
+
+    private static class CacheEntry {
+
+        private final String className;
+
+        private final Map<String, byte[]> classBytes;
+
+        private final long size;
+
+        CacheEntry(String className, Map<String, byte[]> classBytes) {
+            this.className = className;
+            this.classBytes = classBytes;
+            this.size = classBytes.values().stream().mapToLong(bytes -> bytes.length).sum();
+        }
+    }
+}
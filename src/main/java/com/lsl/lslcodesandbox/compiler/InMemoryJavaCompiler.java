@@ -0,0 +1,217 @@
+package com.lsl.lslcodesandbox.compiler;
+
+import cn.hutool.core.io.FileUtil;
+import com.lsl.lslcodesandbox.config.CodeSandboxProperties;
+import com.lsl.lslcodesandbox.model.CompileDiagnostic;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 进程内的 Java 编译器
+ * 直接调用 javax.tools.JavaCompiler，省掉每次提交启动一个 javac 进程的开销（冷启动一个 JVM 动辄几百毫秒）
+ */
+@Component
+public class InMemoryJavaCompiler {
+
+    /**
+     * 编译参数：关闭注解处理器，防止用户代码借注解处理器在宿主机上执行
+     */
+    private static final List<String> COMPILE_OPTIONS = CompileServer.COMPILE_OPTIONS;
+
+    private static final String WARM_UP_CODE = CompileServer.WARM_UP_CODE;
+
+    @Resource
+    private CodeSandboxProperties codeSandboxProperties;
+
+    private JavaCompiler javaCompiler;
+
+    /**
+     * 限制同时编译的数量，编译很吃 CPU，放开了反而拖慢所有人
+     */
+    private Semaphore compilePermits;
+
+    /**
+     * 复用 StandardJavaFileManager：它内部缓存了 JDK 模块/jar 的索引，新建一个开销很大
+     * 数量与编译名额一致，拿到名额就一定能拿到文件管理器
+     */
+    private BlockingQueue<StandardJavaFileManager> fileManagers;
+
+    /**
+     * 编译在专用线程上执行，请求线程只等到编译时限；javac 不响应中断，超时的编译在后台跑完才归还名额
+     */
+    private ExecutorService compileExecutor;
+
+    public InMemoryJavaCompiler() {
+    }
+
+    /**
+     * 脱离 Spring 容器使用（如命令行工具）
+     */
+    public InMemoryJavaCompiler(CodeSandboxProperties codeSandboxProperties) {
+        this.codeSandboxProperties = codeSandboxProperties;
+    }
+
+    @PostConstruct
+    public void init() {
+        javaCompiler = ToolProvider.getSystemJavaCompiler();
+        if (javaCompiler == null) {
+            throw new IllegalStateException("未找到系统 Java 编译器，请使用 JDK 而不是 JRE 启动沙箱");
+        }
+        CodeSandboxProperties.Compile compile = codeSandboxProperties.getCompile();
+        int maxConcurrency = Math.max(1, compile.getMaxConcurrency());
+        compilePermits = new Semaphore(maxConcurrency, true);
+        fileManagers = new LinkedBlockingQueue<>();
+        for (int i = 0; i < maxConcurrency; i++) {
+            fileManagers.offer(javaCompiler.getStandardFileManager(null, Locale.getDefault(), StandardCharsets.UTF_8));
+        }
+        // 拿到名额才提交，线程数不会超过编译名额数
+        AtomicInteger threadIndex = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(maxConcurrency, maxConcurrency, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, "java-compiler-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        compileExecutor = executor;
+        if (compile.isWarmUp()) {
+            // 预热：让编译器相关的类加载、JIT 在启动阶段完成，而不是压在第一个用户请求上
+            CompileResult warmUp = compile("Main", WARM_UP_CODE);
+            System.out.println("编译器预热完成，耗时 " + warmUp.getCompileTime() + "ms");
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        compileExecutor.shutdownNow();
+    }
+
+    /**
+     * 编译一段源码，超过编译时限（compile.timeout）按编译失败返回
+     *
+     * @param className 主类名（决定源文件名）
+     * @param code      源码
+     */
+    public CompileResult compile(String className, String code) {
+        long startTime = System.currentTimeMillis();
+        boolean acquired;
+        try {
+            acquired = compilePermits.tryAcquire(codeSandboxProperties.getCompile().getAcquireTimeout(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("等待编译被中断", e);
+        }
+        if (!acquired) {
+            throw new RuntimeException("编译繁忙，请稍后重试");
+        }
+        // 编译线程开始编译和调用方放弃等待只有一方能抢到，抢到放弃的一方负责归还名额
+        AtomicBoolean started = new AtomicBoolean();
+        Future<CompileResult> future;
+        try {
+            future = compileExecutor.submit(() -> started.compareAndSet(false, true) ? doCompile(className, code, startTime) : null);
+        } catch (RuntimeException e) {
+            compilePermits.release();
+            throw e;
+        }
+        try {
+            return future.get(codeSandboxProperties.getCompile().getTimeout(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            abandon(future, started);
+            CompileResult compileResult = new CompileResult();
+            compileResult.setClassName(className);
+            compileResult.setMessage("编译超时");
+            compileResult.setCompileTime(System.currentTimeMillis() - startTime);
+            return compileResult;
+        } catch (InterruptedException e) {
+            abandon(future, started);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("等待编译被中断", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("编译出错", e.getCause());
+        }
+    }
+
+    /**
+     * 调用方不再等待：还在队列里没开始的编译不会再执行，名额在这里归还（文件管理器还没取）；
+     * 已经开始的由编译线程跑完后归还
+     */
+    private void abandon(Future<CompileResult> future, AtomicBoolean started) {
+        if (started.compareAndSet(false, true)) {
+            compilePermits.release();
+        }
+        future.cancel(true);
+    }
+
+    /**
+     * 在编译线程上执行，结束时（包括调用方已经超时返回之后）才归还文件管理器和编译名额
+     */
+    private CompileResult doCompile(String className, String code, long startTime) {
+        StandardJavaFileManager standardFileManager = fileManagers.poll();
+        try {
+            DiagnosticCollector<JavaFileObject> diagnosticCollector = new DiagnosticCollector<>();
+            MemoryJavaFileManager fileManager = new MemoryJavaFileManager(standardFileManager);
+            JavaCompiler.CompilationTask task = javaCompiler.getTask(null, fileManager, diagnosticCollector,
+                    COMPILE_OPTIONS, null, Collections.singletonList(MemoryJavaFileManager.sourceOf(className, code)));
+            boolean success = Boolean.TRUE.equals(task.call());
+
+            CompileResult compileResult = new CompileResult();
+            compileResult.setClassName(className);
+            compileResult.setSuccess(success);
+            StringBuilder message = new StringBuilder();
+            for (Diagnostic<? extends JavaFileObject> diagnostic : diagnosticCollector.getDiagnostics()) {
+                String text = diagnostic.getMessage(Locale.getDefault());
+                compileResult.getDiagnostics().add(new CompileDiagnostic(diagnostic.getKind().name(),
+                        diagnostic.getLineNumber(), diagnostic.getColumnNumber(), text));
+                if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+                    message.append(String.format("%s.java:%d: %s%n", className, diagnostic.getLineNumber(), text));
+                }
+            }
+            compileResult.setMessage(message.toString().trim());
+            if (success) {
+                compileResult.setClassBytes(fileManager.getClassBytes());
+            }
+            compileResult.setCompileTime(System.currentTimeMillis() - startTime);
+            return compileResult;
+        } finally {
+            fileManagers.offer(standardFileManager);
+            compilePermits.release();
+        }
+    }
+
+    /**
+     * 把编译产物写到运行目录下（运行阶段的 java 进程 / 容器需要从磁盘加载）
+     *
+     * @param classBytes 编译产物
+     * @param dir        类路径根目录
+     */
+    public static void writeClassFiles(Map<String, byte[]> classBytes, String dir) {
+        classBytes.forEach((name, bytes) ->
+                FileUtil.writeBytes(bytes, dir + File.separator + name.replace('.', File.separatorChar) + ".class"));
+    }
+}
@@ -0,0 +1,88 @@
+package com.lsl.lslcodesandbox.compiler;
+
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 内存文件管理器
+ * 源码从字符串读取，编译出的 class 写进内存，全程不落盘
+ */
+class MemoryJavaFileManager extends ForwardingJavaFileManager<JavaFileManager> {
+
+    private final Map<String, ByteArrayOutputStream> classOutputs = new LinkedHashMap<>();
+
+    MemoryJavaFileManager(JavaFileManager fileManager) {
+        super(fileManager);
+    }
+
+    @Override
+    public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind, FileObject sibling) {
+        return new MemoryClassFile(className);
+    }
+
+    /**
+     * 不关闭底层的 StandardJavaFileManager，它会被下一次编译复用
+     */
+    @Override
+    public void close() {
+    }
+
+    /**
+     * 取出本次编译生成的所有 class
+     */
+    Map<String, byte[]> getClassBytes() {
+        Map<String, byte[]> result = new LinkedHashMap<>();
+        classOutputs.forEach((name, out) -> result.put(name, out.toByteArray()));
+        return result;
+    }
+
+    static JavaFileObject sourceOf(String className, String code) {
+        return new StringSource(className, code);
+    }
+
+    /**
+     * 字符串形式的源码
+     */
+    private static class StringSource extends SimpleJavaFileObject {
+
+        private final String code;
+
+        StringSource(String className, String code) {
+            super(URI.create("string:///" + className.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
+            this.code = code;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return code;
+        }
+    }
+
+    /**
+     * 写入内存的 class 文件
+     */
+    private class MemoryClassFile extends SimpleJavaFileObject {
+
+        private final String className;
+
+        MemoryClassFile(String className) {
+            super(URI.create("mem:///" + className.replace('.', '/') + Kind.CLASS.extension), Kind.CLASS);
+            this.className = className;
+        }
+
+        @Override
+        public OutputStream openOutputStream() {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            classOutputs.put(className, out);
+            return out;
+        }
+    }
+}
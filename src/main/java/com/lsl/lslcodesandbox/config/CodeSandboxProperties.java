@@ -0,0 +1,606 @@
+package com.lsl.lslcodesandbox.config;
+
+import com.lsl.lslcodesandbox.runner.RunMode;
+import com.lsl.lslcodesandbox.runner.SandboxBackend;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 代码沙箱配置（application.yml 中的 codesandbox.*）
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "codesandbox")
+public class CodeSandboxProperties {
+
+    /**
+     * 编译配置
+     */
+    private Compile compile = new Compile();
+
+    /**
+     * Docker 沙箱的容器内常驻编译服务
+     */
+    private CompileDaemon compileDaemon = new CompileDaemon();
+
+    /**
+     * 提交前的静态检查（Java）
+     */
+    private Security security = new Security();
+
+    /**
+     * 编译产物缓存配置
+     */
+    private Cache cache = new Cache();
+
+    /**
+     * 运行配置
+     */
+    private Run run = new Run();
+
+    /**
+     * 运行时间限制配置
+     */
+    private Limit limit = new Limit();
+
+    /**
+     * 程序输出采集配置
+     */
+    private Output output = new Output();
+
+    /**
+     * 资源计量配置
+     */
+    private Meter meter = new Meter();
+
+    /**
+     * 常驻 worker 池配置（run.mode = WORKER_POOL 时生效）
+     */
+    private Worker worker = new Worker();
+
+    /**
+     * 异步判题任务配置
+     */
+    private Job job = new Job();
+
+    /**
+     * Docker 容器池配置
+     */
+    private Container container = new Container();
+
+    /**
+     * AppCDS 共享类归档配置
+     */
+    private Cds cds = new Cds();
+
+    /**
+     * 测试数据仓库配置
+     */
+    private TestData testData = new TestData();
+
+    /**
+     * 提交工作区（存放字节码等临时文件）
+     */
+    private Workspace workspace = new Workspace();
+
+    /**
+     * JFR 持续录制
+     */
+    private FlightRecording flightRecording = new FlightRecording();
+
+    @Data
+    public static class Compile {
+
+        /**
+         * 同时进行的最大编译数，默认取 CPU 核数
+         */
+        private int maxConcurrency = Runtime.getRuntime().availableProcessors();
+
+        /**
+         * 等待编译名额的最长时间（毫秒），超过则直接返回失败
+         */
+        private long acquireTimeout = 10000L;
+
+        /**
+         * 启动时是否先编译一段样例代码预热编译器
+         */
+        private boolean warmUp = true;
+
+        /**
+         * 编译时限（毫秒），按编译失败返回：命令行编译（g++ 等）超时结束编译器，进程内 javac 超时不再等待
+         */
+        private long timeout = 10000L;
+
+        /**
+         * 返回给用户的编译器输出最多保留多少个字符，超出部分截掉
+         */
+        private int messageLimit = 16 * 1024;
+    }
+
+    @Data
+    public static class CompileDaemon {
+
+        /**
+         * 是否在专用的编译容器里编译（关闭时在宿主机进程内编译）
+         */
+        private boolean enabled = true;
+
+        /**
+         * 编译容器数，即同时进行的最大编译数，与运行容器的容量分开
+         */
+        private int poolSize = 2;
+
+        /**
+         * 单个编译容器的内存上限（字节）、CPU 核数、编译服务的最大堆内存
+         */
+        private long memory = 512 * 1024 * 1024L;
+
+        private double cpus = 1.0;
+
+        private String maxHeap = "256m";
+
+        /**
+         * 等待空闲编译容器的最长时间（毫秒）
+         */
+        private long acquireTimeout = 10000L;
+
+        /**
+         * 单次编译的时限（毫秒），超时销毁这个编译容器
+         */
+        private long timeout = 10000L;
+
+        /**
+         * 每个编译容器处理多少次编译后替换
+         */
+        private int maxJobs = 500;
+
+        /**
+         * 编译容器都不可用时（如 Docker 不可用）是否退回宿主机进程内编译
+         */
+        private boolean fallbackToLocal = true;
+    }
+
+    @Data
+    public static class Security {
+
+        /**
+         * 是否检查（关闭时仍会解析出主类名）
+         */
+        private boolean enabled = true;
+
+        /**
+         * 禁止导入的包 / 类，按前缀匹配
+         */
+        private List<String> bannedImports = new ArrayList<>(Arrays.asList(
+                "java.io.File", "java.io.RandomAccessFile", "java.nio.file", "java.nio.channels", "java.net",
+                "java.lang.reflect", "java.lang.invoke", "java.lang.ProcessBuilder", "javax.script", "sun.", "jdk.internal"));
+
+        /**
+         * 禁止使用的类型（简单类名）
+         */
+        private List<String> bannedTypes = new ArrayList<>(Arrays.asList(
+                "Runtime", "ProcessBuilder", "ProcessHandle", "File", "Files", "Paths", "FileInputStream", "FileOutputStream",
+                "FileReader", "FileWriter", "RandomAccessFile", "Socket", "ServerSocket", "DatagramSocket",
+                "URL", "URLConnection", "HttpURLConnection", "HttpClient", "ClassLoader", "URLClassLoader", "Unsafe"));
+
+        /**
+         * 方法名包含这些关键字的调用一律拦截
+         * 默认为空：按名字片段匹配会误拦 write、delete 这类普通方法，危险调用改由字节码扫描按具体的类和成员拦截，
+         * 扫描判不了的（引用了清单外的类）交给 Docker 沙箱
+         */
+        private List<String> bannedMethodKeywords = new ArrayList<>();
+
+        /**
+         * 反射相关的方法名（精确匹配）
+         */
+        private List<String> reflectionMethods = new ArrayList<>(Arrays.asList(
+                "forName", "getDeclaredMethod", "getDeclaredMethods", "getDeclaredField", "getDeclaredFields",
+                "getDeclaredConstructor", "getDeclaredConstructors", "setAccessible", "loadClass", "defineClass"));
+
+        /**
+         * 缓存的检查结论条数，超出后按 LRU 淘汰
+         */
+        private int cacheSize = 4096;
+
+        /**
+         * 编译后是否扫描字节码常量池里的类 / 成员引用
+         */
+        private boolean bytecodeScan = true;
+
+        /**
+         * 字节码扫描的禁止清单（JVM 内部名）：以 / 结尾为包，不带点为类，类名.成员名[描述符前缀] 为成员
+         */
+        private List<String> deniedRefs = new ArrayList<>(Arrays.asList(
+                "java/io/File", "java/io/FileInputStream", "java/io/FileOutputStream", "java/io/FileReader",
+                "java/io/FileWriter", "java/io/RandomAccessFile", "java/io/ObjectInputStream",
+                "java/io/PrintWriter.<init>(Ljava/lang/String;", "java/io/PrintStream.<init>(Ljava/lang/String;",
+                "java/util/Formatter.<init>(Ljava/lang/String;", "java/util/Scanner.<init>(Ljava/nio/file/Path;",
+                "java/lang/Runtime", "java/lang/ProcessBuilder", "java/lang/ProcessHandle", "java/lang/Process",
+                "java/lang/ClassLoader", "java/lang/Module", "java/lang/ModuleLayer", "java/lang/Thread.setContextClassLoader",
+                "java/lang/System.load", "java/lang/System.loadLibrary", "java/lang/System.setSecurityManager",
+                "java/lang/System.getenv", "java/lang/System.setProperty", "java/lang/System.setProperties",
+                "java/lang/Class.forName", "java/lang/Class.getMethod", "java/lang/Class.getMethods",
+                "java/lang/Class.getDeclaredMethod", "java/lang/Class.getDeclaredMethods",
+                "java/lang/Class.getField", "java/lang/Class.getFields",
+                "java/lang/Class.getDeclaredField", "java/lang/Class.getDeclaredFields",
+                "java/lang/Class.getConstructor", "java/lang/Class.getConstructors",
+                "java/lang/Class.getDeclaredConstructor", "java/lang/Class.getDeclaredConstructors",
+                "java/lang/Class.newInstance", "java/lang/Class.getClassLoader", "java/lang/Class.getModule",
+                "java/lang/Class.getResource", "java/lang/Class.getResourceAsStream", "java/lang/Class.getProtectionDomain",
+                "java/util/ServiceLoader",
+                "java/lang/reflect/", "java/lang/invoke/", "java/lang/management/", "java/net/", "java/nio/file/",
+                "java/nio/channels/", "java/rmi/", "java/sql/", "java/beans/", "java/awt/", "java/util/jar/",
+                "java/util/zip/ZipFile", "java/util/logging/", "java/util/prefs/", "javax/", "sun/", "jdk/", "com/sun/"));
+
+        /**
+         * 字节码扫描的可信清单，格式同禁止清单；同样具体的条目禁止优先
+         * lambda 和字符串拼接编译出的 invokedynamic 引导方法在这里单独放行
+         */
+        private List<String> trustedRefs = new ArrayList<>(Arrays.asList(
+                "java/lang/", "java/util/", "java/math/", "java/text/", "java/time/", "java/io/", "java/nio/",
+                "java/lang/invoke/LambdaMetafactory", "java/lang/invoke/StringConcatFactory"));
+
+        /**
+         * 引用了两份清单都没覆盖的类的提交放到哪个后端运行；可信的提交始终在本机运行
+         * 默认 Docker：清单外的类（如 java/security、org/xml）没人审过，不能在宿主机上跑
+         */
+        private SandboxBackend untrustedBackend = SandboxBackend.DOCKER;
+    }
+
+    @Data
+    public static class Cache {
+
+        private boolean enabled = true;
+
+        /**
+         * 缓存字节码的总大小上限（字节），超出后按 LRU 淘汰
+         */
+        private long maxBytes = 64 * 1024 * 1024L;
+
+        /**
+         * 计算 key 前是否先用 JavaParser 去掉注释、统一格式
+         */
+        private boolean normalize = false;
+
+        /**
+         * 是否持久化到磁盘
+         */
+        private boolean persist = true;
+
+        /**
+         * 持久化目录
+         */
+        private String dir = System.getProperty("java.io.tmpdir") + File.separator + "oj-sandbox-cache";
+    }
+
+    @Data
+    public static class Run {
+
+        /**
+         * 用例执行方式：PROCESS 每个用例一个 JVM，SINGLE_JVM 一次提交一个 JVM，WORKER_POOL 使用常驻 worker（仅原生沙箱）
+         */
+        private RunMode mode = RunMode.PROCESS;
+
+        /**
+         * 单次提交的最大并行度：用例切成这么多段同时执行（1 为串行）
+         */
+        private int parallelism = 1;
+
+        /**
+         * 所有提交合计同时执行的最大段数
+         */
+        private int maxConcurrentShards = Runtime.getRuntime().availableProcessors();
+    }
+
+    @Data
+    public static class Worker {
+
+        /**
+         * 常驻 worker 数量
+         */
+        private int poolSize = 4;
+
+        /**
+         * 每个 worker 最多执行的任务数，达到后回收重建，避免 JDK 内部状态被用户代码污染
+         */
+        private int maxJobs = 200;
+
+        /**
+         * worker 的最大堆内存
+         */
+        private String maxHeap = "256m";
+
+        /**
+         * 等待空闲 worker 的最长时间（毫秒）
+         */
+        private long acquireTimeout = 10000L;
+    }
+
+    @Data
+    public static class Cds {
+
+        /**
+         * 是否用共享类归档启动运行用户代码的 JVM
+         */
+        private boolean enabled = true;
+
+        /**
+         * 本机归档的存放目录
+         */
+        private String dir = System.getProperty("java.io.tmpdir") + File.separator + "oj-sandbox-cds";
+
+        /**
+         * 容器内归档在宿主机上的存放目录，只读挂载进运行容器
+         */
+        private String dockerDir = System.getProperty("java.io.tmpdir") + File.separator + "oj-sandbox-cds-docker";
+
+        /**
+         * 训练程序（classpath 下的源码文件，文件名即主类名）
+         */
+        private List<String> trainingPrograms = new ArrayList<>(Arrays.asList(
+                "SimpleCompute.java", "NormalCompute.java", "MultiThreadTest.java", "RecursionTest.java"));
+    }
+
+    @Data
+    public static class TestData {
+
+        /**
+         * 数据存放目录，只读挂载进运行容器，容器里可以直接读取
+         */
+        private String dir = System.getProperty("java.io.tmpdir") + File.separator + "oj-sandbox-testdata";
+
+        /**
+         * 数据总大小上限（字节），超出后按 LRU 淘汰
+         */
+        private long maxBytes = 2L * 1024 * 1024 * 1024;
+
+        /**
+         * 单份数据的大小上限（字节），超出时上传被拒绝（413）
+         */
+        private long maxUploadBytes = 256L * 1024 * 1024;
+    }
+
+    @Data
+    public static class Workspace {
+
+        /**
+         * 工作区根目录，默认放在 tmpfs（/dev/shm）上，没有时退回临时目录
+         */
+        private String root = (new File("/dev/shm").isDirectory() ? "/dev/shm"
+                : System.getProperty("java.io.tmpdir")) + File.separator + "oj-sandbox-workspaces";
+
+        /**
+         * 单个工作区可写入的字节数上限
+         */
+        private long quota = 16 * 1024 * 1024L;
+
+        /**
+         * 清空后留着复用的空闲工作区数
+         */
+        private int maxFree = 64;
+
+        /**
+         * 后台批量清理的间隔（毫秒）
+         */
+        private long cleanupInterval = 200L;
+    }
+
+    @Data
+    public static class Container {
+
+        /**
+         * 容器数量下限，启动时预热这么多个，空闲回收也不会低于它
+         */
+        private int minSize = 2;
+
+        /**
+         * 容器数量上限
+         */
+        private int maxSize = 10;
+
+        /**
+         * 等待空闲容器的最长时间（毫秒），超过则本次请求失败
+         */
+        private long acquireTimeout = 30000L;
+
+        /**
+         * 等待超过这个时间（毫秒）还没拿到容器，就立即扩容一个
+         */
+        private long growWaitThreshold = 200L;
+
+        /**
+         * 容器空闲超过这个时间（毫秒）且数量高于期望值时回收
+         */
+        private long idleTtl = 120000L;
+
+        /**
+         * 反馈控制器的调整周期（毫秒）
+         */
+        private long controlInterval = 5000L;
+
+        /**
+         * 期望的平均排队时间（毫秒），超过则扩容
+         */
+        private long targetWait = 100L;
+
+        /**
+         * 宿主机 CPU 使用率高于此值时不再扩容，CPU 已经跑满，多开容器只会让所有人都变慢
+         */
+        private double cpuHighWatermark = 0.85;
+
+        /**
+         * 每个容器最多执行多少次请求，达到后在后台替换为新容器
+         */
+        private int maxUses = 50;
+
+        /**
+         * 归还时内存比新建时多出这么多（字节）即视为不干净
+         */
+        private long memoryTolerance = 64 * 1024 * 1024L;
+
+        /**
+         * 空闲容器健康巡检周期（毫秒）
+         */
+        private long healthCheckInterval = 30000L;
+
+        /**
+         * 每个容器可用的 CPU 核数（写入 cgroup 的 cpu.max），可以是小数
+         */
+        private double cpus = 1.0;
+
+        /**
+         * 按语言单独设置的容器池（键为语言名），每种语言各有一组容器，按各自的流量伸缩；
+         * 没有设置的项取上面的全局值和语言自己的默认值
+         */
+        private Map<String, LanguagePool> languages = new HashMap<>();
+    }
+
+    @Data
+    public static class LanguagePool {
+
+        /**
+         * 容器数量范围
+         */
+        private Integer minSize;
+
+        private Integer maxSize;
+
+        /**
+         * 运行容器的镜像
+         */
+        private String image;
+
+        /**
+         * 单个容器的内存上限（字节）
+         */
+        private Long memory;
+    }
+
+    @Data
+    public static class Job {
+
+        /**
+         * 同时执行的判题任务数
+         */
+        private int maxConcurrent = Runtime.getRuntime().availableProcessors();
+
+        /**
+         * 排队任务数上限，超过后新提交直接拒绝
+         */
+        private int queueCapacity = 100;
+
+        /**
+         * 已结束任务的保留时间（毫秒），过期后查询不到
+         */
+        private long retention = 10 * 60 * 1000L;
+
+        /**
+         * 流式推送连接的超时时间（毫秒），超时后任务被取消
+         */
+        private long streamTimeout = 5 * 60 * 1000L;
+    }
+
+    @Data
+    public static class Output {
+
+        /**
+         * 单个用例标准输出的上限（字节），超过即结束进程，判为输出超限
+         */
+        private long limit = 8 * 1024 * 1024L;
+
+        /**
+         * 单个用例标准错误的上限（字节），超过同样判为输出超限
+         */
+        private long errorLimit = 1024 * 1024L;
+
+        /**
+         * 输出缓冲按块从池中申请，每块的大小（字节）
+         */
+        private int chunkSize = 64 * 1024;
+
+        /**
+         * 池中最多保留的空闲块数
+         */
+        private int maxPooledChunks = 256;
+    }
+
+    @Data
+    public static class Meter {
+
+        /**
+         * 本机进程 /proc 采样间隔（毫秒），越小 CPU 时间越准，开销也越大
+         */
+        private long sampleInterval = 10L;
+    }
+
+    @Data
+    public static class Limit {
+
+        /**
+         * 默认的单个用例 CPU 时间限制（毫秒）
+         */
+        private long cpuTime = 3000L;
+
+        /**
+         * 请求可指定的 CPU 时间限制上限（毫秒）
+         */
+        private long maxCpuTime = 10000L;
+
+        /**
+         * 请求没有指定墙钟时间限制时，取 CPU 时间限制的多少倍
+         */
+        private double wallTimeFactor = 1.5;
+
+        /**
+         * 请求可指定的墙钟时间限制上限（毫秒）
+         */
+        private long maxWallTime = 20000L;
+
+        /**
+         * CPU 时间连续这么久（毫秒）没有增长即视为空等（如 sleep、等待输入），按墙钟超时提前结束；0 为不检测
+         */
+        private long idleTimeout = 2000L;
+    }
+
+    @Data
+    public static class FlightRecording {
+
+        /**
+         * 启动时开始一个持续录制，沙箱的自定义事件连同 JVM 自身的事件一起记录
+         */
+        private boolean enabled = true;
+
+        /**
+         * JDK 预置的录制配置：default 开销约 1%，profile 更详细
+         */
+        private String settings = "default";
+
+        /**
+         * 录制保留的时长（毫秒），更早的数据被丢弃
+         */
+        private long maxAge = 30 * 60 * 1000L;
+
+        /**
+         * 录制保留的大小上限（字节）
+         */
+        private long maxSize = 256 * 1024 * 1024L;
+
+        /**
+         * 导出时未指定时长时取最近多少秒
+         */
+        private long defaultDumpSeconds = 300L;
+
+        /**
+         * 两次导出之间的最小间隔（毫秒）；同一时间也只允许一份导出
+         */
+        private long minDumpInterval = 10 * 1000L;
+    }
+}
@@ -1,10 +1,32 @@
 package com.lsl.lslcodesandbox.controller;
 
 import com.lsl.lslcodesandbox.JavaNativeCodeSandBox;
+import com.lsl.lslcodesandbox.Utils.ContainerPool;
+import com.lsl.lslcodesandbox.config.CodeSandboxProperties;
+import com.lsl.lslcodesandbox.jfr.FlightRecordingManager;
+import com.lsl.lslcodesandbox.job.JudgeJobManager;
+import com.lsl.lslcodesandbox.job.SseJobListener;
+import com.lsl.lslcodesandbox.model.ContainerPoolStats;
 import com.lsl.lslcodesandbox.model.ExecuteCodeRequest;
 import com.lsl.lslcodesandbox.model.ExecuteCodeResponse;
+import com.lsl.lslcodesandbox.model.JobStatusResponse;
+import com.lsl.lslcodesandbox.model.TestDataInfo;
+import com.lsl.lslcodesandbox.testdata.TestDataStore;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
 
 @RestController
 @RequestMapping("/api/codesandbox")
@@ -14,15 +36,166 @@ public class CodeSandBoxController {
     @Autowired
     private JavaNativeCodeSandBox javaNativeCodeSandBox;
 
+    @Autowired
+    private ContainerPool containerPool;
+
+    @Autowired
+    private JudgeJobManager judgeJobManager;
+
+    @Autowired
+    private CodeSandboxProperties codeSandboxProperties;
+
+    @Autowired
+    private TestDataStore testDataStore;
+
+    @Autowired
+    private FlightRecordingManager flightRecordingManager;
+
     @PostMapping("/execute")
     public ExecuteCodeResponse executeCode(@RequestBody ExecuteCodeRequest executeCodeRequest) throws Exception {
         try {
             // 调用代码沙箱
-            return JavaNativeCodeSandBox.execute(executeCodeRequest);
+            return javaNativeCodeSandBox.execute(executeCodeRequest);
         } catch (Exception e) {
             ExecuteCodeResponse response = new ExecuteCodeResponse();
             response.setMessage("调用代码沙箱失败: " + e.getMessage());
             return response;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * 流式执行：依次推送 compile、每个用例的 case、最后的 summary 事件
+     * summary 中不再重复输出列表，各用例输出以 case 事件为准；客户端断开或超时后任务被取消
+     */
+    @PostMapping(value = "/execute/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter executeCodeStream(@RequestBody ExecuteCodeRequest executeCodeRequest) throws Exception {
+        SseEmitter emitter = new SseEmitter(codeSandboxProperties.getJob().getStreamTimeout());
+        SseJobListener listener = new SseJobListener(emitter);
+        JobStatusResponse job;
+        try {
+            job = judgeJobManager.stream(executeCodeRequest, listener);
+        } catch (IllegalStateException e) {
+            JobStatusResponse response = new JobStatusResponse();
+            response.setMessage(e.getMessage());
+            emitter.send(SseEmitter.event().name(SseJobListener.EVENT_SUMMARY).data(response));
+            emitter.complete();
+            return emitter;
+        }
+        Runnable cancel = () -> judgeJobManager.cancel(job.getJobId());
+        listener.setOnBroken(cancel);
+        emitter.onTimeout(cancel);
+        emitter.onError(e -> cancel.run());
+        return emitter;
+    }
+
+    /**
+     * 异步提交：立即返回任务 ID，之后轮询任务状态
+     */
+    @PostMapping("/jobs")
+    public ResponseEntity<JobStatusResponse> submitJob(@RequestBody ExecuteCodeRequest executeCodeRequest) {
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(judgeJobManager.submit(executeCodeRequest));
+        } catch (IllegalStateException e) {
+            JobStatusResponse response = new JobStatusResponse();
+            response.setMessage(e.getMessage());
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(response);
+        }
+    }
+
+    /**
+     * 查询任务状态，包含已完成用例的结果
+     */
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<JobStatusResponse> getJob(@PathVariable String jobId) {
+        JobStatusResponse response = judgeJobManager.get(jobId);
+        return response == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(response);
+    }
+
+    /**
+     * 取消任务
+     */
+    @PostMapping("/jobs/{jobId}/cancel")
+    public ResponseEntity<JobStatusResponse> cancelJob(@PathVariable String jobId) {
+        JobStatusResponse response = judgeJobManager.cancel(jobId);
+        return response == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(response);
+    }
+
+    /**
+     * 上传测试数据（请求体即数据原文），返回之后在 inputIdList 中引用的 id；内容相同的数据只存一份
+     * 超过单份数据的大小上限时返回 413
+     */
+    @PostMapping(value = "/testdata", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<TestDataInfo> uploadTestData(InputStream body) throws IOException {
+        try {
+            return ResponseEntity.ok(testDataStore.put(body));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
+        }
+    }
+
+    /**
+     * 查询测试数据是否还在（可能已被淘汰，需要重新上传）
+     */
+    @GetMapping("/testdata/{id}")
+    public ResponseEntity<TestDataInfo> getTestData(@PathVariable String id) {
+        TestDataInfo info = testDataStore.info(id);
+        return info == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(info);
+    }
+
+    /**
+     * Docker 容器池状态，每种语言一组
+     */
+    @GetMapping("/containerPool/stats")
+    public List<ContainerPoolStats> containerPoolStats() {
+        return containerPool.getStats();
+    }
+
+    /**
+     * 一种语言的 Docker 容器池状态
+     */
+    @GetMapping("/containerPool/stats/{language}")
+    public ResponseEntity<ContainerPoolStats> containerPoolStats(@PathVariable String language) {
+        try {
+            return ResponseEntity.ok(containerPool.getStats(language));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    /**
+     * 导出最近 seconds 秒（默认取配置）的 JFR 录制，用 JDK Mission Control 或 jfr print 查看；
+     * 沙箱的事件在 com.lsl.sandbox.* 下，以提交编号关联同一次提交
+     * seconds 超过录制的保留时长返回 400；导出限流（同一时间一份、两次之间有最小间隔），被限流时返回 429
+     */
+    @GetMapping("/flightRecording")
+    public ResponseEntity<StreamingResponseBody> dumpFlightRecording(@RequestParam(required = false) Long seconds) throws IOException {
+        long window = seconds != null ? seconds : codeSandboxProperties.getFlightRecording().getDefaultDumpSeconds();
+        if (window <= 0 || window > flightRecordingManager.getMaxDumpSeconds()) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (!flightRecordingManager.isRecording()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        Path file = flightRecordingManager.tryDump(Duration.ofSeconds(window));
+        if (file == null) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).build();
+        }
+        StreamingResponseBody body = out -> {
+            try {
+                Files.copy(file, out);
+            } finally {
+                flightRecordingManager.releaseDump(file);
+            }
+        };
+        try {
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                    .contentLength(Files.size(file))
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"sandbox-" + System.currentTimeMillis() + ".jfr\"")
+                    .body(body);
+        } catch (IOException | RuntimeException e) {
+            flightRecordingManager.releaseDump(file);
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.lsl.lslcodesandbox.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * 执行用例：逐用例启动进程时一个用例一个事件；单 JVM、常驻 worker 一次跑一段用例，一段一个事件
+ * 经 SandboxEvents 开始和结束
+ */
+@Name("com.lsl.sandbox.CaseExec")
+@Label("Case Execution")
+@Category("Code Sandbox")
+@Description("一个或一段用例的执行")
+@StackTrace(false)
+public class CaseExecEvent extends Event {
+
+    @Label("Submission Id")
+    String submissionId;
+
+    @Label("Backend")
+    String backend;
+
+    @Label("Container Id")
+    String containerId;
+
+    @Label("First Case")
+    @Description("第一个用例在整个输入列表中的下标")
+    int firstCase;
+
+    @Label("Case Count")
+    @Description("实际执行的用例数，遇到失败提前停止时少于这一段的用例数")
+    int caseCount;
+
+    @Label("Input Size")
+    @DataAmount
+    long inputBytes;
+
+    @Label("Output Size")
+    @DataAmount
+    long outputBytes;
+
+    @Label("Exit Value")
+    @Description("最后一个用例的退出码")
+    int exitValue;
+
+    @Label("Verdict")
+    @Description("最后一个用例的判定，没有判定（未比对且正常结束）时为空")
+    String verdict;
+
+    /**
+     * 输入大小由 SandboxEvents 在录制开启时算好再填
+     */
+    static CaseExecEvent start(String submissionId, String backend, String containerId, int firstCase) {
+        CaseExecEvent event = new CaseExecEvent();
+        event.submissionId = submissionId;
+        event.backend = backend;
+        event.containerId = containerId;
+        event.firstCase = firstCase;
+        return event;
+    }
+}
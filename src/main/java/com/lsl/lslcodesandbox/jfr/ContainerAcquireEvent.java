@@ -0,0 +1,41 @@
+package com.lsl.lslcodesandbox.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * 从容器池取容器，取到的容器 ID 为 null 表示等待超时
+ */
+@Name("com.lsl.sandbox.ContainerAcquire")
+@Label("Container Acquire")
+@Category("Code Sandbox")
+@Description("从容器池取容器的等待")
+@StackTrace(false)
+public class ContainerAcquireEvent extends Event {
+
+    @Label("Submission Id")
+    String submissionId;
+
+    @Label("Language")
+    String language;
+
+    @Label("Container Id")
+    String containerId;
+
+    public static ContainerAcquireEvent start(String submissionId, String language) {
+        ContainerAcquireEvent event = new ContainerAcquireEvent();
+        event.submissionId = submissionId;
+        event.language = language;
+        event.begin();
+        return event;
+    }
+
+    public void finish(String containerId) {
+        this.containerId = containerId;
+        commit();
+    }
+}
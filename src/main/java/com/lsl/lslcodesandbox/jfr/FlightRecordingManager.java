@@ -0,0 +1,155 @@
+package com.lsl.lslcodesandbox.jfr;
+
+import com.lsl.lslcodesandbox.config.CodeSandboxProperties;
+import jdk.jfr.Configuration;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+
+/**
+ * 常开的 JFR 录制：启动时开始，按时长和大小滚动丢弃旧数据，出现慢提交时导出最近一段时间排查
+ * 自定义事件没开录制时几乎没有开销，开着时每次提交也只多几个事件
+ */
+@Component
+public class FlightRecordingManager {
+
+    private static final String RECORDING_NAME = "lsl-code-sandbox";
+
+    private static final List<Class<? extends Event>> SANDBOX_EVENTS = Arrays.asList(
+            SubmissionEvent.class, StageEvent.class, ContainerAcquireEvent.class, CaseExecEvent.class);
+
+    @Resource
+    private CodeSandboxProperties codeSandboxProperties;
+
+    private volatile Recording recording;
+
+    /**
+     * 同一时间只留一份导出文件（从导出到调用方 releaseDump），反复导出也写不满磁盘
+     */
+    private final Semaphore dumpPermit = new Semaphore(1);
+
+    /**
+     * 上一次经 tryDump 导出的时间，持有 dumpPermit 时读写
+     */
+    private long lastDumpTime;
+
+    public FlightRecordingManager() {
+    }
+
+    /**
+     * 不依赖 Spring 容器时使用
+     */
+    public FlightRecordingManager(CodeSandboxProperties codeSandboxProperties) {
+        this.codeSandboxProperties = codeSandboxProperties;
+    }
+
+    @PostConstruct
+    public void init() throws IOException, ParseException {
+        CodeSandboxProperties.FlightRecording config = codeSandboxProperties.getFlightRecording();
+        if (!config.isEnabled() || !FlightRecorder.isAvailable()) {
+            return;
+        }
+        Recording continuous = new Recording(Configuration.getConfiguration(config.getSettings()));
+        continuous.setName(RECORDING_NAME);
+        continuous.setToDisk(true);
+        continuous.setMaxAge(Duration.ofMillis(config.getMaxAge()));
+        continuous.setMaxSize(config.getMaxSize());
+        // 预置配置里没有自定义事件，显式打开
+        for (Class<? extends Event> eventClass : SANDBOX_EVENTS) {
+            continuous.enable(eventClass);
+        }
+        continuous.start();
+        recording = continuous;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (recording != null) {
+            recording.close();
+            recording = null;
+        }
+    }
+
+    public boolean isRecording() {
+        return recording != null;
+    }
+
+    /**
+     * 导出时长的上限（秒），即录制保留的时长，再往前没有数据
+     */
+    public long getMaxDumpSeconds() {
+        return codeSandboxProperties.getFlightRecording().getMaxAge() / 1000;
+    }
+
+    /**
+     * 限流的导出：上一份导出还没 releaseDump，或离上一次导出不足 minDumpInterval 时不导出
+     *
+     * @return 导出的文件，被限流时返回 null；不为 null 时调用方用完必须 releaseDump
+     */
+    public Path tryDump(Duration window) throws IOException {
+        if (!dumpPermit.tryAcquire()) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        if (now - lastDumpTime < codeSandboxProperties.getFlightRecording().getMinDumpInterval()) {
+            dumpPermit.release();
+            return null;
+        }
+        // 导出失败也算一次，失败的请求同样不能连续打进来
+        lastDumpTime = now;
+        try {
+            return dump(window);
+        } catch (IOException | RuntimeException e) {
+            dumpPermit.release();
+            throw e;
+        }
+    }
+
+    /**
+     * 删除 tryDump 导出的文件，之后才能再次导出
+     */
+    public void releaseDump(Path file) throws IOException {
+        try {
+            Files.deleteIfExists(file);
+        } finally {
+            dumpPermit.release();
+        }
+    }
+
+    /**
+     * 把最近一段时间的录制导出到临时文件，调用方用完负责删除
+     * 录制按数据块保存，裁剪也按块进行，导出的内容可能比要求的时长稍长
+     *
+     * @throws IllegalStateException 没有开启持续录制
+     */
+    public Path dump(Duration window) throws IOException {
+        if (recording == null) {
+            throw new IllegalStateException("未开启 JFR 持续录制");
+        }
+        // 快照包含当前所有录制已写出的数据，裁掉窗口之前的部分再导出，不影响持续录制本身
+        try (Recording snapshot = FlightRecorder.getFlightRecorder().takeSnapshot()) {
+            snapshot.setMaxAge(window);
+            Path file = Files.createTempFile("sandbox-", ".jfr");
+            try {
+                snapshot.dump(file);
+            } catch (IOException e) {
+                Files.deleteIfExists(file);
+                throw e;
+            }
+            return file;
+        }
+    }
+}
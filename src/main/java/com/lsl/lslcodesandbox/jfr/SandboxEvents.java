@@ -0,0 +1,66 @@
+package com.lsl.lslcodesandbox.jfr;
+
+import com.lsl.lslcodesandbox.model.ExecuteCodeRequest;
+import com.lsl.lslcodesandbox.model.ExecuteMessage;
+import com.lsl.lslcodesandbox.testdata.TestInput;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * 从请求、用例结果里取数填进事件
+ * 事件类里只能用 JDK 的类型：JFR 给事件类插桩时加载不到应用的类，插桩失败后事件就再也不会记录
+ */
+public final class SandboxEvents {
+
+    private SandboxEvents() {
+    }
+
+    public static SubmissionEvent startSubmission(String submissionId, String backend, ExecuteCodeRequest request) {
+        SubmissionEvent event = SubmissionEvent.start(submissionId, backend);
+        if (event.isEnabled()) {
+            event.language = request.getLanguage();
+            event.codeLength = request.getCode() == null ? 0 : request.getCode().length();
+            event.caseCount = request.getInputIdList() != null ? request.getInputIdList().size()
+                    : request.getInputList() != null ? request.getInputList().size() : 0;
+        }
+        event.begin();
+        return event;
+    }
+
+    /**
+     * @param containerId 执行所在的容器，本机执行为 null
+     * @param firstCase   第一个用例在整个输入列表中的下标
+     */
+    public static CaseExecEvent startExec(String submissionId, String backend, String containerId,
+                                          int firstCase, List<TestInput> inputs) {
+        CaseExecEvent event = CaseExecEvent.start(submissionId, backend, containerId, firstCase);
+        if (event.isEnabled()) {
+            for (TestInput input : inputs) {
+                event.inputBytes += input.length();
+            }
+        }
+        event.begin();
+        return event;
+    }
+
+    public static void finishExec(CaseExecEvent event, List<ExecuteMessage> runMessages) {
+        event.end();
+        // 输出大小只在确实要记录时才算
+        if (!event.shouldCommit()) {
+            return;
+        }
+        event.caseCount = runMessages.size();
+        for (ExecuteMessage runMessage : runMessages) {
+            if (runMessage.getMessage() != null) {
+                event.outputBytes += runMessage.getMessage().getBytes(StandardCharsets.UTF_8).length;
+            }
+        }
+        if (!runMessages.isEmpty()) {
+            ExecuteMessage last = runMessages.get(runMessages.size() - 1);
+            event.exitValue = last.getExitValue() == null ? -1 : last.getExitValue();
+            event.verdict = last.getVerdict() == null ? null : last.getVerdict().getValue();
+        }
+        event.commit();
+    }
+}
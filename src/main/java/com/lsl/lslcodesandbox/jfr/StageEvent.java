@@ -0,0 +1,56 @@
+package com.lsl.lslcodesandbox.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * 提交的一个阶段，阶段名同 SandboxMetrics 的 STAGE_*
+ */
+@Name("com.lsl.sandbox.Stage")
+@Label("Submission Stage")
+@Category("Code Sandbox")
+@Description("解析、检查、编译、扫描、写入、清理等阶段的耗时")
+@StackTrace(false)
+public class StageEvent extends Event {
+
+    @Label("Submission Id")
+    String submissionId;
+
+    @Label("Backend")
+    String backend;
+
+    @Label("Stage")
+    String stage;
+
+    @Label("Container Id")
+    String containerId;
+
+    @Label("Size")
+    @Description("阶段处理的数据量：源码、字节码或工作区占用")
+    @DataAmount
+    long bytes;
+
+    public static StageEvent start(String submissionId, String backend, String stage) {
+        StageEvent event = new StageEvent();
+        event.submissionId = submissionId;
+        event.backend = backend;
+        event.stage = stage;
+        event.begin();
+        return event;
+    }
+
+    public void finish(long bytes) {
+        finish(null, bytes);
+    }
+
+    public void finish(String containerId, long bytes) {
+        this.containerId = containerId;
+        this.bytes = bytes;
+        commit();
+    }
+}
@@ -0,0 +1,51 @@
+package com.lsl.lslcodesandbox.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * 一次提交从进入沙箱到返回的全过程，各阶段事件以 submissionId 关联
+ * 经 SandboxEvents 开始
+ */
+@Name("com.lsl.sandbox.Submission")
+@Label("Submission")
+@Category("Code Sandbox")
+@Description("一次提交在沙箱里的总耗时和判定")
+@StackTrace(false)
+public class SubmissionEvent extends Event {
+
+    @Label("Submission Id")
+    String submissionId;
+
+    @Label("Backend")
+    String backend;
+
+    @Label("Language")
+    String language;
+
+    @Label("Code Length")
+    @Description("源码字符数")
+    long codeLength;
+
+    @Label("Case Count")
+    int caseCount;
+
+    @Label("Verdict")
+    String verdict;
+
+    static SubmissionEvent start(String submissionId, String backend) {
+        SubmissionEvent event = new SubmissionEvent();
+        event.submissionId = submissionId;
+        event.backend = backend;
+        return event;
+    }
+
+    public void finish(String verdict) {
+        this.verdict = verdict;
+        commit();
+    }
+}
@@ -0,0 +1,60 @@
+package com.lsl.lslcodesandbox.jfr;
+
+import java.util.UUID;
+
+/**
+ * 当前线程正在处理的提交编号，飞行记录里的事件靠它关联到同一次提交
+ * 用例在并行执行的线程上跑，那里取不到，需要在请求线程上先取出编号再传过去
+ */
+public final class SubmissionTrace implements AutoCloseable {
+
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    private final String id;
+
+    private final String previous;
+
+    private SubmissionTrace(String id) {
+        this.id = id;
+        this.previous = CURRENT.get();
+        CURRENT.set(id);
+    }
+
+    /**
+     * 开始一次提交：当前线程已有编号时沿用（如原生沙箱转交 Docker 沙箱），否则新生成一个
+     */
+    public static SubmissionTrace enter() {
+        String current = CURRENT.get();
+        return new SubmissionTrace(current != null ? current : UUID.randomUUID().toString());
+    }
+
+    /**
+     * 以指定编号开始一次提交，如异步任务以任务 ID 作为编号
+     */
+    public static SubmissionTrace enter(String id) {
+        return new SubmissionTrace(id);
+    }
+
+    /**
+     * 当前线程的提交编号，不在提交中时为 null
+     */
+    public static String currentId() {
+        return CURRENT.get();
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * 恢复进入前的编号
+     */
+    @Override
+    public void close() {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+}
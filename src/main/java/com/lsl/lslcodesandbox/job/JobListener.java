@@ -0,0 +1,16 @@
+package com.lsl.lslcodesandbox.job;
+
+import com.lsl.lslcodesandbox.model.JobStatusResponse;
+import com.lsl.lslcodesandbox.runner.ExecuteListener;
+
+/**
+ * 判题任务监听器：除了编译、用例进度外，还会在任务进入终态（完成 / 取消 / 失败）时收到一次回调
+ */
+public interface JobListener extends ExecuteListener {
+
+    /**
+     * 任务结束，只会调用一次
+     */
+    default void onFinished(JobStatusResponse jobStatusResponse) {
+    }
+}
@@ -0,0 +1,38 @@
+package com.lsl.lslcodesandbox.job;
+
+/**
+ * 异步判题任务状态
+ */
+public enum JobStatusEnum {
+
+    QUEUED("排队中", "queued"),
+    COMPILING("编译中", "compiling"),
+    RUNNING("运行中", "running"),
+    FINISHED("已完成", "finished"),
+    CANCELLED("已取消", "cancelled"),
+    FAILED("系统错误", "failed");
+
+    private final String text;
+
+    private final String value;
+
+    JobStatusEnum(String text, String value) {
+        this.text = text;
+        this.value = value;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * 是否已经结束（不会再变化）
+     */
+    public boolean isTerminal() {
+        return this == FINISHED || this == CANCELLED || this == FAILED;
+    }
+}
@@ -0,0 +1,167 @@
+package com.lsl.lslcodesandbox.job;
+
+import com.lsl.lslcodesandbox.compiler.CompileResult;
+import com.lsl.lslcodesandbox.model.ExecuteCodeRequest;
+import com.lsl.lslcodesandbox.model.ExecuteCodeResponse;
+import com.lsl.lslcodesandbox.model.ExecuteMessage;
+import com.lsl.lslcodesandbox.model.JobStatusResponse;
+import com.lsl.lslcodesandbox.runner.ExecuteListener;
+
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 一个异步判题任务
+ * 自身作为执行监听器，接收编译、用例完成的回调来更新进度；
+ * 状态只能单向推进，进入终态（完成 / 取消 / 失败）后不再变化，避免取消后又被执行线程改回“已完成”
+ * 流式任务的结果已经推送给调用方，不再保留各用例结果和输出列表，只记进度
+ */
+class JudgeJob implements ExecuteListener {
+
+    private final String id;
+
+    private final ExecuteCodeRequest request;
+
+    private final JobListener listener;
+
+    private final boolean retainResults;
+
+    private final long createTime = System.currentTimeMillis();
+
+    private final ConcurrentSkipListMap<Integer, ExecuteMessage> caseResults = new ConcurrentSkipListMap<>();
+
+    private final AtomicInteger finishedCases = new AtomicInteger();
+
+    private volatile JobStatusEnum status = JobStatusEnum.QUEUED;
+
+    private volatile ExecuteCodeResponse result;
+
+    private volatile String message;
+
+    private volatile Long finishTime;
+
+    private volatile Future<?> future;
+
+    JudgeJob(String id, ExecuteCodeRequest request) {
+        this(id, request, new JobListener() {
+        }, true);
+    }
+
+    /**
+     * @param listener      进度监听器，回调在执行线程上调用
+     * @param retainResults 是否保留各用例结果和输出列表供轮询查询
+     */
+    JudgeJob(String id, ExecuteCodeRequest request, JobListener listener, boolean retainResults) {
+        this.id = id;
+        this.request = request;
+        this.listener = listener;
+        this.retainResults = retainResults;
+    }
+
+    String getId() {
+        return id;
+    }
+
+    ExecuteCodeRequest getRequest() {
+        return request;
+    }
+
+    JobStatusEnum getStatus() {
+        return status;
+    }
+
+    Long getFinishTime() {
+        return finishTime;
+    }
+
+    void setFuture(Future<?> future) {
+        this.future = future;
+    }
+
+    Future<?> getFuture() {
+        return future;
+    }
+
+    /**
+     * 开始执行，已被取消则返回 false
+     */
+    synchronized boolean start() {
+        if (status != JobStatusEnum.QUEUED) {
+            return false;
+        }
+        status = JobStatusEnum.COMPILING;
+        return true;
+    }
+
+    void finish(ExecuteCodeResponse response) {
+        if (!retainResults && response != null) {
+            response.setOutputList(null);
+        }
+        terminate(JobStatusEnum.FINISHED, response, null);
+    }
+
+    void fail(String reason) {
+        terminate(JobStatusEnum.FAILED, null, reason);
+    }
+
+    /**
+     * 标记为已取消，已经结束的任务无法取消
+     */
+    boolean cancel() {
+        return terminate(JobStatusEnum.CANCELLED, null, "任务已取消");
+    }
+
+    /**
+     * 进入终态，只有第一次生效；监听器在锁外回调，避免推送阻塞其他线程查询状态
+     */
+    private boolean terminate(JobStatusEnum finalStatus, ExecuteCodeResponse response, String reason) {
+        synchronized (this) {
+            if (status.isTerminal()) {
+                return false;
+            }
+            result = response;
+            message = reason;
+            status = finalStatus;
+            finishTime = System.currentTimeMillis();
+        }
+        listener.onFinished(toResponse());
+        return true;
+    }
+
+    @Override
+    public void onCompiled(CompileResult compileResult) {
+        synchronized (this) {
+            if (status == JobStatusEnum.COMPILING && compileResult.isSuccess()) {
+                status = JobStatusEnum.RUNNING;
+            }
+        }
+        listener.onCompiled(compileResult);
+    }
+
+    @Override
+    public void onCaseFinished(int index, ExecuteMessage executeMessage) {
+        if (retainResults) {
+            caseResults.put(index, executeMessage);
+        }
+        finishedCases.incrementAndGet();
+        listener.onCaseFinished(index, executeMessage);
+    }
+
+    JobStatusResponse toResponse() {
+        JobStatusResponse response = new JobStatusResponse();
+        response.setJobId(id);
+        response.setStatus(status);
+        List<String> inputs = request.getInputIdList() != null ? request.getInputIdList() : request.getInputList();
+        response.setTotalCases(inputs == null ? 0 : inputs.size());
+        response.setFinishedCases(finishedCases.get());
+        response.setCaseResults(retainResults ? new TreeMap<>(caseResults) : null);
+        response.setResult(result);
+        response.setMessage(message);
+        response.setCreateTime(createTime);
+        response.setFinishTime(finishTime);
+        return response;
+    }
+}
@@ -0,0 +1,144 @@
+package com.lsl.lslcodesandbox.job;
+
+import com.lsl.lslcodesandbox.JavaNativeCodeSandBox;
+import com.lsl.lslcodesandbox.config.CodeSandboxProperties;
+import com.lsl.lslcodesandbox.jfr.SubmissionTrace;
+import com.lsl.lslcodesandbox.model.ExecuteCodeRequest;
+import com.lsl.lslcodesandbox.model.JobStatusResponse;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 异步判题任务管理
+ * 提交后立即返回任务 ID，判题在有界线程池中执行，吞吐量由沙箱容量决定，而不是 HTTP 线程数；
+ * 队列满时直接拒绝，不让请求无限堆积
+ */
+@Component
+public class JudgeJobManager {
+
+    @Resource
+    private CodeSandboxProperties codeSandboxProperties;
+
+    @Resource
+    private JavaNativeCodeSandBox javaNativeCodeSandBox;
+
+    private final Map<String, JudgeJob> jobs = new ConcurrentHashMap<>();
+
+    private ThreadPoolExecutor jobExecutor;
+
+    /**
+     * 定期清理已结束且超过保留时间的任务
+     */
+    private ScheduledExecutorService cleaner;
+
+    @PostConstruct
+    public void init() {
+        CodeSandboxProperties.Job config = codeSandboxProperties.getJob();
+        AtomicInteger threadIndex = new AtomicInteger();
+        jobExecutor = new ThreadPoolExecutor(config.getMaxConcurrent(), config.getMaxConcurrent(), 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(config.getQueueCapacity()), r -> {
+            Thread thread = new Thread(r, "judge-job-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        jobExecutor.allowCoreThreadTimeOut(true);
+        cleaner = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "judge-job-cleaner");
+            thread.setDaemon(true);
+            return thread;
+        });
+        cleaner.scheduleWithFixedDelay(this::cleanUp, 1, 1, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        cleaner.shutdownNow();
+        jobExecutor.shutdownNow();
+    }
+
+    /**
+     * 提交一个判题任务
+     */
+    public JobStatusResponse submit(ExecuteCodeRequest executeCodeRequest) {
+        return enqueue(new JudgeJob(UUID.randomUUID().toString(), executeCodeRequest));
+    }
+
+    /**
+     * 提交一个流式判题任务：进度和结果通过监听器推送，任务本身只保留进度，
+     * 同样可以通过任务 ID 查询、取消
+     */
+    public JobStatusResponse stream(ExecuteCodeRequest executeCodeRequest, JobListener listener) {
+        return enqueue(new JudgeJob(UUID.randomUUID().toString(), executeCodeRequest, listener, false));
+    }
+
+    private JobStatusResponse enqueue(JudgeJob job) {
+        FutureTask<Void> task = new FutureTask<>(() -> run(job), null);
+        job.setFuture(task);
+        jobs.put(job.getId(), job);
+        try {
+            jobExecutor.execute(task);
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            throw new IllegalStateException("判题任务过多，请稍后重试");
+        }
+        return job.toResponse();
+    }
+
+    /**
+     * 查询任务状态，任务不存在（或已过期清理）返回 null
+     */
+    public JobStatusResponse get(String jobId) {
+        JudgeJob job = jobs.get(jobId);
+        return job == null ? null : job.toResponse();
+    }
+
+    /**
+     * 取消任务：排队中的不再执行，执行中的被中断，子进程 / 容器内进程会被杀掉，容器随之归还
+     */
+    public JobStatusResponse cancel(String jobId) {
+        JudgeJob job = jobs.get(jobId);
+        if (job == null) {
+            return null;
+        }
+        if (job.cancel()) {
+            job.getFuture().cancel(true);
+            jobExecutor.remove((Runnable) job.getFuture());
+        }
+        return job.toResponse();
+    }
+
+    private void run(JudgeJob job) {
+        if (!job.start()) {
+            return;
+        }
+        // 以任务 ID 作为提交编号，飞行记录里的事件可以按任务 ID 查
+        SubmissionTrace trace = SubmissionTrace.enter(job.getId());
+        try {
+            job.finish(javaNativeCodeSandBox.execute(job.getRequest(), job));
+        } catch (Exception e) {
+            job.fail("执行失败: " + e.getMessage());
+        } finally {
+            trace.close();
+        }
+    }
+
+    private void cleanUp() {
+        long expireBefore = System.currentTimeMillis() - codeSandboxProperties.getJob().getRetention();
+        jobs.values().removeIf(job -> job.getStatus().isTerminal()
+                && job.getFinishTime() != null && job.getFinishTime() < expireBefore);
+    }
+}
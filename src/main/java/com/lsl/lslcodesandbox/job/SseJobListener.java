@@ -0,0 +1,83 @@
+package com.lsl.lslcodesandbox.job;
+
+import com.lsl.lslcodesandbox.compiler.CompileResult;
+import com.lsl.lslcodesandbox.model.CaseResultEvent;
+import com.lsl.lslcodesandbox.model.CompileEvent;
+import com.lsl.lslcodesandbox.model.ExecuteMessage;
+import com.lsl.lslcodesandbox.model.JobStatusResponse;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+
+/**
+ * 把判题过程推送为 SSE 事件：compile（编译结果）、case（每个用例完成时）、summary（最终结果）
+ * 客户端断开后推送失败，调用 onBroken 取消任务，不再为没人看的结果占用沙箱
+ */
+public class SseJobListener implements JobListener {
+
+    public static final String EVENT_COMPILE = "compile";
+
+    public static final String EVENT_CASE = "case";
+
+    public static final String EVENT_SUMMARY = "summary";
+
+    private final SseEmitter emitter;
+
+    private volatile Runnable onBroken = () -> {
+    };
+
+    public SseJobListener(SseEmitter emitter) {
+        this.emitter = emitter;
+    }
+
+    /**
+     * 设置推送失败时的处理（通常是取消任务）
+     */
+    public void setOnBroken(Runnable onBroken) {
+        this.onBroken = onBroken;
+    }
+
+    @Override
+    public void onCompiled(CompileResult compileResult) {
+        CompileEvent event = new CompileEvent();
+        event.setSuccess(compileResult.isSuccess());
+        event.setMessage(compileResult.getMessage());
+        event.setCompileTime(compileResult.getCompileTime());
+        event.setDiagnostics(compileResult.getDiagnostics());
+        send(EVENT_COMPILE, event);
+    }
+
+    @Override
+    public void onCaseFinished(int index, ExecuteMessage executeMessage) {
+        CaseResultEvent event = new CaseResultEvent();
+        event.setIndex(index);
+        event.setExitValue(executeMessage.getExitValue());
+        event.setOutput(executeMessage.getMessage());
+        event.setErrorMessage(executeMessage.getErrorMessage());
+        event.setTime(executeMessage.getTime());
+        event.setCpuTime(executeMessage.getCpuTime());
+        event.setMemory(executeMessage.getMemory());
+        event.setVerdict(executeMessage.getVerdict());
+        event.setDiff(executeMessage.getDiff());
+        send(EVENT_CASE, event);
+    }
+
+    @Override
+    public void onFinished(JobStatusResponse jobStatusResponse) {
+        if (send(EVENT_SUMMARY, jobStatusResponse)) {
+            emitter.complete();
+        }
+    }
+
+    private boolean send(String name, Object data) {
+        try {
+            // SseEmitter.send 内部已加锁，并行用例的回调可以直接调用
+            emitter.send(SseEmitter.event().name(name).data(data));
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            emitter.completeWithError(e);
+            onBroken.run();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.lsl.lslcodesandbox.language;
+
+import com.lsl.lslcodesandbox.model.CompileDiagnostic;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 用编译命令编译的语言（如 C++）：在该语言的容器里执行编译命令，产物是可以直接运行的文件
+ * 不实现这个接口的语言由专门的编译引擎处理（Java：进程内 javac / 容器内常驻编译服务）
+ */
+public interface CommandCompiledLanguage extends LanguageStrategy {
+
+    /**
+     * 编译命令，在源文件所在目录执行，用相对路径，编译器的报错里不会带出宿主机的目录
+     *
+     * @param sourceFile 源文件
+     * @param outputFile 编译产物
+     */
+    List<String> compileCommand(String sourceFile, String outputFile);
+
+    /**
+     * 返回给用户之前过滤编译器输出：只留下提交的源文件自己的诊断，
+     * 被 include 进来的文件（可能是容器里的任意文件）的内容不能经报错带出去
+     *
+     * @param sourceFile 源文件名，即 sourceFileName 的结果
+     */
+    default String filterCompilerOutput(String compilerOutput, String sourceFile) {
+        return compilerOutput;
+    }
+
+    /**
+     * 从编译器输出中解析诊断信息，解析不了的返回空列表（错误信息原文仍会返回）
+     */
+    default List<CompileDiagnostic> parseDiagnostics(String compilerOutput) {
+        return Collections.emptyList();
+    }
+}
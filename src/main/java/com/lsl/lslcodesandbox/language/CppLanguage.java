@@ -0,0 +1,110 @@
+package com.lsl.lslcodesandbox.language;
+
+import com.lsl.lslcodesandbox.model.CompileDiagnostic;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * C++：g++ 编译成本机可执行文件直接运行，没有虚拟机启动开销
+ * 只在 C++ 容器里编译、运行（本机沙箱也转交 Docker 沙箱），镜像需要带 g++（如基于 gcc 官方镜像构建）
+ */
+@Component
+public class CppLanguage implements CommandCompiledLanguage {
+
+    public static final String NAME = "cpp";
+
+    private static final String EXECUTABLE = "main";
+
+    /**
+     * g++ 的诊断格式：文件:行:列: 级别: 内容
+     */
+    private static final Pattern DIAGNOSTIC = Pattern.compile("^[^:\\s]+:(\\d+):(\\d+): (fatal error|error|warning|note): (.*)$");
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public List<String> getAliases() {
+        return Arrays.asList("c++", "cxx");
+    }
+
+    @Override
+    public String getImage() {
+        return "oj-sandbox-cpp:1.0";
+    }
+
+    @Override
+    public long getMemoryLimit() {
+        return 256 * 1024 * 1024L;
+    }
+
+    @Override
+    public String mainName(String code) {
+        return EXECUTABLE;
+    }
+
+    @Override
+    public String sourceFileName(String mainName) {
+        return mainName + ".cpp";
+    }
+
+    @Override
+    public List<String> compileCommand(String sourceFile, String outputFile) {
+        return Arrays.asList("g++", "-O2", "-std=c++17", "-pipe", "-DONLINE_JUDGE", "-o", outputFile, sourceFile);
+    }
+
+    @Override
+    public List<String> runCommand(String dir, String separator, String mainName) {
+        return Collections.singletonList(dir + separator + mainName);
+    }
+
+    /**
+     * g++ 的每条诊断以顶格的一行开头，后面缩进的行是源码摘录、插入符和 include 链；
+     * 开头不是源文件的诊断（被 include 的文件、系统头文件里的）连同摘录整段丢掉，只记一个条数
+     */
+    @Override
+    public String filterCompilerOutput(String compilerOutput, String sourceFile) {
+        StringBuilder filtered = new StringBuilder();
+        int omitted = 0;
+        boolean keep = false;
+        for (String line : compilerOutput.split("\\R")) {
+            if (!line.isEmpty() && !Character.isWhitespace(line.charAt(0))) {
+                // 不带位置的收尾行（如 compilation terminated.）照常保留
+                keep = line.startsWith(sourceFile + ":") || !line.contains(":");
+                if (!keep && DIAGNOSTIC.matcher(line).matches()) {
+                    omitted++;
+                }
+            }
+            if (keep) {
+                filtered.append(line).append('\n');
+            }
+        }
+        if (omitted > 0) {
+            filtered.append("（省略了 ").append(omitted).append(" 条源文件以外的诊断）\n");
+        }
+        return filtered.toString().trim();
+    }
+
+    @Override
+    public List<CompileDiagnostic> parseDiagnostics(String compilerOutput) {
+        List<CompileDiagnostic> diagnostics = new ArrayList<>();
+        for (String line : compilerOutput.split("\\R")) {
+            Matcher matcher = DIAGNOSTIC.matcher(line);
+            if (matcher.matches()) {
+                String kind = matcher.group(3).equals("fatal error") ? "ERROR" : matcher.group(3).toUpperCase(Locale.ROOT);
+                diagnostics.add(new CompileDiagnostic(kind, Long.parseLong(matcher.group(1)),
+                        Long.parseLong(matcher.group(2)), matcher.group(4)));
+            }
+        }
+        return diagnostics;
+    }
+}
@@ -0,0 +1,64 @@
+package com.lsl.lslcodesandbox.language;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Java：由专门的编译引擎编译（原生沙箱进程内 javac，Docker 沙箱容器内常驻编译服务），
+ * 运行方式（逐用例 JVM、单 JVM、常驻 worker）由 Java 沙箱自己处理
+ */
+@Component
+public class JavaLanguage implements LanguageStrategy {
+
+    public static final String NAME = "java";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public String getImage() {
+        return "oj-sandbox-java:1.0";
+    }
+
+    @Override
+    public long getMemoryLimit() {
+        return 100 * 1024 * 1024L;
+    }
+
+    /**
+     * 解析出第一个 public 类作为主类，防止用户乱写类名导致编译运行失败
+     */
+    @Override
+    public String mainName(String code) {
+        JavaParser javaParser = new JavaParser();
+        ParseResult<CompilationUnit> parseResult = javaParser.parse(code);
+        CompilationUnit cu = parseResult.getResult().orElseThrow(() -> new RuntimeException("解析代码失败"));
+        return cu.findAll(ClassOrInterfaceDeclaration.class).stream()
+                .filter(ClassOrInterfaceDeclaration::isPublic)
+                .filter(c -> !c.isInterface()) // 排除接口
+                .findFirst()
+                .map(ClassOrInterfaceDeclaration::getNameAsString)
+                .orElseThrow(() -> new RuntimeException("未找到可执行的Public类"));
+    }
+
+    @Override
+    public String sourceFileName(String mainName) {
+        return mainName + ".java";
+    }
+
+    /**
+     * java -Xmx256m -Dfile.encoding=UTF-8 -cp dir Main，JVM 参数可以插在 java 之后
+     */
+    @Override
+    public List<String> runCommand(String dir, String separator, String mainName) {
+        return Arrays.asList("java", "-Xmx256m", "-Dfile.encoding=UTF-8", "-cp", dir, mainName);
+    }
+}
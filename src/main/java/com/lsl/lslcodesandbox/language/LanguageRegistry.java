@@ -0,0 +1,45 @@
+package com.lsl.lslcodesandbox.language;
+
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 已注册的语言策略，按请求里的 language 查找
+ */
+@Component
+public class LanguageRegistry {
+
+    @Resource
+    private List<LanguageStrategy> strategies;
+
+    public LanguageRegistry() {
+    }
+
+    /**
+     * 不依赖 Spring 容器时使用
+     */
+    public LanguageRegistry(List<LanguageStrategy> strategies) {
+        this.strategies = strategies;
+    }
+
+    /**
+     * 按语言名或别名（不区分大小写）查找，没有指定时为 Java
+     *
+     * @throws IllegalArgumentException 不支持的语言
+     */
+    public LanguageStrategy get(String language) {
+        String name = language == null || language.trim().isEmpty() ? JavaLanguage.NAME
+                : language.trim().toLowerCase(Locale.ROOT);
+        return strategies.stream()
+                .filter(strategy -> strategy.getName().equals(name) || strategy.getAliases().contains(name))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("不支持的语言: " + language));
+    }
+
+    public List<LanguageStrategy> getAll() {
+        return strategies;
+    }
+}
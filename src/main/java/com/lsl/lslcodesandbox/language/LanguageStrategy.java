@@ -0,0 +1,59 @@
+package com.lsl.lslcodesandbox.language;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 语言策略：一种提交语言怎么编译、怎么运行、默认给多少资源、在哪个镜像里跑
+ * 新增语言只需实现这个接口并注册为组件，容器池会为它单独维护一组按自身流量伸缩的容器
+ * 用编译命令编译的语言实现子接口 CommandCompiledLanguage
+ */
+public interface LanguageStrategy {
+
+    /**
+     * 语言名（小写），即请求里的 language，也是容器池、配置里的键
+     */
+    String getName();
+
+    /**
+     * 别名，如 c++
+     */
+    default List<String> getAliases() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * 运行容器的镜像
+     */
+    String getImage();
+
+    /**
+     * 运行时的内存上限（字节），即容器的内存限制
+     */
+    long getMemoryLimit();
+
+    /**
+     * 进程数上限，防止 fork 炸弹
+     */
+    default long getPidsLimit() {
+        return 100L;
+    }
+
+    /**
+     * 从源码确定主程序名：Java 为 public 类名，命令行编译的语言为固定的可执行文件名
+     */
+    String mainName(String code);
+
+    /**
+     * 源文件名
+     */
+    String sourceFileName(String mainName);
+
+    /**
+     * 运行命令
+     *
+     * @param dir       编译产物所在目录（宿主机或容器内的路径）
+     * @param separator 该路径的分隔符
+     */
+    List<String> runCommand(String dir, String separator, String mainName);
+}
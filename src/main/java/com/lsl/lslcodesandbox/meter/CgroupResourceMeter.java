@@ -0,0 +1,140 @@
+package com.lsl.lslcodesandbox.meter;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 容器内执行的资源计量
+ * 用一段 sh 包装命令：执行前后各读一次容器 cgroup 的 cpu.stat，取差值得到这次执行的 CPU 时间和被限流的情况；
+ * 峰值内存和缺页次数来自 /usr/bin/time（wait4 的 rusage），写到单独的文件而不是标准错误，不和用户输出混在一起；
+ * 最后把结果作为一行带标记的文本追加到标准错误末尾，宿主机取出后再还原用户自己的标准错误
+ * 容器的 memory.peak 是整个容器生命周期的峰值，容器会被复用，不能用来计量单次执行
+ */
+@Component
+public class CgroupResourceMeter implements ResourceMeter {
+
+    static final String MARKER = "@@resource@@";
+
+    /**
+     * %e 墙钟秒数、%U 用户态秒数、%S 内核态秒数、%M 峰值常驻内存 KB、%R 次缺页、%F 主缺页
+     */
+    private static final String SCRIPT = "S=/sys/fs/cgroup/cpu.stat; [ -f $S ] || S=/sys/fs/cgroup/cpu/cpu.stat; "
+            + "R=/tmp/.rusage.$$; B=$(cat $S 2>/dev/null | tr '\\n' ' '); "
+            + "/usr/bin/time -o $R -f '%e %U %S %M %R %F' \"$@\"; C=$?; "
+            + "echo \"" + MARKER + " $(tail -n 1 $R 2>/dev/null) | $B | $(cat $S 2>/dev/null | tr '\\n' ' ')\" >&2; "
+            + "rm -f $R; exit $C";
+
+    private static final Pattern TRAILER = Pattern.compile("\\n?" + MARKER + " ([^|]*)\\|([^|]*)\\|([^\\n]*)\\n?$");
+
+    private static final Pattern STAT_ENTRY = Pattern.compile("(\\w+) (\\d+)");
+
+    @Override
+    public List<String> wrap(List<String> command) {
+        List<String> wrapped = new ArrayList<>();
+        wrapped.add("sh");
+        wrapped.add("-c");
+        wrapped.add(SCRIPT);
+        wrapped.add("sh");
+        wrapped.addAll(command);
+        return wrapped;
+    }
+
+    @Override
+    public Probe start(Process process) {
+        return new Probe() {
+            @Override
+            public ResourceUsage finish(String stderr) {
+                return parse(stderr);
+            }
+
+            @Override
+            public String userStderr(String stderr) {
+                return stripTrailer(stderr);
+            }
+        };
+    }
+
+    /**
+     * 从标准错误末尾的计量行解析资源用量；进程被强制结束时没有计量行，各项为 null
+     */
+    static ResourceUsage parse(String stderr) {
+        ResourceUsage usage = new ResourceUsage();
+        Matcher matcher = stderr == null ? null : TRAILER.matcher(stderr);
+        if (matcher == null || !matcher.find()) {
+            return usage;
+        }
+        String[] rusage = matcher.group(1).trim().split("\\s+");
+        if (rusage.length == 6) {
+            try {
+                usage.setWallTime(secondsToMillis(rusage[0]));
+                usage.setUserTime(secondsToMillis(rusage[1]));
+                usage.setSystemTime(secondsToMillis(rusage[2]));
+                usage.setCpuTime(usage.getUserTime() + usage.getSystemTime());
+                usage.setPeakMemory(Long.parseLong(rusage[3]) * 1024);
+                usage.setMinorFaults(Long.parseLong(rusage[4]));
+                usage.setMajorFaults(Long.parseLong(rusage[5]));
+            } catch (NumberFormatException e) {
+                // time 的输出不完整（如被信号打断），只保留 cgroup 部分
+            }
+        }
+        Map<String, Long> before = parseStat(matcher.group(2));
+        Map<String, Long> after = parseStat(matcher.group(3));
+        // cgroup v2 以微秒计，精度比 rusage 的 10 毫秒高，有就优先用
+        Long usageUsec = delta(before, after, "usage_usec");
+        if (usageUsec != null) {
+            usage.setCpuTime(usageUsec / 1000);
+            Long userUsec = delta(before, after, "user_usec");
+            Long systemUsec = delta(before, after, "system_usec");
+            if (userUsec != null && systemUsec != null) {
+                usage.setUserTime(userUsec / 1000);
+                usage.setSystemTime(systemUsec / 1000);
+            }
+        }
+        usage.setThrottledPeriods(delta(before, after, "nr_throttled"));
+        Long throttledUsec = delta(before, after, "throttled_usec");
+        if (throttledUsec != null) {
+            usage.setThrottledTime(throttledUsec / 1000);
+        } else {
+            // cgroup v1 的 throttled_time 以纳秒计
+            Long throttledNanos = delta(before, after, "throttled_time");
+            usage.setThrottledTime(throttledNanos == null ? null : throttledNanos / 1000_000L);
+        }
+        return usage;
+    }
+
+    /**
+     * 去掉计量行，还原用户程序的标准错误
+     */
+    static String stripTrailer(String stderr) {
+        if (stderr == null) {
+            return null;
+        }
+        Matcher matcher = TRAILER.matcher(stderr);
+        return matcher.find() ? stderr.substring(0, matcher.start()) : stderr;
+    }
+
+    private static Map<String, Long> parseStat(String text) {
+        Map<String, Long> stat = new HashMap<>();
+        Matcher matcher = STAT_ENTRY.matcher(text);
+        while (matcher.find()) {
+            stat.put(matcher.group(1), Long.parseLong(matcher.group(2)));
+        }
+        return stat;
+    }
+
+    private static Long delta(Map<String, Long> before, Map<String, Long> after, String key) {
+        Long from = before.get(key);
+        Long to = after.get(key);
+        return from == null || to == null ? null : to - from;
+    }
+
+    private static long secondsToMillis(String seconds) {
+        return Math.round(Double.parseDouble(seconds) * 1000);
+    }
+}
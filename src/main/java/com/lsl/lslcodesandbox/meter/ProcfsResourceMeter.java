@@ -0,0 +1,196 @@
+package com.lsl.lslcodesandbox.meter;
+
+import com.lsl.lslcodesandbox.capture.ProcessOutputCapture;
+import com.lsl.lslcodesandbox.config.CodeSandboxProperties;
+import com.lsl.lslcodesandbox.runner.ExecutionLimits;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 本机进程的资源计量：运行期间定时读取 /proc/[pid]/stat 和 /proc/[pid]/status
+ * JDK 的进程回收线程会在子进程退出时立即 wait 掉它，拿不到 wait4 的 rusage，只能在退出前采样；
+ * 峰值内存（VmHWM）本身就是单调的，CPU 时间和缺页次数最多少算最后一个采样间隔
+ * 没有 /proc 的系统上各项为 null
+ * 带时间限制启动时兼做看门狗：CPU 时间达到限制，或 CPU 时间长时间不再增长（sleep、死等），立即结束进程树，
+ * 不必等到墙钟时限，也不受 RLIMIT_CPU 秒级粒度的影响
+ */
+@Component
+public class ProcfsResourceMeter implements ResourceMeter {
+
+    private static final Pattern VM_HWM = Pattern.compile("VmHWM:\\s+(\\d+)\\s+kB");
+
+    /**
+     * 时钟频率（/proc/[pid]/stat 中 CPU 时间的单位），Linux 上基本都是 100
+     */
+    private static final long CLOCK_TICKS = 100L;
+
+    @Resource
+    private CodeSandboxProperties codeSandboxProperties;
+
+    private ScheduledExecutorService sampler;
+
+    public ProcfsResourceMeter() {
+    }
+
+    /**
+     * 不依赖 Spring 容器时使用
+     */
+    public ProcfsResourceMeter(CodeSandboxProperties codeSandboxProperties) {
+        this.codeSandboxProperties = codeSandboxProperties;
+    }
+
+    @PostConstruct
+    public void init() {
+        sampler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "procfs-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sampler.shutdownNow();
+    }
+
+    @Override
+    public Probe start(Process process) {
+        return new ProcfsProbe(process, null);
+    }
+
+    @Override
+    public Probe start(Process process, ExecutionLimits limits) {
+        return new ProcfsProbe(process, limits);
+    }
+
+    private class ProcfsProbe implements Probe {
+
+        private final long startNanos = System.nanoTime();
+
+        private final Process process;
+
+        private final ExecutionLimits limits;
+
+        private final Path statPath;
+
+        private final Path statusPath;
+
+        private volatile ScheduledFuture<?> sampling;
+
+        private volatile long exitNanos;
+
+        private volatile long[] lastStat;
+
+        private volatile long peakMemory = -1;
+
+        private long lastCpuTime = -1;
+
+        private long lastProgressNanos = startNanos;
+
+        private volatile boolean idleTimedOut;
+
+        ProcfsProbe(Process process, ExecutionLimits limits) {
+            this.process = process;
+            this.limits = limits;
+            statPath = Paths.get("/proc", String.valueOf(process.pid()), "stat");
+            statusPath = Paths.get("/proc", String.valueOf(process.pid()), "status");
+            process.onExit().thenRun(() -> exitNanos = System.nanoTime());
+            sample();
+            long interval = codeSandboxProperties.getMeter().getSampleInterval();
+            sampling = sampler.scheduleAtFixedRate(this::sample, interval, interval, TimeUnit.MILLISECONDS);
+        }
+
+        private void sample() {
+            try {
+                long[] stat = parseStat(new String(Files.readAllBytes(statPath), StandardCharsets.US_ASCII));
+                long memory = parseVmHwm(new String(Files.readAllBytes(statusPath), StandardCharsets.US_ASCII));
+                // 进程退出后文件消失，保留最后一次成功的采样
+                lastStat = stat;
+                peakMemory = Math.max(peakMemory, memory);
+                if (limits != null) {
+                    enforce((stat[2] + stat[3]) * 1000 / CLOCK_TICKS);
+                }
+            } catch (IOException | RuntimeException e) {
+                ScheduledFuture<?> future = sampling;
+                if (exitNanos != 0 && future != null) {
+                    future.cancel(false);
+                }
+            }
+        }
+
+        /**
+         * 只在采样线程里调用
+         */
+        private void enforce(long cpuTime) {
+            long now = System.nanoTime();
+            if (cpuTime > lastCpuTime) {
+                lastCpuTime = cpuTime;
+                lastProgressNanos = now;
+            }
+            if (cpuTime >= limits.getCpuTime()) {
+                ProcessOutputCapture.destroyProcessTree(process);
+            } else if (limits.getIdleTimeout() > 0 && now - lastProgressNanos >= limits.getIdleTimeout() * 1000_000L) {
+                idleTimedOut = true;
+                ProcessOutputCapture.destroyProcessTree(process);
+            }
+        }
+
+        @Override
+        public ResourceUsage finish(String stderr) {
+            sampling.cancel(false);
+            ResourceUsage usage = new ResourceUsage();
+            long endNanos = exitNanos != 0 ? exitNanos : System.nanoTime();
+            usage.setWallTime((endNanos - startNanos) / 1000_000L);
+            long[] stat = lastStat;
+            if (stat != null) {
+                usage.setMinorFaults(stat[0]);
+                usage.setMajorFaults(stat[1]);
+                usage.setUserTime(stat[2] * 1000 / CLOCK_TICKS);
+                usage.setSystemTime(stat[3] * 1000 / CLOCK_TICKS);
+                usage.setCpuTime(usage.getUserTime() + usage.getSystemTime());
+            }
+            if (peakMemory >= 0) {
+                usage.setPeakMemory(peakMemory);
+            }
+            usage.setIdleTimedOut(idleTimedOut);
+            return usage;
+        }
+    }
+
+    /**
+     * 解析 /proc/[pid]/stat，返回 [minflt, majflt, utime, stime]
+     * 第 2 个字段是带括号的进程名，可能包含空格，从最后一个右括号之后开始数
+     */
+    static long[] parseStat(String stat) {
+        String[] fields = stat.substring(stat.lastIndexOf(')') + 2).trim().split(" ");
+        // fields[0] 是第 3 个字段 state
+        return new long[] {
+                Long.parseLong(fields[7]),
+                Long.parseLong(fields[9]),
+                Long.parseLong(fields[11]),
+                Long.parseLong(fields[12])
+        };
+    }
+
+    /**
+     * 解析 /proc/[pid]/status 中的 VmHWM（峰值常驻内存），返回字节数，取不到时为 -1
+     */
+    static long parseVmHwm(String status) {
+        Matcher matcher = VM_HWM.matcher(status);
+        return matcher.find() ? Long.parseLong(matcher.group(1)) * 1024 : -1;
+    }
+}
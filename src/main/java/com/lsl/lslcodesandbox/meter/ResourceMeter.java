@@ -0,0 +1,54 @@
+package com.lsl.lslcodesandbox.meter;
+
+import com.lsl.lslcodesandbox.runner.ExecutionLimits;
+
+import java.util.List;
+
+/**
+ * 资源计量：采集一次执行的 CPU 时间、墙钟时间、峰值内存和缺页次数
+ * 有的实现需要包装启动命令（借助外部程序采集），有的在进程运行期间旁路采样
+ */
+public interface ResourceMeter {
+
+    /**
+     * 包装启动命令，不需要包装时原样返回
+     */
+    default List<String> wrap(List<String> command) {
+        return command;
+    }
+
+    /**
+     * 命令已经启动，开始计量
+     *
+     * @param process 本机进程；在容器内执行时为 null
+     */
+    Probe start(Process process);
+
+    /**
+     * 命令已经启动，开始计量，并在计量过程中执行时间限制
+     * 默认只计量不干预，超时与否由调用方根据计量结果判定
+     */
+    default Probe start(Process process, ExecutionLimits limits) {
+        return start(process);
+    }
+
+    /**
+     * 一次执行的计量过程
+     */
+    interface Probe {
+
+        /**
+         * 执行结束，返回资源用量
+         *
+         * @param stderr 进程的标准错误，包装命令的实现从中取出计量结果
+         */
+        ResourceUsage finish(String stderr);
+
+        /**
+         * 去掉计量附加的内容后，用户程序自己的标准错误
+         */
+        default String userStderr(String stderr) {
+            return stderr;
+        }
+    }
+}
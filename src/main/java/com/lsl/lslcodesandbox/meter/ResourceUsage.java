@@ -0,0 +1,70 @@
+package com.lsl.lslcodesandbox.meter;
+
+import lombok.Data;
+
+/**
+ * 一次执行的资源用量，取不到的项为 null
+ */
+@Data
+public class ResourceUsage {
+
+    /**
+     * 墙钟耗时（毫秒）
+     */
+    private Long wallTime;
+
+    /**
+     * CPU 时间（毫秒），用户态与内核态之和
+     */
+    private Long cpuTime;
+
+    /**
+     * 用户态 CPU 时间（毫秒）
+     */
+    private Long userTime;
+
+    /**
+     * 内核态 CPU 时间（毫秒）
+     */
+    private Long systemTime;
+
+    /**
+     * 峰值常驻内存（字节）
+     */
+    private Long peakMemory;
+
+    /**
+     * 次缺页次数
+     */
+    private Long minorFaults;
+
+    /**
+     * 主缺页次数（需要读盘）
+     */
+    private Long majorFaults;
+
+    /**
+     * 被 CPU 配额限流的周期数（仅容器内执行）
+     */
+    private Long throttledPeriods;
+
+    /**
+     * 被 CPU 配额限流的总时间（毫秒，仅容器内执行）
+     */
+    private Long throttledTime;
+
+    /**
+     * 是否因长时间空等（CPU 时间不再增长）被提前结束
+     */
+    private boolean idleTimedOut;
+
+    /**
+     * 缺页总次数
+     */
+    public Long getPageFaults() {
+        if (minorFaults == null && majorFaults == null) {
+            return null;
+        }
+        return (minorFaults == null ? 0 : minorFaults) + (majorFaults == null ? 0 : majorFaults);
+    }
+}
@@ -0,0 +1,101 @@
+package com.lsl.lslcodesandbox.metrics;
+
+import com.lsl.lslcodesandbox.Utils.ContainerPool;
+import com.lsl.lslcodesandbox.compiler.CompiledClassCache;
+import com.lsl.lslcodesandbox.language.LanguageRegistry;
+import com.lsl.lslcodesandbox.language.LanguageStrategy;
+import com.lsl.lslcodesandbox.model.ContainerPoolStats;
+import com.lsl.lslcodesandbox.security.StaticChecker;
+import com.lsl.lslcodesandbox.workspace.WorkspaceManager;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * 把各组件已有的计数和状态注册成指标，抓取时现读，不在请求路径上多做一次计数
+ * 创建数、命中数这类累计值注册为计数器，在 Prometheus 里用 rate() 得到速率
+ */
+@Component
+public class SandboxMeterBinder implements MeterBinder {
+
+    /**
+     * 注册中心初始化时就会绑定本类，而容器池又依赖注册中心记录取容器耗时，延迟注入以免循环依赖
+     */
+    @Lazy
+    @Resource
+    private ContainerPool containerPool;
+
+    @Resource
+    private LanguageRegistry languageRegistry;
+
+    @Resource
+    private CompiledClassCache compiledClassCache;
+
+    @Resource
+    private StaticChecker staticChecker;
+
+    @Resource
+    private WorkspaceManager workspaceManager;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (LanguageStrategy language : languageRegistry.getAll()) {
+            String name = language.getName();
+            poolGauge(registry, "sandbox.container.pool.size", "容器数（含正在创建的）", name, ContainerPoolStats::getSize);
+            poolGauge(registry, "sandbox.container.pool.in.use", "正在使用的容器数", name, ContainerPoolStats::getInUse);
+            poolGauge(registry, "sandbox.container.pool.available", "空闲待命的容器数", name, ContainerPoolStats::getIdle);
+            poolGauge(registry, "sandbox.container.pool.waiters", "排队等待容器的请求数", name, ContainerPoolStats::getWaiting);
+            poolGauge(registry, "sandbox.container.pool.desired", "反馈控制器给出的期望容器数", name, ContainerPoolStats::getDesiredSize);
+            poolCounter(registry, "sandbox.container.created", "累计创建的容器数", name, ContainerPoolStats::getCreations);
+            poolCounter(registry, "sandbox.container.evicted", "累计回收的空闲容器数", name, ContainerPoolStats::getEvictions);
+            poolCounter(registry, "sandbox.container.recycled", "累计替换的不健康容器数", name, ContainerPoolStats::getRecycles);
+            poolCounter(registry, "sandbox.container.reclaimed", "累计因执行超时强制回收的次数", name, ContainerPoolStats::getReclaims);
+        }
+
+        FunctionCounter.builder("sandbox.compile.cache.requests", compiledClassCache, CompiledClassCache::getHitCount)
+                .description("编译缓存查询次数").tag("result", "hit").register(registry);
+        FunctionCounter.builder("sandbox.compile.cache.requests", compiledClassCache, CompiledClassCache::getMissCount)
+                .description("编译缓存查询次数").tag("result", "miss").register(registry);
+        Gauge.builder("sandbox.compile.cache.hit.ratio", compiledClassCache,
+                        cache -> ratio(cache.getHitCount(), cache.getMissCount()))
+                .description("编译缓存累计命中率").register(registry);
+        FunctionCounter.builder("sandbox.compile.cache.evictions", compiledClassCache, CompiledClassCache::getEvictionCount)
+                .description("编译缓存淘汰次数").register(registry);
+
+        FunctionCounter.builder("sandbox.check.cache.requests", staticChecker, StaticChecker::getHitCount)
+                .description("静态检查结论缓存查询次数").tag("result", "hit").register(registry);
+        FunctionCounter.builder("sandbox.check.cache.requests", staticChecker, StaticChecker::getMissCount)
+                .description("静态检查结论缓存查询次数").tag("result", "miss").register(registry);
+
+        FunctionCounter.builder("sandbox.workspace.acquired", workspaceManager, WorkspaceManager::getCreations)
+                .description("申请的工作区数").tag("source", "created").register(registry);
+        FunctionCounter.builder("sandbox.workspace.acquired", workspaceManager, WorkspaceManager::getReuses)
+                .description("申请的工作区数").tag("source", "reused").register(registry);
+        Gauge.builder("sandbox.workspace.free", workspaceManager, WorkspaceManager::getFreeCount)
+                .description("清空待用的工作区数").register(registry);
+        Gauge.builder("sandbox.workspace.pending.cleanup", workspaceManager, WorkspaceManager::getPendingCleanupCount)
+                .description("已归还、等待后台清空的工作区数").register(registry);
+    }
+
+    private void poolGauge(MeterRegistry registry, String name, String description, String language,
+                           ToDoubleFunction<ContainerPoolStats> value) {
+        Gauge.builder(name, containerPool, pool -> value.applyAsDouble(pool.getStats(language)))
+                .description(description).tag("language", language).register(registry);
+    }
+
+    private void poolCounter(MeterRegistry registry, String name, String description, String language,
+                             ToDoubleFunction<ContainerPoolStats> value) {
+        FunctionCounter.builder(name, containerPool, pool -> value.applyAsDouble(pool.getStats(language)))
+                .description(description).tag("language", language).register(registry);
+    }
+
+    private static double ratio(long hits, long misses) {
+        return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+    }
+}
@@ -0,0 +1,173 @@
+package com.lsl.lslcodesandbox.metrics;
+
+import com.lsl.lslcodesandbox.model.ExecuteCodeResponse;
+import com.lsl.lslcodesandbox.model.JudgeInfoMessageEnum;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 沙箱流水线的指标记录：各阶段耗时、判定计数、取容器的等待时间、启动的进程数
+ * 池子、缓存这类已有计数的状态由 SandboxMeterBinder 直接读取，不在这里重复计数
+ */
+@Component
+public class SandboxMetrics {
+
+    public static final String BACKEND_NATIVE = "native";
+
+    public static final String BACKEND_DOCKER = "docker";
+
+    /**
+     * 取主类名等源码解析（原生沙箱的解析合并在静态检查里）
+     */
+    public static final String STAGE_PARSE = "parse";
+
+    /**
+     * 源码静态检查（含解析）
+     */
+    public static final String STAGE_CHECK = "check";
+
+    /**
+     * 编译（只记没命中编译缓存的）
+     */
+    public static final String STAGE_COMPILE = "compile";
+
+    /**
+     * 字节码扫描
+     */
+    public static final String STAGE_SCAN = "scan";
+
+    /**
+     * 编译产物写入工作区
+     */
+    public static final String STAGE_WRITE = "write";
+
+    /**
+     * 执行全部用例（含取容器、比对）
+     */
+    public static final String STAGE_RUN = "run";
+
+    /**
+     * 归还工作区、容器
+     */
+    public static final String STAGE_CLEANUP = "cleanup";
+
+    /**
+     * 一次提交的总耗时
+     */
+    public static final String STAGE_TOTAL = "total";
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    public SandboxMetrics() {
+    }
+
+    /**
+     * 不依赖 Spring 容器时使用
+     */
+    public SandboxMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 记录一个阶段的耗时，带直方图以便在 Prometheus 里算分位数
+     */
+    public void recordStage(String backend, String stage, long nanos) {
+        Timer.builder("sandbox.stage")
+                .description("沙箱各阶段耗时")
+                .tag("backend", backend)
+                .tag("stage", stage)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 一次提交的判定，取值同 JudgeInfoMessageEnum 的 value
+     */
+    public void recordVerdict(String backend, String verdict) {
+        Counter.builder("sandbox.verdicts")
+                .description("按判定统计的提交数")
+                .tag("backend", backend)
+                .tag("verdict", verdict)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * 从容器池取容器的等待时间，outcome 为 acquired 或 timeout
+     */
+    public void recordAcquire(String language, long nanos, boolean acquired) {
+        Timer.builder("sandbox.container.acquire")
+                .description("从容器池取容器的等待时间")
+                .tag("language", language)
+                .tag("outcome", acquired ? "acquired" : "timeout")
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 启动了一个进程：本机为 fork 出的子进程，Docker 为容器里的一次 exec
+     */
+    public void processStarted(String backend, String purpose) {
+        Counter.builder("sandbox.processes.started")
+                .description("为执行提交启动的进程数")
+                .tag("backend", backend)
+                .tag("purpose", purpose)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * 从响应归纳判定：带期望输出时为 judgeInfo.message，否则按状态码和错误信息归类
+     *
+     * @param successStatus 表示成功的状态码（原生沙箱为 1，Docker 沙箱为 2）
+     */
+    public static String verdictOf(ExecuteCodeResponse response, int successStatus) {
+        if (response.getJudgeInfo() != null && response.getJudgeInfo().getMessage() != null) {
+            return response.getJudgeInfo().getMessage();
+        }
+        String message = response.getMessage() == null ? "" : response.getMessage();
+        Integer status = response.getStatus();
+        if (status != null && status == successStatus) {
+            return JudgeInfoMessageEnum.ACCEPTED.getValue();
+        }
+        if (message.contains("检测到违规代码操作")) {
+            return JudgeInfoMessageEnum.DANGEROUS_OPERATION.getValue();
+        }
+        if (status == null || status != 3) {
+            return JudgeInfoMessageEnum.SYSTEM_ERROR.getValue();
+        }
+        // 只有编译失败的响应带诊断信息（可能为空列表）
+        if (response.getCompileDiagnostics() != null || message.startsWith("编译失败")) {
+            return JudgeInfoMessageEnum.COMPILE_ERROR.getValue();
+        }
+        if (message.startsWith("执行超时")) {
+            return JudgeInfoMessageEnum.TIME_LIMIT_EXCEEDED.getValue();
+        }
+        if (message.startsWith("CPU 时间超限")) {
+            return JudgeInfoMessageEnum.CPU_TIME_LIMIT_EXCEEDED.getValue();
+        }
+        if (message.startsWith("输出超限")) {
+            return JudgeInfoMessageEnum.OUTPUT_LIMIT_EXCEEDED.getValue();
+        }
+        if (message.startsWith("答案错误")) {
+            return JudgeInfoMessageEnum.WRONG_ANSWER.getValue();
+        }
+        return JudgeInfoMessageEnum.RUNTIME_ERROR.getValue();
+    }
+
+    /**
+     * 沙箱直接抛出异常时的判定（静态检查拦截、系统错误）
+     */
+    public static String verdictOf(Throwable e) {
+        return e.getMessage() != null && e.getMessage().contains("检测到违规代码操作")
+                ? JudgeInfoMessageEnum.DANGEROUS_OPERATION.getValue() : JudgeInfoMessageEnum.SYSTEM_ERROR.getValue();
+    }
+}
@@ -0,0 +1,50 @@
+package com.lsl.lslcodesandbox.model;
+
+import lombok.Data;
+
+/**
+ * 流式推送的单个用例结果事件
+ * 多个用例并行执行时事件不保证按下标顺序到达，以 index 为准
+ */
+@Data
+public class CaseResultEvent {
+
+    /**
+     * 用例下标（对应 inputList）
+     */
+    private Integer index;
+
+    private Integer exitValue;
+
+    /**
+     * 程序输出
+     */
+    private String output;
+
+    private String errorMessage;
+
+    /**
+     * 执行耗时（毫秒）
+     */
+    private Long time;
+
+    /**
+     * CPU 时间（毫秒），取不到时为空
+     */
+    private Long cpuTime;
+
+    /**
+     * 峰值内存（字节），取不到时为空
+     */
+    private Long memory;
+
+    /**
+     * 沙箱直接给出的判定（如超时），正常结束时为空
+     */
+    private JudgeInfoMessageEnum verdict;
+
+    /**
+     * 沙箱内比对输出时，答案错误的第一处不同
+     */
+    private String diff;
+}
@@ -0,0 +1,26 @@
+package com.lsl.lslcodesandbox.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 沙箱内比对输出后单个用例的判定
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CaseVerdict {
+
+    /**
+     * 用例下标（对应 inputList）
+     */
+    private Integer index;
+
+    private JudgeInfoMessageEnum verdict;
+
+    /**
+     * 答案错误时第一处不同的说明，其余为空
+     */
+    private String diff;
+}
@@ -0,0 +1,22 @@
+package com.lsl.lslcodesandbox.model;
+
+/**
+ * 输出比对方式
+ */
+public enum CompareModeEnum {
+
+    /**
+     * 逐字节一致（忽略首尾空白，与输出列表的 trim 一致）
+     */
+    EXACT,
+
+    /**
+     * 按空白切分后逐词一致，空格、换行的数量和种类不影响结果
+     */
+    IGNORE_WHITESPACE,
+
+    /**
+     * 逐词比对，两边都是数字时允许误差在 floatTolerance 以内（绝对误差或相对误差满足其一即可）
+     */
+    FLOAT
+}
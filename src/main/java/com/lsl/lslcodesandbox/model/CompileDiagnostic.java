@@ -0,0 +1,34 @@
+package com.lsl.lslcodesandbox.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 编译诊断信息（对应 javac 的一条 error / warning）
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CompileDiagnostic {
+
+    /**
+     * 级别：ERROR、WARNING 等
+     */
+    private String kind;
+
+    /**
+     * 行号，从 1 开始，未知时为 -1
+     */
+    private Long line;
+
+    /**
+     * 列号，从 1 开始，未知时为 -1
+     */
+    private Long column;
+
+    /**
+     * 诊断内容
+     */
+    private String message;
+}
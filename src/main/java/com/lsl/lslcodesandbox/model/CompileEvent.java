@@ -0,0 +1,23 @@
+package com.lsl.lslcodesandbox.model;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 流式推送的编译结果事件（不含字节码）
+ */
+@Data
+public class CompileEvent {
+
+    private boolean success;
+
+    private String message;
+
+    /**
+     * 编译耗时（毫秒），命中编译缓存时为原编译耗时
+     */
+    private Long compileTime;
+
+    private List<CompileDiagnostic> diagnostics;
+}
@@ -0,0 +1,85 @@
+package com.lsl.lslcodesandbox.model;
+
+import lombok.Data;
+
+/**
+ * 一种语言的容器池运行状态
+ */
+@Data
+public class ContainerPoolStats {
+
+    /**
+     * 语言（每种语言一组容器）
+     */
+    private String language;
+
+    /**
+     * 镜像
+     */
+    private String image;
+
+    /**
+     * 当前容器数（含正在创建的）
+     */
+    private int size;
+
+    /**
+     * 正在使用的容器数
+     */
+    private int inUse;
+
+    /**
+     * 空闲待命的容器数
+     */
+    private int idle;
+
+    /**
+     * 正在排队等待容器的请求数
+     */
+    private int waiting;
+
+    /**
+     * 反馈控制器给出的期望容器数
+     */
+    private int desiredSize;
+
+    /**
+     * 累计创建的容器数
+     */
+    private long creations;
+
+    /**
+     * 累计回收的容器数
+     */
+    private long evictions;
+
+    /**
+     * 累计因不健康或达到使用次数上限而替换的容器数
+     */
+    private long recycles;
+
+    /**
+     * 累计因执行超时而强制回收的次数
+     */
+    private long reclaims;
+
+    /**
+     * 超时后容器重新可用的平均耗时（毫秒）
+     */
+    private double avgReclaimTime;
+
+    /**
+     * 超时后容器重新可用的最长耗时（毫秒）
+     */
+    private double maxReclaimTime;
+
+    /**
+     * 上一个统计周期内的平均排队时间（毫秒）
+     */
+    private double avgWait;
+
+    /**
+     * 宿主机 CPU 使用率（0~1，未知时为 -1）
+     */
+    private double cpuLoad;
+}
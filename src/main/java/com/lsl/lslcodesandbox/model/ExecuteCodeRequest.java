@@ -15,7 +15,47 @@ public class ExecuteCodeRequest {
 
     private List<String> inputList;
 
+    /**
+     * 测试数据仓库中输入数据的 id（先经 /testdata 上传），给出时代替 inputList，数据原样作为标准输入
+     */
+    private List<String> inputIdList;
+
     private String code;
 
     private String language;
+
+    /**
+     * 单个用例的 CPU 时间限制（毫秒），为空时取配置的默认值
+     */
+    private Long timeLimit;
+
+    /**
+     * 单个用例的墙钟时间限制（毫秒），为空时按 CPU 时间限制的倍数计算
+     */
+    private Long wallTimeLimit;
+
+    /**
+     * 每个用例的期望输出，给出后在沙箱内比对，响应只返回判定和第一处不同
+     */
+    private List<String> expectedOutputList;
+
+    /**
+     * 每个用例规范化后期望输出的 SHA-256，与 expectedOutputList 二选一（不支持 FLOAT）
+     */
+    private List<String> expectedOutputHashList;
+
+    /**
+     * 比对方式，默认 EXACT
+     */
+    private CompareModeEnum compareMode;
+
+    /**
+     * FLOAT 比对允许的误差，默认 1e-6
+     */
+    private Double floatTolerance;
+
+    /**
+     * 遇到第一个答案错误即停止后续用例
+     */
+    private Boolean failFast;
 }
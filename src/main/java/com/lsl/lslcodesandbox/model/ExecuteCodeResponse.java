@@ -29,4 +29,14 @@ public class ExecuteCodeResponse {
      * 接口信息
      */
     private String message;
+
+    /**
+     * 编译诊断信息（编译失败时返回）
+     */
+    private List<CompileDiagnostic> compileDiagnostics;
+
+    /**
+     * 请求带了期望输出时每个已执行用例的判定，此时不再返回 outputList
+     */
+    private List<CaseVerdict> caseVerdicts;
 }
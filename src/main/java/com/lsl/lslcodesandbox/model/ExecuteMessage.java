@@ -7,4 +7,34 @@ public class ExecuteMessage {
     private Integer exitValue;
     private String message;
     private String errorMessage;
+
+    /**
+     * 执行耗时（毫秒）
+     */
+    private Long time;
+
+    /**
+     * CPU 时间（毫秒），取不到时为 null
+     */
+    private Long cpuTime;
+
+    /**
+     * 峰值内存（字节），取不到时为 null
+     */
+    private Long memory;
+
+    /**
+     * 缺页次数，取不到时为 null
+     */
+    private Long pageFaults;
+
+    /**
+     * 异常结束的原因（如超时），正常跑完为 null
+     */
+    private JudgeInfoMessageEnum verdict;
+
+    /**
+     * 沙箱内比对输出时，答案错误的第一处不同
+     */
+    private String diff;
 }
@@ -0,0 +1,46 @@
+package com.lsl.lslcodesandbox.model;
+
+import com.lsl.lslcodesandbox.job.JobStatusEnum;
+import lombok.Data;
+
+import java.util.Map;
+
+/**
+ * 异步判题任务的状态
+ */
+@Data
+public class JobStatusResponse {
+
+    private String jobId;
+
+    private JobStatusEnum status;
+
+    /**
+     * 用例总数
+     */
+    private Integer totalCases;
+
+    /**
+     * 已执行完的用例数
+     */
+    private Integer finishedCases;
+
+    /**
+     * 已完成用例的结果，key 为用例下标
+     */
+    private Map<Integer, ExecuteMessage> caseResults;
+
+    /**
+     * 最终结果，任务完成后才有
+     */
+    private ExecuteCodeResponse result;
+
+    /**
+     * 失败或取消的原因
+     */
+    private String message;
+
+    private Long createTime;
+
+    private Long finishTime;
+}
@@ -14,12 +14,27 @@ public class JudgeInfo {
     private String message;
 
     /**
-     * 消耗内存
+     * 消耗内存（字节），各用例峰值常驻内存的最大值
      */
     private Long memory;
 
     /**
-     * 消耗时间（KB）
+     * 消耗时间（毫秒）
      */
     private Long time;
+
+    /**
+     * 单个用例的最大 CPU 时间（毫秒）
+     */
+    private Long cpuTime;
+
+    /**
+     * 单个用例的最大墙钟时间（毫秒）
+     */
+    private Long wallTime;
+
+    /**
+     * 单个用例的最大缺页次数
+     */
+    private Long pageFaults;
 }
@@ -0,0 +1,36 @@
+package com.lsl.lslcodesandbox.model;
+
+/**
+ * 判题信息消息枚举
+ */
+public enum JudgeInfoMessageEnum {
+
+    ACCEPTED("成功", "Accepted"),
+    WRONG_ANSWER("答案错误", "Wrong Answer"),
+    COMPILE_ERROR("编译错误", "Compile Error"),
+    MEMORY_LIMIT_EXCEEDED("内存溢出", "Memory Limit Exceeded"),
+    TIME_LIMIT_EXCEEDED("超时", "Time Limit Exceeded"),
+    CPU_TIME_LIMIT_EXCEEDED("CPU 时间超限", "CPU Time Limit Exceeded"),
+    PRESENTATION_ERROR("展示错误", "Presentation Error"),
+    OUTPUT_LIMIT_EXCEEDED("输出溢出", "Output Limit Exceeded"),
+    DANGEROUS_OPERATION("危险操作", "Dangerous Operation"),
+    RUNTIME_ERROR("运行错误", "Runtime Error"),
+    SYSTEM_ERROR("系统错误", "System Error");
+
+    private final String text;
+
+    private final String value;
+
+    JudgeInfoMessageEnum(String text, String value) {
+        this.text = text;
+        this.value = value;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public String getValue() {
+        return value;
+    }
+}
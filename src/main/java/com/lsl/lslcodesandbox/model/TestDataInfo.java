@@ -0,0 +1,24 @@
+package com.lsl.lslcodesandbox.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 测试数据仓库中的一份数据
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TestDataInfo {
+
+    /**
+     * 数据内容的 SHA-256，即引用它用的 id
+     */
+    private String id;
+
+    /**
+     * 字节数
+     */
+    private Long size;
+}
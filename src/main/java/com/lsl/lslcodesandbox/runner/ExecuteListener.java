@@ -0,0 +1,31 @@
+package com.lsl.lslcodesandbox.runner;
+
+import com.lsl.lslcodesandbox.compiler.CompileResult;
+import com.lsl.lslcodesandbox.model.ExecuteMessage;
+
+/**
+ * 执行过程监听器，用于异步任务汇报进度、流式推送结果
+ * 回调可能来自并行执行用例的多个线程，实现需保证线程安全
+ */
+public interface ExecuteListener {
+
+    /**
+     * 不关心过程的调用方使用
+     */
+    ExecuteListener NONE = new ExecuteListener() {
+    };
+
+    /**
+     * 编译完成（包括编译失败、命中编译缓存）
+     */
+    default void onCompiled(CompileResult compileResult) {
+    }
+
+    /**
+     * 一个用例执行完成
+     *
+     * @param index 用例下标（对应 inputList）
+     */
+    default void onCaseFinished(int index, ExecuteMessage executeMessage) {
+    }
+}
@@ -0,0 +1,98 @@
+package com.lsl.lslcodesandbox.runner;
+
+import com.lsl.lslcodesandbox.config.CodeSandboxProperties;
+import com.lsl.lslcodesandbox.meter.ResourceUsage;
+import com.lsl.lslcodesandbox.model.ExecuteCodeRequest;
+import com.lsl.lslcodesandbox.model.JudgeInfoMessageEnum;
+import lombok.Data;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 一次提交的运行时间限制
+ * CPU 时间是判题的依据，由内核的 RLIMIT_CPU 兜底、计量结果精确判定，宿主机繁忙时不会误判；
+ * 墙钟时间只是防止进程长期占着名额的上限，再加上空等检测，sleep 之类的程序不会白白占满整个时限
+ */
+@Data
+public class ExecutionLimits {
+
+    /**
+     * 进程因 RLIMIT_CPU 收到 SIGXCPU 结束时的退出码（128 + 24）
+     */
+    public static final int SIGXCPU_EXIT_VALUE = 152;
+
+    /**
+     * 非 Windows 系统才能用 sh 的 ulimit 设置 RLIMIT_CPU
+     */
+    private static final boolean RLIMIT_SUPPORTED = File.separatorChar == '/';
+
+    /**
+     * CPU 时间限制（毫秒）
+     */
+    private long cpuTime;
+
+    /**
+     * 墙钟时间限制（毫秒）
+     */
+    private long wallTime;
+
+    /**
+     * 空等检测时间（毫秒），0 为不检测
+     */
+    private long idleTimeout;
+
+    /**
+     * 按请求和配置确定时间限制，请求里的值不能超过配置的上限
+     */
+    public static ExecutionLimits resolve(ExecuteCodeRequest executeCodeRequest, CodeSandboxProperties.Limit config) {
+        ExecutionLimits limits = new ExecutionLimits();
+        Long cpuTime = executeCodeRequest.getTimeLimit();
+        limits.setCpuTime(cpuTime == null || cpuTime <= 0 ? config.getCpuTime() : Math.min(cpuTime, config.getMaxCpuTime()));
+        Long wallTime = executeCodeRequest.getWallTimeLimit();
+        if (wallTime == null || wallTime <= 0) {
+            wallTime = (long) (limits.getCpuTime() * config.getWallTimeFactor());
+        }
+        limits.setWallTime(Math.min(Math.max(wallTime, limits.getCpuTime()), config.getMaxWallTime()));
+        limits.setIdleTimeout(config.getIdleTimeout());
+        return limits;
+    }
+
+    /**
+     * 用 ulimit -t 给命令加上 RLIMIT_CPU：到软限制时内核发 SIGXCPU 结束进程，硬限制再多一秒兜底 SIGKILL
+     * （软硬限制相同时内核直接发 SIGKILL，分不出是 CPU 超时还是被杀）
+     * RLIMIT_CPU 以秒为单位，且统计 JVM 所有线程（含 JIT、GC），只作兜底，多留一秒；精确判定看计量结果
+     */
+    public List<String> wrapWithRlimit(List<String> command) {
+        if (!RLIMIT_SUPPORTED) {
+            return command;
+        }
+        long seconds = (cpuTime + 999) / 1000 + 1;
+        List<String> wrapped = new ArrayList<>();
+        wrapped.add("sh");
+        wrapped.add("-c");
+        wrapped.add("ulimit -S -t " + seconds + " && ulimit -H -t " + (seconds + 1) + " && exec \"$@\"");
+        wrapped.add("sh");
+        wrapped.addAll(command);
+        return wrapped;
+    }
+
+    /**
+     * 根据资源用量判定是否超时，CPU 时间超限优先
+     *
+     * @param exitValue    进程退出码，被内核的 RLIMIT_CPU 结束时为 SIGXCPU_EXIT_VALUE
+     * @param wallTimedOut 是否因墙钟时间超限被结束
+     * @return 没有超时返回 null
+     */
+    public JudgeInfoMessageEnum verdict(ResourceUsage usage, Integer exitValue, boolean wallTimedOut) {
+        if ((usage.getCpuTime() != null && usage.getCpuTime() >= cpuTime)
+                || (exitValue != null && exitValue == SIGXCPU_EXIT_VALUE)) {
+            return JudgeInfoMessageEnum.CPU_TIME_LIMIT_EXCEEDED;
+        }
+        if (wallTimedOut || usage.isIdleTimedOut()) {
+            return JudgeInfoMessageEnum.TIME_LIMIT_EXCEEDED;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,509 @@
+package com.lsl.lslcodesandbox.runner;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TimeZone;
+
+/**
+ * 单 JVM 多用例运行器
+ * 一次提交只启动一个 JVM：每个用例用全新的类加载器加载用户类（静态变量互不影响），
+ * 重定向 System.in / System.out / System.err 后调用 main，省掉每个用例一次 JVM 启动
+ *
+ * 注意：这个类会被复制到用户代码目录（甚至容器里）单独运行，只能依赖 JDK，
+ * 不要引用项目里的其他类，也不要写匿名内部类（会多出 class 文件）
+ *
+ * 单次模式启动参数：用户类目录 主类名 单用例超时(毫秒) 单用例标准输出上限(字节) 单用例标准错误上限(字节)
+ * 标准输入：int 用例数，随后每个用例为 int 长度 + 字节
+ * 标准输出：每个用例一帧，格式见 writeResult
+ *
+ * 常驻模式启动参数：--worker
+ * 进程常驻，循环从标准输入读取任务：JOB_MAGIC、主类名、单用例超时、标准输出上限、标准错误上限（均为 long）、
+ * int 类数量 + (类名, int 长度 + 字节码)、用例（同单次模式），每个用例写回一帧，任务结束写回 JOB_END_MAGIC + int 是否需要回收
+ *
+ * 多个用例（常驻模式下还有多次提交）共用一个 JVM：每个用例开始前把默认 Locale、时区、系统属性、
+ * 默认的未捕获异常处理器恢复成启动时的样子，标准输入输出每个用例重新设置，上一个用例改掉的不会带给下一个
+ */
+public class MultiCaseRunner {
+
+    /**
+     * 每帧开头的魔数，用于发现用户代码直接写 FileDescriptor.out 导致的协议错乱
+     */
+    public static final int FRAME_MAGIC = 0x4D435221;
+
+    /**
+     * 用例超时
+     */
+    public static final int FLAG_TIMEOUT = 1;
+
+    /**
+     * 用户代码调用了 System.exit，JVM 正在退出，真实退出码以进程退出码为准
+     */
+    public static final int FLAG_EXIT = 2;
+
+    /**
+     * 用例的标准输出超过上限，超出部分已丢弃
+     */
+    public static final int FLAG_OUTPUT_LIMIT = 4;
+
+    /**
+     * 常驻模式下任务的魔数
+     */
+    public static final int JOB_MAGIC = 0x4D434A42;
+
+    /**
+     * 常驻模式下任务结束帧的魔数
+     */
+    public static final int JOB_END_MAGIC = 0x4D434A45;
+
+    public static final String WORKER_ARG = "--worker";
+
+    private static DataOutputStream protocolOut;
+
+    /**
+     * 正在执行的用例，供 System.exit 触发的关闭钩子回写结果
+     */
+    private static volatile CaseContext current;
+
+    /**
+     * 启动时（运行任何用户代码之前）的 JDK 全局状态
+     */
+    private static GlobalState initialState;
+
+    /**
+     * 启动时（运行任何用户代码之前）已经存在的线程，之后多出来的活线程都是用户代码留下的
+     */
+    private static Set<Thread> initialThreads;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && WORKER_ARG.equals(args[0])) {
+            runWorker();
+            return;
+        }
+        initialState = GlobalState.capture();
+        initialThreads = new HashSet<>(Thread.getAllStackTraces().keySet());
+        File classDir = new File(args[0]);
+        String className = args[1];
+        long timeLimit = Long.parseLong(args[2]);
+        long outputLimit = Long.parseLong(args[3]);
+        long errorLimit = Long.parseLong(args[4]);
+
+        // 保留真正的标准输出用于回传结果，用户的输出全部被重定向到内存
+        protocolOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out)));
+        byte[][] inputs = readInputs(new DataInputStream(new BufferedInputStream(new FileInputStream(FileDescriptor.in))));
+        Runtime.getRuntime().addShutdownHook(new Thread(MultiCaseRunner::onExit, "runner-exit"));
+
+        URL[] classPath = {classDir.toURI().toURL()};
+        for (int i = 0; i < inputs.length; i++) {
+            // 父加载器用平台类加载器，用户代码看不到运行器本身
+            URLClassLoader loader = new URLClassLoader(classPath, ClassLoader.getPlatformClassLoader());
+            CaseContext context = runCase(i, loader, className, inputs[i], timeLimit, outputLimit, errorLimit);
+            writeResult(protocolOut, context);
+            // 超时的线程无法安全停止，失败后也无需再跑后续用例，直接结束
+            if ((context.flags & (FLAG_TIMEOUT | FLAG_OUTPUT_LIMIT)) != 0 || context.exitValue != 0) {
+                break;
+            }
+            loader.close();
+        }
+        protocolOut.flush();
+        // halt 不会等待用户遗留的线程，也不会触发关闭钩子
+        Runtime.getRuntime().halt(0);
+    }
+
+    /**
+     * 常驻模式：JVM 启动、JDK 类加载都在空闲时完成，任务到来时只需定义用户类并执行
+     * 出现超时、用户代码调用 System.exit 或遗留线程时进程退出，由宿主机的 worker 池补充新进程
+     */
+    private static void runWorker() throws Exception {
+        protocolOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out)));
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(FileDescriptor.in)));
+        Runtime.getRuntime().addShutdownHook(new Thread(MultiCaseRunner::onExit, "runner-exit"));
+        initialState = GlobalState.capture();
+        warmUp();
+        initialThreads = new HashSet<>(Thread.getAllStackTraces().keySet());
+        while (true) {
+            int magic;
+            try {
+                magic = in.readInt();
+            } catch (EOFException e) {
+                // 宿主机关闭了管道
+                break;
+            }
+            if (magic != JOB_MAGIC) {
+                break;
+            }
+            String className = in.readUTF();
+            long timeLimit = in.readLong();
+            long outputLimit = in.readLong();
+            long errorLimit = in.readLong();
+            int classCount = in.readInt();
+            Map<String, byte[]> classBytes = new HashMap<>();
+            for (int i = 0; i < classCount; i++) {
+                String name = in.readUTF();
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                classBytes.put(name, bytes);
+            }
+            byte[][] inputs = readInputs(in);
+
+            boolean dirty = false;
+            for (int i = 0; i < inputs.length && !dirty; i++) {
+                CaseContext context = runCase(i, new BytesClassLoader(classBytes), className, inputs[i], timeLimit,
+                        outputLimit, errorLimit);
+                writeResult(protocolOut, context);
+                // 超时的线程一定还在跑，和遗留的守护线程一样，会污染后续任务
+                dirty = context.leftThreads;
+                if ((context.flags & FLAG_OUTPUT_LIMIT) != 0 || context.exitValue != 0) {
+                    break;
+                }
+            }
+            current = null;
+            protocolOut.writeInt(JOB_END_MAGIC);
+            protocolOut.writeInt(dirty ? 1 : 0);
+            protocolOut.flush();
+            if (dirty) {
+                // 有停不掉的用户线程，这个进程不能再接任务了
+                break;
+            }
+        }
+        Runtime.getRuntime().halt(0);
+    }
+
+    /**
+     * 空闲时先把提交代码常用的 JDK 类加载、初始化好
+     */
+    private static void warmUp() {
+        java.util.Scanner scanner = new java.util.Scanner(new ByteArrayInputStream("1 2\nabc\n".getBytes(StandardCharsets.UTF_8)));
+        int sum = scanner.nextInt() + scanner.nextInt();
+        scanner.nextLine();
+        String line = scanner.nextLine();
+        java.util.List<Integer> list = new java.util.ArrayList<>(java.util.Arrays.asList(3, 1, 2));
+        java.util.Collections.sort(list);
+        Map<String, Integer> map = new java.util.TreeMap<>();
+        map.put(line, sum);
+        String.format("%d %.2f %s", sum, 1.5, map);
+        new StringBuilder().append(list).append(new java.math.BigInteger("123456789").pow(3)).toString();
+        try {
+            new java.io.BufferedReader(new java.io.InputStreamReader(new ByteArrayInputStream(new byte[0]))).readLine();
+        } catch (IOException ignored) {
+            // 内存流不会抛异常
+        }
+    }
+
+    static byte[][] readInputs(DataInputStream in) throws IOException {
+        byte[][] inputs = new byte[in.readInt()][];
+        for (int i = 0; i < inputs.length; i++) {
+            inputs[i] = new byte[in.readInt()];
+            in.readFully(inputs[i]);
+        }
+        return inputs;
+    }
+
+    /**
+     * 执行一个用例
+     * CPU 时间取整个进程在用例前后的差值，用户代码自己开的线程也算在内（用例是一个接一个跑的）
+     */
+    static CaseContext runCase(int index, ClassLoader loader, String className, byte[] input, long timeLimit,
+                               long outputLimit, long errorLimit) throws InterruptedException {
+        CaseContext context = new CaseContext(index, outputLimit, errorLimit);
+        if (initialState != null) {
+            initialState.restore();
+        }
+        System.setIn(new ByteArrayInputStream(input));
+        System.setOut(new PrintStream(context.out, false, StandardCharsets.UTF_8));
+        System.setErr(new PrintStream(context.err, false, StandardCharsets.UTF_8));
+        current = context;
+
+        // 用户代码跑在独立的线程组里，便于找出它启动的线程
+        ThreadGroup group = new ThreadGroup("case-" + index);
+        Thread mainThread = new Thread(group, () -> invokeMain(context, loader, className), "main");
+        context.startNanos = System.nanoTime();
+        long cpuStart = processCpuNanos();
+        long deadline = context.startNanos + timeLimit * 1000_000L;
+        mainThread.start();
+        boolean finished = joinUntil(mainThread, deadline);
+        // 与独立 JVM 一致：main 返回后还要等用户创建的非守护线程结束
+        while (finished) {
+            Thread alive = findNonDaemonThread(group);
+            if (alive == null) {
+                break;
+            }
+            finished = joinUntil(alive, deadline);
+        }
+        context.wallNanos = System.nanoTime() - context.startNanos;
+        long cpuEnd = processCpuNanos();
+        context.cpuNanos = cpuStart < 0 || cpuEnd < 0 ? context.wallNanos : cpuEnd - cpuStart;
+        if (!finished) {
+            context.flags |= FLAG_TIMEOUT;
+        }
+        context.leftThreads = group.activeCount() > 0 || hasForeignThreads();
+        System.out.flush();
+        System.err.flush();
+        if (context.out.overflowed) {
+            context.flags |= FLAG_OUTPUT_LIMIT;
+        }
+        context.done = true;
+        return context;
+    }
+
+    /**
+     * 用户代码可以把线程开在用例线程组以外（如父线程组），只数用例线程组会漏掉，
+     * 所以和启动时的线程逐个比对：还活着的、启动时没有的线程都算遗留
+     */
+    private static boolean hasForeignThreads() {
+        if (initialThreads == null) {
+            return false;
+        }
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread != Thread.currentThread() && thread.isAlive() && !initialThreads.contains(thread)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void invokeMain(CaseContext context, ClassLoader loader, String className) {
+        try {
+            Class<?> mainClass = Class.forName(className, true, loader);
+            Method mainMethod = mainClass.getMethod("main", String[].class);
+            mainMethod.invoke(null, (Object) new String[0]);
+            context.exitValue = 0;
+        } catch (InvocationTargetException e) {
+            // 与 JVM 默认的未捕获异常输出保持一致
+            context.exitValue = 1;
+            System.err.print("Exception in thread \"main\" ");
+            e.getCause().printStackTrace();
+        } catch (Throwable e) {
+            context.exitValue = 1;
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 整个进程（所有线程）已用的 CPU 时间，拿不到时返回 -1
+     */
+    private static long processCpuNanos() {
+        java.lang.management.OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuTime();
+        }
+        return -1;
+    }
+
+    private static boolean joinUntil(Thread thread, long deadline) throws InterruptedException {
+        long remaining = deadline - System.nanoTime();
+        if (remaining > 0) {
+            thread.join(Math.max(1, remaining / 1000_000L));
+        }
+        return !thread.isAlive();
+    }
+
+    private static Thread findNonDaemonThread(ThreadGroup group) {
+        Thread[] threads = new Thread[group.activeCount() + 8];
+        int count = group.enumerate(threads, true);
+        for (int i = 0; i < count; i++) {
+            if (threads[i].isAlive() && !threads[i].isDaemon()) {
+                return threads[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 用户代码调用 System.exit 时，把正在执行的用例结果写回去
+     */
+    private static void onExit() {
+        CaseContext context = current;
+        if (context == null || context.done) {
+            return;
+        }
+        context.wallNanos = System.nanoTime() - context.startNanos;
+        context.cpuNanos = context.wallNanos;
+        context.flags |= FLAG_EXIT;
+        if (context.out.overflowed) {
+            context.flags |= FLAG_OUTPUT_LIMIT;
+        }
+        System.out.flush();
+        System.err.flush();
+        try {
+            writeResult(protocolOut, context);
+            protocolOut.flush();
+        } catch (IOException ignored) {
+            // 宿主机读不到这一帧时会按进程异常退出处理
+        }
+    }
+
+    /**
+     * 帧格式：magic, index, exitValue, flags, wallNanos, cpuNanos, stdout, stderr（字节数组为 int 长度 + 内容）
+     */
+    static void writeResult(DataOutputStream out, CaseContext context) throws IOException {
+        synchronized (out) {
+            out.writeInt(FRAME_MAGIC);
+            out.writeInt(context.index);
+            out.writeInt(context.exitValue);
+            out.writeInt(context.flags);
+            out.writeLong(context.wallNanos);
+            out.writeLong(context.cpuNanos);
+            writeBytes(out, context.out.toByteArray());
+            writeBytes(out, context.err.toByteArray());
+        }
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * 有上限的输出缓冲，超过上限的部分直接丢弃并标记溢出，用户代码狂写输出也不会撑爆运行器的堆
+     */
+    static class BoundedOutput extends ByteArrayOutputStream {
+
+        private final long limit;
+
+        volatile boolean overflowed;
+
+        BoundedOutput(long limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public synchronized void write(int b) {
+            if (count < limit) {
+                super.write(b);
+            } else {
+                overflowed = true;
+            }
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            int accepted = (int) Math.max(0, Math.min(len, limit - count));
+            super.write(b, off, accepted);
+            if (accepted < len) {
+                overflowed = true;
+            }
+        }
+    }
+
+    /**
+     * 用户代码可能改掉、又会影响之后的用例的 JDK 全局状态
+     */
+    static class GlobalState {
+
+        private Locale locale;
+
+        private Locale displayLocale;
+
+        private Locale formatLocale;
+
+        private TimeZone timeZone;
+
+        private Properties properties;
+
+        private Thread.UncaughtExceptionHandler uncaughtExceptionHandler;
+
+        static GlobalState capture() {
+            GlobalState state = new GlobalState();
+            state.locale = Locale.getDefault();
+            state.displayLocale = Locale.getDefault(Locale.Category.DISPLAY);
+            state.formatLocale = Locale.getDefault(Locale.Category.FORMAT);
+            state.timeZone = TimeZone.getDefault();
+            state.properties = new Properties();
+            state.properties.putAll(System.getProperties());
+            state.uncaughtExceptionHandler = Thread.getDefaultUncaughtExceptionHandler();
+            return state;
+        }
+
+        void restore() {
+            // 先设总的默认值（会同时改掉各分类），再单独恢复分类
+            Locale.setDefault(locale);
+            Locale.setDefault(Locale.Category.DISPLAY, displayLocale);
+            Locale.setDefault(Locale.Category.FORMAT, formatLocale);
+            TimeZone.setDefault((TimeZone) timeZone.clone());
+            Properties copy = new Properties();
+            copy.putAll(properties);
+            System.setProperties(copy);
+            Thread.setDefaultUncaughtExceptionHandler(uncaughtExceptionHandler);
+        }
+    }
+
+    /**
+     * 单个用例的执行上下文
+     */
+    static class CaseContext {
+
+        final int index;
+
+        final BoundedOutput out;
+
+        final BoundedOutput err;
+
+        volatile int exitValue = -1;
+
+        volatile int flags;
+
+        volatile long startNanos;
+
+        volatile long wallNanos;
+
+        volatile long cpuNanos;
+
+        volatile boolean done;
+
+        /**
+         * 用例结束后是否还有用户线程（守护线程或超时的线程）在运行
+         */
+        volatile boolean leftThreads;
+
+        CaseContext(int index, long outputLimit, long errorLimit) {
+            this.index = index;
+            this.out = new BoundedOutput(outputLimit);
+            this.err = new BoundedOutput(errorLimit);
+        }
+    }
+
+    /**
+     * 直接从内存字节码定义用户类的类加载器，常驻模式下字节码经管道送达，不落盘
+     */
+    static class BytesClassLoader extends ClassLoader {
+
+        private final Map<String, byte[]> classBytes;
+
+        BytesClassLoader(Map<String, byte[]> classBytes) {
+            super(ClassLoader.getPlatformClassLoader());
+            this.classBytes = classBytes;
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            byte[] bytes = classBytes.get(name);
+            if (bytes == null) {
+                throw new ClassNotFoundException(name);
+            }
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+}
@@ -0,0 +1,368 @@
+package com.lsl.lslcodesandbox.runner;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.io.IoUtil;
+import com.lsl.lslcodesandbox.meter.ResourceUsage;
+import com.lsl.lslcodesandbox.model.ExecuteMessage;
+import com.lsl.lslcodesandbox.model.JudgeInfoMessageEnum;
+import com.lsl.lslcodesandbox.testdata.TestInput;
+import lombok.Data;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 单 JVM 多用例运行器的宿主机侧工具：安装运行器、编码输入、解析结果
+ */
+public class MultiCaseRunnerSupport {
+
+    /**
+     * 运行器 class 文件放在用户目录下的这个子目录，与用户类分开，
+     * 用户类不在 JVM 的 classpath 上，只能由每个用例新建的类加载器加载
+     */
+    public static final String RUNNER_DIR = ".runner";
+
+    /**
+     * 运行器及其内部类的字节码，key 为相对路径
+     */
+    private static final Map<String, byte[]> RUNNER_CLASS_FILES = loadRunnerClassFiles();
+
+    private MultiCaseRunnerSupport() {
+    }
+
+    /**
+     * 从第 fromIndex 个用例开始启动一次运行器
+     */
+    public interface HarnessLauncher {
+        HarnessOutput launch(int fromIndex) throws Exception;
+    }
+
+    /**
+     * 一次运行器进程的原始输出
+     */
+    @Data
+    public static class HarnessOutput {
+
+        private byte[] stdout;
+
+        private String stderr;
+
+        private Integer exitValue;
+
+        /**
+         * 是否因超过总时限被强制终止
+         */
+        private boolean timedOut;
+
+        /**
+         * 是否因输出超过上限被强制终止
+         */
+        private boolean outputLimitExceeded;
+
+        /**
+         * 整个运行器进程的资源用量，没有计量时为空
+         */
+        private ResourceUsage usage;
+
+        /**
+         * 已解析好的结果（常驻 worker 边读边解析），为空时从 stdout 解析
+         */
+        private List<ExecuteMessage> results;
+    }
+
+    /**
+     * 把运行器复制到用户代码目录下
+     */
+    public static void installRunner(String userClassDir) {
+        RUNNER_CLASS_FILES.forEach((path, bytes) ->
+                FileUtil.writeBytes(bytes, userClassDir + File.separator + RUNNER_DIR + File.separator + path));
+    }
+
+    /**
+     * 运行器的 java 参数（不含 java 命令本身及 JVM 参数）
+     *
+     * @param userClassDir 用户类目录（容器内运行时传容器内路径）
+     * @param separator    路径分隔符（容器内固定为 /）
+     * @param outputLimit  单个用例的标准输出上限，超出部分在运行器里就丢弃
+     * @param errorLimit   单个用例的标准错误上限
+     */
+    public static List<String> runnerArgs(String userClassDir, String separator, String className, long timeLimit,
+                                          long outputLimit, long errorLimit) {
+        return Arrays.asList("-cp", userClassDir + separator + RUNNER_DIR, MultiCaseRunner.class.getName(),
+                userClassDir, className, String.valueOf(timeLimit), String.valueOf(outputLimit), String.valueOf(errorLimit));
+    }
+
+    /**
+     * 编码用例输入，每个输入末尾补一个换行，与逐个进程运行时的写法一致
+     */
+    public static byte[] encodeInputs(List<String> inputList) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(buffer)) {
+            out.writeInt(inputList.size());
+            for (String input : inputList) {
+                byte[] bytes = (input + "\n").getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return buffer.toByteArray();
+    }
+
+    /**
+     * 按 encodeInputs 的格式边读边拼出用例输入，数据文件用到时才打开，不整份读进内存
+     */
+    public static InputStream openInputs(List<TestInput> inputs) {
+        Iterator<TestInput> iterator = inputs.iterator();
+        Enumeration<InputStream> parts = new Enumeration<InputStream>() {
+
+            private boolean header = true;
+
+            private TestInput current;
+
+            @Override
+            public boolean hasMoreElements() {
+                return header || current != null || iterator.hasNext();
+            }
+
+            @Override
+            public InputStream nextElement() {
+                if (header) {
+                    header = false;
+                    return new ByteArrayInputStream(intBytes(inputs.size()));
+                }
+                if (current != null) {
+                    TestInput input = current;
+                    current = null;
+                    try {
+                        return input.openStream();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+                current = iterator.next();
+                if (current.length() > Integer.MAX_VALUE) {
+                    throw new IllegalArgumentException("单个用例输入不能超过 2GB");
+                }
+                return new ByteArrayInputStream(intBytes((int) current.length()));
+            }
+        };
+        return new SequenceInputStream(parts);
+    }
+
+    private static byte[] intBytes(int value) {
+        return new byte[] {(byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value};
+    }
+
+    /**
+     * 运行所有用例
+     * 用户代码调用 System.exit 会让运行器 JVM 退出，此时从下一个用例开始重新拉起一个运行器
+     */
+    public static List<ExecuteMessage> runAll(int caseCount, HarnessLauncher launcher) throws Exception {
+        List<ExecuteMessage> results = new ArrayList<>();
+        while (results.size() < caseCount) {
+            HarnessOutput output = launcher.launch(results.size());
+            List<ExecuteMessage> batch = output.getResults() != null ? output.getResults() : decodeResults(output);
+            if (output.getUsage() != null && output.getUsage().getPeakMemory() != null) {
+                // 用例共用一个 JVM，拿不到单个用例的内存，记为整个运行器的峰值
+                batch.forEach(executeMessage -> executeMessage.setMemory(output.getUsage().getPeakMemory()));
+            }
+            if (output.isTimedOut() && !endsWithVerdict(batch)) {
+                // 运行器没来得及报告就被整体杀掉了（如用户线程卡死 JVM 退不出），把下一个用例记为超时
+                results.addAll(batch);
+                results.add(timeoutMessage());
+                break;
+            }
+            if (output.isOutputLimitExceeded()) {
+                // 输出超限被杀掉，正在写的那一帧不完整，把下一个用例记为输出超限
+                results.addAll(batch);
+                results.add(outputLimitMessage());
+                break;
+            }
+            if (batch.isEmpty()) {
+                // 一个用例都没回来：运行器自己没起来（如找不到主类、JVM 参数错误）
+                ExecuteMessage executeMessage = new ExecuteMessage();
+                executeMessage.setExitValue(output.getExitValue() == null ? -1 : output.getExitValue());
+                executeMessage.setMessage("");
+                executeMessage.setErrorMessage(output.getStderr());
+                executeMessage.setTime(0L);
+                results.add(executeMessage);
+                break;
+            }
+            results.addAll(batch);
+            ExecuteMessage last = batch.get(batch.size() - 1);
+            if (last.getVerdict() != null || last.getExitValue() != 0) {
+                break;
+            }
+        }
+        return results;
+    }
+
+    private static boolean endsWithVerdict(List<ExecuteMessage> batch) {
+        return !batch.isEmpty() && batch.get(batch.size() - 1).getVerdict() != null;
+    }
+
+    /**
+     * 超时用例的结果
+     */
+    public static ExecuteMessage timeoutMessage() {
+        ExecuteMessage executeMessage = new ExecuteMessage();
+        executeMessage.setExitValue(-1);
+        executeMessage.setMessage("");
+        executeMessage.setErrorMessage("");
+        executeMessage.setVerdict(JudgeInfoMessageEnum.TIME_LIMIT_EXCEEDED);
+        executeMessage.setTime(0L);
+        return executeMessage;
+    }
+
+    /**
+     * 输出超限用例的结果
+     */
+    public static ExecuteMessage outputLimitMessage() {
+        ExecuteMessage executeMessage = timeoutMessage();
+        executeMessage.setVerdict(JudgeInfoMessageEnum.OUTPUT_LIMIT_EXCEEDED);
+        return executeMessage;
+    }
+
+    /**
+     * CPU 时间超限用例的结果
+     */
+    public static ExecuteMessage cpuTimeoutMessage() {
+        ExecuteMessage executeMessage = timeoutMessage();
+        executeMessage.setVerdict(JudgeInfoMessageEnum.CPU_TIME_LIMIT_EXCEEDED);
+        return executeMessage;
+    }
+
+    /**
+     * 按单个用例的输出上限和 CPU 时间限制检查一批结果，第一个超限的用例改判，之后的丢弃
+     * 单 JVM、常驻 worker 模式下多个用例共用一个进程，只能在拿到结果后逐个检查；
+     * 运行器按墙钟时限结束的用例，如果 CPU 时间也已经用满，改判为 CPU 时间超限
+     */
+    public static List<ExecuteMessage> checkLimits(List<ExecuteMessage> results, long outputLimit, long cpuTimeLimit) {
+        for (int i = 0; i < results.size(); i++) {
+            ExecuteMessage executeMessage = results.get(i);
+            ExecuteMessage verdictMessage = null;
+            if (exceeds(executeMessage.getMessage(), outputLimit)) {
+                verdictMessage = outputLimitMessage();
+            } else if (executeMessage.getCpuTime() != null && executeMessage.getCpuTime() >= cpuTimeLimit) {
+                verdictMessage = cpuTimeoutMessage();
+                verdictMessage.setCpuTime(executeMessage.getCpuTime());
+            }
+            if (verdictMessage != null) {
+                verdictMessage.setTime(executeMessage.getTime());
+                verdictMessage.setMemory(executeMessage.getMemory());
+                List<ExecuteMessage> checked = new ArrayList<>(results.subList(0, i));
+                checked.add(verdictMessage);
+                return checked;
+            }
+        }
+        return results;
+    }
+
+    /**
+     * 按 UTF-8 字节数判断是否超过上限；一个 char 编码后至多 3 字节，明显不超限时不必编码
+     */
+    private static boolean exceeds(String text, long limit) {
+        if (text == null || text.length() * 3L <= limit) {
+            return false;
+        }
+        return text.getBytes(StandardCharsets.UTF_8).length > limit;
+    }
+
+    /**
+     * 解析运行器输出的结果帧
+     */
+    public static List<ExecuteMessage> decodeResults(HarnessOutput output) throws IOException {
+        List<ExecuteMessage> results = new ArrayList<>();
+        byte[] stdout = output.getStdout() == null ? new byte[0] : output.getStdout();
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(stdout));
+        while (in.available() > 0) {
+            try {
+                if (in.readInt() != MultiCaseRunner.FRAME_MAGIC) {
+                    throw new IOException("运行器输出格式错误");
+                }
+                results.add(readFrame(in, output.getExitValue()));
+            } catch (EOFException e) {
+                // 被强制终止时最后一帧可能只写了一半，丢掉即可
+                if (output.isTimedOut() || output.isOutputLimitExceeded()) {
+                    break;
+                }
+                throw e;
+            }
+        }
+        return results;
+    }
+
+    /**
+     * 读取一帧用例结果（魔数已被调用方读走）
+     *
+     * @param processExitValue 运行器进程的退出码，用户调用 System.exit 时即为用例的退出码
+     */
+    public static ExecuteMessage readFrame(DataInputStream in, Integer processExitValue) throws IOException {
+        in.readInt(); // index
+        int exitValue = in.readInt();
+        int flags = in.readInt();
+        long wallNanos = in.readLong();
+        long cpuNanos = in.readLong();
+        String message = new String(readBytes(in), StandardCharsets.UTF_8);
+        String errorMessage = new String(readBytes(in), StandardCharsets.UTF_8);
+
+        ExecuteMessage executeMessage = new ExecuteMessage();
+        if ((flags & MultiCaseRunner.FLAG_EXIT) != 0) {
+            exitValue = processExitValue == null ? -1 : processExitValue;
+        }
+        executeMessage.setExitValue(exitValue);
+        executeMessage.setMessage(message.trim());
+        executeMessage.setErrorMessage(errorMessage.trim());
+        executeMessage.setTime(wallNanos / 1000_000L);
+        executeMessage.setCpuTime(cpuNanos / 1000_000L);
+        if ((flags & MultiCaseRunner.FLAG_TIMEOUT) != 0) {
+            executeMessage.setVerdict(JudgeInfoMessageEnum.TIME_LIMIT_EXCEEDED);
+        } else if ((flags & MultiCaseRunner.FLAG_OUTPUT_LIMIT) != 0) {
+            executeMessage.setVerdict(JudgeInfoMessageEnum.OUTPUT_LIMIT_EXCEEDED);
+        }
+        return executeMessage;
+    }
+
+    static byte[] readBytes(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private static Map<String, byte[]> loadRunnerClassFiles() {
+        Map<String, byte[]> classFiles = new LinkedHashMap<>();
+        List<Class<?>> classes = new ArrayList<>();
+        classes.add(MultiCaseRunner.class);
+        classes.addAll(Arrays.asList(MultiCaseRunner.class.getDeclaredClasses()));
+        for (Class<?> clazz : classes) {
+            String path = clazz.getName().replace('.', '/') + ".class";
+            try (InputStream in = MultiCaseRunner.class.getClassLoader().getResourceAsStream(path)) {
+                if (in == null) {
+                    throw new IllegalStateException("找不到运行器字节码: " + path);
+                }
+                classFiles.put(path.replace('/', File.separatorChar), IoUtil.readBytes(in));
+            } catch (IOException e) {
+                throw new IllegalStateException("读取运行器字节码失败: " + path, e);
+            }
+        }
+        return classFiles;
+    }
+}
@@ -0,0 +1,200 @@
+package com.lsl.lslcodesandbox.runner;
+
+import com.lsl.lslcodesandbox.config.CodeSandboxProperties;
+import com.lsl.lslcodesandbox.model.ExecuteMessage;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * 用例并行执行
+ * 把一次提交的用例切成连续的若干段，交给多个 worker / 容器同时跑，结果按用例顺序拼回
+ * 单次提交的并行度受 run.parallelism 限制，所有提交共用一个有界线程池，大提交不会把别人饿死
+ */
+@Component
+public class ParallelCaseRunner {
+
+    @Resource
+    private CodeSandboxProperties codeSandboxProperties;
+
+    private ExecutorService shardExecutor;
+
+    /**
+     * 执行 [fromIndex, toIndex) 这一段用例，遇到失败可以提前返回；
+     * 逐个用例执行的段在每个用例开始前查看 stopSignal，已经没有必要执行的就提前返回
+     */
+    public interface ShardRunner {
+        List<ExecuteMessage> run(int fromIndex, int toIndex, StopSignal stopSignal) throws Exception;
+    }
+
+    /**
+     * 同一次提交的各段共享的停止信号
+     */
+    public interface StopSignal {
+
+        /**
+         * 第 caseIndex 个用例是否不用再执行：前面已经有用例失败，或者整个提交已经结束
+         */
+        boolean isStopped(int caseIndex);
+    }
+
+    /**
+     * 串行执行时用的信号，从不停止（段自己遇到失败就返回）
+     */
+    public static final StopSignal NEVER = caseIndex -> false;
+
+    @PostConstruct
+    public void init() {
+        int maxShards = Math.max(1, codeSandboxProperties.getRun().getMaxConcurrentShards());
+        AtomicInteger threadIndex = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(maxShards, maxShards, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, "case-shard-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        shardExecutor = executor;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        shardExecutor.shutdownNow();
+    }
+
+    /**
+     * 执行全部用例
+     * 结果与串行执行一致：按用例顺序排列，截止到第一个失败的用例
+     */
+    public List<ExecuteMessage> run(int caseCount, ShardRunner shardRunner) throws Exception {
+        return run(caseCount, shardRunner, ParallelCaseRunner::isFailed);
+    }
+
+    /**
+     * 执行全部用例，结果截止到第一个满足 stopAfter 的用例（如开启 failFast 时的答案错误）
+     * 返回（或抛出异常）之前等所有已经开始的段都结束：调用方随后就会归还工作区，
+     * 不能让还在跑的段读写一个已经交给别的提交的工作区
+     */
+    public List<ExecuteMessage> run(int caseCount, ShardRunner shardRunner, Predicate<ExecuteMessage> stopAfter) throws Exception {
+        int parallelism = Math.min(caseCount, Math.max(1, codeSandboxProperties.getRun().getParallelism()));
+        if (parallelism <= 1) {
+            return shardRunner.run(0, caseCount, NEVER);
+        }
+        List<int[]> ranges = split(caseCount, parallelism);
+        // 已知的最靠前的失败用例下标，排在它后面的用例都不用再跑；提交结束时置为 -1，全部停止
+        AtomicInteger firstFailure = new AtomicInteger(Integer.MAX_VALUE);
+        StopSignal stopSignal = caseIndex -> caseIndex > firstFailure.get();
+        // 每段要么由线程池领走执行，要么在结束时由这里领走作废，两边各自计数，保证每段恰好计一次
+        List<AtomicBoolean> claimed = new ArrayList<>();
+        CountDownLatch finished = new CountDownLatch(ranges.size());
+        List<Future<List<ExecuteMessage>>> futures = new ArrayList<>();
+        for (int[] range : ranges) {
+            AtomicBoolean shardClaimed = new AtomicBoolean();
+            claimed.add(shardClaimed);
+            futures.add(shardExecutor.submit(() -> {
+                if (!shardClaimed.compareAndSet(false, true)) {
+                    return new ArrayList<>();
+                }
+                try {
+                    if (stopSignal.isStopped(range[0])) {
+                        return new ArrayList<>();
+                    }
+                    List<ExecuteMessage> batch = shardRunner.run(range[0], range[1], stopSignal);
+                    boolean complete = batch.size() == range[1] - range[0];
+                    if (!batch.isEmpty() && (!complete || stopAfter.test(batch.get(batch.size() - 1)))) {
+                        firstFailure.accumulateAndGet(range[0] + batch.size() - 1, Math::min);
+                    }
+                    return batch;
+                } catch (Exception e) {
+                    // 这一段出错整个提交都会失败，其余的段都不用再跑
+                    firstFailure.set(-1);
+                    throw e;
+                } finally {
+                    finished.countDown();
+                }
+            }));
+        }
+        List<ExecuteMessage> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < ranges.size(); i++) {
+                List<ExecuteMessage> batch = futures.get(i).get();
+                results.addAll(batch);
+                boolean complete = batch.size() == ranges.get(i)[1] - ranges.get(i)[0];
+                if (!complete || (!batch.isEmpty() && stopAfter.test(batch.get(batch.size() - 1)))) {
+                    break;
+                }
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : e;
+        } catch (InterruptedException e) {
+            // 整个提交被取消：中断正在跑的段，由各段自己负责结束子进程、归还容器
+            futures.forEach(future -> future.cancel(true));
+            throw e;
+        } finally {
+            // 结果已经确定，剩下的用例都不用再跑：还没开始的段直接作废，已经在跑的段在下一个用例开始前返回，
+            // 正在执行的那个用例在自己的时限内结束（不中断，中断反而可能让子进程失去超时控制）
+            firstFailure.set(-1);
+            for (AtomicBoolean shardClaimed : claimed) {
+                if (shardClaimed.compareAndSet(false, true)) {
+                    finished.countDown();
+                }
+            }
+            awaitUninterruptibly(finished);
+        }
+        return results;
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 把 caseCount 个用例尽量均匀地切成 parts 段连续区间
+     */
+    static List<int[]> split(int caseCount, int parts) {
+        List<int[]> ranges = new ArrayList<>();
+        int base = caseCount / parts;
+        int extra = caseCount % parts;
+        int from = 0;
+        for (int i = 0; i < parts; i++) {
+            int to = from + base + (i < extra ? 1 : 0);
+            ranges.add(new int[] {from, to});
+            from = to;
+        }
+        return ranges;
+    }
+
+    /**
+     * 用例是否失败（有判定或退出码非 0），失败之后的用例不再执行
+     */
+    public static boolean isFailed(ExecuteMessage executeMessage) {
+        return executeMessage.getVerdict() != null
+                || (executeMessage.getExitValue() != null && executeMessage.getExitValue() != 0);
+    }
+}
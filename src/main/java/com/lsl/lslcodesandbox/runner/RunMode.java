@@ -0,0 +1,22 @@
+package com.lsl.lslcodesandbox.runner;
+
+/**
+ * 用例执行方式
+ */
+public enum RunMode {
+
+    /**
+     * 每个用例启动一个 JVM
+     */
+    PROCESS,
+
+    /**
+     * 一次提交只启动一个 JVM，由 MultiCaseRunner 依次执行所有用例
+     */
+    SINGLE_JVM,
+
+    /**
+     * 交给预启动的常驻 worker JVM 执行（仅原生沙箱），字节码经管道送达不落盘
+     */
+    WORKER_POOL
+}
@@ -0,0 +1,17 @@
+package com.lsl.lslcodesandbox.runner;
+
+/**
+ * 运行后端
+ */
+public enum SandboxBackend {
+
+    /**
+     * 本机进程，启动快、开销小，隔离只有资源限制
+     */
+    NATIVE,
+
+    /**
+     * Docker 容器，断网、只读、限资源
+     */
+    DOCKER
+}
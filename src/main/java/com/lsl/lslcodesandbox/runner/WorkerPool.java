@@ -0,0 +1,265 @@
+package com.lsl.lslcodesandbox.runner;
+
+import cn.hutool.core.io.FileUtil;
+import com.lsl.lslcodesandbox.cds.CdsArchiveManager;
+import com.lsl.lslcodesandbox.config.CodeSandboxProperties;
+import com.lsl.lslcodesandbox.model.ExecuteMessage;
+import com.lsl.lslcodesandbox.testdata.TestInput;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 预启动的常驻 JVM worker 池（原生沙箱使用）
+ * worker 空闲时已经完成 JVM 启动和 JDK 类加载，任务到来时字节码和用例经管道送达，
+ * 在独立的类加载器中执行，运行阶段不再有 JVM 启动开销
+ * worker 执行满 N 个任务、异常退出、超时或留下用户线程后会被销毁并在后台补充新的
+ */
+@Component
+public class WorkerPool {
+
+    private static final String WORKER_DIR = System.getProperty("java.io.tmpdir") + File.separator + "oj-sandbox-worker";
+
+    @Resource
+    private CodeSandboxProperties codeSandboxProperties;
+
+    @Resource
+    private CdsArchiveManager cdsArchiveManager;
+
+    private BlockingQueue<Worker> idleWorkers;
+
+    /**
+     * 补充新 worker 放到后台，不占用请求线程
+     */
+    private ExecutorService spawnExecutor;
+
+    /**
+     * 兜底的超时看门狗，防止 worker 卡死导致请求线程永远阻塞
+     */
+    private ScheduledExecutorService watchdog;
+
+    private volatile boolean running;
+
+    @PostConstruct
+    public void init() {
+        // 只有开启了 worker 池模式才预启动进程
+        if (codeSandboxProperties.getRun().getMode() != RunMode.WORKER_POOL) {
+            return;
+        }
+        CodeSandboxProperties.Worker worker = codeSandboxProperties.getWorker();
+        FileUtil.del(WORKER_DIR);
+        MultiCaseRunnerSupport.installRunner(WORKER_DIR);
+        idleWorkers = new LinkedBlockingQueue<>();
+        spawnExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "worker-pool-spawn");
+            thread.setDaemon(true);
+            return thread;
+        });
+        watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "worker-pool-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        running = true;
+        for (int i = 0; i < worker.getPoolSize(); i++) {
+            spawnExecutor.execute(this::spawnWorker);
+        }
+        System.out.println("正在预启动 " + worker.getPoolSize() + " 个 worker JVM...");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        spawnExecutor.shutdownNow();
+        watchdog.shutdownNow();
+        List<Worker> remaining = new ArrayList<>();
+        idleWorkers.drainTo(remaining);
+        remaining.forEach(Worker::destroy);
+    }
+
+    /**
+     * 在 worker 中执行所有用例
+     */
+    public List<ExecuteMessage> execute(String className, Map<String, byte[]> classBytes, List<TestInput> inputs, long timeLimit) throws Exception {
+        if (!running) {
+            throw new IllegalStateException("worker 池未启用");
+        }
+        return MultiCaseRunnerSupport.runAll(inputs.size(), fromIndex -> {
+            Worker worker = acquire();
+            boolean reusable = false;
+            int caseCount = inputs.size() - fromIndex;
+            ScheduledFuture<?> watchdogTask = watchdog.schedule(worker::destroy,
+                    timeLimit * (caseCount + 1), TimeUnit.MILLISECONDS);
+            try {
+                CodeSandboxProperties.Output outputConfig = codeSandboxProperties.getOutput();
+                worker.sendJob(className, classBytes, timeLimit, outputConfig.getLimit(), outputConfig.getErrorLimit(),
+                        inputs.subList(fromIndex, inputs.size()));
+                MultiCaseRunnerSupport.HarnessOutput output = new MultiCaseRunnerSupport.HarnessOutput();
+                output.setResults(new ArrayList<>());
+                reusable = worker.readResults(output);
+                return output;
+            } finally {
+                watchdogTask.cancel(false);
+                release(worker, reusable);
+            }
+        });
+    }
+
+    private Worker acquire() throws InterruptedException {
+        long timeout = codeSandboxProperties.getWorker().getAcquireTimeout();
+        while (true) {
+            Worker worker = idleWorkers.poll(timeout, TimeUnit.MILLISECONDS);
+            if (worker == null) {
+                throw new IllegalStateException("等待空闲 worker 超时");
+            }
+            if (worker.process.isAlive()) {
+                return worker;
+            }
+            // 空闲期间意外退出的 worker，补一个新的再继续取
+            spawnExecutor.execute(this::spawnWorker);
+        }
+    }
+
+    private void release(Worker worker, boolean reusable) {
+        worker.jobs++;
+        if (running && reusable && worker.process.isAlive() && worker.jobs < codeSandboxProperties.getWorker().getMaxJobs()) {
+            idleWorkers.offer(worker);
+            return;
+        }
+        worker.destroy();
+        if (running) {
+            spawnExecutor.execute(this::spawnWorker);
+        }
+    }
+
+    private void spawnWorker() {
+        if (!running) {
+            return;
+        }
+        try {
+            CodeSandboxProperties.Worker config = codeSandboxProperties.getWorker();
+            List<String> cmd = new ArrayList<>();
+            cmd.add("java");
+            cmd.add("-Xmx" + config.getMaxHeap());
+            cmd.add("-XX:+UseSerialGC"); // 单线程 GC，占用少、启动快
+            cmd.add("-Dfile.encoding=UTF-8");
+            // 启动时归档可能还没生成好，之后补充的 worker 会用上
+            cmd.addAll(cdsArchiveManager.nativeJvmOptions());
+            cmd.add("-cp");
+            cmd.add(WORKER_DIR + File.separator + MultiCaseRunnerSupport.RUNNER_DIR);
+            cmd.add(MultiCaseRunner.class.getName());
+            cmd.add(MultiCaseRunner.WORKER_ARG);
+            ProcessBuilder processBuilder = new ProcessBuilder(cmd);
+            // 工作目录指向空目录，并且不继承宿主机的环境变量
+            processBuilder.directory(new File(WORKER_DIR));
+            String path = System.getenv("PATH");
+            processBuilder.environment().clear();
+            if (path != null) {
+                processBuilder.environment().put("PATH", path);
+            }
+            processBuilder.redirectError(ProcessBuilder.Redirect.DISCARD);
+            idleWorkers.offer(new Worker(processBuilder.start()));
+        } catch (IOException e) {
+            System.err.println("启动 worker 失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 一个常驻的 worker 进程
+     */
+    private static class Worker {
+
+        private final Process process;
+
+        private final DataOutputStream in;
+
+        private final DataInputStream out;
+
+        private int jobs;
+
+        Worker(Process process) {
+            this.process = process;
+            this.in = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+            this.out = new DataInputStream(new BufferedInputStream(process.getInputStream()));
+        }
+
+        void sendJob(String className, Map<String, byte[]> classBytes, long timeLimit, long outputLimit, long errorLimit,
+                     List<TestInput> inputs) throws IOException {
+            in.writeInt(MultiCaseRunner.JOB_MAGIC);
+            in.writeUTF(className);
+            in.writeLong(timeLimit);
+            in.writeLong(outputLimit);
+            in.writeLong(errorLimit);
+            in.writeInt(classBytes.size());
+            for (Map.Entry<String, byte[]> entry : classBytes.entrySet()) {
+                in.writeUTF(entry.getKey());
+                in.writeInt(entry.getValue().length);
+                in.write(entry.getValue());
+            }
+            try (InputStream encoded = MultiCaseRunnerSupport.openInputs(inputs)) {
+                encoded.transferTo(in);
+            }
+            in.flush();
+        }
+
+        /**
+         * 读取结果直到任务结束帧
+         *
+         * @return worker 是否还能继续接任务
+         */
+        boolean readResults(MultiCaseRunnerSupport.HarnessOutput output) throws InterruptedException {
+            List<ExecuteMessage> results = output.getResults();
+            List<Integer> exitFrames = new ArrayList<>();
+            try {
+                while (true) {
+                    int magic = out.readInt();
+                    if (magic == MultiCaseRunner.JOB_END_MAGIC) {
+                        return out.readInt() == 0;
+                    }
+                    if (magic != MultiCaseRunner.FRAME_MAGIC) {
+                        throw new IOException("worker 输出格式错误");
+                    }
+                    ExecuteMessage executeMessage = MultiCaseRunnerSupport.readFrame(out, null);
+                    if (executeMessage.getExitValue() == -1 && executeMessage.getVerdict() == null) {
+                        exitFrames.add(results.size());
+                    }
+                    results.add(executeMessage);
+                }
+            } catch (IOException e) {
+                // 管道断开：用户代码调用了 System.exit 或 worker 崩溃，用进程退出码补全结果
+                process.waitFor(1, TimeUnit.SECONDS);
+                Integer exitValue = process.isAlive() ? -1 : process.exitValue();
+                output.setExitValue(exitValue);
+                output.setStderr("worker 异常退出，退出码 " + exitValue);
+                exitFrames.forEach(index -> results.get(index).setExitValue(exitValue));
+                return false;
+            }
+        }
+
+        void destroy() {
+            process.destroyForcibly();
+        }
+    }
+}
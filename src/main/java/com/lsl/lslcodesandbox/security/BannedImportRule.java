@@ -0,0 +1,32 @@
+package com.lsl.lslcodesandbox.security;
+
+import com.github.javaparser.ast.ImportDeclaration;
+import com.github.javaparser.ast.Node;
+
+import java.util.List;
+
+/**
+ * 禁止导入的包 / 类（按前缀匹配：java.net 覆盖 java.net.Socket 和 java.net.*，java.io.File 覆盖 java.io.FileReader）
+ */
+public class BannedImportRule implements SecurityRule {
+
+    private final List<String> prefixes;
+
+    public BannedImportRule(List<String> prefixes) {
+        this.prefixes = prefixes;
+    }
+
+    @Override
+    public String check(Node node) {
+        if (!(node instanceof ImportDeclaration)) {
+            return null;
+        }
+        String name = ((ImportDeclaration) node).getNameAsString();
+        for (String prefix : prefixes) {
+            if (name.startsWith(prefix)) {
+                return "禁止导入 " + name;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,32 @@
+package com.lsl.lslcodesandbox.security;
+
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.expr.MethodCallExpr;
+
+import java.util.List;
+
+/**
+ * 方法名包含关键字的调用（如 exec、delete），一遍检查完所有关键字
+ */
+public class BannedMethodRule implements SecurityRule {
+
+    private final List<String> keywords;
+
+    public BannedMethodRule(List<String> keywords) {
+        this.keywords = keywords;
+    }
+
+    @Override
+    public String check(Node node) {
+        if (!(node instanceof MethodCallExpr)) {
+            return null;
+        }
+        String name = ((MethodCallExpr) node).getNameAsString();
+        for (String keyword : keywords) {
+            if (name.contains(keyword)) {
+                return "禁止调用 " + name;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,34 @@
+package com.lsl.lslcodesandbox.security;
+
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.expr.NameExpr;
+import com.github.javaparser.ast.type.ClassOrInterfaceType;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 禁止使用的类型：声明、new、泛型参数里出现的类型（含写全限定名的），以及静态调用的类名（如 Runtime.getRuntime()）
+ */
+public class BannedTypeRule implements SecurityRule {
+
+    private final Set<String> types;
+
+    public BannedTypeRule(List<String> types) {
+        this.types = new HashSet<>(types);
+    }
+
+    @Override
+    public String check(Node node) {
+        String name;
+        if (node instanceof ClassOrInterfaceType) {
+            name = ((ClassOrInterfaceType) node).getNameAsString();
+        } else if (node instanceof NameExpr) {
+            name = ((NameExpr) node).getNameAsString();
+        } else {
+            return null;
+        }
+        return types.contains(name) ? "禁止使用 " + name : null;
+    }
+}
@@ -0,0 +1,344 @@
+package com.lsl.lslcodesandbox.security;
+
+import com.lsl.lslcodesandbox.config.CodeSandboxProperties;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 编译后的字节码扫描
+ * 源码层面的名字匹配既会误拦（方法名带 write）又拦不住（反射、全限定名、构造 ProcessBuilder），
+ * 字节码里所有对其他类的字段 / 方法访问都落在常量池的 Fieldref / Methodref / InterfaceMethodref 上，
+ * 顺序读一遍常量池就能拿到全部引用，按禁止清单和可信清单判定，每个类只需几微秒
+ * <p>
+ * 清单用 JVM 内部名，按最具体的一条生效（同样具体时禁止优先）：
+ * 以 / 结尾的是包（含子包），不带点的是类（含其内部类），类名.成员名 是成员，成员名后可以再跟描述符前缀，
+ * 如 java/io/PrintWriter.&lt;init&gt;(Ljava/lang/String; 只拦按文件名构造的 PrintWriter
+ * <p>
+ * 只看成员引用，不看单独的类常量：光有类常量只能做类型转换、instanceof、建数组，
+ * 拿到对象、调用方法都要经过成员引用（含构造方法 &lt;init&gt;），而 lambda 会在 InnerClasses 里带出 java/lang/invoke 下的类常量
+ */
+@Component
+public class BytecodeScanner {
+
+    private static final int CLASS_MAGIC = 0xCAFEBABE;
+
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_INTEGER = 3;
+    private static final int CONSTANT_FLOAT = 4;
+    private static final int CONSTANT_LONG = 5;
+    private static final int CONSTANT_DOUBLE = 6;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_STRING = 8;
+    private static final int CONSTANT_FIELDREF = 9;
+    private static final int CONSTANT_METHODREF = 10;
+    private static final int CONSTANT_INTERFACE_METHODREF = 11;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+    private static final int CONSTANT_METHOD_HANDLE = 15;
+    private static final int CONSTANT_METHOD_TYPE = 16;
+    private static final int CONSTANT_DYNAMIC = 17;
+    private static final int CONSTANT_INVOKE_DYNAMIC = 18;
+    private static final int CONSTANT_MODULE = 19;
+    private static final int CONSTANT_PACKAGE = 20;
+
+    @Resource
+    private CodeSandboxProperties codeSandboxProperties;
+
+    /**
+     * 成员规则，按所属类分组，带描述符的排在前面
+     */
+    private Map<String, List<MemberRule>> memberRules;
+
+    /**
+     * 类规则：类名 -> 是否允许
+     */
+    private Map<String, Boolean> classRules;
+
+    /**
+     * 包规则，长的排在前面，第一个匹配的即最具体的
+     */
+    private List<PackageRule> packageRules;
+
+    public BytecodeScanner() {
+    }
+
+    /**
+     * 不依赖 Spring 容器时使用
+     */
+    public BytecodeScanner(CodeSandboxProperties codeSandboxProperties) {
+        this.codeSandboxProperties = codeSandboxProperties;
+    }
+
+    @PostConstruct
+    public void init() {
+        CodeSandboxProperties.Security config = codeSandboxProperties.getSecurity();
+        memberRules = new HashMap<>();
+        classRules = new HashMap<>();
+        packageRules = new ArrayList<>();
+        // 先放可信清单再放禁止清单，同一条目两边都有时禁止覆盖可信
+        for (String entry : config.getTrustedRefs()) {
+            addRule(entry, true);
+        }
+        for (String entry : config.getDeniedRefs()) {
+            addRule(entry, false);
+        }
+        packageRules.sort(Comparator.comparingInt((PackageRule rule) -> rule.prefix.length()).reversed()
+                .thenComparing(rule -> rule.allowed));
+        for (List<MemberRule> rules : memberRules.values()) {
+            rules.sort(Comparator.comparing((MemberRule rule) -> rule.descriptorPrefix == null)
+                    .thenComparing(rule -> rule.allowed));
+        }
+    }
+
+    private void addRule(String entry, boolean allowed) {
+        if (entry.endsWith("/")) {
+            packageRules.add(new PackageRule(entry, allowed));
+            return;
+        }
+        int dot = entry.indexOf('.');
+        if (dot < 0) {
+            if (!allowed || !classRules.containsKey(entry)) {
+                classRules.put(entry, allowed);
+            }
+            return;
+        }
+        String member = entry.substring(dot + 1);
+        int paren = member.indexOf('(');
+        memberRules.computeIfAbsent(entry.substring(0, dot), owner -> new ArrayList<>())
+                .add(new MemberRule(paren < 0 ? member : member.substring(0, paren),
+                        paren < 0 ? null : member.substring(paren), allowed));
+    }
+
+    /**
+     * 扫描一次提交的所有类
+     *
+     * @param classBytes 类的二进制名（如 Main、Main$Node） -> 字节码
+     * @throws IllegalArgumentException 类文件格式不对
+     */
+    public ScanResult scan(Map<String, byte[]> classBytes) {
+        long startTime = System.nanoTime();
+        Set<String> ownClasses = new HashSet<>();
+        for (String name : classBytes.keySet()) {
+            ownClasses.add(name.replace('.', '/'));
+        }
+        ScanResult result = new ScanResult();
+        // 同一个类的判定在一次扫描里只做一次
+        Map<String, Boolean> classDecisions = new HashMap<>();
+        for (byte[] bytes : classBytes.values()) {
+            scanClass(bytes, ownClasses, classDecisions, result);
+            result.setClassCount(result.getClassCount() + 1);
+            if (result.getVerdict() == ScanVerdict.DENIED) {
+                break;
+            }
+        }
+        result.setScanNanos(System.nanoTime() - startTime);
+        return result;
+    }
+
+    /**
+     * 顺序读一遍常量池记下各项的位置，再逐个判定成员引用
+     */
+    private void scanClass(byte[] bytes, Set<String> ownClasses, Map<String, Boolean> classDecisions, ScanResult result) {
+        if (bytes.length < 10 || readInt(bytes, 0) != CLASS_MAGIC) {
+            throw new IllegalArgumentException("不是合法的 class 文件");
+        }
+        int count = readUnsignedShort(bytes, 8);
+        byte[] tags = new byte[count];
+        int[] offsets = new int[count];
+        int[] memberRefs = new int[count];
+        int memberRefCount = 0;
+        int offset = 10;
+        try {
+            for (int i = 1; i < count; i++) {
+                int tag = bytes[offset] & 0xFF;
+                tags[i] = (byte) tag;
+                offsets[i] = offset + 1;
+                switch (tag) {
+                    case CONSTANT_UTF8:
+                        offset += 3 + readUnsignedShort(bytes, offset + 1);
+                        break;
+                    case CONSTANT_CLASS:
+                    case CONSTANT_STRING:
+                    case CONSTANT_METHOD_TYPE:
+                    case CONSTANT_MODULE:
+                    case CONSTANT_PACKAGE:
+                        offset += 3;
+                        break;
+                    case CONSTANT_METHOD_HANDLE:
+                        offset += 4;
+                        break;
+                    case CONSTANT_FIELDREF:
+                    case CONSTANT_METHODREF:
+                    case CONSTANT_INTERFACE_METHODREF:
+                        memberRefs[memberRefCount++] = i;
+                        offset += 5;
+                        break;
+                    case CONSTANT_INTEGER:
+                    case CONSTANT_FLOAT:
+                    case CONSTANT_NAME_AND_TYPE:
+                    case CONSTANT_DYNAMIC:
+                    case CONSTANT_INVOKE_DYNAMIC:
+                        offset += 5;
+                        break;
+                    case CONSTANT_LONG:
+                    case CONSTANT_DOUBLE:
+                        // 占两个槽位
+                        offset += 9;
+                        i++;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("不是合法的 class 文件：未知的常量类型 " + tag);
+                }
+            }
+
+            for (int r = 0; r < memberRefCount; r++) {
+                int refOffset = offsets[memberRefs[r]];
+                String owner = ownerName(utf8(bytes, tags, offsets, classNameIndex(bytes, tags, offsets, readUnsignedShort(bytes, refOffset))));
+                if (ownClasses.contains(owner)) {
+                    continue;
+                }
+                int natOffset = offsets[checkTag(tags, readUnsignedShort(bytes, refOffset + 2), CONSTANT_NAME_AND_TYPE)];
+                String name = utf8(bytes, tags, offsets, readUnsignedShort(bytes, natOffset));
+                Boolean allowed = memberDecision(owner, name, bytes, tags, offsets, readUnsignedShort(bytes, natOffset + 2));
+                if (allowed == null) {
+                    allowed = classDecisions.computeIfAbsent(owner, this::classDecision);
+                }
+                if (allowed == null) {
+                    if (result.getVerdict() == ScanVerdict.TRUSTED) {
+                        result.setVerdict(ScanVerdict.UNTRUSTED);
+                        result.setReference(owner.replace('/', '.') + "." + name);
+                    }
+                } else if (!allowed) {
+                    result.setVerdict(ScanVerdict.DENIED);
+                    result.setReference(owner.replace('/', '.') + "." + name);
+                    return;
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("不是合法的 class 文件：常量池被截断");
+        }
+    }
+
+    /**
+     * 成员规则判定，没有匹配的规则返回 null
+     */
+    private Boolean memberDecision(String owner, String name, byte[] bytes, byte[] tags, int[] offsets, int descriptorIndex) {
+        List<MemberRule> rules = memberRules.get(owner);
+        if (rules == null) {
+            return null;
+        }
+        String descriptor = null;
+        for (MemberRule rule : rules) {
+            if (!rule.name.equals(name)) {
+                continue;
+            }
+            if (rule.descriptorPrefix != null) {
+                if (descriptor == null) {
+                    descriptor = utf8(bytes, tags, offsets, descriptorIndex);
+                }
+                if (!descriptor.startsWith(rule.descriptorPrefix)) {
+                    continue;
+                }
+            }
+            return rule.allowed;
+        }
+        return null;
+    }
+
+    /**
+     * 类规则（含外部类的规则）优先于包规则，都没有匹配返回 null
+     */
+    private Boolean classDecision(String className) {
+        Boolean allowed = classRules.get(className);
+        int dollar = className.indexOf('$');
+        if (allowed == null && dollar > 0) {
+            allowed = classRules.get(className.substring(0, dollar));
+        }
+        if (allowed != null) {
+            return allowed;
+        }
+        for (PackageRule rule : packageRules) {
+            if (className.startsWith(rule.prefix)) {
+                return rule.allowed;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 数组类型的成员引用（如 [Ljava/io/File;.clone）按元素类型判定
+     */
+    private static String ownerName(String name) {
+        if (name.startsWith("[")) {
+            int start = name.lastIndexOf('[') + 1;
+            return name.charAt(start) == 'L' ? name.substring(start + 1, name.length() - 1) : "java/lang/Object";
+        }
+        return name;
+    }
+
+    private static int classNameIndex(byte[] bytes, byte[] tags, int[] offsets, int classIndex) {
+        return readUnsignedShort(bytes, offsets[checkTag(tags, classIndex, CONSTANT_CLASS)]);
+    }
+
+    private static int checkTag(byte[] tags, int index, int expected) {
+        if (index <= 0 || index >= tags.length || tags[index] != expected) {
+            throw new IllegalArgumentException("不是合法的 class 文件：常量池引用错误");
+        }
+        return index;
+    }
+
+    /**
+     * 类名、成员名基本都是 ASCII，按 UTF-8 解码即可（与 Modified UTF-8 只在 \0 和增补字符上有差别）
+     */
+    private static String utf8(byte[] bytes, byte[] tags, int[] offsets, int index) {
+        int offset = offsets[checkTag(tags, index, CONSTANT_UTF8)];
+        return new String(bytes, offset + 2, readUnsignedShort(bytes, offset), StandardCharsets.UTF_8);
+    }
+
+    private static int readUnsignedShort(byte[] bytes, int offset) {
+        return ((bytes[offset] & 0xFF) << 8) | (bytes[offset + 1] & 0xFF);
+    }
+
+    private static int readInt(byte[] bytes, int offset) {
+        return (readUnsignedShort(bytes, offset) << 16) | readUnsignedShort(bytes, offset + 2);
+    }
+
+    private static class MemberRule {
+
+        private final String name;
+
+        /**
+         * 描述符前缀，为 null 时匹配所有重载
+         */
+        private final String descriptorPrefix;
+
+        private final boolean allowed;
+
+        MemberRule(String name, String descriptorPrefix, boolean allowed) {
+            this.name = name;
+            this.descriptorPrefix = descriptorPrefix;
+            this.allowed = allowed;
+        }
+    }
+
+    private static class PackageRule {
+
+        private final String prefix;
+
+        private final boolean allowed;
+
+        PackageRule(String prefix, boolean allowed) {
+            this.prefix = prefix;
+            this.allowed = allowed;
+        }
+    }
+}
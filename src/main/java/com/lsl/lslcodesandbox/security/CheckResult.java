@@ -0,0 +1,26 @@
+package com.lsl.lslcodesandbox.security;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * 一份源码的静态检查结论，按源码摘要缓存
+ */
+@Data
+@AllArgsConstructor
+public class CheckResult {
+
+    /**
+     * 第一处违规的说明（带行号），通过检查时为 null
+     */
+    private String violation;
+
+    /**
+     * 第一个 public 的类（排除接口），即主类名；没有，或者在它之前就遇到违规停止了遍历时为 null
+     */
+    private String mainClassName;
+
+    public boolean isPassed() {
+        return violation == null;
+    }
+}
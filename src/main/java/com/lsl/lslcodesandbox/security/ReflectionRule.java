@@ -0,0 +1,28 @@
+package com.lsl.lslcodesandbox.security;
+
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.expr.MethodCallExpr;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 反射：按方法名精确匹配（Class.forName、setAccessible 等），绕过类型检查拿到被禁止的类
+ */
+public class ReflectionRule implements SecurityRule {
+
+    private final Set<String> methods;
+
+    public ReflectionRule(List<String> methods) {
+        this.methods = new HashSet<>(methods);
+    }
+
+    @Override
+    public String check(Node node) {
+        if (node instanceof MethodCallExpr && methods.contains(((MethodCallExpr) node).getNameAsString())) {
+            return "禁止反射调用 " + ((MethodCallExpr) node).getNameAsString();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,27 @@
+package com.lsl.lslcodesandbox.security;
+
+import lombok.Data;
+
+/**
+ * 一次提交所有类文件的扫描结果
+ */
+@Data
+public class ScanResult {
+
+    private ScanVerdict verdict = ScanVerdict.TRUSTED;
+
+    /**
+     * 决定结论的第一处引用（如 java.lang.Runtime.exec），TRUSTED 时为 null
+     */
+    private String reference;
+
+    /**
+     * 扫描的类数
+     */
+    private int classCount;
+
+    /**
+     * 扫描耗时（纳秒）
+     */
+    private long scanNanos;
+}
@@ -0,0 +1,22 @@
+package com.lsl.lslcodesandbox.security;
+
+/**
+ * 字节码扫描的结论
+ */
+public enum ScanVerdict {
+
+    /**
+     * 只引用了自己的类和可信清单内的 JDK 类 / 成员，可以在本机直接运行
+     */
+    TRUSTED,
+
+    /**
+     * 引用了两份清单都没有覆盖的类，不算违规，但应放进容器里运行
+     */
+    UNTRUSTED,
+
+    /**
+     * 引用了禁止清单内的类 / 成员，直接拦截
+     */
+    DENIED
+}
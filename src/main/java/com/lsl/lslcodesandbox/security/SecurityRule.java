@@ -0,0 +1,18 @@
+package com.lsl.lslcodesandbox.security;
+
+import com.github.javaparser.ast.Node;
+
+/**
+ * 一条静态检查规则
+ * 所有规则在同一遍语法树遍历中依次检查每个节点，新增规则不增加遍历次数；
+ * 实现为 Spring 组件即自动加入检查
+ */
+public interface SecurityRule {
+
+    /**
+     * 检查一个语法节点
+     *
+     * @return 违规说明，没有违规返回 null
+     */
+    String check(Node node);
+}
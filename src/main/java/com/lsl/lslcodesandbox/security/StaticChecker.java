@@ -0,0 +1,139 @@
+package com.lsl.lslcodesandbox.security;
+
+import cn.hutool.crypto.digest.DigestUtil;
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.lsl.lslcodesandbox.config.CodeSandboxProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Java 提交的静态检查
+ * 源码只解析一次，所有规则在同一遍遍历里检查每个节点，遇到第一处违规即停止；
+ * 同一遍里顺带取出主类名，后面编译不再重新解析。结论按源码的 SHA-256 缓存，重复提交 / 重判不再解析
+ */
+@Component
+public class StaticChecker {
+
+    @Resource
+    private CodeSandboxProperties codeSandboxProperties;
+
+    /**
+     * 以组件形式提供的额外规则，排在配置的规则之后
+     */
+    @Autowired(required = false)
+    private List<SecurityRule> customRules = Collections.emptyList();
+
+    private List<SecurityRule> rules;
+
+    /**
+     * accessOrder = true，按条数做 LRU 淘汰
+     */
+    private final Map<String, CheckResult> cache = new LinkedHashMap<>(64, 0.75f, true);
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    public StaticChecker() {
+    }
+
+    /**
+     * 不依赖 Spring 容器时使用
+     */
+    public StaticChecker(CodeSandboxProperties codeSandboxProperties) {
+        this.codeSandboxProperties = codeSandboxProperties;
+    }
+
+    @PostConstruct
+    public void init() {
+        CodeSandboxProperties.Security config = codeSandboxProperties.getSecurity();
+        rules = new ArrayList<>();
+        rules.add(new BannedImportRule(config.getBannedImports()));
+        rules.add(new BannedTypeRule(config.getBannedTypes()));
+        rules.add(new BannedMethodRule(config.getBannedMethodKeywords()));
+        rules.add(new ReflectionRule(config.getReflectionMethods()));
+        rules.addAll(customRules);
+    }
+
+    /**
+     * 检查一份源码，关闭检查时只取主类名
+     *
+     * @throws RuntimeException 源码无法解析
+     */
+    public CheckResult check(String code) {
+        String key = DigestUtil.sha256Hex(code);
+        synchronized (cache) {
+            CheckResult cached = cache.get(key);
+            if (cached != null) {
+                hitCount.incrementAndGet();
+                return cached;
+            }
+        }
+        missCount.incrementAndGet();
+
+        ParseResult<CompilationUnit> parseResult = new JavaParser().parse(code);
+        CompilationUnit cu = parseResult.getResult().orElseThrow(() -> new RuntimeException("解析代码失败"));
+        CheckResult checkResult = inspect(cu, codeSandboxProperties.getSecurity().isEnabled() ? rules : Collections.emptyList());
+
+        synchronized (cache) {
+            cache.put(key, checkResult);
+            Iterator<String> iterator = cache.keySet().iterator();
+            while (cache.size() > codeSandboxProperties.getSecurity().getCacheSize() && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+            }
+        }
+        return checkResult;
+    }
+
+    /**
+     * 先序遍历一遍语法树（与 findAll 的顺序一致，取到的主类相同），每个节点交给所有规则
+     */
+    private static CheckResult inspect(CompilationUnit cu, List<SecurityRule> rules) {
+        String mainClassName = null;
+        for (Iterator<Node> iterator = cu.stream().iterator(); iterator.hasNext(); ) {
+            Node node = iterator.next();
+            if (mainClassName == null && node instanceof ClassOrInterfaceDeclaration) {
+                ClassOrInterfaceDeclaration declaration = (ClassOrInterfaceDeclaration) node;
+                if (declaration.isPublic() && !declaration.isInterface()) {
+                    mainClassName = declaration.getNameAsString();
+                }
+            }
+            for (SecurityRule rule : rules) {
+                String violation = rule.check(node);
+                if (violation != null) {
+                    int line = node.getBegin().map(position -> position.line).orElse(-1);
+                    return new CheckResult("第 " + line + " 行：" + violation, mainClassName);
+                }
+            }
+        }
+        return new CheckResult(null, mainClassName);
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+}
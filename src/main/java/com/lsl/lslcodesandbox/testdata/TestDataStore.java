@@ -0,0 +1,241 @@
+package com.lsl.lslcodesandbox.testdata;
+
+import cn.hutool.core.util.HexUtil;
+import com.lsl.lslcodesandbox.config.CodeSandboxProperties;
+import com.lsl.lslcodesandbox.model.ExecuteCodeRequest;
+import com.lsl.lslcodesandbox.model.TestDataInfo;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * 测试数据仓库
+ * 大输入只上传一次，以内容的 SHA-256 为 id 存在本地磁盘，请求里按 id 引用；同样的内容只存一份
+ * 按字节数做 LRU 淘汰，重启后按文件修改时间恢复使用顺序；被提交引用着的数据（resolve 到 release 之间）不淘汰
+ * 整个目录只读挂载进运行容器（CONTAINER_DIR），容器里可以直接把数据文件重定向为标准输入，用户程序改不了别人的数据
+ */
+@Component
+public class TestDataStore {
+
+    private static final Pattern ID_PATTERN = Pattern.compile("[0-9a-f]{64}");
+
+    private static final String TEMP_PREFIX = ".upload-";
+
+    /**
+     * 数据目录在运行容器里的挂载点（只读）
+     */
+    public static final String CONTAINER_DIR = "/testdata";
+
+    @Resource
+    private CodeSandboxProperties codeSandboxProperties;
+
+    /**
+     * accessOrder = true，迭代顺序即最近最少使用顺序；value 为文件大小
+     */
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(64, 0.75f, true);
+
+    /**
+     * 正被提交引用的数据 id -> 引用次数
+     */
+    private final Map<String, Integer> leases = new HashMap<>();
+
+    private long currentBytes = 0;
+
+    private File dir;
+
+    public TestDataStore() {
+    }
+
+    /**
+     * 不依赖 Spring 容器时使用
+     */
+    public TestDataStore(CodeSandboxProperties codeSandboxProperties) {
+        this.codeSandboxProperties = codeSandboxProperties;
+    }
+
+    @PostConstruct
+    public void init() {
+        dir = new File(codeSandboxProperties.getTestData().getDir());
+        dir.mkdirs();
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        synchronized (this) {
+            for (File file : files) {
+                if (file.getName().startsWith(TEMP_PREFIX)) {
+                    // 上次没传完的
+                    file.delete();
+                } else if (ID_PATTERN.matcher(file.getName()).matches()) {
+                    entries.put(file.getName(), file.length());
+                    currentBytes += file.length();
+                }
+            }
+        }
+    }
+
+    /**
+     * 保存一份数据，边写盘边算摘要，不在内存里攒整份数据
+     *
+     * @throws IllegalArgumentException 超过单份数据的大小上限（maxUploadBytes），已写入的部分会被删掉
+     */
+    public TestDataInfo put(InputStream in) throws IOException {
+        long maxUploadBytes = codeSandboxProperties.getTestData().getMaxUploadBytes();
+        File temp = new File(dir, TEMP_PREFIX + UUID.randomUUID());
+        MessageDigest digest = sha256();
+        try {
+            long size = 0;
+            try (InputStream digestIn = new DigestInputStream(in, digest);
+                 OutputStream out = Files.newOutputStream(temp.toPath())) {
+                byte[] buffer = new byte[64 * 1024];
+                int n;
+                while ((n = digestIn.read(buffer)) != -1) {
+                    size += n;
+                    if (size > maxUploadBytes) {
+                        throw new IllegalArgumentException("测试数据超过大小上限 " + maxUploadBytes + " 字节");
+                    }
+                    out.write(buffer, 0, n);
+                }
+            }
+            String id = HexUtil.encodeHexStr(digest.digest());
+            synchronized (this) {
+                if (entries.get(id) == null) {
+                    Files.move(temp.toPath(), new File(dir, id).toPath(), StandardCopyOption.ATOMIC_MOVE);
+                    entries.put(id, size);
+                    currentBytes += size;
+                    evict(id);
+                } else {
+                    new File(dir, id).setLastModified(System.currentTimeMillis());
+                }
+            }
+            return new TestDataInfo(id, size);
+        } finally {
+            Files.deleteIfExists(temp.toPath());
+        }
+    }
+
+    /**
+     * 查询一份数据，不存在返回 null
+     */
+    public TestDataInfo info(String id) {
+        File file = get(id);
+        return file == null ? null : new TestDataInfo(id, file.length());
+    }
+
+    /**
+     * 取数据文件并标记为最近使用，不存在返回 null
+     */
+    public synchronized File get(String id) {
+        if (id == null || !ID_PATTERN.matcher(id).matches() || entries.get(id) == null) {
+            return null;
+        }
+        File file = new File(dir, id);
+        file.setLastModified(System.currentTimeMillis());
+        return file;
+    }
+
+    /**
+     * 取出一次提交的所有用例输入：优先按 inputIdList 引用仓库里的数据，否则用 inputList
+     * 引用到的数据在 release 之前不会被淘汰，调用方用完必须 release
+     */
+    public List<TestInput> resolve(ExecuteCodeRequest executeCodeRequest) {
+        List<TestInput> inputs = new ArrayList<>();
+        if (executeCodeRequest.getInputIdList() != null) {
+            synchronized (this) {
+                for (String id : executeCodeRequest.getInputIdList()) {
+                    File file = get(id);
+                    if (file == null) {
+                        release(inputs);
+                        throw new IllegalArgumentException("测试数据不存在: " + id);
+                    }
+                    leases.merge(id, 1, Integer::sum);
+                    inputs.add(TestInput.ofFile(file));
+                }
+            }
+            return inputs;
+        }
+        if (executeCodeRequest.getInputList() == null) {
+            throw new IllegalArgumentException("inputList 和 inputIdList 不能都为空");
+        }
+        for (String input : executeCodeRequest.getInputList()) {
+            inputs.add(TestInput.of(input));
+        }
+        return inputs;
+    }
+
+    /**
+     * 放开 resolve 时对数据的引用，之前因为被引用而没能淘汰的数据这时补上淘汰
+     */
+    public synchronized void release(List<TestInput> inputs) {
+        for (TestInput input : inputs) {
+            if (input.getFile() != null) {
+                leases.computeIfPresent(input.getFile().getName(), (id, count) -> count == 1 ? null : count - 1);
+            }
+        }
+        evict(null);
+    }
+
+    /**
+     * 数据目录，容器池把它只读挂载到 CONTAINER_DIR
+     */
+    public File getDir() {
+        return dir;
+    }
+
+    /**
+     * 数据文件在容器内的路径，不是本仓库里的文件时返回 null
+     */
+    public String containerPath(File file) {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent == null || !parent.equals(dir.getAbsoluteFile())) {
+            return null;
+        }
+        return CONTAINER_DIR + "/" + file.getName();
+    }
+
+    /**
+     * 超出上限时淘汰最久没用过的数据，刚放进来的、正被提交引用的不淘汰
+     */
+    private void evict(String keep) {
+        long maxBytes = codeSandboxProperties.getTestData().getMaxBytes();
+        Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+        while (currentBytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<String, Long> entry = iterator.next();
+            if (entry.getKey().equals(keep) || leases.containsKey(entry.getKey())) {
+                continue;
+            }
+            iterator.remove();
+            currentBytes -= entry.getValue();
+            new File(dir, entry.getKey()).delete();
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.lsl.lslcodesandbox.testdata;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 单个用例的输入：请求里直接给出的字符串，或测试数据仓库里的文件
+ * 文件输入全程不读进内存，本机进程直接把文件重定向为标准输入，容器里经挂载目录重定向
+ */
+public class TestInput {
+
+    private final byte[] bytes;
+
+    private final File file;
+
+    private TestInput(byte[] bytes, File file) {
+        this.bytes = bytes;
+        this.file = file;
+    }
+
+    /**
+     * 请求里直接给出的输入，末尾补一个换行（与一直以来的写法一致）
+     */
+    public static TestInput of(String input) {
+        return new TestInput((input + "\n").getBytes(StandardCharsets.UTF_8), null);
+    }
+
+    /**
+     * 测试数据文件，原样作为标准输入
+     */
+    public static TestInput ofFile(File file) {
+        return new TestInput(null, file);
+    }
+
+    /**
+     * 数据文件，直接给出的输入为 null
+     */
+    public File getFile() {
+        return file;
+    }
+
+    public long length() {
+        return file != null ? file.length() : bytes.length;
+    }
+
+    public InputStream openStream() throws IOException {
+        return file != null ? new FileInputStream(file) : new ByteArrayInputStream(bytes);
+    }
+}
@@ -0,0 +1,92 @@
+package com.lsl.lslcodesandbox.workspace;
+
+import com.lsl.lslcodesandbox.compiler.InMemoryJavaCompiler;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 一次提交独占的工作区，用完 close 归还给 WorkspaceManager，由后台清空后复用
+ * 写入经过这里计量，超出配额直接拒绝；容器里以只读方式挂载，用户程序写不进来
+ */
+public class Workspace implements AutoCloseable {
+
+    private final WorkspaceManager manager;
+
+    private final File dir;
+
+    private final long quota;
+
+    private long usedBytes;
+
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    Workspace(WorkspaceManager manager, File dir, long quota) {
+        this.manager = manager;
+        this.dir = dir;
+        this.quota = quota;
+    }
+
+    public File getDir() {
+        return dir;
+    }
+
+    /**
+     * 宿主机上的绝对路径
+     */
+    public String getPath() {
+        return dir.getAbsolutePath();
+    }
+
+    /**
+     * 容器内的路径
+     */
+    public String getContainerPath() {
+        return WorkspaceManager.CONTAINER_ROOT + "/" + dir.getName();
+    }
+
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    /**
+     * 预占配额，超出时抛出异常，什么都不写
+     */
+    public synchronized void reserve(long bytes) throws IOException {
+        if (usedBytes + bytes > quota) {
+            throw new IOException("工作区超出配额：需要 " + (usedBytes + bytes) + " 字节，上限 " + quota + " 字节");
+        }
+        usedBytes += bytes;
+    }
+
+    /**
+     * 写入编译产物
+     */
+    public void writeClassFiles(Map<String, byte[]> classBytes) throws IOException {
+        reserve(classBytes.values().stream().mapToLong(bytes -> bytes.length).sum());
+        InMemoryJavaCompiler.writeClassFiles(classBytes, getPath());
+    }
+
+    /**
+     * 写入一个文件（源码、容器里编译出的可执行文件等）
+     */
+    public File writeFile(String name, byte[] content) throws IOException {
+        reserve(content.length);
+        File file = new File(dir, name);
+        Files.write(file.toPath(), content);
+        return file;
+    }
+
+    /**
+     * 归还工作区，重复调用无副作用
+     */
+    @Override
+    public void close() {
+        if (released.compareAndSet(false, true)) {
+            manager.release(this);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.lsl.lslcodesandbox.workspace;
+
+import cn.hutool.core.io.FileUtil;
+import com.lsl.lslcodesandbox.config.CodeSandboxProperties;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 提交工作区管理
+ * 工作区放在 tmpfs 上，不产生磁盘 IO；目录清空后放回空闲列表复用，不再每次新建、删除一棵 UUID 目录树；
+ * 归还后由后台线程定期批量清空，删除文件的开销不落在请求线程上
+ */
+@Component
+public class WorkspaceManager {
+
+    /**
+     * 工作区根目录在容器内的挂载点（只读）
+     */
+    public static final String CONTAINER_ROOT = "/workspace";
+
+    private static final String DIR_PREFIX = "ws-";
+
+    @Resource
+    private CodeSandboxProperties codeSandboxProperties;
+
+    /**
+     * 已清空、可直接使用的目录（后进先出，最近用过的目录项更可能还在缓存里）
+     */
+    private final ConcurrentLinkedDeque<File> freeDirs = new ConcurrentLinkedDeque<>();
+
+    /**
+     * 已归还、等待清空的目录
+     */
+    private final ConcurrentLinkedQueue<File> dirtyDirs = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger nextId = new AtomicInteger();
+
+    private final AtomicLong creations = new AtomicLong();
+
+    private final AtomicLong reuses = new AtomicLong();
+
+    private File root;
+
+    private ScheduledExecutorService cleaner;
+
+    public WorkspaceManager() {
+    }
+
+    /**
+     * 不依赖 Spring 容器时使用
+     */
+    public WorkspaceManager(CodeSandboxProperties codeSandboxProperties) {
+        this.codeSandboxProperties = codeSandboxProperties;
+    }
+
+    @PostConstruct
+    public void init() {
+        root = new File(codeSandboxProperties.getWorkspace().getRoot());
+        root.mkdirs();
+        // 上次运行留下的工作区；只清空不删根目录，容器里挂载的仍是同一个目录
+        FileUtil.clean(root);
+        cleaner = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "workspace-cleaner");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = codeSandboxProperties.getWorkspace().getCleanupInterval();
+        cleaner.scheduleWithFixedDelay(this::cleanup, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        cleaner.shutdown();
+        cleaner.awaitTermination(5, TimeUnit.SECONDS);
+        FileUtil.clean(root);
+    }
+
+    public File getRoot() {
+        return root;
+    }
+
+    /**
+     * 取一个空目录作为工作区，空闲列表为空时新建
+     */
+    public Workspace acquire() {
+        File dir = freeDirs.pollFirst();
+        if (dir != null) {
+            reuses.incrementAndGet();
+        } else {
+            dir = new File(root, DIR_PREFIX + nextId.incrementAndGet());
+            dir.mkdirs();
+            creations.incrementAndGet();
+        }
+        return new Workspace(this, dir, codeSandboxProperties.getWorkspace().getQuota());
+    }
+
+    /**
+     * 归还工作区，只登记，清空交给后台线程
+     */
+    void release(Workspace workspace) {
+        dirtyDirs.add(workspace.getDir());
+    }
+
+    /**
+     * 批量清空已归还的目录，空闲列表满了的直接删掉
+     */
+    void cleanup() {
+        List<File> batch = new ArrayList<>();
+        File dir;
+        while ((dir = dirtyDirs.poll()) != null) {
+            batch.add(dir);
+        }
+        int maxFree = codeSandboxProperties.getWorkspace().getMaxFree();
+        for (File file : batch) {
+            try {
+                if (freeDirs.size() < maxFree && FileUtil.clean(file)) {
+                    freeDirs.addFirst(file);
+                } else {
+                    FileUtil.del(file);
+                }
+            } catch (Exception e) {
+                // 清不掉的目录不再复用
+                System.err.println("清理工作区失败：" + file + "，" + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 空闲待用的工作区数
+     */
+    public int getFreeCount() {
+        return freeDirs.size();
+    }
+
+    /**
+     * 等待清空的工作区数
+     */
+    public int getPendingCleanupCount() {
+        return dirtyDirs.size();
+    }
+
+    /**
+     * 累计新建的工作区数
+     */
+    public long getCreations() {
+        return creations.get();
+    }
+
+    /**
+     * 累计复用的次数
+     */
+    public long getReuses() {
+        return reuses.get();
+    }
+}
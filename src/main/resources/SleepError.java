@@ -1,4 +1,3 @@
-j
 public class SleepError {
 
     public static void main(String[] args) throws InterruptedException {
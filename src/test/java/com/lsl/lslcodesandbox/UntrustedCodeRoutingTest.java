@@ -0,0 +1,102 @@
+package com.lsl.lslcodesandbox;
+
+import com.lsl.lslcodesandbox.config.CodeSandboxProperties;
+import com.lsl.lslcodesandbox.model.ExecuteCodeRequest;
+import com.lsl.lslcodesandbox.model.ExecuteCodeResponse;
+import com.lsl.lslcodesandbox.runner.ExecuteListener;
+import com.lsl.lslcodesandbox.runner.SandboxBackend;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 默认配置下，引用了清单外的类的提交、命令行编译的语言都不在本机运行
+ */
+@SpringBootTest
+class UntrustedCodeRoutingTest {
+
+    @Resource
+    private JavaNativeCodeSandBox javaNativeCodeSandBox;
+
+    @Resource
+    private JavaDockerCodeSandbox javaDockerCodeSandbox;
+
+    @Resource
+    private CodeSandboxProperties codeSandboxProperties;
+
+    /**
+     * 代替 Docker 沙箱，只记录转交过来的请求
+     */
+    private final List<ExecuteCodeRequest> delegated = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(javaNativeCodeSandBox, "javaDockerCodeSandbox", new JavaDockerCodeSandbox() {
+            @Override
+            public ExecuteCodeResponse execute(ExecuteCodeRequest executeCodeRequest, ExecuteListener listener) {
+                delegated.add(executeCodeRequest);
+                ExecuteCodeResponse response = new ExecuteCodeResponse();
+                response.setStatus(2);
+                response.setOutputList(Collections.singletonList("docker"));
+                return response;
+            }
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.setField(javaNativeCodeSandBox, "javaDockerCodeSandbox", javaDockerCodeSandbox);
+    }
+
+    private static ExecuteCodeRequest request(String body) {
+        ExecuteCodeRequest request = new ExecuteCodeRequest();
+        request.setLanguage("java");
+        request.setCode("public class Main {\n" +
+                "    public static void main(String[] args) throws Exception {\n" +
+                "        " + body + "\n" +
+                "    }\n" +
+                "}");
+        request.setInputList(Collections.singletonList(""));
+        return request;
+    }
+
+    @Test
+    void testUnknownPackageIsNotRunNatively() {
+        assertEquals(SandboxBackend.DOCKER, codeSandboxProperties.getSecurity().getUntrustedBackend());
+        ExecuteCodeRequest request = request("System.out.println(java.security.MessageDigest.getInstance(\"SHA-256\").getDigestLength());");
+        ExecuteCodeResponse response = javaNativeCodeSandBox.execute(request);
+        assertEquals(1, delegated.size());
+        assertSame(request, delegated.get(0));
+        // 输出来自 Docker 沙箱，而不是本机跑出的 32
+        assertEquals(Collections.singletonList("docker"), response.getOutputList());
+        assertEquals(1, response.getStatus());
+    }
+
+    @Test
+    void testCommandCompiledLanguageIsNotRunNatively() {
+        ExecuteCodeRequest request = new ExecuteCodeRequest();
+        request.setLanguage("cpp");
+        request.setCode("#include <cstdio>\nint main() { std::puts(\"native\"); }\n");
+        request.setInputList(Collections.singletonList(""));
+        ExecuteCodeResponse response = javaNativeCodeSandBox.execute(request);
+        assertEquals(1, delegated.size());
+        assertEquals(Collections.singletonList("docker"), response.getOutputList());
+        assertEquals(1, response.getStatus());
+    }
+
+    @Test
+    void testTrustedCodeStaysNative() {
+        ExecuteCodeResponse response = javaNativeCodeSandBox.execute(request("System.out.println(new java.util.ArrayList<Integer>().size());"));
+        assertTrue(delegated.isEmpty());
+        assertEquals(Collections.singletonList("0"), response.getOutputList());
+    }
+}
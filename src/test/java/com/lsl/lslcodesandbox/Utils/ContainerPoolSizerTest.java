@@ -0,0 +1,46 @@
+package com.lsl.lslcodesandbox.Utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 容器池反馈控制器测试
+ */
+class ContainerPoolSizerTest {
+
+    private final ContainerPoolSizer sizer = new ContainerPoolSizer(2, 10, 100L, 0.85);
+
+    @Test
+    void testGrowWhenQueueing() {
+        // 排队超标且 CPU 有余量：按排队人数扩容
+        assertEquals(7, sizer.desiredSize(4, 4, 3, 500, 0.3));
+        // 至少扩一个
+        assertEquals(5, sizer.desiredSize(4, 4, 0, 500, 0.3));
+        // 不超过上限
+        assertEquals(10, sizer.desiredSize(9, 9, 5, 500, 0.3));
+    }
+
+    @Test
+    void testNoGrowWhenCpuSaturated() {
+        assertEquals(4, sizer.desiredSize(4, 4, 6, 800, 0.95));
+        assertFalse(sizer.canGrow(4, 0.95));
+        assertTrue(sizer.canGrow(4, 0.5));
+        assertFalse(sizer.canGrow(10, 0.1));
+    }
+
+    @Test
+    void testShrinkWhenIdle() {
+        // 不排队：收缩到需求 + 1，但不低于下限
+        assertEquals(4, sizer.desiredSize(8, 3, 0, 0, 0.2));
+        assertEquals(2, sizer.desiredSize(8, 0, 0, 0, 0.2));
+        // CPU 未知（-1）时按 CPU 空闲处理
+        assertEquals(2, sizer.desiredSize(8, 0, 0, 0, -1));
+    }
+
+    @Test
+    void testKeepSizeInBetween() {
+        // 排队时间在目标附近：维持现状
+        assertEquals(6, sizer.desiredSize(6, 6, 0, 80, 0.5));
+    }
+}
@@ -0,0 +1,129 @@
+package com.lsl.lslcodesandbox.benchmark;
+
+import com.lsl.lslcodesandbox.Utils.ContainerPool;
+import com.lsl.lslcodesandbox.compiler.CompileDaemonPool;
+import com.lsl.lslcodesandbox.compiler.CompileResult;
+import com.lsl.lslcodesandbox.language.JavaLanguage;
+import com.lsl.lslcodesandbox.runner.MultiCaseRunnerSupport;
+import com.lsl.lslcodesandbox.workspace.Workspace;
+import com.lsl.lslcodesandbox.workspace.WorkspaceManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Docker 沙箱各阶段的耗时：编译容器里编译 -> 从容器池取容器 -> 容器里启动进程 -> 运行
+ * 解析、检查、写入工作区、清理都在宿主机上做，与原生沙箱相同，见 NativeStageBenchmark
+ * 需要 Docker（或 -Dbenchmark.docker-host 指定的兼容服务，如 Podman 的套接字）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class DockerStageBenchmark {
+
+    private static final String EMPTY_CLASS = "Empty";
+
+    private static final long EXEC_TIMEOUT = 10000;
+
+    @Param({Workloads.SIMPLE_COMPUTE, Workloads.NORMAL_COMPUTE, Workloads.MULTI_THREAD_TEST, Workloads.RECURSION_TEST})
+    public String workload;
+
+    private ConfigurableApplicationContext context;
+
+    private ContainerPool containerPool;
+
+    private CompileDaemonPool compileDaemonPool;
+
+    private String code;
+
+    private Workspace workspace;
+
+    private String[] spawnCommand;
+
+    private String[] runCommand;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        context = SandboxContext.start();
+        containerPool = context.getBean(ContainerPool.class);
+        compileDaemonPool = context.getBean(CompileDaemonPool.class);
+        if (!compileDaemonPool.isAvailable()) {
+            throw new IllegalStateException("编译容器不可用，检查 Docker 是否可以访问");
+        }
+
+        code = Workloads.source(workload);
+        CompileResult compileResult = compileDaemonPool.compile(workload, code);
+        if (!compileResult.isSuccess()) {
+            throw new IllegalStateException("负载程序编译失败：" + compileResult.getMessage());
+        }
+        workspace = context.getBean(WorkspaceManager.class).acquire();
+        workspace.writeClassFiles(compileResult.getClassBytes());
+        workspace.writeClassFiles(compileDaemonPool.compile(EMPTY_CLASS,
+                "public class " + EMPTY_CLASS + " { public static void main(String[] args) { } }").getClassBytes());
+
+        JavaLanguage language = new JavaLanguage();
+        spawnCommand = language.runCommand(workspace.getContainerPath(), "/", EMPTY_CLASS).toArray(new String[0]);
+        List<String> command = new ArrayList<>(language.runCommand(workspace.getContainerPath(), "/", workload));
+        command.addAll(Workloads.args(workload));
+        runCommand = command.toArray(new String[0]);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        workspace.close();
+        context.close();
+    }
+
+    @Benchmark
+    public CompileResult compile() {
+        return compileDaemonPool.compile(workload, code);
+    }
+
+    /**
+     * 从容器池取一个容器再还回去（归还时会清理容器里的临时目录）
+     */
+    @Benchmark
+    public String acquire() throws InterruptedException {
+        String containerId = containerPool.acquire();
+        containerPool.release(containerId);
+        return containerId;
+    }
+
+    @Benchmark
+    public MultiCaseRunnerSupport.HarnessOutput spawn() throws InterruptedException, IOException {
+        return exec(spawnCommand);
+    }
+
+    @Benchmark
+    public MultiCaseRunnerSupport.HarnessOutput run() throws InterruptedException, IOException {
+        return exec(runCommand);
+    }
+
+    private MultiCaseRunnerSupport.HarnessOutput exec(String[] command) throws InterruptedException, IOException {
+        String containerId = containerPool.acquire();
+        try {
+            return containerPool.execInContainer(containerId, command, new byte[0], EXEC_TIMEOUT);
+        } finally {
+            containerPool.release(containerId);
+        }
+    }
+}
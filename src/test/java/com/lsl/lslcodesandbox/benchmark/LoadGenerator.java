@@ -0,0 +1,293 @@
+package com.lsl.lslcodesandbox.benchmark;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.json.JSONUtil;
+import com.lsl.lslcodesandbox.metrics.SandboxMetrics;
+import com.lsl.lslcodesandbox.model.ExecuteCodeRequest;
+import com.lsl.lslcodesandbox.model.ExecuteCodeResponse;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 对 /api/codesandbox/execute 施加比赛式负载，用于评估机器能撑多少提交
+ * 只依赖一个在本机启动的沙箱服务：mvn -Pload test-compile exec:exec，参数见下
+ * <p>
+ * closed：固定并发，每个虚拟用户收到响应后立即发下一个请求，测最大吞吐
+ * open：按固定速率发请求，不管前面的是否返回；延迟从计划发送时刻算起，服务跟不上时排队时间也计入
+ * <p>
+ * -Dload.url          接口地址，默认 http://localhost:8099/api/codesandbox/execute
+ * -Dload.mode         closed 或 open，默认 closed
+ * -Dload.concurrency  closed 模式的并发数，默认 8
+ * -Dload.rate         open 模式每秒请求数，默认 10
+ * -Dload.max-in-flight open 模式未返回请求数上限，超出的请求记为 dropped，默认 1000
+ * -Dload.duration     统计时长（秒），默认 60；之前还有 -Dload.warmup 秒（默认 10）的预热，不计入结果
+ * -Dload.timeout      单个请求的超时（毫秒），默认 60000
+ * -Dload.mix          提交组合，程序名:权重，逗号分隔，程序为 src/main/resources 下的示例
+ * -Dload.result       JSON 报告文件，默认 target/load-result.json
+ */
+public class LoadGenerator {
+
+    private static final String DEFAULT_MIX = "SimpleCompute:50,NormalCompute:15,RecursionTest:10,MultiThreadTest:10," +
+            "InfiniteLoop:5,MemoryOverflow:5,SleepError:5";
+
+    private static final String ERROR_TIMEOUT = "timeout";
+
+    private static final String ERROR_DROPPED = "dropped";
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .executor(Executors.newCachedThreadPool(r -> {
+                Thread thread = new Thread(r, "load-http");
+                thread.setDaemon(true);
+                return thread;
+            }))
+            .build();
+
+    private final URI uri;
+
+    private final Duration timeout;
+
+    /**
+     * 按权重展开后的提交，随机取一个即按权重抽样
+     */
+    private final List<Submission> weightedMix = new ArrayList<>();
+
+    private final Recorder recorder = new Recorder();
+
+    public LoadGenerator(String url, String mix, long timeoutMillis) {
+        this.uri = URI.create(url);
+        this.timeout = Duration.ofMillis(timeoutMillis);
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split(":");
+            Submission submission = new Submission(parts[0], JSONUtil.toJsonStr(request(parts[0])));
+            int weight = parts.length > 1 ? Integer.parseInt(parts[1]) : 1;
+            for (int i = 0; i < weight; i++) {
+                weightedMix.add(submission);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadGenerator generator = new LoadGenerator(
+                System.getProperty("load.url", "http://localhost:8099/api/codesandbox/execute"),
+                System.getProperty("load.mix", DEFAULT_MIX),
+                Long.getLong("load.timeout", 60000));
+        String mode = System.getProperty("load.mode", "closed");
+        long warmupNanos = TimeUnit.SECONDS.toNanos(Long.getLong("load.warmup", 10));
+        long durationNanos = TimeUnit.SECONDS.toNanos(Long.getLong("load.duration", 60));
+
+        Map<String, Object> report;
+        if ("open".equals(mode)) {
+            double rate = Double.parseDouble(System.getProperty("load.rate", "10"));
+            report = generator.runOpen(rate, Integer.getInteger("load.max-in-flight", 1000), warmupNanos, durationNanos);
+        } else {
+            report = generator.runClosed(Integer.getInteger("load.concurrency", 8), warmupNanos, durationNanos);
+        }
+        String json = JSONUtil.toJsonPrettyStr(report);
+        System.out.println(json);
+        FileUtil.writeUtf8String(json, System.getProperty("load.result", "target/load-result.json"));
+    }
+
+    /**
+     * 固定并发：每个虚拟用户串行发请求
+     */
+    public Map<String, Object> runClosed(int concurrency, long warmupNanos, long durationNanos) throws InterruptedException {
+        long measureStart = System.nanoTime() + warmupNanos;
+        long deadline = measureStart + durationNanos;
+        ExecutorService users = Executors.newFixedThreadPool(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            users.execute(() -> {
+                while (System.nanoTime() < deadline) {
+                    long start = System.nanoTime();
+                    send(pick(), start, start >= measureStart).join();
+                }
+            });
+        }
+        users.shutdown();
+        users.awaitTermination(durationNanos + warmupNanos + timeout.toNanos() * 2, TimeUnit.NANOSECONDS);
+        Map<String, Object> report = recorder.report(durationNanos);
+        report.put("mode", "closed");
+        report.put("concurrency", concurrency);
+        return report;
+    }
+
+    /**
+     * 固定速率：第 i 个请求的计划发送时刻是 start + i / rate，发送不等前面的返回
+     */
+    public Map<String, Object> runOpen(double rate, int maxInFlight, long warmupNanos, long durationNanos) {
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+        long start = System.nanoTime();
+        long measureStart = start + warmupNanos;
+        long deadline = measureStart + durationNanos;
+        AtomicInteger inFlight = new AtomicInteger();
+        List<CompletableFuture<Void>> pending = Collections.synchronizedList(new ArrayList<>());
+        for (long i = 0; ; i++) {
+            long scheduled = start + i * intervalNanos;
+            if (scheduled >= deadline) {
+                break;
+            }
+            long delay = scheduled - System.nanoTime();
+            if (delay > 0) {
+                LockSupport.parkNanos(delay);
+            }
+            boolean measured = scheduled >= measureStart;
+            if (inFlight.get() >= maxInFlight) {
+                if (measured) {
+                    recorder.recordError(ERROR_DROPPED);
+                }
+                continue;
+            }
+            inFlight.incrementAndGet();
+            CompletableFuture<Void> future = send(pick(), scheduled, measured);
+            pending.add(future);
+            future.whenComplete((ignored, e) -> inFlight.decrementAndGet());
+        }
+        CompletableFuture.allOf(pending.toArray(new CompletableFuture[0])).join();
+        Map<String, Object> report = recorder.report(durationNanos);
+        report.put("mode", "open");
+        report.put("targetRate", rate);
+        return report;
+    }
+
+    private Submission pick() {
+        return weightedMix.get(ThreadLocalRandom.current().nextInt(weightedMix.size()));
+    }
+
+    /**
+     * 发一个请求，完成时按 startNanos 算延迟；measured 为 false 的（预热期）不记录
+     */
+    private CompletableFuture<Void> send(Submission submission, long startNanos, boolean measured) {
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .timeout(timeout)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(submission.body))
+                .build();
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .handle((response, e) -> {
+                    if (!measured) {
+                        return null;
+                    }
+                    long latency = System.nanoTime() - startNanos;
+                    if (e != null) {
+                        Throwable cause = rootCause(e);
+                        recorder.recordError(cause instanceof HttpTimeoutException ? ERROR_TIMEOUT : "io:" + cause.getClass().getSimpleName());
+                    } else if (response.statusCode() != 200) {
+                        recorder.recordError("http:" + response.statusCode());
+                    } else {
+                        recorder.record(submission.name, latency,
+                                SandboxMetrics.verdictOf(JSONUtil.toBean(response.body(), ExecuteCodeResponse.class), 1));
+                    }
+                    return null;
+                });
+    }
+
+    private static Throwable rootCause(Throwable e) {
+        while (e.getCause() != null) {
+            e = e.getCause();
+        }
+        return e;
+    }
+
+    private static ExecuteCodeRequest request(String name) {
+        ExecuteCodeRequest request = new ExecuteCodeRequest();
+        request.setLanguage("java");
+        request.setCode(Workloads.submission(name));
+        request.setInputList(Collections.singletonList(Workloads.input(name)));
+        return request;
+    }
+
+    private static class Submission {
+
+        private final String name;
+
+        /**
+         * 序列化好的请求体，发请求时不再重复序列化
+         */
+        private final String body;
+
+        Submission(String name, String body) {
+            this.name = name;
+            this.body = body;
+        }
+    }
+
+    /**
+     * 收集延迟和各类计数；样本量在万级，直接保存全部延迟，结束时排序取精确分位数
+     */
+    static class Recorder {
+
+        private final List<Long> latencies = new ArrayList<>();
+
+        private final Map<String, List<Long>> latenciesBySubmission = new TreeMap<>();
+
+        private final Map<String, Integer> verdicts = new TreeMap<>();
+
+        private final Map<String, Integer> errors = new TreeMap<>();
+
+        synchronized void record(String submission, long latencyNanos, String verdict) {
+            latencies.add(latencyNanos);
+            latenciesBySubmission.computeIfAbsent(submission, key -> new ArrayList<>()).add(latencyNanos);
+            verdicts.merge(verdict, 1, Integer::sum);
+        }
+
+        synchronized void recordError(String error) {
+            errors.merge(error, 1, Integer::sum);
+        }
+
+        synchronized Map<String, Object> report(long durationNanos) {
+            int errorCount = errors.values().stream().mapToInt(Integer::intValue).sum();
+            Map<String, Object> report = new LinkedHashMap<>();
+            report.put("durationSeconds", durationNanos / 1e9);
+            report.put("completed", latencies.size());
+            report.put("errors", errorCount);
+            report.put("throughput", latencies.size() / (durationNanos / 1e9));
+            report.put("latencyMillis", percentiles(latencies));
+            Map<String, Object> bySubmission = new LinkedHashMap<>();
+            latenciesBySubmission.forEach((name, values) -> bySubmission.put(name, percentiles(values)));
+            report.put("latencyMillisBySubmission", bySubmission);
+            report.put("verdicts", verdicts);
+            report.put("errorTypes", errors);
+            return report;
+        }
+
+        /**
+         * 最近秩法取分位数（毫秒）
+         */
+        static Map<String, Object> percentiles(List<Long> values) {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("count", values.size());
+            if (values.isEmpty()) {
+                return result;
+            }
+            long[] sorted = values.stream().mapToLong(Long::longValue).toArray();
+            Arrays.sort(sorted);
+            result.put("min", sorted[0] / 1e6);
+            result.put("mean", Arrays.stream(sorted).average().orElse(0) / 1e6);
+            for (double p : new double[]{50, 95, 99, 99.9}) {
+                int rank = (int) Math.ceil(p / 100 * sorted.length);
+                result.put("p" + (p == 99.9 ? "999" : String.valueOf((int) p)), sorted[Math.max(rank, 1) - 1] / 1e6);
+            }
+            result.put("max", sorted[sorted.length - 1] / 1e6);
+            return result;
+        }
+    }
+}
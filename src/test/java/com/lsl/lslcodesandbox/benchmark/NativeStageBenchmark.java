@@ -0,0 +1,209 @@
+package com.lsl.lslcodesandbox.benchmark;
+
+import cn.hutool.core.io.FileUtil;
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ast.CompilationUnit;
+import com.lsl.lslcodesandbox.compiler.CompileResult;
+import com.lsl.lslcodesandbox.compiler.InMemoryJavaCompiler;
+import com.lsl.lslcodesandbox.config.CodeSandboxProperties;
+import com.lsl.lslcodesandbox.language.JavaLanguage;
+import com.lsl.lslcodesandbox.security.BytecodeScanner;
+import com.lsl.lslcodesandbox.security.CheckResult;
+import com.lsl.lslcodesandbox.security.ScanResult;
+import com.lsl.lslcodesandbox.security.StaticChecker;
+import com.lsl.lslcodesandbox.workspace.Workspace;
+import com.lsl.lslcodesandbox.workspace.WorkspaceManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 原生沙箱各阶段的耗时，与 JavaNativeCodeSandBox 的执行流程一一对应：
+ * 解析 -> 静态检查 / 字节码扫描 -> 写入工作区 -> 编译 -> 启动进程 -> 运行 -> 清理
+ * 各阶段直接调用沙箱用到的组件，不经过 Spring 容器和缓存，测的是每次提交都要付出的成本
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NativeStageBenchmark {
+
+    /**
+     * 只有空 main 方法的类，启动它的耗时即启动一个 JVM 进程的固定成本
+     */
+    private static final String EMPTY_CLASS = "Empty";
+
+    @Param({Workloads.SIMPLE_COMPUTE, Workloads.NORMAL_COMPUTE, Workloads.MULTI_THREAD_TEST, Workloads.RECURSION_TEST})
+    public String workload;
+
+    private String code;
+
+    private StaticChecker staticChecker;
+
+    private BytecodeScanner bytecodeScanner;
+
+    private InMemoryJavaCompiler inMemoryJavaCompiler;
+
+    private WorkspaceManager workspaceManager;
+
+    private Map<String, byte[]> classBytes;
+
+    /**
+     * 放好编译产物的工作区，启动进程和运行两个阶段共用
+     */
+    private Workspace workspace;
+
+    private List<String> spawnCommand;
+
+    private List<String> runCommand;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        code = Workloads.source(workload);
+        CodeSandboxProperties properties = new CodeSandboxProperties();
+        // 不缓存检查结论，每次都完整解析、检查
+        properties.getSecurity().setCacheSize(0);
+        properties.getCompile().setWarmUp(false);
+        // 独立的工作区根目录，初始化时会清空，不能与正在运行的服务共用
+        properties.getWorkspace().setRoot(Files.createTempDirectory("oj-sandbox-bench").toString());
+
+        staticChecker = new StaticChecker(properties);
+        staticChecker.init();
+        bytecodeScanner = new BytecodeScanner(properties);
+        bytecodeScanner.init();
+        inMemoryJavaCompiler = new InMemoryJavaCompiler(properties);
+        inMemoryJavaCompiler.init();
+        workspaceManager = new WorkspaceManager(properties);
+        workspaceManager.init();
+
+        CompileResult compileResult = inMemoryJavaCompiler.compile(workload, code);
+        if (!compileResult.isSuccess()) {
+            throw new IllegalStateException("负载程序编译失败：" + compileResult.getMessage());
+        }
+        classBytes = compileResult.getClassBytes();
+        workspace = workspaceManager.acquire();
+        workspace.writeClassFiles(classBytes);
+        workspace.writeClassFiles(inMemoryJavaCompiler.compile(EMPTY_CLASS,
+                "public class " + EMPTY_CLASS + " { public static void main(String[] args) { } }").getClassBytes());
+
+        JavaLanguage language = new JavaLanguage();
+        spawnCommand = language.runCommand(workspace.getPath(), File.separator, EMPTY_CLASS);
+        runCommand = new ArrayList<>(language.runCommand(workspace.getPath(), File.separator, workload));
+        runCommand.addAll(Workloads.args(workload));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        workspace.close();
+        workspaceManager.shutdown();
+        FileUtil.del(workspaceManager.getRoot());
+    }
+
+    @Benchmark
+    public ParseResult<CompilationUnit> parse() {
+        return new JavaParser().parse(code);
+    }
+
+    /**
+     * 源码静态检查，含一次解析
+     */
+    @Benchmark
+    public CheckResult check() {
+        return staticChecker.check(code);
+    }
+
+    @Benchmark
+    public ScanResult scan() {
+        return bytecodeScanner.scan(classBytes);
+    }
+
+    /**
+     * 申请工作区，写入源码和字节码，再归还
+     */
+    @Benchmark
+    public Workspace write() throws IOException {
+        try (Workspace target = workspaceManager.acquire()) {
+            target.writeFile(workload + ".java", code.getBytes(StandardCharsets.UTF_8));
+            target.writeClassFiles(classBytes);
+            return target;
+        }
+    }
+
+    @Benchmark
+    public CompileResult compile() {
+        return inMemoryJavaCompiler.compile(workload, code);
+    }
+
+    @Benchmark
+    public int spawn() throws IOException, InterruptedException {
+        return waitFor(spawnCommand);
+    }
+
+    @Benchmark
+    public int run() throws IOException, InterruptedException {
+        return waitFor(runCommand);
+    }
+
+    /**
+     * 清空一个写过编译产物的工作区目录（归还后后台线程做的事）
+     */
+    @Benchmark
+    public boolean cleanup(DirtyDir dirtyDir) {
+        return FileUtil.clean(dirtyDir.dir);
+    }
+
+    private static int waitFor(List<String> command) throws IOException, InterruptedException {
+        Process process = new ProcessBuilder(command)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        return process.waitFor();
+    }
+
+    /**
+     * 每次调用前重新写入字节码的目录
+     */
+    @State(Scope.Thread)
+    public static class DirtyDir {
+
+        private File dir;
+
+        @Setup(Level.Trial)
+        public void create() throws IOException {
+            dir = Files.createTempDirectory("oj-sandbox-bench-dirty").toFile();
+        }
+
+        @Setup(Level.Invocation)
+        public void fill(NativeStageBenchmark benchmark) {
+            InMemoryJavaCompiler.writeClassFiles(benchmark.classBytes, dir.getPath());
+            FileUtil.writeUtf8String(benchmark.code, new File(dir, benchmark.workload + ".java"));
+        }
+
+        @TearDown(Level.Trial)
+        public void delete() {
+            FileUtil.del(dir);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.lsl.lslcodesandbox.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 基准测试入口：mvn -Pbenchmark test-compile exec:exec
+ * <p>
+ * -Dbenchmark.include    要跑的基准（正则），默认全部
+ * -Dbenchmark.backends   native 或 native,docker；不含 docker 时跳过所有需要 Docker 的基准
+ * -Dbenchmark.docker-host 用兼容 Docker API 的本地服务代替 Docker（如 unix:///run/podman/podman.sock）
+ * -Dbenchmark.result     JSON 结果文件，默认 target/jmh-result.json，不同版本的结果可以直接对比
+ */
+public class SandboxBenchmarks {
+
+    public static void main(String[] args) throws RunnerException {
+        List<String> backends = Arrays.asList(System.getProperty("benchmark.backends", "native").split(","));
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .include(System.getProperty("benchmark.include", "Benchmark"))
+                .param("backend", backends.toArray(new String[0]))
+                .resultFormat(ResultFormatType.JSON)
+                .result(System.getProperty("benchmark.result", "target/jmh-result.json"));
+        if (!backends.contains("docker")) {
+            options.exclude(DockerStageBenchmark.class.getSimpleName());
+        }
+        String dockerHost = System.getProperty("benchmark.docker-host", "");
+        if (!dockerHost.isEmpty()) {
+            // docker-java 的默认配置会读取同名的系统属性
+            options.jvmArgsAppend("-DDOCKER_HOST=" + dockerHost);
+        }
+        new Runner(options.build()).run();
+    }
+}
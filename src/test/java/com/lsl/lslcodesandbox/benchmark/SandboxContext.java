@@ -0,0 +1,34 @@
+package com.lsl.lslcodesandbox.benchmark;
+
+import com.lsl.lslcodesandbox.LslCodeSandboxApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * 在基准测试进程里启动完整的沙箱应用（不开 Web 端口）
+ */
+final class SandboxContext {
+
+    private SandboxContext() {
+    }
+
+    /**
+     * 关闭编译缓存和检查结论缓存，每次提交都走完整流程；工作区根目录单独一个，避免清掉正在运行的服务的工作区
+     */
+    static ConfigurableApplicationContext start(String... extraProperties) throws IOException {
+        String[] properties = new String[extraProperties.length + 4];
+        properties[0] = "codesandbox.cache.enabled=false";
+        properties[1] = "codesandbox.cache.persist=false";
+        properties[2] = "codesandbox.security.cache-size=0";
+        properties[3] = "codesandbox.workspace.root=" + Files.createTempDirectory("oj-sandbox-bench");
+        System.arraycopy(extraProperties, 0, properties, 4, extraProperties.length);
+        return new SpringApplicationBuilder(LslCodeSandboxApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(properties)
+                .run();
+    }
+}
@@ -0,0 +1,79 @@
+package com.lsl.lslcodesandbox.benchmark;
+
+import com.lsl.lslcodesandbox.JavaDockerCodeSandbox;
+import com.lsl.lslcodesandbox.JavaNativeCodeSandBox;
+import com.lsl.lslcodesandbox.model.ExecuteCodeRequest;
+import com.lsl.lslcodesandbox.model.ExecuteCodeResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一次提交从源码到结果的总耗时，按后端分别测：native 为 JavaNativeCodeSandBox，docker 为 JavaDockerCodeSandbox
+ * 各阶段的拆分见 NativeStageBenchmark、DockerStageBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class SandboxEndToEndBenchmark {
+
+    @Param({"native", "docker"})
+    public String backend;
+
+    @Param({Workloads.SIMPLE_COMPUTE, Workloads.NORMAL_COMPUTE, Workloads.MULTI_THREAD_TEST, Workloads.RECURSION_TEST})
+    public String workload;
+
+    private ConfigurableApplicationContext context;
+
+    private JavaNativeCodeSandBox javaNativeCodeSandBox;
+
+    private JavaDockerCodeSandbox javaDockerCodeSandbox;
+
+    private ExecuteCodeRequest request;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        context = SandboxContext.start();
+        javaNativeCodeSandBox = context.getBean(JavaNativeCodeSandBox.class);
+        javaDockerCodeSandbox = context.getBean(JavaDockerCodeSandbox.class);
+        request = new ExecuteCodeRequest();
+        request.setLanguage("java");
+        request.setCode(Workloads.submission(workload));
+        request.setInputList(Collections.singletonList(Workloads.input(workload)));
+
+        // 先跑一次确认后端可用，失败的组合直接报错，不产出无意义的数字
+        ExecuteCodeResponse response = execute();
+        int success = "docker".equals(backend) ? 2 : 1;
+        if (response.getStatus() == null || response.getStatus() != success) {
+            throw new IllegalStateException(backend + " 后端执行 " + workload + " 失败：" + response.getMessage());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public ExecuteCodeResponse execute() {
+        return "docker".equals(backend) ? javaDockerCodeSandbox.execute(request) : javaNativeCodeSandBox.execute(request);
+    }
+}
@@ -0,0 +1,93 @@
+package com.lsl.lslcodesandbox.benchmark;
+
+import cn.hutool.core.io.IoUtil;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 基准测试和压测的负载：src/main/resources 下的示例程序（文件名即主类名）
+ * 示例程序从命令行参数取输入，而沙箱把用例输入写进标准输入，提交给沙箱时包一层从标准输入读参数的 Main
+ */
+final class Workloads {
+
+    static final String SIMPLE_COMPUTE = "SimpleCompute";
+
+    static final String NORMAL_COMPUTE = "NormalCompute";
+
+    static final String MULTI_THREAD_TEST = "MultiThreadTest";
+
+    static final String RECURSION_TEST = "RecursionTest";
+
+    /**
+     * 以下为恶意提交，不需要参数，分别触发超时、内存超限、睡眠超过墙钟时间
+     */
+    static final String INFINITE_LOOP = "InfiniteLoop";
+
+    static final String MEMORY_OVERFLOW = "MemoryOverflow";
+
+    static final String SLEEP_ERROR = "SleepError";
+
+    private Workloads() {
+    }
+
+    /**
+     * 示例程序的源码
+     */
+    static String source(String name) {
+        try (InputStream in = Workloads.class.getClassLoader().getResourceAsStream(name + ".java")) {
+            if (in == null) {
+                throw new IllegalArgumentException("找不到负载程序: " + name);
+            }
+            return IoUtil.read(in, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new IllegalStateException("读取负载程序失败: " + name, e);
+        }
+    }
+
+    /**
+     * 示例程序的命令行参数，也是提交给沙箱时的用例输入
+     */
+    static List<String> args(String name) {
+        switch (name) {
+            case SIMPLE_COMPUTE:
+                return Arrays.asList("1", "2");
+            case NORMAL_COMPUTE:
+                return Arrays.asList("10", "5");
+            case MULTI_THREAD_TEST:
+                return Arrays.asList("4");
+            case RECURSION_TEST:
+                return Arrays.asList("1000");
+            case INFINITE_LOOP:
+            case MEMORY_OVERFLOW:
+            case SLEEP_ERROR:
+                return Collections.emptyList();
+            default:
+                throw new IllegalArgumentException("未知的负载程序: " + name);
+        }
+    }
+
+    /**
+     * 用例输入：参数用空格连起来占一行
+     */
+    static String input(String name) {
+        return String.join(" ", args(name));
+    }
+
+    /**
+     * 提交给沙箱的源码：示例程序降为包级类，public 的 Main 从标准输入读一行参数转交给它
+     */
+    static String submission(String name) {
+        return source(name).replace("public class " + name, "class " + name) + "\n" +
+                "public class Main {\n" +
+                "    public static void main(String[] args) throws Exception {\n" +
+                "        java.util.Scanner sc = new java.util.Scanner(System.in);\n" +
+                "        " + name + ".main(sc.hasNextLine() ? sc.nextLine().trim().split(\"\\\\s+\") : new String[0]);\n" +
+                "    }\n" +
+                "}\n";
+    }
+}
@@ -0,0 +1,98 @@
+package com.lsl.lslcodesandbox.capture;
+
+import com.lsl.lslcodesandbox.config.CodeSandboxProperties;
+import com.lsl.lslcodesandbox.runner.MultiCaseRunnerSupport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 子进程输入输出采集测试（依赖 sh、cat、yes 等命令）
+ */
+class ProcessOutputCaptureTest {
+
+    private CodeSandboxProperties properties;
+
+    private ProcessOutputCapture processOutputCapture;
+
+    @BeforeEach
+    void setUp() {
+        properties = new CodeSandboxProperties();
+        properties.getOutput().setLimit(8 * 1024 * 1024);
+        properties.getOutput().setErrorLimit(4 * 1024 * 1024);
+        properties.getOutput().setChunkSize(16 * 1024);
+        processOutputCapture = new ProcessOutputCapture(properties);
+        processOutputCapture.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        processOutputCapture.shutdown();
+    }
+
+    private static Process start(String script) throws Exception {
+        return new ProcessBuilder("sh", "-c", script).start();
+    }
+
+    @Test
+    void testLargeInputAndStderrDoNotDeadlock() throws Exception {
+        // 输入、标准错误都远大于管道缓冲：先写完输入再读输出、先读完标准输出再读标准错误都会卡死
+        byte[] stdin = new byte[4 * 1024 * 1024];
+        Arrays.fill(stdin, (byte) 'a');
+        Process process = start("head -c 2000000 /dev/zero >&2; cat");
+        MultiCaseRunnerSupport.HarnessOutput output = processOutputCapture.run(process, stdin, 10000);
+
+        assertFalse(output.isTimedOut());
+        assertFalse(output.isOutputLimitExceeded());
+        assertEquals(0, output.getExitValue());
+        assertEquals(stdin.length, output.getStdout().length);
+        assertEquals(2000000, output.getStderr().length());
+    }
+
+    @Test
+    void testOutputLimitKillsProcess() throws Exception {
+        properties.getOutput().setLimit(1024 * 1024);
+        long startTime = System.currentTimeMillis();
+        MultiCaseRunnerSupport.HarnessOutput output = processOutputCapture.run(start("yes"), new byte[0], 10000);
+
+        assertTrue(output.isOutputLimitExceeded());
+        assertFalse(output.isTimedOut());
+        assertEquals(1024 * 1024, output.getStdout().length);
+        assertTrue(System.currentTimeMillis() - startTime < 5000);
+    }
+
+    @Test
+    void testStderrLimit() throws Exception {
+        properties.getOutput().setErrorLimit(64 * 1024);
+        MultiCaseRunnerSupport.HarnessOutput output = processOutputCapture.run(start("yes >&2"), new byte[0], 10000);
+        assertTrue(output.isOutputLimitExceeded());
+    }
+
+    @Test
+    void testTimeout() throws Exception {
+        MultiCaseRunnerSupport.HarnessOutput output = processOutputCapture.run(start("echo hi; sleep 10"), new byte[0], 300);
+        assertTrue(output.isTimedOut());
+        assertFalse(output.isOutputLimitExceeded());
+        assertEquals("hi\n", new String(output.getStdout(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testBoundedBufferReturnsChunksToPool() throws Exception {
+        BufferPool pool = new BufferPool(4, 8);
+        BoundedBuffer buffer = new BoundedBuffer(pool, 10);
+        assertTrue(buffer.write("hello".getBytes(StandardCharsets.UTF_8), 0, 5));
+        assertTrue(buffer.readFrom(new ByteArrayInputStream("abc".getBytes(StandardCharsets.UTF_8))));
+        assertFalse(buffer.write("world".getBytes(StandardCharsets.UTF_8), 0, 5));
+        assertTrue(buffer.isOverflowed());
+        assertEquals("helloabcwo", buffer.toString(StandardCharsets.UTF_8));
+
+        buffer.release();
+        assertEquals(3, pool.pooledCount());
+    }
+}
@@ -0,0 +1,55 @@
+package com.lsl.lslcodesandbox.cds;
+
+import com.lsl.lslcodesandbox.compiler.InMemoryJavaCompiler;
+import com.lsl.lslcodesandbox.config.CodeSandboxProperties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * CDS 归档生成测试
+ */
+class CdsArchiveBuilderTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testBuildArchive() throws Exception {
+        CodeSandboxProperties properties = new CodeSandboxProperties();
+        properties.getCompile().setWarmUp(false);
+        InMemoryJavaCompiler inMemoryJavaCompiler = new InMemoryJavaCompiler(properties);
+        inMemoryJavaCompiler.init();
+
+        String dir = tempDir.resolve("cds").toString();
+        CdsArchiveBuilder builder = new CdsArchiveBuilder(inMemoryJavaCompiler, CdsArchiveManager::runLocal,
+                dir, dir, File.separator);
+        String code = "public class Add {\n" +
+                "    public static void main(String[] args) {\n" +
+                "        System.out.println(Integer.parseInt(args[0]) + Integer.parseInt(args[1]));\n" +
+                "    }\n" +
+                "}";
+        CdsArchiveBuilder.BuildResult result = builder.build(Collections.singletonMap("Add", code));
+
+        assertTrue(new File(result.getArchivePath()).exists());
+        // Scanner 来自内置的典型提交训练程序
+        List<String> classList = cn.hutool.core.io.FileUtil.readUtf8Lines(new File(dir, "classes.lst"));
+        assertTrue(classList.contains("java/util/Scanner"));
+        assertTrue(classList.stream().allMatch(name -> name.startsWith("java/") || name.startsWith("javax/")
+                || name.startsWith("jdk/") || name.startsWith("sun/") || name.startsWith("com/sun/")));
+        assertFalse(new File(dir, "training").exists());
+
+        // -Xshare:on 时归档不可用会直接启动失败
+        List<String> cmd = new ArrayList<>(Arrays.asList("java", "-XX:SharedArchiveFile=" + result.getArchivePath(), "-Xshare:on", "-version"));
+        assertEquals(0, CdsArchiveManager.runLocal(cmd, "".getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,133 @@
+package com.lsl.lslcodesandbox.compare;
+
+import com.lsl.lslcodesandbox.capture.ProcessOutputCapture;
+import com.lsl.lslcodesandbox.config.CodeSandboxProperties;
+import com.lsl.lslcodesandbox.model.CompareModeEnum;
+import com.lsl.lslcodesandbox.model.ExecuteCodeRequest;
+import com.lsl.lslcodesandbox.model.ExecuteMessage;
+import com.lsl.lslcodesandbox.model.JudgeInfoMessageEnum;
+import com.lsl.lslcodesandbox.runner.MultiCaseRunnerSupport;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 沙箱内输出比对测试
+ */
+class OutputComparatorTest {
+
+    /**
+     * 按字节逐个喂给比对器，模拟输出被拆成任意小段到达
+     */
+    private static String compare(OutputComparator comparator, String actual) {
+        byte[] bytes = actual.getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < bytes.length; i++) {
+            if (!comparator.accept(bytes, i, 1)) {
+                break;
+            }
+        }
+        return comparator.finish();
+    }
+
+    @Test
+    void testExact() {
+        assertNull(compare(OutputComparator.ofExpected("1 2\n结果 3\n", CompareModeEnum.EXACT, 0), "\n1 2\n结果 3  \n\n"));
+        assertNotNull(compare(OutputComparator.ofExpected("1 2\n3", CompareModeEnum.EXACT, 0), "1  2\n3"));
+        // 少了、多了都不行
+        assertNotNull(compare(OutputComparator.ofExpected("1 2 3", CompareModeEnum.EXACT, 0), "1 2"));
+        assertNotNull(compare(OutputComparator.ofExpected("1 2", CompareModeEnum.EXACT, 0), "1 2 3"));
+
+        String diff = compare(OutputComparator.ofExpected("a\nb\nc", CompareModeEnum.EXACT, 0), "a\nx\nc");
+        assertTrue(diff.contains("第 2 行"), diff);
+        assertTrue(diff.contains("\"b\""), diff);
+    }
+
+    @Test
+    void testIgnoreWhitespaceAndFloat() {
+        assertNull(compare(OutputComparator.ofExpected("1 2\n3", CompareModeEnum.IGNORE_WHITESPACE, 0), "1\t2   3\r\n"));
+        String diff = compare(OutputComparator.ofExpected("1 2 3", CompareModeEnum.IGNORE_WHITESPACE, 0), "1 5 3");
+        assertTrue(diff.contains("第 2 个词"), diff);
+        assertNotNull(compare(OutputComparator.ofExpected("1 2", CompareModeEnum.IGNORE_WHITESPACE, 0), "1 2 3"));
+
+        assertNull(compare(OutputComparator.ofExpected("0.333333 100000", CompareModeEnum.FLOAT, 1e-4), "0.33334 100000.5"));
+        assertNotNull(compare(OutputComparator.ofExpected("0.5", CompareModeEnum.FLOAT, 1e-4), "0.51"));
+        assertNotNull(compare(OutputComparator.ofExpected("abc", CompareModeEnum.FLOAT, 1e-4), "abd"));
+    }
+
+    @Test
+    void testHash() {
+        String hash = OutputComparator.hash("1  2\n3\n", CompareModeEnum.IGNORE_WHITESPACE);
+        assertEquals(OutputComparator.hash("1 2 3", CompareModeEnum.IGNORE_WHITESPACE), hash);
+        assertNull(compare(OutputComparator.ofHash(hash, CompareModeEnum.IGNORE_WHITESPACE), "1\n2\n3"));
+        assertNotNull(compare(OutputComparator.ofHash(hash, CompareModeEnum.IGNORE_WHITESPACE), "1 2 4"));
+
+        String exactHash = OutputComparator.hash("a b", CompareModeEnum.EXACT);
+        assertNull(compare(OutputComparator.ofHash(exactHash, CompareModeEnum.EXACT), "  a b\n"));
+        assertNotNull(compare(OutputComparator.ofHash(exactHash, CompareModeEnum.EXACT), "a  b"));
+        assertThrows(IllegalArgumentException.class, () -> OutputComparator.ofHash(exactHash, CompareModeEnum.FLOAT));
+    }
+
+    @Test
+    void testJudgeAllFailFast() {
+        ExecuteCodeRequest request = ExecuteCodeRequest.builder()
+                .inputList(Arrays.asList("", "", ""))
+                .expectedOutputList(Arrays.asList("1", "2", "3"))
+                .failFast(true)
+                .build();
+        ExpectedOutputs expectedOutputs = ExpectedOutputs.of(request, 3);
+        List<ExecuteMessage> judged = expectedOutputs.judgeAll(0, Arrays.asList(message("1"), message("x"), message("3")));
+        assertEquals(2, judged.size());
+        assertNull(judged.get(0).getVerdict());
+        assertNull(judged.get(0).getMessage());
+        assertEquals(JudgeInfoMessageEnum.WRONG_ANSWER, judged.get(1).getVerdict());
+        assertTrue(expectedOutputs.stopsAfter(judged.get(1)));
+
+        request.setFailFast(false);
+        judged = ExpectedOutputs.of(request, 3).judgeAll(0, Arrays.asList(message("1"), message("x"), message("3")));
+        assertEquals(3, judged.size());
+        assertEquals(JudgeInfoMessageEnum.ACCEPTED, ExpectedOutputs.verdictOf(2, judged.get(2)).getVerdict());
+
+        request.setExpectedOutputList(Arrays.asList("1", "2"));
+        assertThrows(IllegalArgumentException.class, () -> ExpectedOutputs.of(request, 3));
+    }
+
+    @Test
+    void testMismatchStopsProcessEarly() throws Exception {
+        ProcessOutputCapture processOutputCapture = new ProcessOutputCapture(new CodeSandboxProperties());
+        processOutputCapture.init();
+        try {
+            // 第一行就错了，不必等它输出到上限
+            long startTime = System.currentTimeMillis();
+            OutputComparator comparator = OutputComparator.ofExpected("1\n2\n3", CompareModeEnum.EXACT, 0);
+            Process process = new ProcessBuilder("yes").start();
+            MultiCaseRunnerSupport.HarnessOutput output = processOutputCapture.run(process, new byte[0], 10000,
+                    1024 * 1024, comparator);
+            assertTrue(System.currentTimeMillis() - startTime < 5000);
+            assertFalse(output.isTimedOut());
+            assertFalse(output.isOutputLimitExceeded());
+
+            ExecuteMessage executeMessage = message(new String(output.getStdout(), StandardCharsets.UTF_8));
+            executeMessage.setExitValue(output.getExitValue());
+            ExpectedOutputs.of(ExecuteCodeRequest.builder().inputList(Arrays.asList(""))
+                    .expectedOutputList(Arrays.asList("1\n2\n3")).build(), 1).judge(executeMessage, comparator);
+            // 被比对器结束的进程退出码非 0，但判为答案错误而不是运行错误
+            assertEquals(JudgeInfoMessageEnum.WRONG_ANSWER, executeMessage.getVerdict());
+            assertTrue(executeMessage.getDiff().contains("\"1\""), executeMessage.getDiff());
+        } finally {
+            processOutputCapture.shutdown();
+        }
+    }
+
+    private static ExecuteMessage message(String output) {
+        ExecuteMessage executeMessage = new ExecuteMessage();
+        executeMessage.setExitValue(0);
+        executeMessage.setMessage(output);
+        executeMessage.setErrorMessage("");
+        executeMessage.setTime(1L);
+        return executeMessage;
+    }
+}
@@ -0,0 +1,41 @@
+package com.lsl.lslcodesandbox.compiler;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 编译服务目录的校验：启动编译容器前发现被改动就恢复
+ */
+class CompileDaemonPoolTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testEnsureInstalledRepairsTamperedServer() throws Exception {
+        Map<String, byte[]> serverClasses = CompileDaemonPool.serverClasses();
+        File dir = tempDir.toFile();
+        assertTrue(CompileDaemonPool.ensureInstalled(dir, serverClasses));
+        assertFalse(CompileDaemonPool.ensureInstalled(dir, serverClasses));
+
+        // 替换编译服务、塞进一个多余的类
+        String serverPath = CompileServer.class.getName().replace('.', File.separatorChar) + ".class";
+        Path server = tempDir.resolve(serverPath);
+        Files.write(server, "evil".getBytes(StandardCharsets.UTF_8));
+        Path extra = server.resolveSibling("Evil.class");
+        Files.write(extra, "evil".getBytes(StandardCharsets.UTF_8));
+
+        assertTrue(CompileDaemonPool.ensureInstalled(dir, serverClasses));
+        assertArrayEquals(serverClasses.get(serverPath), Files.readAllBytes(server));
+        assertFalse(Files.exists(extra));
+        assertFalse(CompileDaemonPool.ensureInstalled(dir, serverClasses));
+    }
+}
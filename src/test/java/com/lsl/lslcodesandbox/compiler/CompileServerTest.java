@@ -0,0 +1,62 @@
+package com.lsl.lslcodesandbox.compiler;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 常驻编译服务测试：在本机起一个编译服务进程，按与编译容器相同的协议收发
+ */
+class CompileServerTest {
+
+    private Process process;
+
+    private CompileDaemonClient client;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        String classDir = new File(CompileServer.class.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath();
+        process = new ProcessBuilder("java", "-cp", classDir, CompileServer.class.getName())
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        client = new CompileDaemonClient(process.getInputStream(), process.getOutputStream());
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        process.getOutputStream().close();
+        // 宿主机关闭连接后编译服务自行退出
+        assertTrue(process.waitFor(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testCompilesRepeatedlyInOneProcess() throws Exception {
+        String code = "public class Main {\n" +
+                "    static class Node { int v; }\n" +
+                "    public static void main(String[] args) {\n" +
+                "        System.out.println(new Node().v);\n" +
+                "    }\n" +
+                "}";
+        CompileResult first = client.compile("Main", code);
+        assertTrue(first.isSuccess(), first.getMessage());
+        assertEquals((byte) 0xCA, first.getClassBytes().get("Main")[0]);
+        assertTrue(first.getClassBytes().containsKey("Main$Node"));
+
+        CompileResult failed = client.compile("Main", "public class Main { void f() { int x = \"s\"; } }");
+        assertFalse(failed.isSuccess());
+        assertTrue(failed.getClassBytes().isEmpty());
+        assertEquals("ERROR", failed.getDiagnostics().get(0).getKind());
+        assertEquals(1L, failed.getDiagnostics().get(0).getLine());
+        assertTrue(failed.getMessage().startsWith("Main.java:1:"), failed.getMessage());
+
+        // 失败之后同一个进程继续接任务
+        CompileResult again = client.compile("Main", code);
+        assertTrue(again.isSuccess());
+        assertArrayEquals(first.getClassBytes().get("Main"), again.getClassBytes().get("Main"));
+    }
+}
@@ -0,0 +1,92 @@
+package com.lsl.lslcodesandbox.compiler;
+
+import com.lsl.lslcodesandbox.config.CodeSandboxProperties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 编译产物缓存测试
+ */
+class CompiledClassCacheTest {
+
+    @TempDir
+    Path cacheDir;
+
+    private CompiledClassCache newCache(long maxBytes, boolean normalize) {
+        CodeSandboxProperties properties = new CodeSandboxProperties();
+        properties.getCache().setMaxBytes(maxBytes);
+        properties.getCache().setNormalize(normalize);
+        properties.getCache().setDir(cacheDir.toString());
+        CompiledClassCache cache = new CompiledClassCache();
+        ReflectionTestUtils.setField(cache, "codeSandboxProperties", properties);
+        cache.init();
+        return cache;
+    }
+
+    private static CompileResult compiled(String className, int size) {
+        CompileResult compileResult = new CompileResult();
+        compileResult.setSuccess(true);
+        compileResult.setClassName(className);
+        compileResult.setClassBytes(Collections.singletonMap(className, new byte[size]));
+        return compileResult;
+    }
+
+    @Test
+    void testHitMissAndLruEviction() throws Exception {
+        CompiledClassCache cache = newCache(250, false);
+        cache.put("a", compiled("A", 100));
+        cache.put("b", compiled("B", 100));
+        // 访问 a，让 b 成为最久未使用
+        assertEquals("A", cache.get("a").getClassName());
+        cache.put("c", compiled("C", 100));
+
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("a"));
+        assertNotNull(cache.get("c"));
+        assertEquals(3, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(200, cache.getCurrentBytes());
+        cache.shutdown();
+    }
+
+    @Test
+    void testFailedCompileNotCached() throws Exception {
+        CompiledClassCache cache = newCache(1024, false);
+        CompileResult failed = new CompileResult();
+        failed.setSuccess(false);
+        cache.put("x", failed);
+        assertNull(cache.get("x"));
+        cache.shutdown();
+    }
+
+    @Test
+    void testPersistAcrossRestart() throws Exception {
+        CompiledClassCache cache = newCache(1024, false);
+        cache.put("k", compiled("Main", 10));
+        cache.shutdown();
+
+        CompiledClassCache restarted = newCache(1024, false);
+        CompileResult cached = restarted.get("k");
+        assertNotNull(cached);
+        assertEquals("Main", cached.getClassName());
+        assertEquals(10, cached.getClassBytes().get("Main").length);
+        restarted.shutdown();
+    }
+
+    @Test
+    void testNormalizedKeyIgnoresCommentsAndWhitespace() throws Exception {
+        CompiledClassCache cache = newCache(1024, true);
+        String code = "public class Main { public static void main(String[] args) { System.out.println(1); } }";
+        String formatted = "// 注释\npublic class Main {\n    /* 入口 */\n    public static void main(String[] args) {\n        System.out.println(1);\n    }\n}\n";
+        assertEquals(cache.keyOf(code), cache.keyOf(formatted));
+        assertNotEquals(cache.keyOf(code), cache.keyOf(code.replace("1", "2")));
+        cache.shutdown();
+    }
+}
@@ -0,0 +1,135 @@
+package com.lsl.lslcodesandbox.compiler;
+
+import com.lsl.lslcodesandbox.config.CodeSandboxProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 内存编译器测试
+ */
+class InMemoryJavaCompilerTest {
+
+    private CodeSandboxProperties properties;
+
+    private InMemoryJavaCompiler inMemoryJavaCompiler;
+
+    @BeforeEach
+    void setUp() {
+        properties = new CodeSandboxProperties();
+        properties.getCompile().setMaxConcurrency(2);
+        properties.getCompile().setWarmUp(false);
+        inMemoryJavaCompiler = new InMemoryJavaCompiler();
+        ReflectionTestUtils.setField(inMemoryJavaCompiler, "codeSandboxProperties", properties);
+        inMemoryJavaCompiler.init();
+    }
+
+    @Test
+    void testCompileSuccess() {
+        String code = "public class Main {\n" +
+                "    static class Node { int v; }\n" +
+                "    public static void main(String[] args) {\n" +
+                "        System.out.println(new Node().v);\n" +
+                "    }\n" +
+                "}";
+        CompileResult result = inMemoryJavaCompiler.compile("Main", code);
+        assertTrue(result.isSuccess());
+        assertTrue(result.getClassBytes().containsKey("Main"));
+        assertTrue(result.getClassBytes().containsKey("Main$Node"));
+        // class 文件魔数 0xCAFEBABE
+        assertEquals((byte) 0xCA, result.getClassBytes().get("Main")[0]);
+    }
+
+    @Test
+    void testCompileError() {
+        String code = "public class Main {\n" +
+                "    public static void main(String[] args) {\n" +
+                "        int a = \"abc\";\n" +
+                "    }\n" +
+                "}";
+        CompileResult result = inMemoryJavaCompiler.compile("Main", code);
+        assertFalse(result.isSuccess());
+        assertTrue(result.getClassBytes().isEmpty());
+        assertEquals(1, result.getDiagnostics().size());
+        assertEquals("ERROR", result.getDiagnostics().get(0).getKind());
+        assertEquals(3L, result.getDiagnostics().get(0).getLine());
+        assertTrue(result.getMessage().startsWith("Main.java:3:"));
+    }
+
+    @Test
+    void testCompileTimeout() {
+        String code = "public class Main {\n" +
+                "    public static void main(String[] args) {\n" +
+                "        System.out.println(1);\n" +
+                "    }\n" +
+                "}";
+        // 时限短到任何编译都来不及，调用方不再等待，按编译失败返回
+        properties.getCompile().setTimeout(1);
+        for (int i = 0; i < 3; i++) {
+            CompileResult result = inMemoryJavaCompiler.compile("Main", code);
+            assertFalse(result.isSuccess());
+            assertEquals("编译超时", result.getMessage());
+        }
+
+        // 超时的编译在后台跑完后归还名额，之后的编译照常进行
+        properties.getCompile().setTimeout(10000);
+        assertTrue(inMemoryJavaCompiler.compile("Main", code).isSuccess());
+    }
+
+    @Test
+    void testInterruptWhileQueuedReturnsPermit() throws Exception {
+        // 换成一个被占住的执行器，提交的编译只能排在队列里
+        ExecutorService original = (ExecutorService) ReflectionTestUtils.getField(inMemoryJavaCompiler, "compileExecutor");
+        ThreadPoolExecutor blocked = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+        CountDownLatch release = new CountDownLatch(1);
+        blocked.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException ignored) {
+                // 测试结束时关闭
+            }
+        });
+        ReflectionTestUtils.setField(inMemoryJavaCompiler, "compileExecutor", blocked);
+        String code = "public class Main { public static void main(String[] args) { } }";
+        try {
+            // 名额数为 2，连续两次排队时被中断，名额都要还回来
+            for (int i = 0; i < 2; i++) {
+                AtomicReference<Throwable> error = new AtomicReference<>();
+                Thread caller = new Thread(() -> {
+                    try {
+                        inMemoryJavaCompiler.compile("Main", code);
+                    } catch (Throwable e) {
+                        error.set(e);
+                    }
+                });
+                caller.start();
+                long deadline = System.currentTimeMillis() + 5000;
+                while (blocked.getQueue().isEmpty() && System.currentTimeMillis() < deadline) {
+                    Thread.sleep(5);
+                }
+                assertFalse(blocked.getQueue().isEmpty());
+                caller.interrupt();
+                caller.join(5000);
+                assertTrue(error.get().getMessage().contains("中断"), String.valueOf(error.get()));
+                blocked.purge();
+            }
+        } finally {
+            release.countDown();
+            blocked.shutdownNow();
+            ReflectionTestUtils.setField(inMemoryJavaCompiler, "compileExecutor", original);
+        }
+        Semaphore permits = (Semaphore) ReflectionTestUtils.getField(inMemoryJavaCompiler, "compilePermits");
+        assertEquals(2, permits.availablePermits());
+        assertTrue(inMemoryJavaCompiler.compile("Main", code).isSuccess());
+    }
+}
@@ -0,0 +1,112 @@
+package com.lsl.lslcodesandbox.jfr;
+
+import com.lsl.lslcodesandbox.config.CodeSandboxProperties;
+import com.lsl.lslcodesandbox.metrics.SandboxMetrics;
+import com.lsl.lslcodesandbox.model.ExecuteMessage;
+import com.lsl.lslcodesandbox.testdata.TestInput;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JFR 持续录制与导出测试
+ */
+class FlightRecordingManagerTest {
+
+    @Test
+    void testDumpContainsSandboxEvents() throws Exception {
+        FlightRecordingManager manager = new FlightRecordingManager(new CodeSandboxProperties());
+        manager.init();
+        try {
+            assertTrue(manager.isRecording());
+            String submissionId;
+            try (SubmissionTrace trace = SubmissionTrace.enter()) {
+                submissionId = trace.getId();
+                StageEvent checkEvent = StageEvent.start(SubmissionTrace.currentId(), SandboxMetrics.BACKEND_NATIVE, SandboxMetrics.STAGE_CHECK);
+                Thread.sleep(5);
+                checkEvent.finish(123);
+
+                // 带应用类型参数的事件经 SandboxEvents 填充，事件类本身要能被 JFR 插桩
+                CaseExecEvent execEvent = SandboxEvents.startExec(submissionId, SandboxMetrics.BACKEND_NATIVE, null, 0,
+                        Collections.singletonList(TestInput.of("1 2")));
+                ExecuteMessage runMessage = new ExecuteMessage();
+                runMessage.setMessage("3");
+                runMessage.setExitValue(0);
+                SandboxEvents.finishExec(execEvent, Collections.singletonList(runMessage));
+            }
+            assertNull(SubmissionTrace.currentId());
+
+            Path file = manager.dump(Duration.ofMinutes(1));
+            try {
+                List<RecordedEvent> recorded = RecordingFile.readAllEvents(file).stream()
+                        .filter(event -> event.getEventType().getName().startsWith("com.lsl.sandbox."))
+                        .filter(event -> submissionId.equals(event.getString("submissionId")))
+                        .collect(Collectors.toList());
+                List<RecordedEvent> events = recorded.stream()
+                        .filter(event -> event.getEventType().getName().equals("com.lsl.sandbox.Stage"))
+                        .collect(Collectors.toList());
+                assertEquals(1, events.size());
+                assertEquals("check", events.get(0).getString("stage"));
+                assertEquals(123, events.get(0).getLong("bytes"));
+                assertTrue(events.get(0).getDuration().toMillis() >= 5);
+                RecordedEvent exec = recorded.stream()
+                        .filter(event -> event.getEventType().getName().equals("com.lsl.sandbox.CaseExec"))
+                        .findFirst().orElseThrow(AssertionError::new);
+                assertEquals(1, exec.getInt("caseCount"));
+                assertEquals(TestInput.of("1 2").length(), exec.getLong("inputBytes"));
+                assertEquals(1, exec.getLong("outputBytes"));
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        } finally {
+            manager.shutdown();
+        }
+        assertThrows(IllegalStateException.class, () -> manager.dump(Duration.ofMinutes(1)));
+    }
+
+    @Test
+    void testTryDumpIsLimited() throws Exception {
+        CodeSandboxProperties properties = new CodeSandboxProperties();
+        FlightRecordingManager manager = new FlightRecordingManager(properties);
+        manager.init();
+        try {
+            assertEquals(properties.getFlightRecording().getMaxAge() / 1000, manager.getMaxDumpSeconds());
+            Path file = manager.tryDump(Duration.ofMinutes(1));
+            assertNotNull(file);
+            // 上一份还没释放，不再导出
+            assertNull(manager.tryDump(Duration.ofMinutes(1)));
+            manager.releaseDump(file);
+            assertFalse(Files.exists(file));
+            // 释放了，但离上次导出还不到最小间隔
+            assertNull(manager.tryDump(Duration.ofMinutes(1)));
+
+            properties.getFlightRecording().setMinDumpInterval(0);
+            file = manager.tryDump(Duration.ofMinutes(1));
+            assertNotNull(file);
+            manager.releaseDump(file);
+        } finally {
+            manager.shutdown();
+        }
+    }
+
+    @Test
+    void testNestedTraceKeepsOuterId() {
+        try (SubmissionTrace job = SubmissionTrace.enter("job-1")) {
+            // 原生沙箱转交 Docker 沙箱时沿用外层编号
+            try (SubmissionTrace nested = SubmissionTrace.enter()) {
+                assertEquals("job-1", nested.getId());
+            }
+            assertEquals("job-1", SubmissionTrace.currentId());
+        }
+        assertNull(SubmissionTrace.currentId());
+    }
+}
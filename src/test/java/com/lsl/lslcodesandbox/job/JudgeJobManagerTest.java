@@ -0,0 +1,185 @@
+package com.lsl.lslcodesandbox.job;
+
+import com.lsl.lslcodesandbox.JavaNativeCodeSandBox;
+import com.lsl.lslcodesandbox.compiler.CompileResult;
+import com.lsl.lslcodesandbox.config.CodeSandboxProperties;
+import com.lsl.lslcodesandbox.model.ExecuteCodeRequest;
+import com.lsl.lslcodesandbox.model.ExecuteCodeResponse;
+import com.lsl.lslcodesandbox.model.ExecuteMessage;
+import com.lsl.lslcodesandbox.model.JobStatusResponse;
+import com.lsl.lslcodesandbox.runner.ExecuteListener;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 异步判题任务测试，沙箱用一个按用例逐个回调、可被中断的桩代替
+ */
+class JudgeJobManagerTest {
+
+    private JudgeJobManager judgeJobManager;
+
+    private StubSandbox sandbox;
+
+    @BeforeEach
+    void setUp() {
+        CodeSandboxProperties properties = new CodeSandboxProperties();
+        properties.getJob().setMaxConcurrent(1);
+        properties.getJob().setQueueCapacity(1);
+        sandbox = new StubSandbox();
+        judgeJobManager = new JudgeJobManager();
+        ReflectionTestUtils.setField(judgeJobManager, "codeSandboxProperties", properties);
+        ReflectionTestUtils.setField(judgeJobManager, "javaNativeCodeSandBox", sandbox);
+        judgeJobManager.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        judgeJobManager.shutdown();
+    }
+
+    private static ExecuteCodeRequest request(int caseCount) {
+        ExecuteCodeRequest request = new ExecuteCodeRequest();
+        String[] inputs = new String[caseCount];
+        Arrays.fill(inputs, "1 2");
+        request.setInputList(Arrays.asList(inputs));
+        request.setCode("public class Main {}");
+        request.setLanguage("java");
+        return request;
+    }
+
+    private JobStatusResponse waitForTerminal(String jobId) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        JobStatusResponse response = judgeJobManager.get(jobId);
+        while (!response.getStatus().isTerminal() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+            response = judgeJobManager.get(jobId);
+        }
+        return response;
+    }
+
+    @Test
+    void testSubmitAndPollProgress() throws Exception {
+        sandbox.caseDelay = 50;
+        JobStatusResponse submitted = judgeJobManager.submit(request(4));
+        assertEquals(4, submitted.getTotalCases());
+
+        JobStatusResponse finished = waitForTerminal(submitted.getJobId());
+        assertEquals(JobStatusEnum.FINISHED, finished.getStatus());
+        assertEquals(4, finished.getFinishedCases());
+        assertEquals("3", finished.getCaseResults().get(3).getMessage());
+        assertNotNull(finished.getResult());
+        assertNotNull(finished.getFinishTime());
+    }
+
+    @Test
+    void testStreamPushesEventsWithoutRetainingResults() throws Exception {
+        List<String> events = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch finished = new CountDownLatch(1);
+        JobStatusResponse[] summary = new JobStatusResponse[1];
+        JobStatusResponse submitted = judgeJobManager.stream(request(3), new JobListener() {
+            @Override
+            public void onCompiled(CompileResult compileResult) {
+                events.add("compile");
+            }
+
+            @Override
+            public void onCaseFinished(int index, ExecuteMessage executeMessage) {
+                events.add("case" + index);
+            }
+
+            @Override
+            public void onFinished(JobStatusResponse jobStatusResponse) {
+                events.add("summary");
+                summary[0] = jobStatusResponse;
+                finished.countDown();
+            }
+        });
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+
+        assertEquals(Arrays.asList("compile", "case0", "case1", "case2", "summary"), events);
+        assertEquals(JobStatusEnum.FINISHED, summary[0].getStatus());
+        assertEquals(3, summary[0].getFinishedCases());
+        // 输出已经逐个推送过，任务本身不再保留
+        assertNull(summary[0].getCaseResults());
+        assertNull(summary[0].getResult().getOutputList());
+        assertEquals(3, judgeJobManager.get(submitted.getJobId()).getFinishedCases());
+    }
+
+    @Test
+    void testCancelInterruptsRunningJob() throws Exception {
+        sandbox.caseDelay = 10_000;
+        JobStatusResponse submitted = judgeJobManager.submit(request(3));
+        assertTrue(sandbox.started.await(5, TimeUnit.SECONDS));
+
+        JobStatusResponse cancelled = judgeJobManager.cancel(submitted.getJobId());
+        assertEquals(JobStatusEnum.CANCELLED, cancelled.getStatus());
+        // 执行线程收到中断并退出，状态不会被改回已完成
+        assertTrue(sandbox.interrupted.await(5, TimeUnit.SECONDS));
+        Thread.sleep(50);
+        assertEquals(JobStatusEnum.CANCELLED, judgeJobManager.get(submitted.getJobId()).getStatus());
+    }
+
+    @Test
+    void testRejectWhenQueueIsFull() throws Exception {
+        sandbox.caseDelay = 10_000;
+        JobStatusResponse running = judgeJobManager.submit(request(1));
+        assertTrue(sandbox.started.await(5, TimeUnit.SECONDS));
+        JobStatusResponse queued = judgeJobManager.submit(request(1));
+        assertEquals(JobStatusEnum.QUEUED, queued.getStatus());
+
+        assertThrows(IllegalStateException.class, () -> judgeJobManager.submit(request(1)));
+
+        // 排队中的任务取消后不会再执行
+        assertEquals(JobStatusEnum.CANCELLED, judgeJobManager.cancel(queued.getJobId()).getStatus());
+        judgeJobManager.cancel(running.getJobId());
+        assertNull(judgeJobManager.get("not-exist"));
+    }
+
+    /**
+     * 每个用例耗时 caseDelay 毫秒，被中断时立即返回
+     */
+    private static class StubSandbox extends JavaNativeCodeSandBox {
+
+        private volatile long caseDelay;
+
+        private final CountDownLatch started = new CountDownLatch(1);
+
+        private final CountDownLatch interrupted = new CountDownLatch(1);
+
+        @Override
+        public ExecuteCodeResponse execute(ExecuteCodeRequest executeCodeRequest, ExecuteListener listener) {
+            CompileResult compileResult = new CompileResult();
+            compileResult.setSuccess(true);
+            listener.onCompiled(compileResult);
+            started.countDown();
+            ExecuteCodeResponse response = new ExecuteCodeResponse();
+            response.setOutputList(new ArrayList<>());
+            try {
+                for (int i = 0; i < executeCodeRequest.getInputList().size(); i++) {
+                    Thread.sleep(caseDelay);
+                    ExecuteMessage executeMessage = new ExecuteMessage();
+                    executeMessage.setExitValue(0);
+                    executeMessage.setMessage(String.valueOf(i));
+                    listener.onCaseFinished(i, executeMessage);
+                    response.getOutputList().add(executeMessage.getMessage());
+                }
+                response.setStatus(1);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                response.setStatus(2);
+            }
+            return response;
+        }
+    }
+}
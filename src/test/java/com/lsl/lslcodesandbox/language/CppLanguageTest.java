@@ -0,0 +1,96 @@
+package com.lsl.lslcodesandbox.language;
+
+import com.lsl.lslcodesandbox.model.CompileDiagnostic;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * C++ 语言策略测试：用本机的 g++ 按策略给出的命令编译、运行
+ */
+class CppLanguageTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final CppLanguage cppLanguage = new CppLanguage();
+
+    @Test
+    void testCompileAndRun() throws Exception {
+        String code = "#include <iostream>\n" +
+                "int main() { long long a, b; std::cin >> a >> b; std::cout << a + b << std::endl; }\n";
+        String mainName = cppLanguage.mainName(code);
+        String sourceFile = cppLanguage.sourceFileName(mainName);
+        Files.write(tempDir.resolve(sourceFile), code.getBytes(StandardCharsets.UTF_8));
+        assertEquals(0, run(cppLanguage.compileCommand(sourceFile, mainName), "").waitFor());
+
+        Process process = run(cppLanguage.runCommand(tempDir.toString(), File.separator, mainName), "3 4\n");
+        assertEquals("7", new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8).trim());
+        assertEquals(0, process.waitFor());
+    }
+
+    @Test
+    void testParseDiagnostics() throws Exception {
+        String sourceFile = cppLanguage.sourceFileName("main");
+        Files.write(tempDir.resolve(sourceFile), "int main() {\n  int x = \"s\";\n  return y;\n}\n".getBytes(StandardCharsets.UTF_8));
+        Process process = run(cppLanguage.compileCommand(sourceFile, "main"), "");
+        String output = new String(process.getErrorStream().readAllBytes(), StandardCharsets.UTF_8);
+        assertNotEquals(0, process.waitFor());
+
+        List<CompileDiagnostic> diagnostics = cppLanguage.parseDiagnostics(output);
+        assertEquals(2, diagnostics.size(), output);
+        assertEquals("ERROR", diagnostics.get(0).getKind());
+        assertEquals(2L, diagnostics.get(0).getLine());
+        assertEquals(3L, diagnostics.get(1).getLine());
+        // 编译在源文件所在目录执行，报错里不带出目录
+        assertFalse(output.contains(tempDir.toString()));
+    }
+
+    @Test
+    void testFilterCompilerOutput() throws Exception {
+        String sourceFile = cppLanguage.sourceFileName("main");
+        Files.write(tempDir.resolve("secret.txt"), "topsecret password;\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(tempDir.resolve(sourceFile), "#include \"secret.txt\"\nint main() {\n  return y;\n}\n".getBytes(StandardCharsets.UTF_8));
+        Process process = run(cppLanguage.compileCommand(sourceFile, "main"), "");
+        String output = new String(process.getErrorStream().readAllBytes(), StandardCharsets.UTF_8);
+        assertNotEquals(0, process.waitFor());
+        assertTrue(output.contains("topsecret"), output);
+
+        // 被 include 的文件的内容和诊断都不返回，源文件自己的诊断保留
+        String filtered = cppLanguage.filterCompilerOutput(output, sourceFile);
+        assertFalse(filtered.contains("topsecret"), filtered);
+        assertFalse(filtered.contains("secret.txt:"), filtered);
+        assertTrue(filtered.contains("省略了"), filtered);
+        List<CompileDiagnostic> diagnostics = cppLanguage.parseDiagnostics(filtered);
+        assertEquals(1, diagnostics.size(), filtered);
+        assertEquals(3L, diagnostics.get(0).getLine());
+    }
+
+    @Test
+    void testRegistryLookup() {
+        JavaLanguage javaLanguage = new JavaLanguage();
+        LanguageRegistry registry = new LanguageRegistry(Arrays.asList(javaLanguage, cppLanguage));
+        assertSame(javaLanguage, registry.get(null));
+        assertSame(javaLanguage, registry.get("Java"));
+        assertSame(cppLanguage, registry.get("C++"));
+        assertThrows(IllegalArgumentException.class, () -> registry.get("brainfuck"));
+        // 只有命令行编译的语言带编译命令
+        assertTrue(registry.get("cpp") instanceof CommandCompiledLanguage);
+        assertFalse(registry.get("java") instanceof CommandCompiledLanguage);
+    }
+
+    private Process run(List<String> command, String stdin) throws Exception {
+        Process process = new ProcessBuilder(command).directory(tempDir.toFile()).start();
+        process.getOutputStream().write(stdin.getBytes(StandardCharsets.UTF_8));
+        process.getOutputStream().close();
+        return process;
+    }
+}
@@ -0,0 +1,112 @@
+package com.lsl.lslcodesandbox.meter;
+
+import com.lsl.lslcodesandbox.config.CodeSandboxProperties;
+import com.lsl.lslcodesandbox.model.JudgeInfoMessageEnum;
+import com.lsl.lslcodesandbox.runner.ExecutionLimits;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 资源计量测试
+ */
+class ResourceMeterTest {
+
+    @Test
+    void testParseProcStat() {
+        // 进程名里带空格和右括号
+        String stat = "4242 (java (x) y) S 1 4242 4242 0 -1 4194304 1500 0 3 0 250 40 0 0 20 0 19 0 100 0 0";
+        assertArrayEquals(new long[] {1500, 3, 250, 40}, ProcfsResourceMeter.parseStat(stat));
+        assertEquals(35840L * 1024, ProcfsResourceMeter.parseVmHwm("Name:\tjava\nVmPeak:\t  50000 kB\nVmHWM:\t   35840 kB\n"));
+        assertEquals(-1, ProcfsResourceMeter.parseVmHwm("Name:\tkthreadd\n"));
+    }
+
+    @Test
+    void testProcfsMeterMeasuresRunningProcess() throws Exception {
+        ProcfsResourceMeter meter = new ProcfsResourceMeter(new CodeSandboxProperties());
+        meter.init();
+        try {
+            // 先分配一块内存，再空转吃一段 CPU
+            Process process = new ProcessBuilder("sh", "-c",
+                    "x=$(head -c 5000000 /dev/zero | tr '\\0' a); i=0; while [ $i -lt 300000 ]; do i=$((i+1)); done").start();
+            ResourceMeter.Probe probe = meter.start(process);
+            process.waitFor();
+            ResourceUsage usage = probe.finish("");
+
+            assertTrue(usage.getCpuTime() > 100, "cpuTime " + usage.getCpuTime());
+            assertTrue(usage.getWallTime() >= usage.getCpuTime() - 20, "wallTime " + usage.getWallTime());
+            assertTrue(usage.getPeakMemory() > 5000000, "peakMemory " + usage.getPeakMemory());
+            assertTrue(usage.getPageFaults() > 0);
+        } finally {
+            meter.shutdown();
+        }
+    }
+
+    @Test
+    void testProcfsMeterEnforcesLimits() throws Exception {
+        ProcfsResourceMeter meter = new ProcfsResourceMeter(new CodeSandboxProperties());
+        meter.init();
+        ExecutionLimits limits = new ExecutionLimits();
+        limits.setCpuTime(300L);
+        limits.setWallTime(10000L);
+        limits.setIdleTimeout(300L);
+        try {
+            // 死循环：CPU 时间用满即被结束
+            Process busy = new ProcessBuilder("sh", "-c", "while :; do :; done").start();
+            ResourceMeter.Probe probe = meter.start(busy, limits);
+            assertTrue(busy.waitFor(5, TimeUnit.SECONDS));
+            ResourceUsage usage = probe.finish("");
+            assertEquals(JudgeInfoMessageEnum.CPU_TIME_LIMIT_EXCEEDED, limits.verdict(usage, busy.exitValue(), false));
+
+            // 一直睡：CPU 不再增长，远早于墙钟时限被结束
+            long startTime = System.currentTimeMillis();
+            Process sleeping = new ProcessBuilder("sleep", "30").start();
+            probe = meter.start(sleeping, limits);
+            assertTrue(sleeping.waitFor(5, TimeUnit.SECONDS));
+            usage = probe.finish("");
+            assertTrue(System.currentTimeMillis() - startTime < 3000);
+            assertTrue(usage.isIdleTimedOut());
+            assertEquals(JudgeInfoMessageEnum.TIME_LIMIT_EXCEEDED, limits.verdict(usage, sleeping.exitValue(), false));
+        } finally {
+            meter.shutdown();
+        }
+    }
+
+    @Test
+    void testParseCgroupTrailer() {
+        String stderr = "Exception in thread \"main\"\n"
+                + CgroupResourceMeter.MARKER + " 0.52 0.40 0.05 35840 1200 3 "
+                + "| usage_usec 1000000 user_usec 800000 system_usec 200000 nr_periods 10 nr_throttled 1 throttled_usec 5000  "
+                + "| usage_usec 1456789 user_usec 1200000 system_usec 256789 nr_periods 20 nr_throttled 4 throttled_usec 45000 \n";
+        ResourceUsage usage = CgroupResourceMeter.parse(stderr);
+        assertEquals(520L, usage.getWallTime());
+        // CPU 时间取 cgroup 的微秒计数差值
+        assertEquals(456L, usage.getCpuTime());
+        assertEquals(400L, usage.getUserTime());
+        assertEquals(56L, usage.getSystemTime());
+        assertEquals(35840L * 1024, usage.getPeakMemory());
+        assertEquals(1203L, usage.getPageFaults());
+        assertEquals(3L, usage.getThrottledPeriods());
+        assertEquals(40L, usage.getThrottledTime());
+        assertEquals("Exception in thread \"main\"", CgroupResourceMeter.stripTrailer(stderr));
+    }
+
+    @Test
+    void testCgroupTrailerFallbacks() {
+        // cgroup v1：没有 usage_usec，CPU 时间取 rusage；throttled_time 以纳秒计
+        ResourceUsage usage = CgroupResourceMeter.parse(CgroupResourceMeter.MARKER
+                + " 0.10 0.06 0.02 20000 500 0 | nr_throttled 0 throttled_time 0 | nr_throttled 2 throttled_time 3000000 \n");
+        assertEquals(80L, usage.getCpuTime());
+        assertEquals(3L, usage.getThrottledTime());
+
+        // 被强制结束：没有计量行，用户伪造的计量行不在末尾也不会被采信
+        String killed = CgroupResourceMeter.MARKER + " 0.01 0.01 0.00 1 0 0 | | \nstill running";
+        assertNull(CgroupResourceMeter.parse(killed).getPeakMemory());
+        assertEquals(killed, CgroupResourceMeter.stripTrailer(killed));
+
+        assertEquals(Arrays.asList("sh", "-c"), new CgroupResourceMeter().wrap(Arrays.asList("java", "Main")).subList(0, 2));
+    }
+}
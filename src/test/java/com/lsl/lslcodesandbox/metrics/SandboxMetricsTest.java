@@ -0,0 +1,71 @@
+package com.lsl.lslcodesandbox.metrics;
+
+import com.lsl.lslcodesandbox.model.CompileDiagnostic;
+import com.lsl.lslcodesandbox.model.ExecuteCodeResponse;
+import com.lsl.lslcodesandbox.model.JudgeInfo;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 沙箱指标测试
+ */
+class SandboxMetricsTest {
+
+    private static ExecuteCodeResponse response(Integer status, String message) {
+        ExecuteCodeResponse response = new ExecuteCodeResponse();
+        response.setStatus(status);
+        response.setMessage(message);
+        return response;
+    }
+
+    @Test
+    void testRecordsStagesAndVerdicts() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        SandboxMetrics metrics = new SandboxMetrics(registry);
+        metrics.recordStage(SandboxMetrics.BACKEND_NATIVE, SandboxMetrics.STAGE_COMPILE, TimeUnit.MILLISECONDS.toNanos(30));
+        metrics.recordStage(SandboxMetrics.BACKEND_NATIVE, SandboxMetrics.STAGE_COMPILE, TimeUnit.MILLISECONDS.toNanos(10));
+        metrics.recordVerdict(SandboxMetrics.BACKEND_NATIVE, "Accepted");
+        metrics.recordVerdict(SandboxMetrics.BACKEND_NATIVE, "Accepted");
+        metrics.recordAcquire("java", 1000, false);
+        metrics.processStarted(SandboxMetrics.BACKEND_DOCKER, "run");
+
+        Timer compile = registry.get("sandbox.stage").tag("backend", "native").tag("stage", "compile").timer();
+        assertEquals(2, compile.count());
+        assertEquals(40, compile.totalTime(TimeUnit.MILLISECONDS), 0.001);
+        assertEquals(2, registry.get("sandbox.verdicts").tag("verdict", "Accepted").counter().count());
+        assertEquals(1, registry.get("sandbox.container.acquire").tag("outcome", "timeout").timer().count());
+        assertEquals(1, registry.get("sandbox.processes.started").tag("purpose", "run").counter().count());
+    }
+
+    @Test
+    void testVerdictOf() {
+        assertEquals("Accepted", SandboxMetrics.verdictOf(response(1, "执行成功"), 1));
+        // Docker 沙箱以 2 表示成功，原生沙箱的 2 是系统错误
+        assertEquals("Accepted", SandboxMetrics.verdictOf(response(2, "执行成功"), 2));
+        assertEquals("System Error", SandboxMetrics.verdictOf(response(2, "找不到测试数据"), 1));
+        assertEquals("Time Limit Exceeded", SandboxMetrics.verdictOf(response(3, "执行超时"), 1));
+        assertEquals("Runtime Error", SandboxMetrics.verdictOf(response(3, "运行错误：\nException"), 1));
+        assertEquals("Dangerous Operation",
+                SandboxMetrics.verdictOf(response(3, "检测到违规代码操作，已拦截：java.lang.Runtime.exec"), 1));
+        assertEquals("Dangerous Operation",
+                SandboxMetrics.verdictOf(new RuntimeException("检测到违规代码操作，已拦截：第 1 行：禁止导入 java.net.Socket")));
+
+        // Docker 沙箱编译失败的信息不带前缀，按诊断信息识别
+        ExecuteCodeResponse compileError = response(3, "Main.java:1: 找不到符号");
+        compileError.setCompileDiagnostics(new ArrayList<CompileDiagnostic>());
+        assertEquals("Compile Error", SandboxMetrics.verdictOf(compileError, 2));
+
+        // 带期望输出时以沙箱内比对的判定为准
+        ExecuteCodeResponse judged = response(3, "答案错误：第 1 个用例，第 1 行不同");
+        JudgeInfo judgeInfo = new JudgeInfo();
+        judgeInfo.setMessage("Wrong Answer");
+        judged.setJudgeInfo(judgeInfo);
+        assertEquals("Wrong Answer", SandboxMetrics.verdictOf(judged, 1));
+    }
+}
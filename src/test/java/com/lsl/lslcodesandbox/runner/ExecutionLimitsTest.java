@@ -0,0 +1,95 @@
+package com.lsl.lslcodesandbox.runner;
+
+import com.lsl.lslcodesandbox.config.CodeSandboxProperties;
+import com.lsl.lslcodesandbox.meter.ResourceUsage;
+import com.lsl.lslcodesandbox.model.ExecuteCodeRequest;
+import com.lsl.lslcodesandbox.model.ExecuteMessage;
+import com.lsl.lslcodesandbox.model.JudgeInfoMessageEnum;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 时间限制测试
+ */
+class ExecutionLimitsTest {
+
+    @Test
+    void testResolve() {
+        CodeSandboxProperties.Limit config = new CodeSandboxProperties.Limit();
+
+        // 不指定：取默认 CPU 时限，墙钟时限按倍数
+        ExecutionLimits limits = ExecutionLimits.resolve(ExecuteCodeRequest.builder().build(), config);
+        assertEquals(config.getCpuTime(), limits.getCpuTime());
+        assertEquals((long) (config.getCpuTime() * config.getWallTimeFactor()), limits.getWallTime());
+
+        // 超过上限的按上限；墙钟时限不会比 CPU 时限还短
+        limits = ExecutionLimits.resolve(ExecuteCodeRequest.builder().timeLimit(60000L).wallTimeLimit(100L).build(), config);
+        assertEquals(config.getMaxCpuTime(), limits.getCpuTime());
+        assertEquals(config.getMaxCpuTime(), limits.getWallTime());
+
+        limits = ExecutionLimits.resolve(ExecuteCodeRequest.builder().timeLimit(1000L).wallTimeLimit(60000L).build(), config);
+        assertEquals(1000L, limits.getCpuTime());
+        assertEquals(config.getMaxWallTime(), limits.getWallTime());
+    }
+
+    @Test
+    void testVerdict() {
+        ExecutionLimits limits = new ExecutionLimits();
+        limits.setCpuTime(1000L);
+        limits.setWallTime(2000L);
+
+        ResourceUsage usage = new ResourceUsage();
+        usage.setCpuTime(200L);
+        assertNull(limits.verdict(usage, 0, false));
+        // 墙钟超时但 CPU 没用满：宿主机繁忙或在空等，仍按墙钟超时判
+        assertEquals(JudgeInfoMessageEnum.TIME_LIMIT_EXCEEDED, limits.verdict(usage, -1, true));
+        usage.setIdleTimedOut(true);
+        assertEquals(JudgeInfoMessageEnum.TIME_LIMIT_EXCEEDED, limits.verdict(usage, -1, false));
+
+        // CPU 用满优先，不论是被看门狗、墙钟还是内核结束的
+        usage.setCpuTime(1000L);
+        assertEquals(JudgeInfoMessageEnum.CPU_TIME_LIMIT_EXCEEDED, limits.verdict(usage, -1, true));
+        assertEquals(JudgeInfoMessageEnum.CPU_TIME_LIMIT_EXCEEDED,
+                limits.verdict(new ResourceUsage(), ExecutionLimits.SIGXCPU_EXIT_VALUE, false));
+    }
+
+    @Test
+    void testRlimitKillsBusyLoop() throws Exception {
+        ExecutionLimits limits = new ExecutionLimits();
+        limits.setCpuTime(100L);
+        List<String> cmd = limits.wrapWithRlimit(Arrays.asList("sh", "-c", "while :; do :; done"));
+        Process process = new ProcessBuilder(cmd).start();
+        // RLIMIT_CPU 按秒计，多留一秒，约 2 秒后被内核结束
+        assertTrue(process.waitFor(10, TimeUnit.SECONDS));
+        assertEquals(ExecutionLimits.SIGXCPU_EXIT_VALUE, process.exitValue());
+    }
+
+    @Test
+    void testCheckLimitsMarksCpuTimeout() {
+        ExecuteMessage ok = message(10L, null);
+        ExecuteMessage wallTimeout = message(1500L, JudgeInfoMessageEnum.TIME_LIMIT_EXCEEDED);
+        List<ExecuteMessage> checked = MultiCaseRunnerSupport.checkLimits(Arrays.asList(ok, wallTimeout), 1024, 1000L);
+        assertEquals(2, checked.size());
+        assertEquals(JudgeInfoMessageEnum.CPU_TIME_LIMIT_EXCEEDED, checked.get(1).getVerdict());
+
+        // CPU 没用满的墙钟超时保持原判
+        checked = MultiCaseRunnerSupport.checkLimits(Arrays.asList(ok, message(300L, JudgeInfoMessageEnum.TIME_LIMIT_EXCEEDED)), 1024, 1000L);
+        assertEquals(JudgeInfoMessageEnum.TIME_LIMIT_EXCEEDED, checked.get(1).getVerdict());
+    }
+
+    private static ExecuteMessage message(long cpuTime, JudgeInfoMessageEnum verdict) {
+        ExecuteMessage executeMessage = new ExecuteMessage();
+        executeMessage.setExitValue(verdict == null ? 0 : -1);
+        executeMessage.setMessage("ok");
+        executeMessage.setErrorMessage("");
+        executeMessage.setTime(cpuTime);
+        executeMessage.setCpuTime(cpuTime);
+        executeMessage.setVerdict(verdict);
+        return executeMessage;
+    }
+}
@@ -0,0 +1,255 @@
+package com.lsl.lslcodesandbox.runner;
+
+import cn.hutool.core.io.IoUtil;
+import com.lsl.lslcodesandbox.compiler.CompileResult;
+import com.lsl.lslcodesandbox.compiler.InMemoryJavaCompiler;
+import com.lsl.lslcodesandbox.config.CodeSandboxProperties;
+import com.lsl.lslcodesandbox.model.ExecuteMessage;
+import com.lsl.lslcodesandbox.model.JudgeInfoMessageEnum;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 单 JVM 多用例运行器测试
+ */
+class MultiCaseRunnerTest {
+
+    private static final long OUTPUT_LIMIT = 1024 * 1024L;
+
+    @TempDir
+    Path workDir;
+
+    private InMemoryJavaCompiler inMemoryJavaCompiler;
+
+    @BeforeEach
+    void setUp() {
+        CodeSandboxProperties properties = new CodeSandboxProperties();
+        properties.getCompile().setWarmUp(false);
+        inMemoryJavaCompiler = new InMemoryJavaCompiler();
+        ReflectionTestUtils.setField(inMemoryJavaCompiler, "codeSandboxProperties", properties);
+        inMemoryJavaCompiler.init();
+    }
+
+    private List<ExecuteMessage> run(String code, List<String> inputList, long timeLimit) throws Exception {
+        return run(code, inputList, timeLimit, OUTPUT_LIMIT);
+    }
+
+    private List<ExecuteMessage> run(String code, List<String> inputList, long timeLimit, long outputLimit) throws Exception {
+        CompileResult compileResult = inMemoryJavaCompiler.compile("Main", code);
+        assertTrue(compileResult.isSuccess(), compileResult.getMessage());
+        String dir = workDir.toString();
+        InMemoryJavaCompiler.writeClassFiles(compileResult.getClassBytes(), dir);
+        MultiCaseRunnerSupport.installRunner(dir);
+        return MultiCaseRunnerSupport.runAll(inputList.size(), fromIndex -> {
+            List<String> cmd = new ArrayList<>();
+            cmd.add("java");
+            cmd.addAll(MultiCaseRunnerSupport.runnerArgs(dir, File.separator, "Main", timeLimit, outputLimit, outputLimit));
+            Process process = new ProcessBuilder(cmd).start();
+            try (OutputStream out = process.getOutputStream()) {
+                out.write(MultiCaseRunnerSupport.encodeInputs(inputList.subList(fromIndex, inputList.size())));
+            }
+            MultiCaseRunnerSupport.HarnessOutput output = new MultiCaseRunnerSupport.HarnessOutput();
+            output.setStdout(IoUtil.readBytes(process.getInputStream()));
+            output.setStderr(IoUtil.read(process.getErrorStream(), StandardCharsets.UTF_8));
+            assertTrue(process.waitFor(30, TimeUnit.SECONDS));
+            output.setExitValue(process.exitValue());
+            return output;
+        });
+    }
+
+    @Test
+    void testStdinAndStaticStateResetPerCase() throws Exception {
+        String code = "import java.util.Scanner;\n" +
+                "public class Main {\n" +
+                "    static int calls = 0;\n" +
+                "    public static void main(String[] args) {\n" +
+                "        Scanner sc = new Scanner(System.in);\n" +
+                "        int a = sc.nextInt(), b = sc.nextInt();\n" +
+                "        calls++;\n" +
+                "        System.out.println((a + b) + \" \" + calls);\n" +
+                "    }\n" +
+                "}";
+        List<ExecuteMessage> results = run(code, Arrays.asList("1 2", "10 20", "3 4"), 5000);
+        assertEquals(3, results.size());
+        assertEquals("3 1", results.get(0).getMessage());
+        assertEquals("30 1", results.get(1).getMessage());
+        assertEquals("7 1", results.get(2).getMessage());
+        results.forEach(r -> assertEquals(0, r.getExitValue()));
+    }
+
+    @Test
+    void testGlobalStateResetPerCase() throws Exception {
+        String code = "import java.util.*;\n" +
+                "public class Main {\n" +
+                "    public static void main(String[] args) {\n" +
+                "        if (new Scanner(System.in).next().equals(\"set\")) {\n" +
+                "            Locale.setDefault(Locale.GERMANY);\n" +
+                "            TimeZone.setDefault(TimeZone.getTimeZone(\"Pacific/Chatham\"));\n" +
+                "            System.setProperty(\"sandbox.leak\", \"1\");\n" +
+                "        }\n" +
+                "        System.out.println(String.format(\"%.1f\", 1.5) + \" \" + TimeZone.getDefault().getID().equals(\"Pacific/Chatham\")\n" +
+                "                + \" \" + System.getProperty(\"sandbox.leak\"));\n" +
+                "    }\n" +
+                "}";
+        List<ExecuteMessage> results = run(code, Arrays.asList("set", "get"), 5000);
+        assertEquals(2, results.size());
+        assertEquals("1,5 true 1", results.get(0).getMessage());
+        // 上一个用例改过的默认 Locale、时区、系统属性不会带到下一个用例
+        assertEquals("1.5 false null", results.get(1).getMessage());
+    }
+
+    @Test
+    void testOutputIsBoundedPerCase() throws Exception {
+        String code = "public class Main {\n" +
+                "    public static void main(String[] args) {\n" +
+                "        StringBuilder line = new StringBuilder();\n" +
+                "        for (int i = 0; i < 1024; i++) line.append('x');\n" +
+                "        for (int i = 0; i < 64 * 1024; i++) System.out.println(line);\n" +
+                "    }\n" +
+                "}";
+        List<ExecuteMessage> results = run(code, Arrays.asList("1", "2"), 10000, 1024);
+        // 输出超限后不再缓存，直接判定，后面的用例也不再运行
+        assertEquals(1, results.size());
+        assertEquals(JudgeInfoMessageEnum.OUTPUT_LIMIT_EXCEEDED, results.get(0).getVerdict());
+    }
+
+    @Test
+    void testCpuTimeIncludesUserThreads() throws Exception {
+        String code = "import java.lang.management.*;\n" +
+                "public class Main {\n" +
+                "    static void spin() {\n" +
+                "        ThreadMXBean bean = ManagementFactory.getThreadMXBean();\n" +
+                "        while (bean.getCurrentThreadCpuTime() < 300_000_000L) { }\n" +
+                "    }\n" +
+                "    public static void main(String[] args) throws Exception {\n" +
+                "        Thread a = new Thread(Main::spin), b = new Thread(Main::spin);\n" +
+                "        a.start(); b.start(); a.join(); b.join();\n" +
+                "        System.out.println(\"done\");\n" +
+                "    }\n" +
+                "}";
+        List<ExecuteMessage> results = run(code, Arrays.asList(""), 10000);
+        assertEquals("done", results.get(0).getMessage());
+        // 主线程只在等待，CPU 时间来自两个用户线程
+        assertTrue(results.get(0).getCpuTime() >= 550, "CPU 时间 " + results.get(0).getCpuTime() + "ms");
+    }
+
+    @Test
+    void testRuntimeErrorStopsRemainingCases() throws Exception {
+        String code = "public class Main {\n" +
+                "    public static void main(String[] args) throws Exception {\n" +
+                "        int n = new java.util.Scanner(System.in).nextInt();\n" +
+                "        System.out.println(10 / n);\n" +
+                "    }\n" +
+                "}";
+        List<ExecuteMessage> results = run(code, Arrays.asList("5", "0", "2"), 5000);
+        assertEquals(2, results.size());
+        assertEquals("2", results.get(0).getMessage());
+        assertEquals(1, results.get(1).getExitValue());
+        assertTrue(results.get(1).getErrorMessage().contains("ArithmeticException"));
+    }
+
+    @Test
+    void testSystemExitRestartsRunner() throws Exception {
+        String code = "public class Main {\n" +
+                "    public static void main(String[] args) {\n" +
+                "        int n = new java.util.Scanner(System.in).nextInt();\n" +
+                "        System.out.println(n * 2);\n" +
+                "        System.exit(n == 3 ? 3 : 0);\n" +
+                "    }\n" +
+                "}";
+        List<ExecuteMessage> results = run(code, Arrays.asList("1", "2", "3", "4"), 5000);
+        assertEquals(3, results.size());
+        assertEquals("2", results.get(0).getMessage());
+        assertEquals("4", results.get(1).getMessage());
+        assertEquals("6", results.get(2).getMessage());
+        assertEquals(3, results.get(2).getExitValue());
+    }
+
+    @Test
+    void testTimeout() throws Exception {
+        String code = "public class Main {\n" +
+                "    public static void main(String[] args) {\n" +
+                "        while (true) { }\n" +
+                "    }\n" +
+                "}";
+        List<ExecuteMessage> results = run(code, Arrays.asList("1", "2"), 300);
+        assertEquals(1, results.size());
+        assertEquals(JudgeInfoMessageEnum.TIME_LIMIT_EXCEEDED, results.get(0).getVerdict());
+    }
+
+    @Test
+    void testKilledRunnerReportsTimeout() throws Exception {
+        // 第一帧完整、第二帧只写了一半时运行器被整体杀掉
+        java.io.ByteArrayOutputStream buffer = new java.io.ByteArrayOutputStream();
+        java.io.DataOutputStream out = new java.io.DataOutputStream(buffer);
+        for (int i = 0; i < 2; i++) {
+            out.writeInt(MultiCaseRunner.FRAME_MAGIC);
+            out.writeInt(i);
+            out.writeInt(0);
+            out.writeInt(0);
+            out.writeLong(1000_000L);
+            out.writeLong(1000_000L);
+            out.writeInt(1);
+            out.write('3');
+            out.writeInt(0);
+        }
+        byte[] bytes = buffer.toByteArray();
+        MultiCaseRunnerSupport.HarnessOutput output = new MultiCaseRunnerSupport.HarnessOutput();
+        output.setStdout(Arrays.copyOf(bytes, bytes.length - 1));
+        output.setExitValue(137);
+        output.setTimedOut(true);
+
+        List<ExecuteMessage> results = MultiCaseRunnerSupport.runAll(3, fromIndex -> output);
+        assertEquals(2, results.size());
+        assertEquals("3", results.get(0).getMessage());
+        assertEquals(JudgeInfoMessageEnum.TIME_LIMIT_EXCEEDED, results.get(1).getVerdict());
+    }
+
+    @Test
+    void testOutputLimitVerdict() throws Exception {
+        // 运行器输出超限被杀掉，截断处正好落在下一帧的魔数中间
+        java.io.ByteArrayOutputStream buffer = new java.io.ByteArrayOutputStream();
+        java.io.DataOutputStream out = new java.io.DataOutputStream(buffer);
+        out.writeInt(MultiCaseRunner.FRAME_MAGIC);
+        out.writeInt(0);
+        out.writeInt(0);
+        out.writeInt(0);
+        out.writeLong(1000_000L);
+        out.writeLong(1000_000L);
+        out.writeInt(1);
+        out.write('3');
+        out.writeInt(0);
+        out.writeShort(MultiCaseRunner.FRAME_MAGIC >>> 16);
+        MultiCaseRunnerSupport.HarnessOutput output = new MultiCaseRunnerSupport.HarnessOutput();
+        output.setStdout(buffer.toByteArray());
+        output.setExitValue(137);
+        output.setOutputLimitExceeded(true);
+
+        List<ExecuteMessage> results = MultiCaseRunnerSupport.runAll(3, fromIndex -> output);
+        assertEquals(2, results.size());
+        assertEquals(JudgeInfoMessageEnum.OUTPUT_LIMIT_EXCEEDED, results.get(1).getVerdict());
+
+        // 多个用例共用一个进程时，按单个用例的上限逐个检查
+        ExecuteMessage large = new ExecuteMessage();
+        large.setExitValue(0);
+        large.setMessage("12345");
+        large.setTime(7L);
+        List<ExecuteMessage> checked = MultiCaseRunnerSupport.checkLimits(Arrays.asList(results.get(0), large, results.get(0)), 4, Long.MAX_VALUE);
+        assertEquals(2, checked.size());
+        assertEquals(JudgeInfoMessageEnum.OUTPUT_LIMIT_EXCEEDED, checked.get(1).getVerdict());
+        assertEquals(7L, checked.get(1).getTime());
+    }
+}
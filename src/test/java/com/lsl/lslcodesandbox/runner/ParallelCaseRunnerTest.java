@@ -0,0 +1,173 @@
+package com.lsl.lslcodesandbox.runner;
+
+import com.lsl.lslcodesandbox.config.CodeSandboxProperties;
+import com.lsl.lslcodesandbox.model.ExecuteMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 用例并行执行测试
+ */
+class ParallelCaseRunnerTest {
+
+    private CodeSandboxProperties properties;
+
+    private ParallelCaseRunner parallelCaseRunner;
+
+    @BeforeEach
+    void setUp() {
+        properties = new CodeSandboxProperties();
+        properties.getRun().setParallelism(4);
+        properties.getRun().setMaxConcurrentShards(8);
+        parallelCaseRunner = new ParallelCaseRunner();
+        ReflectionTestUtils.setField(parallelCaseRunner, "codeSandboxProperties", properties);
+        parallelCaseRunner.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        parallelCaseRunner.shutdown();
+    }
+
+    private static ExecuteMessage message(int index, int exitValue) {
+        ExecuteMessage executeMessage = new ExecuteMessage();
+        executeMessage.setExitValue(exitValue);
+        executeMessage.setMessage(String.valueOf(index));
+        executeMessage.setTime(0L);
+        return executeMessage;
+    }
+
+    @Test
+    void testSplit() {
+        List<int[]> ranges = ParallelCaseRunner.split(10, 4);
+        assertEquals("[0, 3] [3, 6] [6, 8] [8, 10]", ranges.stream()
+                .map(range -> "[" + range[0] + ", " + range[1] + "]").collect(Collectors.joining(" ")));
+    }
+
+    @Test
+    void testOrderIsDeterministicAndShardsRunConcurrently() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        long startTime = System.currentTimeMillis();
+        List<ExecuteMessage> results = parallelCaseRunner.run(12, (fromIndex, toIndex, stopSignal) -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            List<ExecuteMessage> batch = new ArrayList<>();
+            for (int i = fromIndex; i < toIndex; i++) {
+                // 后面的段先跑完，验证结果仍按用例顺序拼回
+                Thread.sleep(100 - fromIndex * 5L);
+                batch.add(message(i, 0));
+            }
+            running.decrementAndGet();
+            return batch;
+        });
+        long cost = System.currentTimeMillis() - startTime;
+
+        assertEquals(12, results.size());
+        for (int i = 0; i < 12; i++) {
+            assertEquals(String.valueOf(i), results.get(i).getMessage());
+        }
+        // 单次提交的并行度不超过配置
+        assertEquals(4, maxRunning.get());
+        assertTrue(cost < 12 * 100, "耗时 " + cost + "ms");
+    }
+
+    @Test
+    void testResultsStopAtFirstFailure() throws Exception {
+        List<ExecuteMessage> results = parallelCaseRunner.run(8, (fromIndex, toIndex, stopSignal) -> {
+            List<ExecuteMessage> batch = new ArrayList<>();
+            for (int i = fromIndex; i < toIndex; i++) {
+                // 用例 3 和 6 失败，只保留到第一个失败的用例
+                boolean failed = i == 3 || i == 6;
+                batch.add(message(i, failed ? 1 : 0));
+                if (failed) {
+                    break;
+                }
+            }
+            return batch;
+        });
+        assertEquals(4, results.size());
+        assertEquals(1, results.get(3).getExitValue());
+    }
+
+    @Test
+    void testWaitsForStartedShardsAndStopsThemAfterEarlyFailure() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger executed = new AtomicInteger();
+        List<ExecuteMessage> results = parallelCaseRunner.run(40, (fromIndex, toIndex, stopSignal) -> {
+            running.incrementAndGet();
+            try {
+                List<ExecuteMessage> batch = new ArrayList<>();
+                for (int i = fromIndex; i < toIndex; i++) {
+                    if (stopSignal.isStopped(i)) {
+                        break;
+                    }
+                    executed.incrementAndGet();
+                    // 第一段的第一个用例马上失败，其余的段每个用例都要跑一会儿
+                    if (i == 0) {
+                        batch.add(message(i, 1));
+                        break;
+                    }
+                    Thread.sleep(20);
+                    batch.add(message(i, 0));
+                }
+                return batch;
+            } finally {
+                running.decrementAndGet();
+            }
+        });
+        // 返回时所有段都已经结束，调用方可以放心归还工作区
+        assertEquals(0, running.get());
+        assertEquals(1, results.size());
+        assertEquals(1, results.get(0).getExitValue());
+        // 其余的段看到停止信号后不再往下跑，远没有跑完
+        assertTrue(executed.get() < 20, "执行了 " + executed.get() + " 个用例");
+    }
+
+    @Test
+    void testEarlierShardsAreNotStoppedByLaterFailure() throws Exception {
+        List<ExecuteMessage> results = parallelCaseRunner.run(8, (fromIndex, toIndex, stopSignal) -> {
+            List<ExecuteMessage> batch = new ArrayList<>();
+            for (int i = fromIndex; i < toIndex; i++) {
+                if (stopSignal.isStopped(i)) {
+                    break;
+                }
+                // 用例 6 马上失败，前面的段慢一些，仍要跑完才能确定第一个失败的用例
+                boolean failed = i == 6;
+                if (!failed) {
+                    Thread.sleep(30);
+                }
+                batch.add(message(i, failed ? 1 : 0));
+                if (failed) {
+                    break;
+                }
+            }
+            return batch;
+        });
+        assertEquals(7, results.size());
+        assertEquals(1, results.get(6).getExitValue());
+    }
+
+    @Test
+    void testSequentialWhenParallelismIsOne() throws Exception {
+        properties.getRun().setParallelism(1);
+        String caller = Thread.currentThread().getName();
+        List<ExecuteMessage> results = parallelCaseRunner.run(3, (fromIndex, toIndex, stopSignal) -> {
+            assertEquals(caller, Thread.currentThread().getName());
+            List<ExecuteMessage> batch = new ArrayList<>();
+            for (int i = fromIndex; i < toIndex; i++) {
+                batch.add(message(i, 0));
+            }
+            return batch;
+        });
+        assertEquals(3, results.size());
+    }
+}
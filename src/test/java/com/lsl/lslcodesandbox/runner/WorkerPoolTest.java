@@ -0,0 +1,158 @@
+package com.lsl.lslcodesandbox.runner;
+
+import com.lsl.lslcodesandbox.cds.CdsArchiveManager;
+import com.lsl.lslcodesandbox.compiler.CompileResult;
+import com.lsl.lslcodesandbox.compiler.InMemoryJavaCompiler;
+import com.lsl.lslcodesandbox.config.CodeSandboxProperties;
+import com.lsl.lslcodesandbox.model.ExecuteMessage;
+import com.lsl.lslcodesandbox.model.JudgeInfoMessageEnum;
+import com.lsl.lslcodesandbox.testdata.TestInput;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 常驻 worker 池测试
+ */
+class WorkerPoolTest {
+
+    private InMemoryJavaCompiler inMemoryJavaCompiler;
+
+    private WorkerPool workerPool;
+
+    @BeforeEach
+    void setUp() {
+        CodeSandboxProperties properties = new CodeSandboxProperties();
+        properties.getCompile().setWarmUp(false);
+        properties.getRun().setMode(RunMode.WORKER_POOL);
+        properties.getWorker().setPoolSize(1);
+        properties.getWorker().setMaxJobs(2);
+        properties.getCds().setEnabled(false);
+        inMemoryJavaCompiler = new InMemoryJavaCompiler();
+        ReflectionTestUtils.setField(inMemoryJavaCompiler, "codeSandboxProperties", properties);
+        inMemoryJavaCompiler.init();
+        CdsArchiveManager cdsArchiveManager = new CdsArchiveManager();
+        ReflectionTestUtils.setField(cdsArchiveManager, "codeSandboxProperties", properties);
+        workerPool = new WorkerPool();
+        ReflectionTestUtils.setField(workerPool, "codeSandboxProperties", properties);
+        ReflectionTestUtils.setField(workerPool, "cdsArchiveManager", cdsArchiveManager);
+        workerPool.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        workerPool.shutdown();
+    }
+
+    private List<ExecuteMessage> run(String code, List<String> inputList, long timeLimit) throws Exception {
+        CompileResult compileResult = inMemoryJavaCompiler.compile("Main", code);
+        assertTrue(compileResult.isSuccess(), compileResult.getMessage());
+        return workerPool.execute("Main", compileResult.getClassBytes(),
+                inputList.stream().map(TestInput::of).collect(Collectors.toList()), timeLimit);
+    }
+
+    @Test
+    void testJobsAreReusedAndRecycled() throws Exception {
+        String code = "import java.util.Scanner;\n" +
+                "public class Main {\n" +
+                "    static int calls = 0;\n" +
+                "    public static void main(String[] args) {\n" +
+                "        Scanner sc = new Scanner(System.in);\n" +
+                "        System.out.println((sc.nextInt() + sc.nextInt()) + \" \" + (++calls));\n" +
+                "    }\n" +
+                "}";
+        // maxJobs = 2，第三次任务会落到新建的 worker 上
+        for (int i = 0; i < 3; i++) {
+            List<ExecuteMessage> results = run(code, Arrays.asList("1 2", "3 4"), 5000);
+            assertEquals(2, results.size());
+            assertEquals("3 1", results.get(0).getMessage());
+            assertEquals("7 1", results.get(1).getMessage());
+        }
+    }
+
+    @Test
+    void testGlobalStateDoesNotLeakAcrossJobs() throws Exception {
+        String setCode = "public class Main {\n" +
+                "    public static void main(String[] args) {\n" +
+                "        java.util.Locale.setDefault(java.util.Locale.GERMANY);\n" +
+                "        System.setProperty(\"sandbox.leak\", \"1\");\n" +
+                "        System.setOut(new java.io.PrintStream(new java.io.ByteArrayOutputStream()));\n" +
+                "    }\n" +
+                "}";
+        String getCode = "public class Main {\n" +
+                "    public static void main(String[] args) {\n" +
+                "        System.out.println(String.format(\"%.1f\", 1.5) + \" \" + System.getProperty(\"sandbox.leak\"));\n" +
+                "    }\n" +
+                "}";
+        run(setCode, Arrays.asList(""), 5000);
+        // 同一个 worker 上的下一次提交看到的是初始的全局状态，输出也没有被换掉
+        List<ExecuteMessage> results = run(getCode, Arrays.asList(""), 5000);
+        assertEquals("1.5 null", results.get(0).getMessage());
+    }
+
+    @Test
+    void testThreadOutsideCaseGroupRecyclesWorker() throws Exception {
+        // 守护线程开在用例线程组的父线程组里，不断往当前的标准输出写
+        String leakCode = "public class Main {\n" +
+                "    public static void main(String[] args) {\n" +
+                "        Thread thread = new Thread(Thread.currentThread().getThreadGroup().getParent(), () -> {\n" +
+                "            while (true) {\n" +
+                "                System.out.println(\"leak\");\n" +
+                "                try { Thread.sleep(20); } catch (InterruptedException e) { return; }\n" +
+                "            }\n" +
+                "        });\n" +
+                "        thread.setDaemon(true);\n" +
+                "        thread.start();\n" +
+                "        System.out.println(ProcessHandle.current().pid());\n" +
+                "    }\n" +
+                "}";
+        String victimCode = "public class Main {\n" +
+                "    public static void main(String[] args) throws Exception {\n" +
+                "        Thread.sleep(300);\n" +
+                "        System.out.println(ProcessHandle.current().pid());\n" +
+                "    }\n" +
+                "}";
+        List<ExecuteMessage> leak = run(leakCode, Arrays.asList(""), 5000);
+        String leakPid = leak.get(0).getMessage().split("\\R")[0];
+        // 留下线程的 worker 被判为不干净，下一次提交落在新的 worker 上，输出里没有别人的内容
+        List<ExecuteMessage> results = run(victimCode, Arrays.asList(""), 5000);
+        assertNotEquals(leakPid, results.get(0).getMessage());
+        assertFalse(results.get(0).getMessage().contains("leak"), results.get(0).getMessage());
+    }
+
+    @Test
+    void testSystemExitAndTimeoutReplaceWorker() throws Exception {
+        String exitCode = "public class Main {\n" +
+                "    public static void main(String[] args) {\n" +
+                "        int n = new java.util.Scanner(System.in).nextInt();\n" +
+                "        System.out.println(n);\n" +
+                "        System.exit(n == 2 ? 7 : 0);\n" +
+                "    }\n" +
+                "}";
+        List<ExecuteMessage> results = run(exitCode, Arrays.asList("1", "2", "3"), 5000);
+        assertEquals(2, results.size());
+        assertEquals("1", results.get(0).getMessage());
+        assertEquals(0, results.get(0).getExitValue());
+        assertEquals(7, results.get(1).getExitValue());
+
+        String loopCode = "public class Main {\n" +
+                "    public static void main(String[] args) {\n" +
+                "        while (true) { }\n" +
+                "    }\n" +
+                "}";
+        results = run(loopCode, Arrays.asList("1"), 300);
+        assertEquals(JudgeInfoMessageEnum.TIME_LIMIT_EXCEEDED, results.get(0).getVerdict());
+
+        // 超时的 worker 被回收后，池子仍然可用
+        results = run("public class Main { public static void main(String[] a) { System.out.println(\"ok\"); } }",
+                Arrays.asList(""), 5000);
+        assertEquals("ok", results.get(0).getMessage());
+    }
+}
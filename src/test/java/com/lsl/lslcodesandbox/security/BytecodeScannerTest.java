@@ -0,0 +1,99 @@
+package com.lsl.lslcodesandbox.security;
+
+import com.lsl.lslcodesandbox.compiler.CompileResult;
+import com.lsl.lslcodesandbox.compiler.InMemoryJavaCompiler;
+import com.lsl.lslcodesandbox.config.CodeSandboxProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 字节码扫描测试：先用内存编译器编译出真实的类文件再扫描
+ */
+class BytecodeScannerTest {
+
+    private final CodeSandboxProperties properties = new CodeSandboxProperties();
+
+    private InMemoryJavaCompiler compiler;
+
+    private BytecodeScanner scanner;
+
+    @BeforeEach
+    void setUp() {
+        properties.getCompile().setWarmUp(false);
+        compiler = new InMemoryJavaCompiler(properties);
+        compiler.init();
+        scanner = new BytecodeScanner(properties);
+        scanner.init();
+    }
+
+    private Map<String, byte[]> compile(String imports, String body) {
+        String code = imports + "\n" +
+                "public class Main {\n" +
+                "    static class Node { int v; Node next; }\n" +
+                "    public static void main(String[] args) throws Exception {\n" +
+                "        " + body + "\n" +
+                "    }\n" +
+                "}";
+        CompileResult result = compiler.compile("Main", code);
+        assertTrue(result.isSuccess(), result.getMessage());
+        return result.getClassBytes();
+    }
+
+    @Test
+    void testTrusted() {
+        ScanResult result = scanner.scan(compile("import java.util.*; import java.io.*;",
+                "BufferedReader in = new BufferedReader(new InputStreamReader(System.in));\n" +
+                        "List<Integer> list = new ArrayList<>(); Node node = new Node(); node.next = node;\n" +
+                        "Runnable r = () -> list.add(node.v);\n" +
+                        "PrintWriter out = new PrintWriter(System.out); StringBuilder sb = new StringBuilder(\"ab\"); sb.delete(0, 1);\n" +
+                        "out.write(\"sum=\" + list.stream().mapToInt(i -> i).sum() + sb); out.flush();"));
+        assertEquals(ScanVerdict.TRUSTED, result.getVerdict(), result.getReference());
+        assertNull(result.getReference());
+        assertEquals(2, result.getClassCount());
+    }
+
+    @Test
+    void testDenied() {
+        assertEquals("java.lang.Runtime.getRuntime",
+                scanner.scan(compile("", "Runtime.getRuntime().exec(\"ls\");")).getReference());
+        assertEquals("java.lang.Class.forName",
+                scanner.scan(compile("", "Class.forName(\"java.lang.Runtime\");")).getReference());
+        // 按文件名构造 PrintWriter 会被拦，包装 System.out 不会（见 testTrusted）
+        ScanResult result = scanner.scan(compile("", "new java.io.PrintWriter(\"out.txt\").close();"));
+        assertEquals(ScanVerdict.DENIED, result.getVerdict());
+        assertEquals("java.io.PrintWriter.<init>", result.getReference());
+        // 数组类型的引用按元素类型判定
+        assertEquals(ScanVerdict.DENIED,
+                scanner.scan(compile("", "java.io.File[] files = new java.io.File[0]; files.clone();")).getVerdict());
+    }
+
+    @Test
+    void testUntrustedAndCustomLists() {
+        ScanResult result = scanner.scan(compile("", "java.security.MessageDigest.getInstance(\"MD5\");"));
+        assertEquals(ScanVerdict.UNTRUSTED, result.getVerdict());
+        assertEquals("java.security.MessageDigest.getInstance", result.getReference());
+
+        properties.getSecurity().getTrustedRefs().add("java/security/MessageDigest");
+        properties.getSecurity().getDeniedRefs().add("java/util/ArrayList.clear");
+        scanner.init();
+        assertEquals(ScanVerdict.TRUSTED,
+                scanner.scan(compile("", "java.security.MessageDigest.getInstance(\"MD5\");")).getVerdict());
+        assertEquals(ScanVerdict.DENIED,
+                scanner.scan(compile("", "new java.util.ArrayList<Integer>().clear();")).getVerdict());
+    }
+
+    @Test
+    void testRejectsMalformedClass() {
+        assertThrows(IllegalArgumentException.class,
+                () -> scanner.scan(Collections.singletonMap("Main", new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10})));
+        byte[] truncated = compile("", "System.out.println(1);").get("Main");
+        byte[] head = new byte[40];
+        System.arraycopy(truncated, 0, head, 0, head.length);
+        assertThrows(IllegalArgumentException.class, () -> scanner.scan(Collections.singletonMap("Main", head)));
+    }
+}
@@ -0,0 +1,90 @@
+package com.lsl.lslcodesandbox.security;
+
+import com.github.javaparser.ast.expr.IntegerLiteralExpr;
+import com.lsl.lslcodesandbox.config.CodeSandboxProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 静态检查测试
+ */
+class StaticCheckerTest {
+
+    private final CodeSandboxProperties properties = new CodeSandboxProperties();
+
+    private StaticChecker newChecker() {
+        StaticChecker checker = new StaticChecker(properties);
+        checker.init();
+        return checker;
+    }
+
+    private static String program(String imports, String body) {
+        return imports + "\n" +
+                "interface Solver { int solve(); }\n" +
+                "public class Main {\n" +
+                "    public static void main(String[] args) throws Exception {\n" +
+                "        " + body + "\n" +
+                "    }\n" +
+                "}";
+    }
+
+    @Test
+    void testPassesAndFindsMainClass() {
+        CheckResult result = newChecker().check(program("import java.util.*;",
+                "List<Integer> list = new ArrayList<>(); System.out.println(list.size());"));
+        assertTrue(result.isPassed());
+        // 跳过接口，取第一个 public 类
+        assertEquals("Main", result.getMainClassName());
+    }
+
+    @Test
+    void testRulesInOnePass() {
+        properties.getSecurity().setBannedMethodKeywords(Collections.singletonList("delete"));
+        StaticChecker checker = newChecker();
+        assertEquals("第 1 行：禁止导入 java.net.Socket",
+                checker.check(program("import java.net.Socket;", "")).getViolation());
+        // 写全限定名绕过导入
+        assertTrue(checker.check(program("", "new java.io.File(\"/etc/passwd\");")).getViolation().endsWith("禁止使用 File"));
+        // 静态调用的类名
+        assertTrue(checker.check(program("", "ProcessBuilder.startPipeline(null);")).getViolation().endsWith("禁止使用 ProcessBuilder"));
+        assertTrue(checker.check(program("", "Class.forName(\"java.lang.Runtime\");")).getViolation().endsWith("禁止反射调用 forName"));
+        assertTrue(checker.check(program("", "Object o = null; o.toString().delete();")).getViolation().endsWith("禁止调用 delete"));
+        // 默认不按方法名片段拦截
+        properties.getSecurity().setBannedMethodKeywords(Collections.emptyList());
+        assertTrue(newChecker().check(program("", "StringBuilder sb = new StringBuilder(\"ab\"); sb.delete(0, 1);")).isPassed());
+        // 遇到第一处违规即停止，后面的节点不再遍历
+        assertNull(checker.check(program("import java.net.Socket;", "")).getMainClassName());
+    }
+
+    @Test
+    void testVerdictsAreCached() {
+        StaticChecker checker = newChecker();
+        String code = program("", "System.out.println(1);");
+        CheckResult first = checker.check(code);
+        assertSame(first, checker.check(code));
+        assertEquals(1, checker.getHitCount());
+        assertEquals(1, checker.getMissCount());
+
+        properties.getSecurity().setCacheSize(1);
+        checker.check(program("", "System.out.println(2);"));
+        assertEquals(1, checker.size());
+    }
+
+    @Test
+    void testCustomRuleAndDisabled() {
+        StaticChecker checker = new StaticChecker(properties);
+        SecurityRule noMagicNumbers = node -> node instanceof IntegerLiteralExpr ? "禁止数字常量" : null;
+        ReflectionTestUtils.setField(checker, "customRules", Collections.singletonList(noMagicNumbers));
+        checker.init();
+        assertEquals("第 5 行：禁止数字常量", checker.check(program("", "int x = 42;")).getViolation());
+
+        properties.getSecurity().setEnabled(false);
+        CheckResult result = newChecker().check(program("import java.net.Socket;", ""));
+        assertTrue(result.isPassed());
+        assertEquals("Main", result.getMainClassName());
+    }
+}
@@ -0,0 +1,152 @@
+package com.lsl.lslcodesandbox.testdata;
+
+import cn.hutool.core.io.IoUtil;
+import com.lsl.lslcodesandbox.config.CodeSandboxProperties;
+import com.lsl.lslcodesandbox.model.ExecuteCodeRequest;
+import com.lsl.lslcodesandbox.model.TestDataInfo;
+import com.lsl.lslcodesandbox.runner.MultiCaseRunnerSupport;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 测试数据仓库测试
+ */
+class TestDataStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    private CodeSandboxProperties properties;
+
+    private TestDataStore testDataStore;
+
+    @BeforeEach
+    void setUp() {
+        properties = new CodeSandboxProperties();
+        properties.getTestData().setDir(tempDir.toString());
+        properties.getTestData().setMaxBytes(1000);
+        testDataStore = new TestDataStore(properties);
+        testDataStore.init();
+    }
+
+    private TestDataInfo put(String content) throws Exception {
+        return testDataStore.put(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String repeat(char c, int count) {
+        char[] chars = new char[count];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+
+    @Test
+    void testContentAddressedAndDeduplicated() throws Exception {
+        TestDataInfo first = put("1 2\n");
+        TestDataInfo second = put("1 2\n");
+
+        // 同样的内容只存一份，id 为内容的 SHA-256
+        assertEquals(64, first.getId().length());
+        assertEquals(first.getId(), second.getId());
+        assertEquals(4, first.getSize());
+        assertEquals(1, tempDir.toFile().listFiles().length);
+        assertEquals("1 2\n", new String(IoUtil.readBytes(TestInput.ofFile(testDataStore.get(first.getId())).openStream()),
+                StandardCharsets.UTF_8));
+
+        // 重启后仍能找到
+        TestDataStore reopened = new TestDataStore(properties);
+        reopened.init();
+        assertEquals(4, reopened.info(first.getId()).getSize());
+    }
+
+    @Test
+    void testInvalidOrMissingId() throws Exception {
+        assertNull(testDataStore.get("../../etc/passwd"));
+        assertNull(testDataStore.info(repeat('a', 64)));
+        ExecuteCodeRequest request = ExecuteCodeRequest.builder()
+                .inputIdList(Collections.singletonList(repeat('a', 64))).build();
+        assertThrows(IllegalArgumentException.class, () -> testDataStore.resolve(request));
+        // 两种输入都没给时是参数错误，而不是空指针
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> testDataStore.resolve(ExecuteCodeRequest.builder().build()));
+        assertTrue(e.getMessage().contains("inputList"), e.getMessage());
+    }
+
+    @Test
+    void testUploadSizeLimit() throws Exception {
+        properties.getTestData().setMaxUploadBytes(100);
+        assertEquals(100, put(repeat('a', 100)).getSize());
+        assertThrows(IllegalArgumentException.class, () -> put(repeat('b', 101)));
+        // 写了一半的临时文件也被删掉
+        assertEquals(1, tempDir.toFile().listFiles().length);
+    }
+
+    @Test
+    void testResolvedDataIsNotEvictedUntilReleased() throws Exception {
+        TestDataInfo a = put(repeat('a', 400));
+        TestDataInfo b = put(repeat('b', 400));
+        List<TestInput> inputs = testDataStore.resolve(ExecuteCodeRequest.builder()
+                .inputIdList(Arrays.asList(a.getId(), b.getId())).build());
+        TestDataInfo c = put(repeat('c', 400));
+
+        // 超出上限，但 a、b 正被提交引用，都不淘汰
+        assertTrue(inputs.get(0).getFile().exists());
+        assertTrue(inputs.get(1).getFile().exists());
+        assertNotNull(testDataStore.info(c.getId()));
+
+        // 放开之后补上淘汰，淘汰的是最久没用过的 a
+        testDataStore.release(inputs);
+        assertFalse(inputs.get(0).getFile().exists());
+        assertTrue(inputs.get(1).getFile().exists());
+        assertNotNull(testDataStore.info(c.getId()));
+    }
+
+    @Test
+    void testEvictsLeastRecentlyUsed() throws Exception {
+        TestDataInfo a = put(repeat('a', 400));
+        TestDataInfo b = put(repeat('b', 400));
+        // 用过一次 a，超出上限时淘汰的是 b
+        assertNotNull(testDataStore.get(a.getId()));
+        TestDataInfo c = put(repeat('c', 400));
+
+        assertNotNull(testDataStore.info(a.getId()));
+        assertNull(testDataStore.info(b.getId()));
+        assertNotNull(testDataStore.info(c.getId()));
+        assertFalse(new File(tempDir.toFile(), b.getId()).exists());
+    }
+
+    @Test
+    void testResolveAndEncodeInputs() throws Exception {
+        TestDataInfo info = put("3 4\n");
+        List<TestInput> inputs = testDataStore.resolve(ExecuteCodeRequest.builder()
+                .inputIdList(Collections.singletonList(info.getId())).build());
+        assertNotNull(inputs.get(0).getFile());
+        // 容器里按只读挂载点访问，仓库以外的文件没有容器内路径
+        assertEquals(TestDataStore.CONTAINER_DIR + "/" + info.getId(), testDataStore.containerPath(inputs.get(0).getFile()));
+        assertNull(testDataStore.containerPath(new File(tempDir.getParent().toFile(), info.getId())));
+
+        inputs = Arrays.asList(TestInput.of("1 2"), inputs.get(0));
+        byte[] encoded;
+        try (InputStream in = MultiCaseRunnerSupport.openInputs(inputs)) {
+            encoded = IoUtil.readBytes(in);
+        }
+        // 流式编码与一次性编码的结果逐字节一致
+        assertArrayEquals(MultiCaseRunnerSupport.encodeInputs(Arrays.asList("1 2", "3 4")), encoded);
+
+        List<TestInput> inline = testDataStore.resolve(ExecuteCodeRequest.builder()
+                .inputList(Collections.singletonList("5 6")).build());
+        assertNull(inline.get(0).getFile());
+        assertEquals(4, inline.get(0).length());
+    }
+}
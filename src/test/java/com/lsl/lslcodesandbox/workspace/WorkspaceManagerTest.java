@@ -0,0 +1,90 @@
+package com.lsl.lslcodesandbox.workspace;
+
+import com.lsl.lslcodesandbox.config.CodeSandboxProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 工作区管理测试（清理间隔设得很长，由测试手动触发清理）
+ */
+class WorkspaceManagerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private WorkspaceManager workspaceManager;
+
+    @BeforeEach
+    void setUp() {
+        CodeSandboxProperties properties = new CodeSandboxProperties();
+        properties.getWorkspace().setRoot(tempDir.resolve("workspaces").toString());
+        properties.getWorkspace().setQuota(1024);
+        properties.getWorkspace().setMaxFree(1);
+        properties.getWorkspace().setCleanupInterval(60000);
+        workspaceManager = new WorkspaceManager(properties);
+        workspaceManager.init();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        workspaceManager.shutdown();
+    }
+
+    @Test
+    void testReleasedWorkspaceIsCleanedAndReused() throws Exception {
+        Workspace first = workspaceManager.acquire();
+        first.writeClassFiles(Collections.singletonMap("pkg.Main", new byte[100]));
+        File dir = first.getDir();
+        assertTrue(new File(dir, "pkg" + File.separator + "Main.class").exists());
+        assertEquals(WorkspaceManager.CONTAINER_ROOT + "/" + dir.getName(), first.getContainerPath());
+        first.close();
+        first.close();
+
+        // 归还后不在请求线程上清理
+        assertEquals(1, workspaceManager.getPendingCleanupCount());
+        assertTrue(new File(dir, "pkg").exists());
+
+        workspaceManager.cleanup();
+        assertEquals(1, workspaceManager.getFreeCount());
+        Workspace second = workspaceManager.acquire();
+        assertEquals(dir, second.getDir());
+        assertArrayEquals(new String[0], dir.list());
+        assertEquals(0, second.getUsedBytes());
+        assertEquals(1, workspaceManager.getCreations());
+        assertEquals(1, workspaceManager.getReuses());
+        second.close();
+    }
+
+    @Test
+    void testQuotaRejectsWrites() throws Exception {
+        try (Workspace workspace = workspaceManager.acquire()) {
+            workspace.writeClassFiles(Collections.singletonMap("A", new byte[1000]));
+            assertThrows(IOException.class,
+                    () -> workspace.writeClassFiles(Collections.singletonMap("B", new byte[100])));
+            assertFalse(new File(workspace.getDir(), "B.class").exists());
+            assertEquals(1000, workspace.getUsedBytes());
+        }
+    }
+
+    @Test
+    void testSurplusWorkspacesAreDeleted() {
+        Workspace first = workspaceManager.acquire();
+        Workspace second = workspaceManager.acquire();
+        first.close();
+        second.close();
+        workspaceManager.cleanup();
+
+        // 空闲列表只留一个，多出来的删掉
+        assertEquals(1, workspaceManager.getFreeCount());
+        assertEquals(1, workspaceManager.getRoot().list().length);
+    }
+}